@@ -27,7 +27,10 @@ import org.audiveris.omr.script.ExportTask;
 import org.audiveris.omr.script.PrintTask;
 import org.audiveris.omr.script.SaveTask;
 import org.audiveris.omr.sheet.Book;
+import org.audiveris.omr.sheet.BookCache;
 import org.audiveris.omr.sheet.BookManager;
+import org.audiveris.omr.sheet.BookSharding;
+import org.audiveris.omr.sheet.ExportPattern;
 import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.step.RunClass;
 import org.audiveris.omr.step.Step;
@@ -114,6 +117,10 @@ import java.util.concurrent.Callable;
  * <dt><b>-saveDir DIR</b></dt>
  * <dd>Saves book to specific folder (ignored if -saveAs is used)</dd>
  *
+ * <dt><b>-serve PORT</b></dt>
+ * <dd>In batch, keeps running as a server, processing jobs received on local PORT
+ * (clients must first send the token written in user config folder)</dd>
+ *
  * <dt><b>-sheets N...</b></dt>
  * <dd>Selects specific sheets numbers and ranges (like 1-9)</dd>
  *
@@ -121,6 +128,9 @@ import java.util.concurrent.Callable;
  * <dd>Defines a specific transcription step (to be performed on each input referenced from the
  * command line)</dd>
  *
+ * <dt><b>-workers N</b></dt>
+ * <dd>In batch, splits the sheets of each image input among N worker processes</dd>
+ *
  * <dt><b>--</b></dt>
  * <dd>This optional item marks the end of options and indicates that all following items are
  * plain file arguments.</dd>
@@ -184,6 +194,9 @@ public class CLI
                     tasks.add(new BookTask(path));
                 } else if (str.endsWith("-" + SampleRepository.SAMPLES_FILE_NAME)) {
                     tasks.add(new SamplesTask(path));
+                } else if (params.batchMode && (params.workers > 1)) {
+                    // Image input file, to be split among worker processes
+                    tasks.add(new ShardTask(path));
                 } else {
                     // Everything else is considered as an image input file
                     tasks.add(new InputTask(path));
@@ -318,6 +331,19 @@ public class CLI
         return params.saveFolder;
     }
 
+    //--------------//
+    // getServePort //
+    //--------------//
+    /**
+     * Report the local port to serve jobs on, if present on the CLI
+     *
+     * @return the server port, or 0
+     */
+    public int getServePort ()
+    {
+        return params.servePort;
+    }
+
     //-------------//
     // isBatchMode //
     //-------------//
@@ -653,6 +679,14 @@ public class CLI
                                            + " (ignored if -saveAs is used)", metaVar = "<book-folder>")
         Path saveFolder;
 
+        /** Local port for server mode. */
+        @Option(name = "-serve", usage = "Serves jobs received on local port (batch only)", metaVar = "<port>")
+        int servePort;
+
+        /** Number of worker processes per input. */
+        @Option(name = "-workers", usage = "Splits each input among worker processes (batch only)", metaVar = "<count>")
+        int workers;
+
         /** Final arguments, with optional "--" separator. */
         @Argument
         @Option(name = "--", handler = StopOptionHandler.class)
@@ -776,8 +810,12 @@ public class CLI
     private class InputTask
             extends ProcessingTask
     {
-        //~ Constructors ---------------------------------------------------------------------------
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** Key in book cache, if any. */
+        private String cacheKey;
 
+        //~ Constructors ---------------------------------------------------------------------------
         public InputTask (Path path)
         {
             super(path);
@@ -793,7 +831,42 @@ public class CLI
         @Override
         protected Book loadBook (Path path)
         {
-            return OMR.engine.loadInput(path);
+            final Book book = OMR.engine.loadInput(path);
+
+            // Already transcribed with same configuration?
+            if ((OMR.gui == null) && BookCache.useCache()) {
+                cacheKey = BookCache.getKey(path, params.getSheetIds(), params.step);
+
+                // With -force, book is reprocessed (and cache entry replaced)
+                if ((cacheKey != null) && !params.force) {
+                    final Path bookPath = BookManager.getDefaultBookPath(book);
+
+                    if (BookCache.restore(cacheKey, bookPath)) {
+                        OMR.engine.removeBook(book);
+
+                        final Book cachedBook = OMR.engine.loadBook(bookPath);
+
+                        if (cachedBook != null) {
+                            return cachedBook;
+                        }
+
+                        return OMR.engine.loadInput(path);
+                    }
+                }
+            }
+
+            return book;
+        }
+
+        @Override
+        protected void processBook (Book book)
+        {
+            super.processBook(book);
+
+            // Update book cache, only with a successful transcription
+            if ((cacheKey != null) && stepReached) {
+                BookCache.store(cacheKey, BookManager.getDefaultBookPath(book));
+            }
         }
     }
 
@@ -806,8 +879,15 @@ public class CLI
     private abstract class ProcessingTask
             extends CliTask
     {
-        //~ Constructors ---------------------------------------------------------------------------
+        //~ Instance fields ------------------------------------------------------------------------
 
+        /** Set when the target step, if any, has been successfully reached on the book. */
+        protected boolean stepReached;
+
+        /** Set when transcription and export have already been performed by worker processes. */
+        protected boolean sharded;
+
+        //~ Constructors ---------------------------------------------------------------------------
         public ProcessingTask (Path path)
         {
             super(path);
@@ -817,6 +897,8 @@ public class CLI
         @Override
         protected void processBook (Book book)
         {
+            setOutputPaths(book);
+
             final Path folder = BookManager.getDefaultBookPath(book).getParent();
             boolean cancelled = false;
 
@@ -825,12 +907,12 @@ public class CLI
                     Files.createDirectories(folder);
                 }
 
+                LogUtil.start(book);
+
                 if (OMR.gui == null) {
                     LogUtil.addAppender(book.getRadix(), folder);
                 }
 
-                LogUtil.start(book);
-
                 // Specific sheets to process?
                 final SortedSet<Integer> sheetIds = params.getSheetIds();
 
@@ -850,7 +932,7 @@ public class CLI
                 }
 
                 // Specific step to reach on all sheets in the book?
-                if (params.step != null) {
+                if ((params.step != null) && !sharded) {
                     boolean ok = book.reachBookStep(params.step, params.force, sheetIds);
 
                     if (!ok) {
@@ -858,6 +940,8 @@ public class CLI
                     }
                 }
 
+                stepReached = true;
+
                 // Specific class to run?
                 if (params.runClass != null) {
                     try {
@@ -877,7 +961,7 @@ public class CLI
                 }
 
                 // Book export?
-                if (params.export || (params.exportAs != null) || (params.exportFolder != null)) {
+                if (!sharded && isExportRequested()) {
                     logger.debug("Export output");
                     new ExportTask(params.exportAs, params.exportFolder).core(book);
                 }
@@ -914,6 +998,45 @@ public class CLI
                 }
             }
         }
+
+        //-------------------//
+        // isExportRequested //
+        //-------------------//
+        /**
+         * Report whether a MusicXML export is requested on the command line.
+         *
+         * @return true if so
+         */
+        protected boolean isExportRequested ()
+        {
+            return params.export || (params.exportAs != null) || (params.exportFolder != null);
+        }
+
+        //----------------//
+        // setOutputPaths //
+        //----------------//
+        /**
+         * Assign to the book the export and print paths specified on this command line,
+         * so that book outputs never depend on another command line.
+         * (Typically, in server mode, the command line used to start the server)
+         *
+         * @param book the book to process
+         */
+        protected void setOutputPaths (Book book)
+        {
+            if (params.exportAs != null) {
+                book.setExportPathSansExt(ExportPattern.getPathSansExt(params.exportAs));
+            } else if (params.exportFolder != null) {
+                book.setExportPathSansExt(params.exportFolder.resolve(book.getRadix()));
+            }
+
+            if (params.printAs != null) {
+                book.setPrintPath(params.printAs);
+            } else if (params.printFolder != null) {
+                book.setPrintPath(
+                        params.printFolder.resolve(book.getRadix() + OMR.PDF_EXTENSION));
+            }
+        }
     }
 
     //-------------//
@@ -978,4 +1101,88 @@ public class CLI
             return OMR.engine.loadScript(path);
         }
     }
+
+    //-----------//
+    // ShardTask //
+    //-----------//
+    /**
+     * Processing an input file (images) by several worker processes.
+     * <p>
+     * If the input book is already available from cache, or if it contains just one sheet, it is
+     * processed as a plain input.
+     * Otherwise, once the workers have transcribed (and exported) their sheets, the assembled book
+     * goes through the usual processing of remaining options (-runClass, -print, -save, ...).
+     */
+    private class ShardTask
+            extends InputTask
+    {
+        //~ Constructors ---------------------------------------------------------------------------
+
+        public ShardTask (Path path)
+        {
+            super(path);
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public String toString ()
+        {
+            return "Shards \"" + path + "\"";
+        }
+
+        @Override
+        protected void processBook (Book book)
+        {
+            if (!book.getStubs().isEmpty()) {
+                super.processBook(book); // Restored from cache
+
+                return;
+            }
+
+            book.createStubs(params.getSheetIds());
+
+            if (book.getStubs().size() < 2) {
+                super.processBook(book);
+
+                return;
+            }
+
+            boolean ok = false;
+
+            try {
+                LogUtil.start(book);
+                setOutputPaths(book);
+                book.store(BookManager.getDefaultBookPath(book), false);
+
+                BookSharding sharding = new BookSharding(
+                        book,
+                        params.workers,
+                        params.step,
+                        params.force,
+                        isExportRequested(),
+                        params.options);
+
+                if (!sharding.process()) {
+                    throw new RuntimeException("Sharded transcription failed for " + path);
+                }
+
+                ok = true;
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                logger.warn("Exception occurred " + ex, ex);
+                throw new RuntimeException(ex);
+            } finally {
+                if (!ok) {
+                    book.close();
+                }
+
+                LogUtil.stopBook();
+            }
+
+            // Usual processing (run class, print, save, ...) on the assembled book
+            sharded = true;
+            super.processBook(book);
+        }
+    }
 }
@@ -0,0 +1,488 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                       C l i S e r v e r                                        //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr;
+
+import org.audiveris.omr.CLI.CliTask;
+import org.audiveris.omr.classifier.ShapeClassifier;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.image.jai.JaiLoader;
+import org.audiveris.omr.log.LogUtil;
+import org.audiveris.omr.score.PartwiseBuilder;
+
+import org.kohsuke.args4j.CmdLineException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class {@code CliServer} keeps the batch engine running, to process successive jobs without
+ * paying JVM start-up and warm-up costs for each of them.
+ * <p>
+ * The server listens on a local (loopback) port.
+ * Since other local users can connect to this port, the server writes a random token into a file
+ * of the user config folder, readable only by its owner (see {@link #getTokenFile(int)}).
+ * The first line sent by a client must be "TOKEN value", with the content of this file, otherwise
+ * the server replies "DENIED" and closes the connection.
+ * <p>
+ * Then the client sends one job per text line, a job being the sequence of items (options and input
+ * files) that would be provided on the command line, separated by tab characters.
+ * For each job, the server replies with a line "ACCEPTED id", then, when the job is completed,
+ * with a line "DONE id" or "FAILED id reason".
+ * A "SHUTDOWN" line stops the server, once the jobs in progress are completed.
+ * <p>
+ * Jobs are processed concurrently, up to a configured count, reusing the classifier, JAXB contexts
+ * and executors already warmed up.
+ * Log messages of a job thread are annotated with the job ID, and each book gets its own log file.
+ * <p>
+ * Application options (-option) are process-wide, hence they can be set only when starting the
+ * server and are ignored in jobs.
+ *
+ * @author Hervé Bitteur
+ */
+public class CliServer
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(CliServer.class);
+
+    /** Request to stop the server. */
+    private static final String SHUTDOWN = "SHUTDOWN";
+
+    /** Prefix of the authentication line. */
+    private static final String TOKEN = "TOKEN ";
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Local port to listen on. */
+    private final int port;
+
+    /** Executor for jobs. */
+    private final ExecutorService jobExecutor;
+
+    /** To generate job IDs. */
+    private final AtomicInteger jobCount = new AtomicInteger();
+
+    /** Listening socket. */
+    private ServerSocket serverSocket;
+
+    /** Set when shutdown has been requested. */
+    private volatile boolean stopping;
+
+    /** Token expected from clients. */
+    private byte[] token;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code CliServer} object.
+     *
+     * @param port the local port to listen on
+     */
+    public CliServer (int port)
+    {
+        this.port = port;
+
+        jobExecutor = Executors.newFixedThreadPool(
+                constants.maxConcurrentJobs.getValue(),
+                new ThreadFactory()
+        {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread (Runnable r)
+            {
+                return new Thread(r, "job-" + threadNumber.incrementAndGet());
+            }
+        });
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //--------------//
+    // getTokenFile //
+    //--------------//
+    /**
+     * Report the file where the server listening on provided port writes its token.
+     *
+     * @param port the server port
+     * @return the token file path
+     */
+    public static Path getTokenFile (int port)
+    {
+        return WellKnowns.CONFIG_FOLDER.resolve("server-" + port + ".token");
+    }
+
+    //-------//
+    // serve //
+    //-------//
+    /**
+     * Warm up the engine, then process the received jobs until shutdown is requested.
+     *
+     * @throws IOException if the server socket could not be opened
+     */
+    public void serve ()
+            throws IOException
+    {
+        warmUp();
+
+        serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+
+        final Path tokenFile = getTokenFile(serverSocket.getLocalPort());
+        writeToken(tokenFile);
+        logger.info(
+                "Serving jobs on {}, token in {}",
+                serverSocket.getLocalSocketAddress(),
+                tokenFile);
+
+        try {
+            while (!stopping) {
+                final Socket socket;
+
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketException ex) {
+                    if (stopping) {
+                        break; // Socket closed by shutdown request
+                    }
+
+                    throw ex;
+                }
+
+                Thread thread = new Thread(new Connection(socket), "client-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } finally {
+            serverSocket.close();
+            Files.deleteIfExists(tokenFile);
+
+            // Let the pending jobs complete
+            jobExecutor.shutdown();
+
+            try {
+                jobExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                logger.warn("Interrupted while waiting for pending jobs");
+            }
+
+            logger.info("Server stopped");
+        }
+    }
+
+    //------------//
+    // processJob //
+    //------------//
+    /**
+     * Process one job, just like a CLI run with the provided items.
+     *
+     * @param id    job ID
+     * @param items the job CLI items
+     * @return null if OK, otherwise the failure reason
+     */
+    private String processJob (String id,
+                               String[] items)
+    {
+        LogUtil.startJob(id);
+
+        try {
+            logger.info("Job {} started: {}", id, Arrays.toString(items));
+
+            final CLI cli = new CLI(WellKnowns.TOOL_NAME);
+            cli.getParameters(items);
+
+            if (cli.getOptions() != null) {
+                logger.warn("Job options ignored, they can be set only when starting the server");
+            }
+
+            int failures = 0;
+
+            for (CliTask task : cli.getCliTasks()) {
+                try {
+                    task.call();
+                } catch (Exception ex) {
+                    logger.warn("Exception on {}, {}", task.getRadix(), ex.toString(), ex);
+                    failures++;
+                }
+            }
+
+            logger.info("Job {} completed, failed tasks: {}", id, failures);
+
+            return (failures == 0) ? null : (failures + " task(s) failed");
+        } catch (CmdLineException ex) {
+            logger.warn("Error in job command line: {}", ex.getLocalizedMessage());
+
+            return "Error in command line: " + ex.getLocalizedMessage();
+        } finally {
+            LogUtil.stopJob();
+        }
+    }
+
+    //--------------//
+    // isAuthorized //
+    //--------------//
+    /**
+     * Check the authentication line sent by a client.
+     *
+     * @param line the first line received
+     * @return true if line provides the server token
+     */
+    private boolean isAuthorized (String line)
+    {
+        if ((line == null) || !line.startsWith(TOKEN)) {
+            return false;
+        }
+
+        final byte[] received = line.substring(TOKEN.length()).trim().getBytes(
+                StandardCharsets.US_ASCII);
+
+        return MessageDigest.isEqual(token, received); // Time-constant comparison
+    }
+
+    //------//
+    // stop //
+    //------//
+    /**
+     * Stop accepting connections.
+     */
+    private void stop ()
+    {
+        stopping = true;
+
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {
+            logger.warn("Error closing server socket {}", ex.toString());
+        }
+    }
+
+    //--------//
+    // warmUp //
+    //--------//
+    /**
+     * Load costly packages before the first job, rather than during it.
+     */
+    private void warmUp ()
+    {
+        logger.info("Warming up...");
+        JaiLoader.preload();
+        PartwiseBuilder.preload();
+        ShapeClassifier.getInstance(); // Loads the classifier model synchronously
+    }
+
+    //------------//
+    // writeToken //
+    //------------//
+    /**
+     * Generate a random token and write it to a file readable only by its owner.
+     *
+     * @param tokenFile the file to write
+     * @throws IOException if file could not be written
+     */
+    private void writeToken (Path tokenFile)
+            throws IOException
+    {
+        final byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+
+        final StringBuilder sb = new StringBuilder();
+
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+
+        final String value = sb.toString();
+        token = value.getBytes(StandardCharsets.US_ASCII);
+
+        Files.createDirectories(tokenFile.getParent());
+        Files.deleteIfExists(tokenFile);
+
+        if (tokenFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(
+                    tokenFile,
+                    PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(tokenFile);
+
+            // Owner only (best effort on non-POSIX file systems)
+            final File file = tokenFile.toFile();
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(false, false);
+            file.setWritable(true, true);
+        }
+
+        Files.write(tokenFile, token);
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //------------//
+    // Connection //
+    //------------//
+    /**
+     * Handles the jobs sent through one client connection.
+     */
+    private class Connection
+            implements Runnable
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Socket socket;
+
+        private PrintWriter writer;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public Connection (Socket socket)
+        {
+            this.socket = socket;
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public void run ()
+        {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+            try {
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                writer = new PrintWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+                        true);
+
+                // Authentication first
+                if (!isAuthorized(reader.readLine())) {
+                    logger.warn("Unauthorized connection from port {}", socket.getPort());
+                    reply("DENIED");
+
+                    return;
+                }
+
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+
+                    if (line.trim().equalsIgnoreCase(SHUTDOWN)) {
+                        reply("BYE");
+                        stop();
+
+                        break;
+                    }
+
+                    final String id = "J" + jobCount.incrementAndGet();
+                    final String[] items = getItems(line);
+
+                    reply("ACCEPTED " + id);
+
+                    try {
+                        futures.add(jobExecutor.submit(new Runnable()
+                        {
+                            @Override
+                            public void run ()
+                            {
+                                String failure = processJob(id, items);
+                                reply((failure == null) ? ("DONE " + id)
+                                        : ("FAILED " + id + " " + failure));
+                            }
+                        }));
+                    } catch (RejectedExecutionException ex) {
+                        reply("FAILED " + id + " Server is shutting down");
+                    }
+                }
+
+                // Wait for completion of the jobs sent through this connection
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (Exception ex) {
+                logger.warn("Error on client connection {}", ex.toString(), ex);
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private String[] getItems (String line)
+        {
+            final String[] items = line.split("\t");
+
+            for (int i = 0; i < items.length; i++) {
+                items[i] = items[i].trim();
+            }
+
+            return items;
+        }
+
+        private void reply (String message)
+        {
+            synchronized (writer) {
+                writer.println(message);
+            }
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Integer maxConcurrentJobs = new Constant.Integer(
+                "jobs",
+                2,
+                "Maximum number of jobs processed concurrently by the CLI server");
+    }
+}
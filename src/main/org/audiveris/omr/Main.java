@@ -27,10 +27,14 @@ import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantManager;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.log.LogUtil;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.sheet.BasicBook;
+import org.audiveris.omr.sheet.BasicSheet;
 import org.audiveris.omr.sheet.BookManager;
 import org.audiveris.omr.ui.MainGui;
 import org.audiveris.omr.ui.symbol.MusicFont;
 import org.audiveris.omr.util.ClassUtil;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.OmrExecutors;
 
 import org.jdesktop.application.Application;
@@ -144,6 +148,16 @@ public class Main
             // Run the required tasks, if any (and remember if at least one task failed)
             boolean failure = runBatchTasks();
 
+            // Keep running as a server?
+            if (cli.getServePort() > 0) {
+                try {
+                    new CliServer(cli.getServePort()).serve();
+                } catch (Exception ex) {
+                    logger.warn("Error running server {}", ex.toString(), ex);
+                    failure = true;
+                }
+            }
+
             // At this point all tasks have completed (except timeout...)
             // So shutdown gracefully the executors
             boolean timeout = !OmrExecutors.shutdown();
@@ -227,6 +241,11 @@ public class Main
     {
         // (re) Open the executor services
         OmrExecutors.restart();
+
+        // Start building the main JAXB contexts, needed for any book export or import
+        JaxbContexts.preload(BasicBook.class, RunTable.class);
+        JaxbContexts.preload(BasicSheet.class);
+        JaxbContexts.preload(RunTable.class);
     }
 
     //---------------------//
@@ -417,9 +436,11 @@ public class Main
                 false,
                 "Should we process all tasks in parallel when running in batch?");
 
+        // Off until the per-system steps beyond STEMS (REDUCTION through LINKS) have been checked
+        // for thread-safety, as ParallelSystemsTest does up to STEMS.
         private final Constant.Boolean processSystemsInParallel = new Constant.Boolean(
                 false,
-                "Should we process all systems in parallel in a sheet?");
+                "Should we process all systems in parallel in a sheet? (checked up to STEMS only)");
 
         private final Constant.Boolean saveSheetOnEveryStep = new Constant.Boolean(
                 true,
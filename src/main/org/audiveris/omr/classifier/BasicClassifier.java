@@ -27,6 +27,7 @@ import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeSet;
 import org.audiveris.omr.math.NeuralNetwork;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.deeplearning4j.optimize.api.IterationListener;
 
@@ -58,6 +59,9 @@ import javax.xml.bind.annotation.XmlValue;
 /**
  * Class {@code BasicClassifier} is the pre-DL4J classifier, based on a home-built
  * shallow network operating on MixGlyphDescriptor.
+ * <p>
+ * Since the network only reads its weights when run and uses buffers provided by the caller,
+ * the same network instance serves all concurrent evaluations, with per-thread buffers.
  *
  * @author Hervé Bitteur
  */
@@ -81,7 +85,10 @@ public class BasicClassifier
 
     //~ Instance fields ----------------------------------------------------------------------------
     /** The underlying (old) neural network. */
-    private NeuralNetwork model;
+    private volatile NeuralNetwork model;
+
+    /** Per-thread buffer for hidden values. */
+    private final ThreadLocal<double[]> hiddens = new ThreadLocal<double[]>();
 
     /** Training listener, if any. */
     private TrainingMonitor listener;
@@ -174,8 +181,15 @@ public class BasicClassifier
             ins[i] = features.getDouble(i);
         }
 
+        final NeuralNetwork network = model; // Snapshot, in case model gets reset
+        double[] hiddenBuffer = hiddens.get();
+
+        if ((hiddenBuffer == null) || (hiddenBuffer.length != network.getHiddenSize())) {
+            hiddens.set(hiddenBuffer = new double[network.getHiddenSize()]);
+        }
+
         double[] outs = new double[SHAPE_COUNT];
-        model.run(ins, null, outs);
+        network.run(ins, hiddenBuffer, outs);
 
         for (int s = 0; s < SHAPE_COUNT; s++) {
             evals[s] = new Evaluation(values[s], outs[s]);
@@ -401,8 +415,6 @@ public class BasicClassifier
     {
         //~ Static fields/initializers -------------------------------------------------------------
 
-        private static volatile JAXBContext jaxbContext;
-
         //~ Instance fields ------------------------------------------------------------------------
         @XmlElement(name = "names")
         private final StringArray names;
@@ -423,12 +435,7 @@ public class BasicClassifier
         private static JAXBContext getJaxbContext ()
                 throws JAXBException
         {
-            // Lazy creation
-            if (jaxbContext == null) {
-                jaxbContext = JAXBContext.newInstance(FeatureNames.class);
-            }
-
-            return jaxbContext;
+            return JaxbContexts.getContext(FeatureNames.class);
         }
     }
 
@@ -29,6 +29,8 @@ import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeSet;
 import org.audiveris.omr.math.Population;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
 
 import org.deeplearning4j.nn.api.OptimizationAlgorithm;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
@@ -60,10 +62,19 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class {@code DeepClassifier} is a shape classifier implemented by a deep
  * convolutional network operating on {@link ImgGlyphDescriptor}.
+ * <p>
+ * A network keeps the results of its last forward pass in its layers, hence a single network
+ * cannot serve concurrent evaluations.
+ * Evaluations are thus run on a pool of inference networks, created on demand up to a
+ * configurable count, which all share (read-only) the parameters of the reference model.
  *
  * @author Hervé Bitteur
  */
@@ -85,7 +96,10 @@ public class DeepClassifier
     //~ Instance fields ----------------------------------------------------------------------------
     //
     /** The underlying convolutional neural network. */
-    private MultiLayerNetwork model;
+    private volatile MultiLayerNetwork model;
+
+    /** Pool of inference networks, based on current model. */
+    private volatile InferencePool pool;
 
     //~ Constructors -------------------------------------------------------------------------------
     private DeepClassifier ()
@@ -183,9 +197,18 @@ public class DeepClassifier
         final INDArray features = Nd4j.create(doubles);
         normalize(features);
 
-        INDArray output = model.output(features, false);
-        BaseLayer outputLayer = (BaseLayer) model.getOutputLayer();
-        INDArray preOutput = outputLayer.preOutput(false);
+        final InferencePool inferencePool = getPool();
+        final MultiLayerNetwork network = inferencePool.borrow();
+        final INDArray preOutput;
+
+        try {
+            network.output(features, false);
+
+            BaseLayer outputLayer = (BaseLayer) network.getOutputLayer();
+            preOutput = outputLayer.preOutput(false);
+        } finally {
+            inferencePool.giveBack(network);
+        }
 
         Evaluation[] evals = new Evaluation[SHAPE_COUNT];
         Shape[] values = Shape.values();
@@ -403,6 +426,38 @@ public class DeepClassifier
         return 1.0 / (1.0 + Math.exp(-val / 20));
     }
 
+    //---------//
+    // getPool //
+    //---------//
+    /**
+     * Report the pool of inference networks, making sure it is based on current model.
+     *
+     * @return the inference pool
+     */
+    private InferencePool getPool ()
+    {
+        InferencePool inferencePool = pool;
+        final MultiLayerNetwork current = model;
+
+        if ((inferencePool == null) || (inferencePool.model != current)) {
+            synchronized (this) {
+                inferencePool = pool;
+
+                if ((inferencePool == null) || (inferencePool.model != current)) {
+                    int size = constants.inferencePoolSize.getValue();
+
+                    if (size <= 0) {
+                        size = OmrExecutors.getNumberOfCpus();
+                    }
+
+                    pool = inferencePool = new InferencePool(current, size);
+                }
+            }
+        }
+
+        return inferencePool;
+    }
+
     //---------------//
     // createNetwork //
     //---------------//
@@ -488,6 +543,101 @@ public class DeepClassifier
     }
 
     //~ Inner Classes ------------------------------------------------------------------------------
+    //---------------//
+    // InferencePool //
+    //---------------//
+    /**
+     * A bounded pool of networks dedicated to inference on a given model.
+     * <p>
+     * Each pooled network uses the same configuration as the model and a view on the model
+     * parameters (no copy), so that only layer activations are duplicated.
+     */
+    private static class InferencePool
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** The reference model. */
+        final MultiLayerNetwork model;
+
+        /** Maximum number of networks. */
+        private final int size;
+
+        /** Networks currently available. */
+        private final BlockingQueue<MultiLayerNetwork> idles
+                = new LinkedBlockingQueue<MultiLayerNetwork>();
+
+        /** Number of networks created so far. */
+        private final AtomicInteger created = new AtomicInteger();
+
+        //~ Constructors ---------------------------------------------------------------------------
+        InferencePool (MultiLayerNetwork model,
+                       int size)
+        {
+            this.model = model;
+            this.size = size;
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        /**
+         * Get exclusive use of a network, waiting for one if pool is exhausted.
+         *
+         * @return the network to use
+         */
+        MultiLayerNetwork borrow ()
+        {
+            while (true) {
+                MultiLayerNetwork network = idles.poll();
+
+                if (network != null) {
+                    return network;
+                }
+
+                if (created.incrementAndGet() <= size) {
+                    boolean ok = false;
+
+                    try {
+                        network = new MultiLayerNetwork(
+                                model.getLayerWiseConfigurations().clone());
+                        network.init(model.params(), false); // Parameters are shared, not cloned
+                        logger.debug("Inference network #{} created", created.get());
+                        ok = true;
+
+                        return network;
+                    } finally {
+                        if (!ok) {
+                            created.decrementAndGet(); // Creation failed, free the slot
+                        }
+                    }
+                }
+
+                created.decrementAndGet();
+
+                // Wait for a network given back, but re-check periodically in case a pending
+                // creation has failed and freed its slot
+                try {
+                    network = idles.poll(constants.inferenceWait.getValue(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    logger.warn("Interrupted while waiting for an inference network");
+                    throw new ProcessingCancellationException(ex);
+                }
+
+                if (network != null) {
+                    return network;
+                }
+            }
+        }
+
+        /**
+         * Release the network borrowed.
+         *
+         * @param network the network to make available again
+         */
+        void giveBack (MultiLayerNetwork network)
+        {
+            idles.add(network);
+        }
+    }
+
     //-----------//
     // Constants //
     //-----------//
@@ -507,5 +657,15 @@ public class DeepClassifier
                 "Iterations",
                 10,
                 "Number of iterations on each minibatch");
+
+        private final Constant.Integer inferencePoolSize = new Constant.Integer(
+                "networks",
+                0,
+                "Maximum number of networks for concurrent evaluations (0 for number of CPUs)");
+
+        private final Constant.Integer inferenceWait = new Constant.Integer(
+                "milliseconds",
+                500,
+                "Delay before re-checking for an available inference network");
     }
 }
@@ -27,6 +27,7 @@ import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.util.FileUtil;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,9 +78,6 @@ public class SampleSheet
     /** File name for sheet image: {@value}. */
     public static final String IMAGE_FILE_NAME = "image.xml";
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Enumerations -------------------------------------------------------------------------------
     public enum ImageStatus
     {
@@ -211,7 +209,7 @@ public class SampleSheet
 
         try {
             InputStream is = Files.newInputStream(path, StandardOpenOption.READ);
-            Unmarshaller um = getJaxbContext().createUnmarshaller();
+            Unmarshaller um = JaxbContexts.getUnmarshaller(getJaxbContext());
             SampleList sampleList = (SampleList) um.unmarshal(is);
             SampleSheet sampleSheet = new SampleSheet(sampleList, desc);
             logger.debug("Unmarshalled {}", sampleSheet);
@@ -562,12 +560,7 @@ public class SampleSheet
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(RunTable.class, SampleList.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.getContext(RunTable.class, SampleList.class);
     }
 
     //~ Inner Classes ------------------------------------------------------------------------------
@@ -23,6 +23,7 @@ package org.audiveris.omr.classifier;
 
 import org.audiveris.omr.classifier.SheetContainer.Adapter;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -292,7 +293,7 @@ public class SheetContainer
             Files.createDirectories(path.getParent());
 
             // Container
-            JAXBContext jaxbContext = JAXBContext.newInstance(SheetContainer.class);
+            JAXBContext jaxbContext = JaxbContexts.getContext(SheetContainer.class);
             Jaxb.marshal(this, path, jaxbContext);
             logger.info("Stored {}", path);
 
@@ -372,7 +373,7 @@ public class SheetContainer
             final Path path = root.resolve(CONTAINER_ENTRY_NAME);
             logger.debug("SheetContainer unmarshalling {}", path);
 
-            JAXBContext jaxbContext = JAXBContext.newInstance(SheetContainer.class);
+            JAXBContext jaxbContext = JaxbContexts.getContext(SheetContainer.class);
             SheetContainer sheetContainer = (SheetContainer) Jaxb.unmarshal(path, jaxbContext);
             logger.info("Unmarshalled {}", sheetContainer);
 
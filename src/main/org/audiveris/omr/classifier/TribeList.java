@@ -22,6 +22,7 @@
 package org.audiveris.omr.classifier;
 
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,9 +55,6 @@ class TribeList
     private static final Logger logger = LoggerFactory.getLogger(
             TribeList.class);
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Instance fields ----------------------------------------------------------------------------
     // Persistent data
     //----------------
@@ -137,7 +135,7 @@ class TribeList
 
         try {
             InputStream is = Files.newInputStream(path, StandardOpenOption.READ);
-            Unmarshaller um = getJaxbContext().createUnmarshaller();
+            Unmarshaller um = JaxbContexts.getUnmarshaller(getJaxbContext());
             TribeList tribeList = (TribeList) um.unmarshal(is);
             is.close();
 
@@ -155,11 +153,6 @@ class TribeList
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(TribeList.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.getContext(TribeList.class);
     }
 }
@@ -41,7 +41,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -223,6 +225,66 @@ public class ConstantManager
         return props;
     }
 
+    //-------------//
+    // getConstant //
+    //-------------//
+    /**
+     * Report the constant registered under the provided qualified name.
+     * <p>
+     * Beware that constants are registered lazily, so the enclosing ConstantSet must have been
+     * initialized beforehand.
+     *
+     * @param qName the constant qualified name
+     * @return the constant found, or null
+     */
+    public Constant getConstant (String qName)
+    {
+        return constants.get(qName);
+    }
+
+    //---------------------//
+    // getOverriddenValues //
+    //---------------------//
+    /**
+     * Report the values that override the SOURCE values, whether they come from USER
+     * properties, CLI options or from run-time modifications of loaded constants.
+     * <p>
+     * Together with program version, this fully defines the current configuration.
+     *
+     * @return the sorted map (qualified name to value) of overriding values
+     */
+    public SortedMap<String, String> getOverriddenValues ()
+    {
+        final SortedMap<String, String> map = new TreeMap<String, String>();
+
+        // USER values
+        for (String key : userHolder.getKeys()) {
+            map.put(key, userHolder.getProperty(key));
+        }
+
+        // CLI values
+        final CLI cli = Main.getCli();
+
+        if (cli != null) {
+            final Properties cliConstants = cli.getOptions();
+
+            if (cliConstants != null) {
+                for (String key : cliConstants.stringPropertyNames()) {
+                    map.put(key, cliConstants.getProperty(key));
+                }
+            }
+        }
+
+        // Run-time values
+        for (Constant constant : constants.values()) {
+            if (!constant.isSourceValue()) {
+                map.put(constant.getQualifiedName(), constant.getCurrentString());
+            }
+        }
+
+        return map;
+    }
+
     //-------------------------//
     // getUnusedUserProperties //
     //-------------------------//
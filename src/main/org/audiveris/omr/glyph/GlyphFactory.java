@@ -248,6 +248,8 @@ public class GlyphFactory
             table.setSequence(seq.iSeq - iSeqMin, seq.runs);
         }
 
+        table.compact();
+
         // Store created glyph
         final Glyph glyph = new BasicGlyph(offset.x + dx, offset.y + dy, table);
         glyph.addGroup(group);
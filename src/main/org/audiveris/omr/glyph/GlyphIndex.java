@@ -79,6 +79,9 @@ public class GlyphIndex
     private static final Logger logger = LoggerFactory.getLogger(
             GlyphIndex.class);
 
+    /** Number of lock stripes for original registration. */
+    private static final int STRIPE_COUNT = 64;
+
     /** Events read on location service. */
     public static final Class<?>[] locEventsRead = new Class<?>[]{LocationEvent.class};
 
@@ -106,6 +109,13 @@ public class GlyphIndex
     /** Collection of original glyph instances, non sorted. */
     private final ConcurrentHashMap<WeakGlyph, WeakGlyph> originals = new ConcurrentHashMap<WeakGlyph, WeakGlyph>();
 
+    /**
+     * Striped locks for original registration.
+     * Equal glyphs share the same hash code and thus the same stripe, so that registrations of
+     * different glyphs (typically from different systems processed in parallel) do not contend.
+     */
+    private final Object[] stripes = createStripes();
+
     /** Selection service, if any. */
     private EntityService<Glyph> glyphService;
 
@@ -411,20 +421,25 @@ public class GlyphIndex
      * @param glyph the glyph to check
      * @return the original one if any, otherwise this glyph
      */
-    public synchronized Glyph registerOriginal (Glyph glyph)
+    public Glyph registerOriginal (Glyph glyph)
     {
-        WeakGlyph weak = new WeakGlyph(glyph);
-        WeakGlyph orgWeak = originals.putIfAbsent(weak, weak);
-        Glyph orgGlyph = (orgWeak != null) ? orgWeak.get() : null;
+        final WeakGlyph weak = new WeakGlyph(glyph);
+
+        synchronized (getStripe(weak)) {
+            final WeakGlyph orgWeak = originals.get(weak);
+            final Glyph orgGlyph = (orgWeak != null) ? orgWeak.get() : null;
 
-        if (orgGlyph == null) {
+            if (orgGlyph != null) {
+                logger.debug("Reuse original {}", orgGlyph);
+
+                return orgGlyph;
+            }
+
+            // Glyph gets its ID before being visible as an original
             privateRegister(glyph);
+            originals.put(weak, weak);
 
             return glyph;
-        } else {
-            logger.debug("Reuse original {}", orgGlyph);
-
-            return orgGlyph;
         }
     }
 
@@ -481,6 +496,28 @@ public class GlyphIndex
         weakIndex.setLastId(lastId);
     }
 
+    //---------------//
+    // createStripes //
+    //---------------//
+    private static Object[] createStripes ()
+    {
+        final Object[] locks = new Object[STRIPE_COUNT];
+
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+
+        return locks;
+    }
+
+    //-----------//
+    // getStripe //
+    //-----------//
+    private Object getStripe (WeakGlyph weak)
+    {
+        return stripes[(weak.hashCode() & Integer.MAX_VALUE) % stripes.length];
+    }
+
     //-----------------//
     // privateRegister //
     //-----------------//
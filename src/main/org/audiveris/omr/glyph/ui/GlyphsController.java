@@ -244,6 +244,8 @@ public class GlyphsController
             // Publish modifications (about current glyph)
             publish(glyphs.iterator().next());
         }
+
+        markModified();
     }
 
     //------------//
@@ -259,6 +261,7 @@ public class GlyphsController
         logger.debug("syncDelete{}", context);
 
         model.deleteGlyphs(context.getInitialGlyphs());
+        markModified();
 
         publish((Glyph) null);
     }
@@ -278,4 +281,17 @@ public class GlyphsController
                             Arrays.asList(glyph)));
         }
     }
+
+    //--------------//
+    // markModified //
+    //--------------//
+    /**
+     * Flag the sheet as manually modified, which also discards its cached export fragment.
+     */
+    private void markModified ()
+    {
+        if (sheet != null) {
+            sheet.getStub().setModified(true);
+        }
+    }
 }
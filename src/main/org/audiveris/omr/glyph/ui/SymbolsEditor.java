@@ -23,6 +23,7 @@ package org.audiveris.omr.glyph.ui;
 
 import org.audiveris.omr.classifier.BasicClassifier;
 import org.audiveris.omr.classifier.DeepClassifier;
+import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.GlyphIndex;
@@ -48,6 +49,7 @@ import org.audiveris.omr.sheet.ui.SheetResultPainter;
 import org.audiveris.omr.sheet.ui.SheetTab;
 import org.audiveris.omr.sig.inter.Inter;
 import org.audiveris.omr.sig.ui.InterBoard;
+import org.audiveris.omr.sig.ui.InterDisplayList;
 import org.audiveris.omr.ui.Board;
 import org.audiveris.omr.ui.BoardsPane;
 import org.audiveris.omr.ui.Colors;
@@ -284,12 +286,62 @@ public class SymbolsEditor
     /**
      * Refresh the UI display (reset the model values of all spinners,
      * update the colors of the glyphs).
+     * <p>
+     * If SIG modifications since previous refresh are limited to a small region, just this region
+     * is repainted. Otherwise, the whole display is repainted.
      */
     public void refresh ()
     {
+        final Rectangle damage = getDamage();
+
+        if ((damage != null) && (view.getZoom() != null)) {
+            final double sheetArea = (double) sheet.getWidth() * sheet.getHeight();
+            final double damageArea = (double) damage.width * damage.height;
+
+            if (damageArea <= (sheetArea * constants.maxDamageRatio.getValue())) {
+                final int margin = sheet.getInterline();
+                damage.grow(margin, margin);
+                view.repaint(view.getZoom().scaled(damage));
+
+                return;
+            }
+        }
+
+        // Massive modifications: recompute all painting bounds
+        for (SystemInfo system : sheet.getSystems()) {
+            InterDisplayList.getInstance(system.getSig()).invalidate();
+        }
+
         view.repaint();
     }
 
+    //-----------//
+    // getDamage //
+    //-----------//
+    /**
+     * Report the union of regions modified in all system SIGs since previous call.
+     *
+     * @return the damaged region, or null if none
+     */
+    private Rectangle getDamage ()
+    {
+        Rectangle damage = null;
+
+        for (SystemInfo system : sheet.getSystems()) {
+            final Rectangle rect = InterDisplayList.getInstance(system.getSig()).takeDamage();
+
+            if (rect != null) {
+                if (damage == null) {
+                    damage = rect;
+                } else {
+                    damage.add(rect);
+                }
+            }
+        }
+
+        return damage;
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //-----------//
     // Constants //
@@ -302,6 +354,10 @@ public class SymbolsEditor
         private final PixelCount measureMargin = new PixelCount(
                 10,
                 "Number of pixels as margin when highlighting a measure");
+
+        private final Constant.Ratio maxDamageRatio = new Constant.Ratio(
+                0.25,
+                "Maximum ratio of sheet area for a partial repaint");
     }
 
     //--------//
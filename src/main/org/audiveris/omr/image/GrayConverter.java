@@ -0,0 +1,496 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   G r a y C o n v e r t e r                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Class {@code GrayConverter} converts any {@link BufferedImage} to a gray
+ * {@link ByteProcessor}, without any intermediate full-image copy.
+ * <p>
+ * Pixels are read row by row, straight into the target byte array, with specific paths for
+ * TYPE_3BYTE_BGR, TYPE_INT_RGB and 1-bit images.
+ * Other image types are read one row at a time via their color model.
+ * Large images are processed in parallel, one horizontal band per task.
+ * <p>
+ * Gray value is the unweighted average of red, green and blue components, as ImageJ
+ * {@code ColorProcessor.convertToByteProcessor()} does by default.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class GrayConverter
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(GrayConverter.class);
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //--------//
+    // toGray //
+    //--------//
+    /**
+     * Convert the provided image to a gray byte processor.
+     *
+     * @param img the image to convert
+     * @return the gray processor
+     */
+    public static ByteProcessor toGray (BufferedImage img)
+    {
+        final int minRows = constants.minBandHeight.getValue();
+        final int cpus = OmrExecutors.getNumberOfCpus();
+        final int bandCount = Math.min(cpus, img.getHeight() / Math.max(1, minRows));
+
+        if (OmrExecutors.defaultParallelism.getSpecific() == false) {
+            return toGray(img, 1);
+        }
+
+        return toGray(img, bandCount);
+    }
+
+    //--------//
+    // toGray //
+    //--------//
+    /**
+     * Convert the provided image to a gray byte processor, using the provided number of
+     * horizontal bands processed in parallel.
+     *
+     * @param img       the image to convert
+     * @param bandCount the number of bands, sequential conversion if less than 2
+     * @return the gray processor
+     */
+    static ByteProcessor toGray (BufferedImage img,
+                                 int bandCount)
+    {
+        final int width = img.getWidth();
+        final int height = img.getHeight();
+        final byte[] pixels = new byte[width * height];
+        final Band band = createBand(img, pixels);
+
+        if (bandCount < 2) {
+            // Sequential
+            band.convert(0, height);
+        } else {
+            // Parallel
+            try {
+                final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(bandCount);
+                final int bandHeight = (height + bandCount - 1) / bandCount;
+
+                for (int y = 0; y < height; y += bandHeight) {
+                    final int yMin = y;
+                    final int yMax = Math.min(height, y + bandHeight);
+                    tasks.add(
+                            new Callable<Void>()
+                    {
+                        @Override
+                        public Void call ()
+                                throws Exception
+                        {
+                            band.convert(yMin, yMax);
+
+                            return null;
+                        }
+                    });
+                }
+
+                // Launch the tasks and wait for their completion, checking each of them
+                for (Future<Void> future : OmrExecutors.getCachedLowExecutor().invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException ex) {
+                logger.warn("GrayConverter got interrupted");
+                throw new ProcessingCancellationException(ex);
+            } catch (ExecutionException ex) {
+                final Throwable cause = ex.getCause();
+
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                throw new RuntimeException(cause);
+            }
+        }
+
+        return new ByteProcessor(width, height, pixels);
+    }
+
+    //------------//
+    // createBand //
+    //------------//
+    /**
+     * Select the most specific converter for the provided image.
+     *
+     * @param img    the source image
+     * @param pixels the target gray pixels
+     * @return the suitable converter
+     */
+    private static Band createBand (BufferedImage img,
+                                    byte[] pixels)
+    {
+        final Raster raster = img.getRaster();
+        final SampleModel sm = raster.getSampleModel();
+        final DataBuffer db = raster.getDataBuffer();
+
+        switch (img.getType()) {
+        case BufferedImage.TYPE_3BYTE_BGR:
+
+            if ((sm instanceof ComponentSampleModel) && (db instanceof DataBufferByte)) {
+                return new ByteBgrBand(img, pixels);
+            }
+
+            break;
+
+        case BufferedImage.TYPE_INT_RGB:
+
+            if ((sm instanceof SinglePixelPackedSampleModel) && (db instanceof DataBufferInt)) {
+                return new IntRgbBand(img, pixels);
+            }
+
+            break;
+
+        case BufferedImage.TYPE_BYTE_BINARY:
+
+            if ((sm instanceof MultiPixelPackedSampleModel)
+                && (((MultiPixelPackedSampleModel) sm).getPixelBitStride() == 1)
+                && (db instanceof DataBufferByte)) {
+                return new BitBand(img, pixels);
+            }
+
+            break;
+
+        default:
+        }
+
+        return new RgbBand(img, pixels);
+    }
+
+    //------//
+    // gray //
+    //------//
+    /**
+     * Gray value of an RGB pixel, with equal weights and rounding.
+     *
+     * @param r red component
+     * @param g green component
+     * @param b blue component
+     * @return gray value in [0..255]
+     */
+    private static int gray (int r,
+                             int g,
+                             int b)
+    {
+        // Same as (int) (r/3 + g/3 + b/3 + 0.5)
+        return (((r + g + b) * 2) + 3) / 6;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //---------//
+    // BitBand //
+    //---------//
+    /**
+     * Converter for 1-bit images, each bit being mapped through the 2-entry color model.
+     */
+    private static class BitBand
+            extends Band
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final byte[] data;
+
+        private final int offset;
+
+        private final int stride;
+
+        private final int bitOffset;
+
+        private final byte[] levels = new byte[2];
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public BitBand (BufferedImage img,
+                        byte[] pixels)
+        {
+            super(img, pixels);
+
+            final Raster raster = img.getRaster();
+            final MultiPixelPackedSampleModel sm = (MultiPixelPackedSampleModel) raster
+                    .getSampleModel();
+            final DataBufferByte db = (DataBufferByte) raster.getDataBuffer();
+            data = db.getData();
+            stride = sm.getScanlineStride();
+            offset = db.getOffset() - (raster.getSampleModelTranslateY() * stride);
+            bitOffset = sm.getDataBitOffset() - raster.getSampleModelTranslateX();
+
+            final ColorModel cm = img.getColorModel();
+
+            for (int i = 0; i < 2; i++) {
+                levels[i] = (byte) gray(cm.getRed(i), cm.getGreen(i), cm.getBlue(i));
+            }
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public void convert (int yMin,
+                             int yMax)
+        {
+            final byte zero = levels[0];
+            final byte one = levels[1];
+
+            for (int y = yMin; y < yMax; y++) {
+                final int row = offset + (y * stride);
+                int p = y * width;
+
+                for (int x = 0; x < width; x++) {
+                    final int bit = bitOffset + x;
+                    final int val = (data[row + (bit >> 3)] >> (7 - (bit & 7))) & 1;
+                    pixels[p++] = (val == 0) ? zero : one;
+                }
+            }
+        }
+    }
+
+    //------//
+    // Band //
+    //------//
+    /**
+     * Converter for a horizontal band of image rows.
+     * Distinct bands can be converted in parallel.
+     */
+    private abstract static class Band
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        protected final BufferedImage img;
+
+        protected final byte[] pixels;
+
+        protected final int width;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public Band (BufferedImage img,
+                     byte[] pixels)
+        {
+            this.img = img;
+            this.pixels = pixels;
+            width = img.getWidth();
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        /**
+         * Convert the rows in [yMin..yMax[ range.
+         *
+         * @param yMin first row
+         * @param yMax row past the last one
+         */
+        public abstract void convert (int yMin,
+                                      int yMax);
+    }
+
+    //-------------//
+    // ByteBgrBand //
+    //-------------//
+    /**
+     * Converter for images with 3 interleaved byte samples per pixel.
+     */
+    private static class ByteBgrBand
+            extends Band
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final byte[] data;
+
+        private final int offset;
+
+        private final int stride;
+
+        private final int pixelStride;
+
+        private final int[] bands;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public ByteBgrBand (BufferedImage img,
+                            byte[] pixels)
+        {
+            super(img, pixels);
+
+            final Raster raster = img.getRaster();
+            final ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+            final DataBufferByte db = (DataBufferByte) raster.getDataBuffer();
+            data = db.getData();
+            stride = sm.getScanlineStride();
+            pixelStride = sm.getPixelStride();
+            offset = (db.getOffset() - (raster.getSampleModelTranslateY() * stride))
+                     - (raster.getSampleModelTranslateX() * pixelStride);
+            bands = sm.getBandOffsets();
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public void convert (int yMin,
+                             int yMax)
+        {
+            final int b0 = bands[0];
+            final int b1 = bands[1];
+            final int b2 = bands[2];
+
+            for (int y = yMin; y < yMax; y++) {
+                int i = offset + (y * stride);
+                int p = y * width;
+
+                for (int x = 0; x < width; x++, i += pixelStride) {
+                    pixels[p++] = (byte) gray(
+                            data[i + b0] & 0xFF,
+                            data[i + b1] & 0xFF,
+                            data[i + b2] & 0xFF);
+                }
+            }
+        }
+    }
+
+    //------------//
+    // IntRgbBand //
+    //------------//
+    /**
+     * Converter for images with one packed RGB int per pixel.
+     */
+    private static class IntRgbBand
+            extends Band
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final int[] data;
+
+        private final int offset;
+
+        private final int stride;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public IntRgbBand (BufferedImage img,
+                           byte[] pixels)
+        {
+            super(img, pixels);
+
+            final Raster raster = img.getRaster();
+            final SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster
+                    .getSampleModel();
+            final DataBufferInt db = (DataBufferInt) raster.getDataBuffer();
+            data = db.getData();
+            stride = sm.getScanlineStride();
+            offset = (db.getOffset() - (raster.getSampleModelTranslateY() * stride))
+                     - raster.getSampleModelTranslateX();
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public void convert (int yMin,
+                             int yMax)
+        {
+            for (int y = yMin; y < yMax; y++) {
+                int i = offset + (y * stride);
+                int p = y * width;
+
+                for (int x = 0; x < width; x++) {
+                    final int rgb = data[i++];
+                    pixels[p++] = (byte) gray((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+                }
+            }
+        }
+    }
+
+    //---------//
+    // RgbBand //
+    //---------//
+    /**
+     * General converter, reading one row of RGB values at a time.
+     */
+    private static class RgbBand
+            extends Band
+    {
+        //~ Constructors ---------------------------------------------------------------------------
+        public RgbBand (BufferedImage img,
+                        byte[] pixels)
+        {
+            super(img, pixels);
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public void convert (int yMin,
+                             int yMax)
+        {
+            final int[] row = new int[width];
+
+            for (int y = yMin; y < yMax; y++) {
+                img.getRGB(0, y, width, 1, row, 0, width);
+
+                int p = y * width;
+
+                for (int x = 0; x < width; x++) {
+                    final int rgb = row[x];
+                    pixels[p++] = (byte) gray((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+                }
+            }
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Integer minBandHeight = new Constant.Integer(
+                "rows",
+                256,
+                "Minimum number of image rows per parallel conversion task");
+    }
+}
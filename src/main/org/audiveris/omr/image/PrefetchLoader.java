@@ -0,0 +1,482 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  P r e f e t c h L o a d e r                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Class {@code PrefetchLoader} is an image loader on a multi-image input file, which
+ * decodes images ahead of need.
+ * <p>
+ * Each call to {@link #getImage(int)} triggers the background decoding of the following images,
+ * within a window of {@code prefetchWindow} images and a budget of {@code prefetchBudget} bytes
+ * for decoded images not yet retrieved.
+ * <p>
+ * Decoding is performed by a small pool of underlying {@link ImageLoading.Loader} instances on
+ * the same input file (each with its own ImageReader or PDF document), so that several images can
+ * be decoded in parallel.
+ * An image, once retrieved, is no longer kept by this loader.
+ * Once all expected images have been retrieved, the underlying loaders are disposed as soon as
+ * they get idle; any later retrieval (such as the reloading of a swapped sheet) opens a new one.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Hervé Bitteur
+ */
+public class PrefetchLoader
+        implements ImageLoading.Loader
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(PrefetchLoader.class);
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Input file. */
+    private final Path path;
+
+    /** Ordered ids of images expected to be retrieved. */
+    private final List<Integer> expectedIds;
+
+    /** Count of images in input file. */
+    private final int imageCount;
+
+    /** Maximum number of underlying loaders. */
+    private final int maxLoaders;
+
+    /** Idle underlying loaders. */
+    private final BlockingQueue<ImageLoading.Loader> idleLoaders;
+
+    /** Number of underlying loaders created so far. */
+    private int loaderCount;
+
+    /** Decodings launched and not yet retrieved, per image id. */
+    private final Map<Integer, Future<BufferedImage>> futures;
+
+    /** Estimated size of images decoded in advance and not yet retrieved. */
+    private long prefetchedBytes;
+
+    /** Size reserved in prefetchedBytes, per launched decoding. */
+    private final Map<Integer, Long> reservedBytes = new HashMap<Integer, Long>();
+
+    /** Size of last decoded image, used as estimate for pending decodings. */
+    private long lastImageBytes;
+
+    /** Ids of images already retrieved. */
+    private final Set<Integer> retrieved = new HashSet<Integer>();
+
+    /** Set when disposed. */
+    private boolean disposed;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code PrefetchLoader} object.
+     *
+     * @param path        the input file
+     * @param expectedIds the ids of images expected to be retrieved, in the likely order of
+     *                    retrieval, or null for all images
+     * @throws IOException if no underlying loader can be built on the input file
+     */
+    public PrefetchLoader (Path path,
+                           List<Integer> expectedIds)
+            throws IOException
+    {
+        this.path = path;
+
+        idleLoaders = new LinkedBlockingQueue<ImageLoading.Loader>();
+        futures = new HashMap<Integer, Future<BufferedImage>>();
+
+        final ImageLoading.Loader first = ImageLoading.getLoader(path);
+
+        if (first == null) {
+            throw new IOException("No image loader for " + path);
+        }
+
+        loaderCount = 1;
+        imageCount = first.getImageCount();
+        idleLoaders.add(first);
+
+        // One loader is enough for a single image
+        maxLoaders = (imageCount > 1)
+                ? Math.max(
+                        1,
+                        Math.min(
+                                constants.maxDecoders.getValue(),
+                                OmrExecutors.getNumberOfCpus())) : 1;
+
+        if (expectedIds != null) {
+            this.expectedIds = new ArrayList<Integer>(expectedIds);
+        } else {
+            this.expectedIds = new ArrayList<Integer>();
+
+            for (int id = 1; id <= imageCount; id++) {
+                this.expectedIds.add(id);
+            }
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // dispose //
+    //---------//
+    @Override
+    public void dispose ()
+    {
+        synchronized (this) {
+            disposed = true;
+
+            for (Future<BufferedImage> future : futures.values()) {
+                future.cancel(false);
+            }
+
+            futures.clear();
+            reservedBytes.clear();
+            prefetchedBytes = 0;
+        }
+
+        // Loaders currently busy will be disposed when released
+        for (ImageLoading.Loader loader; (loader = idleLoaders.poll()) != null;) {
+            loader.dispose();
+        }
+    }
+
+    //----------//
+    // getImage //
+    //----------//
+    @Override
+    public BufferedImage getImage (int id)
+            throws IOException
+    {
+        if ((id < 1) || (id > imageCount)) {
+            throw new IllegalArgumentException("Invalid image id " + id);
+        }
+
+        final Future<BufferedImage> future;
+
+        synchronized (this) {
+            if (disposed) {
+                throw new IllegalStateException("PrefetchLoader disposed for " + path);
+            }
+
+            future = futures.remove(id);
+            retrieved.add(id);
+
+            final Long reserved = reservedBytes.remove(id);
+
+            if (reserved != null) {
+                prefetchedBytes = Math.max(0, prefetchedBytes - reserved);
+            }
+        }
+
+        final BufferedImage img = (future != null) ? await(future) : decode(id);
+
+        if (isComplete()) {
+            // No more image expected, release the underlying loaders
+            for (ImageLoading.Loader loader; (loader = idleLoaders.poll()) != null;) {
+                disposeLoader(loader);
+            }
+        } else {
+            prefetch(id);
+        }
+
+        return img;
+    }
+
+    //---------------//
+    // getImageCount //
+    //---------------//
+    @Override
+    public int getImageCount ()
+    {
+        return imageCount;
+    }
+
+    //-------//
+    // await //
+    //-------//
+    private BufferedImage await (Future<BufferedImage> future)
+            throws IOException
+    {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted image decoding", ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            throw new IOException("Error decoding image in " + path, cause);
+        }
+    }
+
+    //--------//
+    // decode //
+    //--------//
+    /**
+     * Decode an image, using an idle underlying loader.
+     *
+     * @param id image id
+     * @return the decoded image
+     * @throws IOException if decoding failed
+     */
+    private BufferedImage decode (int id)
+            throws IOException
+    {
+        final ImageLoading.Loader loader = acquireLoader();
+
+        try {
+            final BufferedImage img = loader.getImage(id);
+
+            synchronized (this) {
+                lastImageBytes = sizeOf(img);
+            }
+
+            return img;
+        } finally {
+            releaseLoader(loader);
+        }
+    }
+
+    //---------------//
+    // disposeLoader //
+    //---------------//
+    private void disposeLoader (ImageLoading.Loader loader)
+    {
+        synchronized (this) {
+            loaderCount--;
+        }
+
+        loader.dispose();
+    }
+
+    //------------//
+    // isComplete //
+    //------------//
+    /**
+     * Tell whether all expected images have been retrieved.
+     *
+     * @return true if no more image is expected
+     */
+    private synchronized boolean isComplete ()
+    {
+        return retrieved.containsAll(expectedIds);
+    }
+
+    //---------------//
+    // acquireLoader //
+    //---------------//
+    private ImageLoading.Loader acquireLoader ()
+            throws IOException
+    {
+        ImageLoading.Loader loader = idleLoaders.poll();
+
+        if (loader != null) {
+            return loader;
+        }
+
+        final boolean create;
+
+        synchronized (this) {
+            create = loaderCount < maxLoaders;
+
+            if (create) {
+                loaderCount++;
+            }
+        }
+
+        if (create) {
+            loader = ImageLoading.getLoader(path);
+
+            if (loader != null) {
+                return loader;
+            }
+
+            synchronized (this) {
+                loaderCount--;
+            }
+        }
+
+        // Wait for a busy loader to be released
+        try {
+            return idleLoaders.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an image loader", ex);
+        }
+    }
+
+    //---------------//
+    // releaseLoader //
+    //---------------//
+    private void releaseLoader (ImageLoading.Loader loader)
+    {
+        final boolean dead;
+
+        synchronized (this) {
+            dead = disposed;
+        }
+
+        if (dead) {
+            loader.dispose();
+        } else if (isComplete()) {
+            disposeLoader(loader);
+        } else {
+            idleLoaders.add(loader);
+        }
+    }
+
+    //----------//
+    // prefetch //
+    //----------//
+    /**
+     * Launch the decoding of images expected after the provided one, within window and budget.
+     * <p>
+     * The budget accounts for decodings still in progress, using the size of the last decoded
+     * image as estimate until the actual size is known.
+     *
+     * @param id the image just retrieved
+     */
+    private synchronized void prefetch (int id)
+    {
+        if (disposed) {
+            return;
+        }
+
+        final int window = constants.prefetchWindow.getValue();
+        final long budget = constants.prefetchBudget.getValue() * 1024L * 1024L;
+        final int start = expectedIds.indexOf(id) + 1;
+
+        for (int i = start; (i < expectedIds.size()) && (futures.size() < window); i++) {
+            if (prefetchedBytes >= budget) {
+                break;
+            }
+
+            final int next = expectedIds.get(i);
+
+            if (retrieved.contains(next) || futures.containsKey(next)) {
+                continue;
+            }
+
+            reservedBytes.put(next, lastImageBytes);
+            prefetchedBytes += lastImageBytes;
+            futures.put(
+                    next,
+                    OmrExecutors.getCachedLowExecutor().submit(
+                            new Callable<BufferedImage>()
+                    {
+                        @Override
+                        public BufferedImage call ()
+                                throws Exception
+                        {
+                            final BufferedImage img = decode(next);
+
+                            synchronized (PrefetchLoader.this) {
+                                // Replace estimate by actual size, unless already retrieved
+                                final Long reserved = reservedBytes.get(next);
+
+                                if (reserved != null) {
+                                    final long size = sizeOf(img);
+                                    reservedBytes.put(next, size);
+                                    prefetchedBytes += (size - reserved);
+                                }
+                            }
+
+                            logger.debug("Prefetched image #{} of {}", next, path);
+
+                            return img;
+                        }
+                    }));
+        }
+    }
+
+    //--------//
+    // sizeOf //
+    //--------//
+    /**
+     * Estimate the memory size of an image.
+     *
+     * @param img the image
+     * @return the estimated number of bytes
+     */
+    private static long sizeOf (BufferedImage img)
+    {
+        if (img == null) {
+            return 0;
+        }
+
+        final DataBuffer buffer = img.getRaster().getDataBuffer();
+
+        return ((long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(
+                buffer.getDataType())) / 8;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Integer prefetchWindow = new Constant.Integer(
+                "images",
+                2,
+                "Maximum number of images decoded ahead of need");
+
+        private final Constant.Integer prefetchBudget = new Constant.Integer(
+                "MB",
+                256,
+                "Maximum memory for images decoded ahead of need");
+
+        private final Constant.Integer maxDecoders = new Constant.Integer(
+                "decoders",
+                4,
+                "Maximum number of images decoded in parallel on the same input file");
+    }
+}
@@ -119,6 +119,31 @@ public class ShapeDescriptor
         template = createTemplate(shape, interline);
     }
 
+    /**
+     * Creates a new ShapeDescriptor object, out of previously computed key points.
+     * <p>
+     * This avoids the costly rendering and distance transform of the shape symbol.
+     *
+     * @param shape     the described shape
+     * @param interline global scale value
+     * @param width     template width
+     * @param height    template height
+     * @param keyPoints template key points
+     */
+    public ShapeDescriptor (Shape shape,
+                            int interline,
+                            int width,
+                            int height,
+                            List<PixelDistance> keyPoints)
+    {
+        this.shape = shape;
+        this.interline = interline;
+        this.width = width;
+        this.height = height;
+
+        template = buildTemplate(shape, getFontInterline(shape, interline), keyPoints);
+    }
+
     //~ Methods ------------------------------------------------------------------------------------
     //----------//
     // evaluate //
@@ -325,6 +350,27 @@ public class ShapeDescriptor
         return 0;
     }
 
+    //------------------//
+    // getFontInterline //
+    //------------------//
+    /**
+     * Report the interline value to use for font, according to shape.
+     *
+     * @param shape     template shape
+     * @param interline global scale value
+     * @return the interline for font
+     */
+    private static int getFontInterline (Shape shape,
+                                         int interline)
+    {
+        // Void head templates are generally too small, so we cheat on font size
+        if (shape == Shape.NOTEHEAD_VOID) {
+            return interline + MusicFont.NOTEHEAD_VOID_EXTENT;
+        }
+
+        return interline;
+    }
+
     //--------------//
     // getKeyPoints //
     //--------------//
@@ -483,6 +529,37 @@ public class ShapeDescriptor
         }
     }
 
+    //---------------//
+    // buildTemplate //
+    //---------------//
+    /**
+     * Build the template instance, once its key points are known.
+     *
+     * @param shape     shape of the template
+     * @param interline scaling for font
+     * @param keyPoints template key points
+     * @return the brand new template
+     */
+    private Template buildTemplate (Shape shape,
+                                    int interline,
+                                    List<PixelDistance> keyPoints)
+    {
+        final TemplateSymbol symbol = new TemplateSymbol(shape, getCode(shape));
+
+        // Generate the template instance
+        Template template = new Template(shape, interline, symbol, width, height, keyPoints);
+
+        // Add specific anchor points, if any
+        addAnchors(template);
+
+        if (logger.isDebugEnabled()) {
+            logger.info("Created {}", template);
+            template.dump();
+        }
+
+        return template;
+    }
+
     //----------------//
     // createTemplate //
     //----------------//
@@ -496,10 +573,7 @@ public class ShapeDescriptor
     private Template createTemplate (Shape shape,
                                      int interline)
     {
-        // Void head templates are generally too small, so we cheat on font size
-        if (shape == Shape.NOTEHEAD_VOID) {
-            interline += MusicFont.NOTEHEAD_VOID_EXTENT;
-        }
+        interline = getFontInterline(shape, interline);
 
         MusicFont font = MusicFont.getFont(interline);
 
@@ -528,18 +602,7 @@ public class ShapeDescriptor
         // Generate key points for relevant pixels (fore, holes or back)
         final List<PixelDistance> keyPoints = getKeyPoints(img, distances);
 
-        // Generate the template instance
-        Template template = new Template(shape, interline, symbol, width, height, keyPoints);
-
-        // Add specific anchor points, if any
-        addAnchors(template);
-
-        if (logger.isDebugEnabled()) {
-            logger.info("Created {}", template);
-            template.dump();
-        }
-
-        return template;
+        return buildTemplate(shape, interline, keyPoints);
     }
 
     //----------------------//
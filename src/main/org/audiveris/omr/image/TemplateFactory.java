@@ -21,19 +21,44 @@
 // </editor-fold>
 package org.audiveris.omr.image;
 
+import org.audiveris.omr.ProgramId;
+import org.audiveris.omr.WellKnowns;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeSet;
+import org.audiveris.omr.step.ProcessingCancellationException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.EnumMap;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Class {@code TemplateFactory} builds needed instances of {@link Template} class
  * and keeps a catalog per desired size and shape.
+ * <p>
+ * The number of catalogs kept in memory is bounded, the least recently used catalog being evicted.
+ * A catalog is built only once, even when requested concurrently by several threads, and the
+ * building of a catalog does not block access to the other catalogs.
+ * <p>
+ * Optionally, the template key points of each catalog can be persisted on disk, one file per
+ * interline value, so that a new JVM can avoid the costly rendering of symbols.
  *
  * @author Hervé Bitteur
  */
@@ -41,15 +66,20 @@ public class TemplateFactory
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(TemplateFactory.class);
 
     /** Singleton. */
     private static final TemplateFactory INSTANCE = new TemplateFactory();
 
+    /** Version of disk format. */
+    private static final int DISK_FORMAT = 1;
+
     //~ Instance fields ----------------------------------------------------------------------------
     //
-    /** Catalog of all templates already allocated. */
-    private final Map<Integer, Catalog> allSizes;
+    /** Catalog of all templates already allocated, in access order. */
+    private final Map<Integer, FutureTask<Catalog>> allSizes;
 
     //~ Constructors -------------------------------------------------------------------------------
     /**
@@ -57,7 +87,14 @@ public class TemplateFactory
      */
     private TemplateFactory ()
     {
-        allSizes = new HashMap<Integer, Catalog>();
+        allSizes = new LinkedHashMap<Integer, FutureTask<Catalog>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Integer, FutureTask<Catalog>> eldest)
+            {
+                return size() > constants.maxCatalogs.getValue();
+            }
+        };
     }
 
     //~ Methods ------------------------------------------------------------------------------------
@@ -78,23 +115,51 @@ public class TemplateFactory
      * @param interline provided interline
      * @return the catalog of all templates for the interline value
      */
-    public Catalog getCatalog (int interline)
+    public Catalog getCatalog (final int interline)
     {
-        ///interline += 1; // HORRIBLE TRICK TO BE REMOVED ASAP!!!!!!!!!!!!!!!!!!!!!!!!!
-        Catalog catalog = allSizes.get(interline);
+        FutureTask<Catalog> task;
+        boolean creator = false;
 
-        if (catalog == null) {
-            synchronized (allSizes) {
-                catalog = allSizes.get(interline);
+        synchronized (allSizes) {
+            task = allSizes.get(interline);
 
-                if (catalog == null) {
-                    catalog = new Catalog(interline);
-                    allSizes.put(interline, catalog);
-                }
+            if (task == null) {
+                task = new FutureTask<Catalog>(
+                        new Callable<Catalog>()
+                {
+                    @Override
+                    public Catalog call ()
+                            throws Exception
+                    {
+                        return new Catalog(interline);
+                    }
+                });
+                allSizes.put(interline, task);
+                creator = true;
             }
         }
 
-        return catalog;
+        // Build catalog outside of synchronized block
+        if (creator) {
+            task.run();
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for template catalog");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            // Forget this failed catalog
+            synchronized (allSizes) {
+                if (allSizes.get(interline) == task) {
+                    allSizes.remove(interline);
+                }
+            }
+
+            throw new RuntimeException(ex.getCause());
+        }
     }
 
     //~ Inner Classes ------------------------------------------------------------------------------
@@ -119,7 +184,14 @@ public class TemplateFactory
         public Catalog (int interline)
         {
             this.interline = interline;
-            buildAllTemplates();
+
+            if (!constants.useDiskCache.isSet() || !loadFromDisk()) {
+                buildAllTemplates();
+
+                if (constants.useDiskCache.isSet()) {
+                    storeOnDisk();
+                }
+            }
         }
 
         //~ Methods --------------------------------------------------------------------------------
@@ -150,5 +222,158 @@ public class TemplateFactory
                 descriptors.put(shape, new ShapeDescriptor(shape, interline));
             }
         }
+
+        //-------------//
+        // getDiskPath //
+        //-------------//
+        private Path getDiskPath ()
+        {
+            return WellKnowns.TEMP_FOLDER.resolve("templates").resolve(
+                    "catalog-" + interline + ".bin");
+        }
+
+        //--------------//
+        // loadFromDisk //
+        //--------------//
+        /**
+         * Try to load the template key points from disk.
+         *
+         * @return true if successful
+         */
+        private boolean loadFromDisk ()
+        {
+            final Path path = getDiskPath();
+
+            if (!Files.exists(path)) {
+                return false;
+            }
+
+            try {
+                final DataInputStream dis = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(path)));
+
+                try {
+                    if ((dis.readInt() != DISK_FORMAT)
+                        || !dis.readUTF().equals(getProgramSignature())
+                        || (dis.readInt() != interline)) {
+                        logger.info("Obsolete template file {}", path);
+
+                        return false;
+                    }
+
+                    final Map<Shape, ShapeDescriptor> map = new EnumMap<Shape, ShapeDescriptor>(
+                            Shape.class);
+
+                    for (int i = dis.readInt(); i > 0; i--) {
+                        final Shape shape = Shape.valueOf(dis.readUTF());
+                        final int width = dis.readInt();
+                        final int height = dis.readInt();
+                        final int count = dis.readInt();
+                        final List<PixelDistance> keyPoints = new ArrayList<PixelDistance>(count);
+
+                        for (int j = 0; j < count; j++) {
+                            final int x = dis.readInt();
+                            final int y = dis.readInt();
+                            keyPoints.add(new PixelDistance(x, y, dis.readDouble()));
+                        }
+
+                        map.put(
+                                shape,
+                                new ShapeDescriptor(shape, interline, width, height, keyPoints));
+                    }
+
+                    // Check all needed shapes are present
+                    if (!map.keySet().containsAll(ShapeSet.TemplateNotes)) {
+                        return false;
+                    }
+
+                    descriptors.putAll(map);
+                    logger.debug("Templates loaded from {}", path);
+
+                    return true;
+                } finally {
+                    dis.close();
+                }
+            } catch (Exception ex) {
+                logger.warn("Error loading templates from {} {}", path, ex.toString(), ex);
+
+                return false;
+            }
+        }
+
+        //-------------//
+        // storeOnDisk //
+        //-------------//
+        /**
+         * Store the template key points on disk.
+         */
+        private void storeOnDisk ()
+        {
+            final Path path = getDiskPath();
+
+            try {
+                Files.createDirectories(path.getParent());
+
+                // Write to a temporary file, then move, since other JVMs may read concurrently
+                final Path tmp = Files.createTempFile(path.getParent(), "catalog", ".tmp");
+                final DataOutputStream dos = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tmp)));
+
+                try {
+                    dos.writeInt(DISK_FORMAT);
+                    dos.writeUTF(getProgramSignature());
+                    dos.writeInt(interline);
+                    dos.writeInt(descriptors.size());
+
+                    for (ShapeDescriptor desc : descriptors.values()) {
+                        final Template template = desc.getTemplate();
+                        final List<PixelDistance> keyPoints = template.getKeyPoints();
+                        dos.writeUTF(desc.getShape().name());
+                        dos.writeInt(desc.getWidth());
+                        dos.writeInt(desc.getHeight());
+                        dos.writeInt(keyPoints.size());
+
+                        for (PixelDistance pd : keyPoints) {
+                            dos.writeInt(pd.x);
+                            dos.writeInt(pd.y);
+                            dos.writeDouble(pd.d);
+                        }
+                    }
+                } finally {
+                    dos.close();
+                }
+
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+                logger.debug("Templates stored to {}", path);
+            } catch (IOException ex) {
+                logger.warn("Error storing templates to {} {}", path, ex.toString(), ex);
+            }
+        }
+
+        //---------------------//
+        // getProgramSignature //
+        //---------------------//
+        private static String getProgramSignature ()
+        {
+            return ProgramId.PROGRAM_VERSION + "-" + ProgramId.PROGRAM_BUILD;
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Integer maxCatalogs = new Constant.Integer(
+                "catalogs",
+                16,
+                "Maximum number of template catalogs kept in memory");
+
+        private final Constant.Boolean useDiskCache = new Constant.Boolean(
+                false,
+                "Should we persist template key points on disk?");
     }
 }
@@ -48,6 +48,9 @@ public class BasicLag
 
     private static final Logger logger = LoggerFactory.getLogger(BasicLag.class);
 
+    /** Number of lock stripes on run sequences. */
+    private static final int STRIPE_COUNT = 64;
+
     //~ Instance fields ----------------------------------------------------------------------------
     /** Orientation of the lag. */
     private final Orientation orientation;
@@ -58,6 +61,13 @@ public class BasicLag
     /** Lag name. */
     private final String name;
 
+    /**
+     * Striped locks on run sequences.
+     * Systems processed in parallel may share sequences at their common boundaries, so any
+     * modification or read of a sequence is performed under the lock of its stripe.
+     */
+    private final Object[] stripes = new Object[STRIPE_COUNT];
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Constructor with specified orientation
@@ -72,6 +82,10 @@ public class BasicLag
         this.name = name;
         this.orientation = orientation;
 
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+
         logger.debug("Created lag {}", name);
     }
 
@@ -80,7 +94,7 @@ public class BasicLag
     // addRunTable //
     //-------------//
     @Override
-    public void addRunTable (RunTable runTable)
+    public synchronized void addRunTable (RunTable runTable)
     {
         if (this.runTable == null) {
             this.runTable = runTable;
@@ -115,7 +129,11 @@ public class BasicLag
     public final Run getRunAt (int x,
                                int y)
     {
-        return runTable.getRunAt(x, y);
+        final int pos = orientation.isVertical() ? x : y;
+
+        synchronized (getStripe(pos)) {
+            return runTable.getRunAt(x, y);
+        }
     }
 
     //---------------//
@@ -174,18 +192,24 @@ public class BasicLag
     public void removeSections (Collection<Section> sections)
     {
         for (Section section : sections) {
-            // Make sure the section has not already been removed
-            if (getEntity(section.getId()) == null) {
-                logger.info("Section {} already removed", section);
-            } else {
-                // Remove the related runs from the underlying runTable
-                int pos = section.getFirstPos();
-
-                for (Run run : section.getRuns()) {
-                    runTable.removeRun(pos++, run);
-                }
+            synchronized (section) {
+                // Make sure the section has not already been removed
+                if (getEntity(section.getId()) == null) {
+                    logger.info("Section {} already removed", section);
+                } else {
+                    // Remove the related runs from the underlying runTable
+                    int pos = section.getFirstPos();
 
-                remove(section);
+                    for (Run run : section.getRuns()) {
+                        synchronized (getStripe(pos)) {
+                            runTable.removeRun(pos, run);
+                        }
+
+                        pos++;
+                    }
+
+                    remove(section);
+                }
             }
         }
     }
@@ -194,7 +218,7 @@ public class BasicLag
     // reset //
     //-------//
     @Override
-    public void reset ()
+    public synchronized void reset ()
     {
         super.reset(); // To clear sections & last ID
         runTable = null;
@@ -204,7 +228,7 @@ public class BasicLag
     // setRuns //
     //---------//
     @Override
-    public void setRuns (RunTable runTable)
+    public synchronized void setRuns (RunTable runTable)
     {
         if (this.runTable != null) {
             throw new RuntimeException("Attempt to overwrite lag runs table");
@@ -229,4 +253,12 @@ public class BasicLag
 
         return sb.toString();
     }
+
+    //-----------//
+    // getStripe //
+    //-----------//
+    private Object getStripe (int pos)
+    {
+        return stripes[pos % stripes.length];
+    }
 }
@@ -42,7 +42,7 @@ import java.util.Collection;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Class {@code LagManager} keeps a catalog of Lag instances for a given sheet.
@@ -63,8 +63,8 @@ public class LagManager
     @Navigable(false)
     private final Sheet sheet;
 
-    /** Map of all public lags. */
-    private final Map<String, Lag> lagMap = new TreeMap<String, Lag>();
+    /** Map of all public lags, shared by systems processed in parallel. */
+    private final Map<String, Lag> lagMap = new ConcurrentSkipListMap<String, Lag>();
 
     /** Id of last long horizontal section. */
     private int lastLongHSectionId;
@@ -186,7 +186,7 @@ public class LagManager
     /**
      * Report all currently registered lags at this sheet instance.
      *
-     * @return the collection of all registered lags, some of which may be null
+     * @return the collection of all registered lags
      */
     public Collection<Lag> getAllLags ()
     {
@@ -209,14 +209,17 @@ public class LagManager
         if (lag == null) {
             switch (key) {
             case Lags.HLAG:
-                rebuildBothLags();
-
-                return lagMap.get(key);
-
             case Lags.VLAG:
-                rebuildBothLags();
 
-                return lagMap.get(key);
+                // Rebuild only once, even if several systems ask concurrently
+                synchronized (this) {
+                    lag = lagMap.get(key);
+
+                    if (lag == null) {
+                        rebuildBothLags();
+                        lag = lagMap.get(key);
+                    }
+                }
             }
         }
 
@@ -266,14 +269,20 @@ public class LagManager
      * Register the provided lag.
      *
      * @param key the registered key for the lag
-     * @param lag the lag to register, perhaps null
+     * @param lag the lag to register, perhaps null to unregister the key
      */
     public void setLag (String key,
                         Lag lag)
     {
+        if (lag == null) {
+            lagMap.remove(key);
+
+            return;
+        }
+
         lagMap.put(key, lag);
 
-        if ((lag != null) && (OMR.gui != null) && (lag.getEntityService() == null)) {
+        if ((OMR.gui != null) && (lag.getEntityService() == null)) {
             lag.setEntityService(new SectionService(lag, sheet.getLocationService()));
         }
     }
@@ -25,9 +25,12 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.Appender;
 import ch.qos.logback.core.ConsoleAppender;
 import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
 import ch.qos.logback.core.util.StatusPrinter;
 
 import org.audiveris.omr.sheet.Book;
@@ -59,6 +62,9 @@ public abstract class LogUtil
     /** MDC key for sheet/stub context. */
     public static final String SHEET = "SHEET";
 
+    /** MDC key for server job context. */
+    public static final String JOB = "JOB";
+
     /** System property for LogBack configuration. */
     private static final String LOGBACK_LOGGING_KEY = "logback.configurationFile";
 
@@ -71,6 +77,9 @@ public abstract class LogUtil
     //-------------//
     /**
      * Start a specific file logging, typically for the processing of a given book.
+     * <p>
+     * If the calling thread has a book log annotation, messages annotated with another book
+     * are not written to this file, so that books processed concurrently get separate logs.
      *
      * @param name      appender name (typically the book radix)
      * @param logFolder target folder where the log file is to be written
@@ -91,9 +100,27 @@ public abstract class LogUtil
         Path logFile = logFolder.resolve(name + "-" + now + ".log");
         fileAppender.setFile(logFile.toAbsolutePath().toString());
         fileEncoder.setContext(loggerContext);
-        fileEncoder.setPattern("%date %level [%X{BOOK}%X{SHEET}] %25file:%-4line | %msg%n%ex");
+        fileEncoder.setPattern("%date %level [%X{JOB}%X{BOOK}%X{SHEET}] %25file:%-4line | %msg%n%ex");
         fileEncoder.start();
         fileAppender.setEncoder(fileEncoder);
+
+        final String book = MDC.get(BOOK);
+
+        if (book != null) {
+            fileAppender.addFilter(
+                    new Filter<ILoggingEvent>()
+            {
+                @Override
+                public FilterReply decide (ILoggingEvent event)
+                {
+                    final String eventBook = event.getMDCPropertyMap().get(BOOK);
+
+                    return ((eventBook == null) || eventBook.equals(book)) ? FilterReply.NEUTRAL
+                            : FilterReply.DENY;
+                }
+            });
+        }
+
         fileAppender.start();
         root.addAppender(fileAppender);
     }
@@ -260,6 +287,19 @@ public abstract class LogUtil
         }
     }
 
+    //----------//
+    // startJob //
+    //----------//
+    /**
+     * In the calling thread, start log annotation with server job ID.
+     *
+     * @param id the job ID
+     */
+    public static void startJob (String id)
+    {
+        MDC.put(JOB, id);
+    }
+
     //----------//
     // stopBook //
     //----------//
@@ -275,6 +315,17 @@ public abstract class LogUtil
         }
     }
 
+    //---------//
+    // stopJob //
+    //---------//
+    /**
+     * In the calling thread, stop server job log annotation.
+     */
+    public static void stopJob ()
+    {
+        MDC.remove(JOB);
+    }
+
     //----------//
     // stopStub //
     //----------//
@@ -21,6 +21,8 @@
 // </editor-fold>
 package org.audiveris.omr.math;
 
+import org.audiveris.omr.util.JaxbContexts;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,9 +75,6 @@ public class LinearEvaluator
     private static final Logger logger = LoggerFactory.getLogger(
             LinearEvaluator.class);
 
-    /** Un/marshalling context for use with JAXB */
-    private static volatile JAXBContext jaxbContext;
-
     /** To avoid infinity */
     public static final double INFINITE_DISTANCE = 50e50;
 
@@ -335,7 +334,7 @@ public class LinearEvaluator
     public void marshal (OutputStream os)
             throws JAXBException
     {
-        Marshaller m = getJaxbContext().createMarshaller();
+        Marshaller m = JaxbContexts.getMarshaller(getJaxbContext());
         m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
         m.marshal(this, os);
         logger.debug("LinearEvaluator marshalled");
@@ -428,7 +427,7 @@ public class LinearEvaluator
     public static LinearEvaluator unmarshal (InputStream in)
             throws JAXBException
     {
-        Unmarshaller um = getJaxbContext().createUnmarshaller();
+        Unmarshaller um = JaxbContexts.getUnmarshaller(getJaxbContext());
         LinearEvaluator evaluator = (LinearEvaluator) um.unmarshal(in);
         logger.debug("LinearEvaluator unmarshalled");
 
@@ -441,12 +440,7 @@ public class LinearEvaluator
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(LinearEvaluator.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.getContext(LinearEvaluator.class);
     }
 
     //----------------//
@@ -22,6 +22,7 @@
 package org.audiveris.omr.math;
 
 import org.audiveris.omr.classifier.TrainingMonitor;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,9 +68,6 @@ public class NeuralNetwork
     private static final Logger logger = LoggerFactory.getLogger(
             NeuralNetwork.class);
 
-    /** Un/marshalling context for use with JAXB */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Instance fields ----------------------------------------------------------------------------
     //
     /** Size of input layer. */
@@ -220,7 +218,7 @@ public class NeuralNetwork
     public static NeuralNetwork unmarshal (InputStream in)
             throws JAXBException
     {
-        Unmarshaller um = getJaxbContext().createUnmarshaller();
+        Unmarshaller um = JaxbContexts.getUnmarshaller(getJaxbContext());
         NeuralNetwork nn = (NeuralNetwork) um.unmarshal(in);
         logger.debug("Network unmarshalled");
 
@@ -350,7 +348,7 @@ public class NeuralNetwork
     public void marshal (OutputStream os)
             throws JAXBException
     {
-        Marshaller m = getJaxbContext().createMarshaller();
+        Marshaller m = JaxbContexts.getMarshaller(getJaxbContext());
         m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
         m.marshal(this, os);
         logger.debug("Network marshalled");
@@ -736,12 +734,7 @@ public class NeuralNetwork
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(NeuralNetwork.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.getContext(NeuralNetwork.class);
     }
 
     private double relu (double val)
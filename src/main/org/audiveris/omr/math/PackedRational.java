@@ -0,0 +1,325 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  P a c k e d R a t i o n a l                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.math;
+
+/**
+ * Class {@code PackedRational} handles rational numbers packed in a primitive long value,
+ * with the numerator in the high 32 bits and the denominator in the low 32 bits.
+ * <p>
+ * Like {@link Rational}, a packed value is always kept in reduced form, with a positive
+ * denominator, so that equality is simply the equality of long values.
+ * <p>
+ * This allows rhythm computations (sums and comparisons of durations) without allocating any
+ * object, {@link Rational} instances being used only at API boundaries.
+ * Power-of-two denominators, which represent the vast majority of note durations, are reduced by
+ * bit shifting rather than by a GCD computation.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class PackedRational
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Packed zero. */
+    public static final long ZERO = pack(0, 1);
+
+    /** Packed one. */
+    public static final long ONE = pack(1, 1);
+
+    //~ Constructors -------------------------------------------------------------------------------
+    private PackedRational ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // compare //
+    //---------//
+    /**
+     * Compare two packed values.
+     *
+     * @param a first packed value
+     * @param b second packed value
+     * @return -1, 0, 1 if a &lt;, ==, &gt; b respectively
+     */
+    public static int compare (long a,
+                               long b)
+    {
+        if (a == b) {
+            return 0;
+        }
+
+        final int aDen = den(a);
+        final int bDen = den(b);
+
+        if (aDen == bDen) {
+            return Integer.compare(num(a), num(b));
+        }
+
+        return Long.compare((long) num(a) * bDen, (long) num(b) * aDen);
+    }
+
+    //-----//
+    // den //
+    //-----//
+    /**
+     * Report the denominator of a packed value.
+     *
+     * @param p packed value
+     * @return the (positive) denominator
+     */
+    public static int den (long p)
+    {
+        return (int) p;
+    }
+
+    //-------//
+    // minus //
+    //-------//
+    /**
+     * Subtraction.
+     *
+     * @param a packed value
+     * @param b packed value to subtract
+     * @return a - b, packed
+     */
+    public static long minus (long a,
+                              long b)
+    {
+        return add(a, -(long) num(b), den(b));
+    }
+
+    //-----//
+    // num //
+    //-----//
+    /**
+     * Report the numerator of a packed value.
+     *
+     * @param p packed value
+     * @return the numerator
+     */
+    public static int num (long p)
+    {
+        return (int) (p >> 32);
+    }
+
+    //----//
+    // of //
+    //----//
+    /**
+     * Pack a Rational value.
+     *
+     * @param r the rational value (non null)
+     * @return the packed value
+     */
+    public static long of (Rational r)
+    {
+        return pack(r.num, r.den); // Rational is already reduced
+    }
+
+    //----//
+    // of //
+    //----//
+    /**
+     * Pack a fraction.
+     *
+     * @param num numerator
+     * @param den denominator (non zero)
+     * @return the packed reduced value
+     * @throws IllegalArgumentException if the provided denominator is zero
+     */
+    public static long of (int num,
+                           int den)
+    {
+        if (den == 0) {
+            throw new IllegalArgumentException("Denominator is zero");
+        }
+
+        return reduce(num, den);
+    }
+
+    //------//
+    // plus //
+    //------//
+    /**
+     * Addition.
+     *
+     * @param a packed value
+     * @param b packed value
+     * @return a + b, packed
+     */
+    public static long plus (long a,
+                             long b)
+    {
+        return add(a, num(b), den(b));
+    }
+
+    //-------//
+    // times //
+    //-------//
+    /**
+     * Multiplication.
+     *
+     * @param a packed value
+     * @param b packed value
+     * @return a * b, packed
+     */
+    public static long times (long a,
+                              long b)
+    {
+        return reduce((long) num(a) * num(b), (long) den(a) * den(b));
+    }
+
+    //------------//
+    // toRational //
+    //------------//
+    /**
+     * Convert a packed value to Rational.
+     *
+     * @param p packed value
+     * @return the (perhaps shared) Rational instance
+     */
+    public static Rational toRational (long p)
+    {
+        return Rational.valueOf(p);
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    /**
+     * Report a readable form of a packed value.
+     *
+     * @param p packed value
+     * @return "num/den" or just "num" if den is 1
+     */
+    public static String toString (long p)
+    {
+        final int den = den(p);
+
+        return (den == 1) ? Integer.toString(num(p)) : (num(p) + "/" + den);
+    }
+
+    //--------//
+    // reduce //
+    //--------//
+    /**
+     * Pack the reduced form of the provided fraction.
+     *
+     * @param num numerator
+     * @param den denominator (non zero)
+     * @return the packed value
+     * @throws ArithmeticException if reduced value does not fit in int numerator and denominator
+     */
+    static long reduce (long num,
+                        long den)
+    {
+        if (num == 0) {
+            return ZERO;
+        }
+
+        if (den < 0) {
+            num = -num;
+            den = -den;
+        }
+
+        if ((den & (den - 1)) == 0) {
+            // Power-of-two denominator
+            final int shift = Math.min(
+                    Long.numberOfTrailingZeros(num),
+                    Long.numberOfTrailingZeros(den));
+            num >>= shift;
+            den >>= shift;
+        } else {
+            final long gcd = gcd(Math.abs(num), den);
+
+            if (gcd != 1) {
+                num /= gcd;
+                den /= gcd;
+            }
+        }
+
+        if ((num < Integer.MIN_VALUE) || (num > Integer.MAX_VALUE) || (den > Integer.MAX_VALUE)) {
+            throw new ArithmeticException("Rational overflow " + num + "/" + den);
+        }
+
+        return pack((int) num, (int) den);
+    }
+
+    //-----//
+    // add //
+    //-----//
+    private static long add (long a,
+                             long bNum,
+                             long bDen)
+    {
+        final long aNum = num(a);
+        final long aDen = den(a);
+
+        if (aNum == 0) {
+            return reduce(bNum, bDen);
+        }
+
+        if (bNum == 0) {
+            return a;
+        }
+
+        if (aDen == bDen) {
+            return reduce(aNum + bNum, aDen);
+        }
+
+        if (((aDen & (aDen - 1)) == 0) && ((bDen & (bDen - 1)) == 0)) {
+            // Both power-of-two denominators, the larger is the common one
+            if (aDen > bDen) {
+                return reduce(aNum + (bNum * (aDen / bDen)), aDen);
+            } else {
+                return reduce((aNum * (bDen / aDen)) + bNum, bDen);
+            }
+        }
+
+        return reduce((aNum * bDen) + (bNum * aDen), aDen * bDen);
+    }
+
+    //-----//
+    // gcd //
+    //-----//
+    private static long gcd (long m,
+                             long n)
+    {
+        while (n != 0) {
+            final long r = m % n;
+            m = n;
+            n = r;
+        }
+
+        return m;
+    }
+
+    //------//
+    // pack //
+    //------//
+    private static long pack (int num,
+                              int den)
+    {
+        return ((long) num << 32) | (den & 0xFFFFFFFFL);
+    }
+}
@@ -21,8 +21,6 @@
 // </editor-fold>
 package org.audiveris.omr.math;
 
-import java.math.BigInteger;
-
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -39,6 +37,12 @@ import javax.xml.bind.annotation.adapters.XmlAdapter;
  * <li>The denominator value is always kept positive : den >= 1</li>
  * </ol></p>
  * <p>
+ * Arithmetic is performed on {@link PackedRational} primitive values, and results with small
+ * numerator and denominator (such as common note durations) are shared instances, so that
+ * duration computations allocate no new object in most cases.
+ * Use {@link #valueOf(int, int)} rather than a constructor to benefit from these shared
+ * instances.</p>
+ * <p>
  * It is (un)marshallable through JAXB.</p>
  *
  * @author Hervé Bitteur
@@ -54,17 +58,26 @@ public class Rational
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    /** Maximum denominator for shared instances. */
+    private static final int MAX_SHARED_DEN = 128;
+
+    /** Maximum absolute numerator for shared instances. */
+    private static final int MAX_SHARED_NUM = 256;
+
+    /** Shared instances, per denominator then per numerator, populated on demand. */
+    private static final Rational[][] shared = new Rational[MAX_SHARED_DEN + 1][];
+
     /** The zero rational instance. */
-    public static final Rational ZERO = new Rational(0, 1);
+    public static final Rational ZERO = valueOf(0, 1);
 
     /** The one rational instance. */
-    public static final Rational ONE = new Rational(1, 1);
+    public static final Rational ONE = valueOf(1, 1);
 
     /** The half rational instance. */
-    public static final Rational HALF = new Rational(1, 2);
+    public static final Rational HALF = valueOf(1, 2);
 
     /** Max rational value. */
-    public static final Rational MAX_VALUE = new Rational(Integer.MAX_VALUE, 1);
+    public static final Rational MAX_VALUE = valueOf(Integer.MAX_VALUE, 1);
 
     //~ Instance fields ----------------------------------------------------------------------------
     /** Final numerator value. */
@@ -86,24 +99,18 @@ public class Rational
     public Rational (int num,
                      int den)
     {
-        if (den == 0) {
-            throw new IllegalArgumentException("Denominator is zero");
-        }
-
-        // Reduction
-        int gcd = GCD.gcd(num, den);
-        num /= gcd;
-        den /= gcd;
-
-        // Positive denominator
-        if (den < 0) {
-            den = -den;
-            num = -num;
-        }
+        this(PackedRational.of(num, den));
+    }
 
-        // Record final values
-        this.num = num;
-        this.den = den;
+    /**
+     * Create a Rational instance from a packed value, already reduced.
+     *
+     * @param packed the packed value
+     */
+    private Rational (long packed)
+    {
+        num = PackedRational.num(packed);
+        den = PackedRational.den(packed);
     }
 
     /** Needed for JAXB. */
@@ -121,13 +128,13 @@ public class Rational
         final int slash = str.indexOf('/');
 
         if (slash == -1) {
-            return new Rational(Integer.decode(str), 1);
+            return valueOf(Integer.decode(str), 1);
         }
 
         final int num = Integer.decode(str.substring(0, slash));
         final int den = Integer.decode(str.substring(slash + 1));
 
-        return new Rational(num, den);
+        return valueOf(num, den);
     }
 
     //-----//
@@ -139,7 +146,7 @@ public class Rational
         if (a.num == 0) {
             return b;
         } else {
-            return new Rational(1, GCD.lcm(a.den, b.den));
+            return valueOf(1, GCD.lcm(a.den, b.den));
         }
     }
 
@@ -157,6 +164,23 @@ public class Rational
         return s;
     }
 
+    //---------//
+    // valueOf //
+    //---------//
+    /**
+     * Report the rational value num / den, using a shared instance if possible.
+     *
+     * @param num numerator value
+     * @param den denominator value
+     * @return the (perhaps shared) rational instance
+     * @throws IllegalArgumentException if the provided denominator is zero
+     */
+    public static Rational valueOf (int num,
+                                    int den)
+    {
+        return valueOf(PackedRational.of(num, den));
+    }
+
     //-----//
     // abs //
     //-----//
@@ -167,7 +191,7 @@ public class Rational
      */
     public Rational abs ()
     {
-        return new Rational(Math.abs(num), den);
+        return valueOf(PackedRational.reduce(Math.abs((long) num), den));
     }
 
     //-----------//
@@ -182,23 +206,7 @@ public class Rational
     @Override
     public int compareTo (Rational that)
     {
-        int a = this.num * that.den;
-        int b = this.den * that.num;
-
-        // Detect overflow, using the fact that den's are always >= 1
-        if ((Integer.signum(b) != Integer.signum(that.num))
-            || (Integer.signum(a) != Integer.signum(this.num))) {
-            BigInteger bigThisNum = BigInteger.valueOf(this.num);
-            BigInteger bigThisDen = BigInteger.valueOf(this.den);
-            BigInteger bigThatNum = BigInteger.valueOf(that.num);
-            BigInteger bigThatDen = BigInteger.valueOf(that.den);
-            BigInteger A = bigThisNum.multiply(bigThatDen);
-            BigInteger B = bigThisDen.multiply(bigThatNum);
-
-            return A.compareTo(B);
-        } else {
-            return Integer.signum(a - b);
-        }
+        return PackedRational.compare(PackedRational.of(this), PackedRational.of(that));
     }
 
     //---------//
@@ -212,7 +220,11 @@ public class Rational
      */
     public Rational divides (Rational that)
     {
-        return times(that.inverse());
+        if (that.num == 0) {
+            throw new IllegalArgumentException("Denominator is zero");
+        }
+
+        return valueOf(PackedRational.reduce((long) num * that.den, (long) den * that.num));
     }
 
     //---------//
@@ -226,7 +238,11 @@ public class Rational
      */
     public Rational divides (int that)
     {
-        return new Rational(num, den * that);
+        if (that == 0) {
+            throw new IllegalArgumentException("Denominator is zero");
+        }
+
+        return valueOf(PackedRational.reduce(num, (long) den * that));
     }
 
     //-------------//
@@ -253,7 +269,10 @@ public class Rational
         if (!(obj instanceof Rational)) {
             return false;
         } else {
-            return compareTo((Rational) obj) == 0;
+            // Both are in reduced form
+            final Rational that = (Rational) obj;
+
+            return (num == that.num) && (den == that.den);
         }
     }
 
@@ -298,7 +317,7 @@ public class Rational
      */
     public Rational inverse ()
     {
-        return new Rational(den, num);
+        return valueOf(den, num);
     }
 
     //-----------//
@@ -321,7 +340,7 @@ public class Rational
      */
     public Rational minus (Rational that)
     {
-        return plus(that.opposite());
+        return valueOf(PackedRational.minus(PackedRational.of(this), PackedRational.of(that)));
     }
 
     //-------//
@@ -348,7 +367,7 @@ public class Rational
      */
     public Rational opposite ()
     {
-        return new Rational(-num, den);
+        return valueOf(PackedRational.reduce(-(long) num, den));
     }
 
     //------//
@@ -362,15 +381,15 @@ public class Rational
      */
     public Rational plus (Rational that)
     {
-        if (this.equals(ZERO)) {
+        if (this.num == 0) {
             return that;
         }
 
-        if (that.equals(ZERO)) {
+        if (that.num == 0) {
             return this;
         }
 
-        return new Rational((this.num * that.den) + (this.den * that.num), this.den * that.den);
+        return valueOf(PackedRational.plus(PackedRational.of(this), PackedRational.of(that)));
     }
 
     //------//
@@ -384,7 +403,7 @@ public class Rational
      */
     public Rational plus (int that)
     {
-        return plus(new Rational(that, 1));
+        return valueOf(PackedRational.reduce(num + ((long) that * den), den));
     }
 
     //-------//
@@ -398,7 +417,7 @@ public class Rational
      */
     public Rational times (Rational that)
     {
-        return new Rational(this.num * that.num, this.den * that.den);
+        return valueOf(PackedRational.times(PackedRational.of(this), PackedRational.of(that)));
     }
 
     //-------//
@@ -412,7 +431,7 @@ public class Rational
      */
     public Rational times (int that)
     {
-        return new Rational(num * that, den);
+        return valueOf(PackedRational.reduce((long) num * that, den));
     }
 
     //----------//
@@ -428,6 +447,40 @@ public class Rational
         }
     }
 
+    //---------//
+    // valueOf //
+    //---------//
+    /**
+     * Report the rational instance for a packed value, using a shared instance if possible.
+     *
+     * @param packed the packed reduced value
+     * @return the (perhaps shared) rational instance
+     */
+    static Rational valueOf (long packed)
+    {
+        final int n = PackedRational.num(packed);
+        final int d = PackedRational.den(packed);
+
+        if ((d > MAX_SHARED_DEN) || (n > MAX_SHARED_NUM) || (n < -MAX_SHARED_NUM)) {
+            return new Rational(packed);
+        }
+
+        // Benign race: at worst, a duplicate instance is created
+        Rational[] row = shared[d];
+
+        if (row == null) {
+            shared[d] = row = new Rational[(2 * MAX_SHARED_NUM) + 1];
+        }
+
+        Rational r = row[n + MAX_SHARED_NUM];
+
+        if (r == null) {
+            row[n + MAX_SHARED_NUM] = r = new Rational(packed);
+        }
+
+        return r;
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //---------//
     // Adapter //
@@ -0,0 +1,388 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              R a s t e r A R T E x t r a c t o r                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.moments;
+
+import static org.audiveris.omr.moments.ARTMoments.*;
+
+import java.awt.geom.Point2D;
+import java.awt.image.WritableRaster;
+
+/**
+ * Class {@code RasterARTExtractor} computes the same ART moments as {@link BasicARTExtractor},
+ * but with a cost which no longer grows as mass times number of moments.
+ * <p>
+ * Since the LUT bilinear interpolation is linear with respect to LUT values, the sum of
+ * interpolated basis values over all foreground pixels is equal to the dot product of the basis
+ * values with a grid of interpolation weights.
+ * Hence, the foreground is first rasterized into this LUT-sized weight grid (each pixel spreading
+ * its bilinear weights on the 4 surrounding grid nodes), then each grid node with a non-zero
+ * weight is multiplied once with all the basis values, stored in a flat table.
+ * <p>
+ * Foreground can be provided as points or, more efficiently, as horizontal or vertical runs.
+ *
+ * @author Hervé Bitteur
+ */
+public class RasterARTExtractor
+        extends AbstractExtractor<ARTMoments>
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Basis function radius, same as BasicARTExtractor LUT's. */
+    private static final int LUT_RADIUS = 50;
+
+    /** Number of nodes on grid side. */
+    private static final int LUT_SIZE = 1 + (2 * LUT_RADIUS);
+
+    /** Number of basis values per grid node: real and imaginary for each moment. */
+    private static final int VALUES = 2 * ANGULAR * RADIAL;
+
+    /** Row in BASIS for each grid node (x * LUT_SIZE + y), or -1 if out of unit circle. */
+    private static final int[] ROWS = new int[LUT_SIZE * LUT_SIZE];
+
+    /**
+     * Basis values, VALUES per row.
+     * Value at (2 * (p * RADIAL + r)) is real part, next value is imaginary part.
+     */
+    private static final float[] BASIS;
+
+    static {
+        BASIS = initBasis();
+    }
+
+    /** Per-thread grid of weights. */
+    private static final ThreadLocal<Grid> grids = new ThreadLocal<Grid>()
+    {
+        @Override
+        protected Grid initialValue ()
+        {
+            return new Grid();
+        }
+    };
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new RasterARTExtractor object.
+     */
+    public RasterARTExtractor ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------------//
+    // extractRuns //
+    //-------------//
+    /**
+     * Extract moments from foreground runs, without expanding them into points.
+     *
+     * @param runs       run triplets (x, y, length): x &amp; y of run first pixel, then run length
+     * @param runCount   number of runs in array
+     * @param horizontal true for runs along x, false for runs along y
+     */
+    public void extractRuns (int[] runs,
+                             int runCount,
+                             boolean horizontal)
+    {
+        if ((runs == null) || (runCount <= 0) || ((3 * runCount) > runs.length)) {
+            throw new IllegalArgumentException(
+                    getClass().getSimpleName() + " on inconsistent input");
+        }
+
+        if (descriptor == null) {
+            throw new IllegalArgumentException(
+                    getClass().getSimpleName() + " has no target descriptor");
+        }
+
+        // Mass center
+        long m10 = 0;
+        long m01 = 0;
+        long m00 = 0;
+
+        for (int i = 0, iBreak = 3 * runCount; i < iBreak; i += 3) {
+            final long x = runs[i];
+            final long y = runs[i + 1];
+            final long len = runs[i + 2];
+            final long sum = (len * (len - 1)) / 2; // Sum of offsets within run
+            m00 += len;
+
+            if (horizontal) {
+                m10 += ((len * x) + sum);
+                m01 += (len * y);
+            } else {
+                m10 += (len * x);
+                m01 += ((len * y) + sum);
+            }
+        }
+
+        xx = null;
+        yy = null;
+        mass = (int) m00;
+        center = new Point2D.Double((double) m10 / (double) m00, (double) m01 / (double) m00);
+
+        // Radius, using run extrema
+        final double cx = center.getX();
+        final double cy = center.getY();
+        double dxMax = Double.MIN_VALUE;
+        double dyMax = Double.MIN_VALUE;
+
+        for (int i = 0, iBreak = 3 * runCount; i < iBreak; i += 3) {
+            final int x = runs[i];
+            final int y = runs[i + 1];
+            final int last = runs[i + 2] - 1;
+            final int x2 = horizontal ? (x + last) : x;
+            final int y2 = horizontal ? y : (y + last);
+            dxMax = Math.max(dxMax, Math.max(Math.abs(x - cx), Math.abs(x2 - cx)));
+            dyMax = Math.max(dyMax, Math.max(Math.abs(y - cy), Math.abs(y2 - cy)));
+        }
+
+        radius = Math.hypot(dxMax, dyMax);
+
+        // Rasterize
+        final Grid grid = grids.get();
+
+        for (int i = 0, iBreak = 3 * runCount; i < iBreak; i += 3) {
+            final int x = runs[i];
+            final int y = runs[i + 1];
+            final int len = runs[i + 2];
+
+            for (int k = 0; k < len; k++) {
+                if (horizontal) {
+                    grid.include(toLut(x + k, cx), toLut(y, cy));
+                } else {
+                    grid.include(toLut(x, cx), toLut(y + k, cy));
+                }
+            }
+        }
+
+        project(grid);
+    }
+
+    //-------------//
+    // reconstruct //
+    //-------------//
+    @Override
+    public void reconstruct (WritableRaster raster)
+    {
+        ///throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    //----------------//
+    // extractMoments //
+    //----------------//
+    @Override
+    protected void extractMoments ()
+    {
+        final double cx = center.getX();
+        final double cy = center.getY();
+        final Grid grid = grids.get();
+
+        for (int i = 0; i < mass; i++) {
+            grid.include(toLut(xx[i], cx), toLut(yy[i], cy));
+        }
+
+        project(grid);
+    }
+
+    //-----------//
+    // initBasis //
+    //-----------//
+    /**
+     * Compute, once for all, the basis values, exactly as BasicARTExtractor LUT's.
+     *
+     * @return the flat table of basis values
+     */
+    private static float[] initBasis ()
+    {
+        // Allocate one row per grid node within unit circle
+        int rows = 0;
+
+        for (int x = 0; x < LUT_SIZE; x++) {
+            double tx = (x - LUT_RADIUS) / (double) LUT_RADIUS; // [-1..+1]
+
+            for (int y = 0; y < LUT_SIZE; y++) {
+                double ty = (y - LUT_RADIUS) / (double) LUT_RADIUS; // [-1..+1]
+                ROWS[(x * LUT_SIZE) + y] = (Math.hypot(tx, ty) < 1) ? rows++ : (-1);
+            }
+        }
+
+        final float[] basis = new float[rows * VALUES];
+
+        for (int x = 0; x < LUT_SIZE; x++) {
+            double tx = (x - LUT_RADIUS) / (double) LUT_RADIUS;
+
+            for (int y = 0; y < LUT_SIZE; y++) {
+                final int row = ROWS[(x * LUT_SIZE) + y];
+
+                if (row != -1) {
+                    double ty = (y - LUT_RADIUS) / (double) LUT_RADIUS;
+                    double rad = Math.hypot(tx, ty); // [0..1[
+                    double angle = Math.atan2(ty, tx);
+                    int i = row * VALUES;
+
+                    for (int p = 0; p < ANGULAR; p++) {
+                        for (int r = 0; r < RADIAL; r++) {
+                            double temp = Math.cos(rad * Math.PI * r);
+                            basis[i++] = (float) (temp * Math.cos(angle * p));
+                            basis[i++] = (float) (temp * Math.sin(angle * p));
+                        }
+                    }
+                }
+            }
+        }
+
+        return basis;
+    }
+
+    //---------//
+    // project //
+    //---------//
+    /**
+     * Multiply the grid weights with basis values, save results to descriptor and reset
+     * the grid.
+     *
+     * @param grid the populated grid
+     */
+    private void project (Grid grid)
+    {
+        final double[] coeffs = new double[VALUES];
+
+        for (int n = 0; n < grid.count; n++) {
+            final int node = grid.nodes[n];
+            final int row = ROWS[node];
+
+            if (row != -1) {
+                final double w = grid.weights[node];
+
+                for (int i = 0, j = row * VALUES; i < VALUES; i++, j++) {
+                    coeffs[i] += (w * BASIS[j]);
+                }
+            }
+        }
+
+        grid.reset();
+
+        // Save to descriptor
+        for (int p = 0; p < ANGULAR; p++) {
+            for (int r = 0; r < RADIAL; r++) {
+                final int i = 2 * ((p * RADIAL) + r);
+                double real = coeffs[i] / mass;
+                double imag = -coeffs[i + 1] / mass;
+                descriptor.setMoment(p, r, Math.hypot(imag, real));
+            }
+        }
+    }
+
+    //-------//
+    // toLut //
+    //-------//
+    /**
+     * Map an image coordinate to LUT coordinate.
+     */
+    private double toLut (int v,
+                          double c)
+    {
+        return (((v - c) * LUT_RADIUS) / radius) + LUT_RADIUS;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //------//
+    // Grid //
+    //------//
+    /**
+     * Weights of LUT grid nodes, with the list of non-empty nodes.
+     */
+    private static class Grid
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** Weight for each node (x * LUT_SIZE + y). */
+        final double[] weights = new double[LUT_SIZE * LUT_SIZE];
+
+        /** Nodes with a non-zero weight. */
+        final int[] nodes = new int[LUT_SIZE * LUT_SIZE];
+
+        /** Number of nodes with a non-zero weight. */
+        int count;
+
+        //~ Methods --------------------------------------------------------------------------------
+        /**
+         * Spread the bilinear weights of a LUT point, as BasicLUT.interpolate does.
+         *
+         * @param px LUT abscissa
+         * @param py LUT ordinate
+         */
+        void include (double px,
+                      double py)
+        {
+            if ((px < 0) || (px >= LUT_SIZE) || (py < 0) || (py >= LUT_SIZE)) {
+                return;
+            }
+
+            final int x = (int) px;
+            final int y = (int) py;
+            final double ix = px - x;
+            final double iy = py - y;
+            final int max = LUT_SIZE - 1;
+            final int node = (x * LUT_SIZE) + y;
+
+            if (x == max) {
+                if (y == max) {
+                    add(node, 1);
+                } else {
+                    add(node, 1 - iy);
+                    add(node + 1, iy);
+                }
+            } else if (y == max) {
+                add(node, 1 - ix);
+                add(node + LUT_SIZE, ix);
+            } else {
+                add(node, (1 - ix) * (1 - iy));
+                add(node + LUT_SIZE, ix * (1 - iy));
+                add(node + 1, (1 - ix) * iy);
+                add(node + LUT_SIZE + 1, ix * iy);
+            }
+        }
+
+        /**
+         * Clear the non-zero weights.
+         */
+        void reset ()
+        {
+            for (int n = 0; n < count; n++) {
+                weights[nodes[n]] = 0;
+            }
+
+            count = 0;
+        }
+
+        private void add (int node,
+                          double w)
+        {
+            if (w > 0) {
+                if (weights[node] == 0) {
+                    nodes[count++] = node;
+                }
+
+                weights[node] += w;
+            }
+        }
+    }
+}
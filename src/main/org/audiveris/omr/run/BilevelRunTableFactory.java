@@ -0,0 +1,357 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                          B i l e v e l R u n T a b l e F a c t o r y                           //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import org.audiveris.omr.run.RunTable.RunSequence;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Class {@code BilevelRunTableFactory} builds a VERTICAL {@link RunTable} directly from
+ * the packed bits of a 1-bit image, with no gray source and no binarization.
+ * <p>
+ * Image rows are read 64 pixels at a time. Each row word is compared with the same word in the
+ * previous row, and only the columns whose pixel differs (that is where a vertical run starts or
+ * stops) are processed one by one.
+ * Hence, white areas and long vertical runs cost almost nothing.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class BilevelRunTableFactory
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Logger logger = LoggerFactory.getLogger(BilevelRunTableFactory.class);
+
+    /** Minimum number of 64-pixel words per parallel task. */
+    private static final int MIN_WORDS_PER_TASK = 8;
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------------//
+    // createTable //
+    //-------------//
+    /**
+     * Build the VERTICAL run table of the black pixels of the provided bi-level image.
+     *
+     * @param img the 1-bit image, as accepted by {@link #isBilevel(BufferedImage)}
+     * @return the populated run table
+     */
+    public static RunTable createTable (BufferedImage img)
+    {
+        if (!isBilevel(img)) {
+            throw new IllegalArgumentException("Not a bi-level image");
+        }
+
+        final Scanner scanner = new Scanner(img);
+        final int wordCount = scanner.wordCount;
+        final int taskCount = Math.min(
+                OmrExecutors.getNumberOfCpus(),
+                wordCount / MIN_WORDS_PER_TASK);
+
+        if ((taskCount < 2) || (OmrExecutors.defaultParallelism.getSpecific() == false)) {
+            // Sequential
+            scanner.scan(0, wordCount);
+        } else {
+            // Parallel, each task on its own range of columns
+            try {
+                final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(taskCount);
+                final int chunk = (wordCount + taskCount - 1) / taskCount;
+
+                for (int w = 0; w < wordCount; w += chunk) {
+                    final int wMin = w;
+                    final int wMax = Math.min(wordCount, w + chunk);
+                    tasks.add(
+                            new Callable<Void>()
+                    {
+                        @Override
+                        public Void call ()
+                                throws Exception
+                        {
+                            scanner.scan(wMin, wMax);
+
+                            return null;
+                        }
+                    });
+                }
+
+                // Launch the tasks and wait for their completion, checking each of them
+                for (Future<Void> future : OmrExecutors.getCachedLowExecutor().invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException ex) {
+                logger.warn("BilevelRunTableFactory got interrupted");
+                throw new ProcessingCancellationException(ex);
+            } catch (ExecutionException ex) {
+                final Throwable cause = ex.getCause();
+
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                throw new RuntimeException(cause);
+            }
+        }
+
+        return scanner.table.compact();
+    }
+
+    //-----------//
+    // isBilevel //
+    //-----------//
+    /**
+     * Check whether the provided image is a 1-bit image, with one dark and one light entry
+     * in its color model.
+     *
+     * @param img the image to check
+     * @return true if runs can be read directly from image bits
+     */
+    public static boolean isBilevel (BufferedImage img)
+    {
+        final Raster raster = img.getRaster();
+        final SampleModel sm = raster.getSampleModel();
+        final DataBuffer db = raster.getDataBuffer();
+
+        if (!(sm instanceof MultiPixelPackedSampleModel)
+            || (((MultiPixelPackedSampleModel) sm).getPixelBitStride() != 1)
+            || !(db instanceof DataBufferByte)) {
+            return false;
+        }
+
+        final ColorModel cm = img.getColorModel();
+
+        if (!(cm instanceof IndexColorModel) || (((IndexColorModel) cm).getMapSize() < 2)) {
+            return false;
+        }
+
+        return isDark(cm, 0) != isDark(cm, 1);
+    }
+
+    //--------//
+    // isDark //
+    //--------//
+    private static boolean isDark (ColorModel cm,
+                                   int index)
+    {
+        return (cm.getRed(index) + cm.getGreen(index) + cm.getBlue(index)) < (3 * 128);
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //---------//
+    // Scanner //
+    //---------//
+    /**
+     * Scans image words to retrieve the vertical runs.
+     * Distinct ranges of words can be scanned in parallel.
+     */
+    private static class Scanner
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final int width;
+
+        private final int height;
+
+        private final byte[] data;
+
+        /** Bit position of first pixel in data, for row 0. */
+        private final long origin;
+
+        /** Number of bits from one row to the next. */
+        private final long rowBits;
+
+        /** True if black pixels are encoded as 0. */
+        private final boolean darkZero;
+
+        /** Number of 64-pixel words per row. */
+        private final int wordCount;
+
+        /** Mask for the last word of a row. */
+        private final long lastMask;
+
+        /** Resulting table. */
+        private final RunTable table;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public Scanner (BufferedImage img)
+        {
+            final Raster raster = img.getRaster();
+            final MultiPixelPackedSampleModel sm = (MultiPixelPackedSampleModel) raster
+                    .getSampleModel();
+            final DataBufferByte db = (DataBufferByte) raster.getDataBuffer();
+
+            width = img.getWidth();
+            height = img.getHeight();
+            data = db.getData();
+            rowBits = 8L * sm.getScanlineStride();
+            origin = ((8L * db.getOffset()) + sm.getDataBitOffset())
+                     - (raster.getSampleModelTranslateY() * rowBits)
+                     - raster.getSampleModelTranslateX();
+            darkZero = isDark(img.getColorModel(), 0);
+            wordCount = (width + 63) >>> 6;
+
+            final int tail = width & 63;
+            lastMask = (tail == 0) ? -1L : (-1L << (64 - tail));
+
+            table = new RunTable(Orientation.VERTICAL, width, height);
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        /**
+         * Retrieve the runs for the columns of words [wMin..wMax[.
+         *
+         * @param wMin first word
+         * @param wMax word past the last one
+         */
+        public void scan (int wMin,
+                          int wMax)
+        {
+            final int xMin = wMin << 6;
+            final int xMax = Math.min(width, wMax << 6);
+            final int cols = xMax - xMin;
+
+            // Transitions (run starts and stops) per column
+            final int[][] trans = new int[cols][];
+            final int[] counts = new int[cols];
+            final long[] prev = new long[wMax - wMin];
+
+            for (int y = 0; y <= height; y++) {
+                final long rowStart = origin + (y * rowBits);
+
+                for (int w = wMin; w < wMax; w++) {
+                    // Virtual row past the last one is all white
+                    final long word = (y < height) ? readWord(rowStart + (w << 6), w) : 0L;
+                    long diff = word ^ prev[w - wMin];
+
+                    if (diff != 0) {
+                        prev[w - wMin] = word;
+
+                        do {
+                            final int bit = Long.numberOfLeadingZeros(diff);
+                            final int col = ((w << 6) + bit) - xMin;
+                            addTransition(trans, counts, col, y);
+                            diff &= ~(Long.MIN_VALUE >>> bit);
+                        } while (diff != 0);
+                    }
+                }
+            }
+
+            for (int col = 0; col < cols; col++) {
+                if (counts[col] != 0) {
+                    table.setSequence(xMin + col, encode(trans[col], counts[col]));
+                }
+            }
+        }
+
+        private void addTransition (int[][] trans,
+                                    int[] counts,
+                                    int col,
+                                    int y)
+        {
+            int[] ys = trans[col];
+
+            if (ys == null) {
+                ys = trans[col] = new int[4];
+            } else if (counts[col] == ys.length) {
+                final int[] newYs = new int[2 * ys.length];
+                System.arraycopy(ys, 0, newYs, 0, ys.length);
+                ys = trans[col] = newYs;
+            }
+
+            ys[counts[col]++] = y;
+        }
+
+        /**
+         * Encode column transitions as a run sequence.
+         * Transitions come by pairs, the even ones being run starts and the odd ones run stops.
+         */
+        private RunSequence encode (int[] ys,
+                                    int count)
+        {
+            final boolean lead = ys[0] != 0;
+            final int[] rle = new int[lead ? (count + 1) : (count - 1)];
+            int i = 0;
+
+            if (lead) {
+                // Empty foreground, then background
+                rle[i++] = 0;
+                rle[i++] = ys[0];
+            }
+
+            for (int k = 1; k < count; k++) {
+                rle[i++] = ys[k] - ys[k - 1];
+            }
+
+            return new RunSequence(rle, rle.length);
+        }
+
+        /**
+         * Read 64 pixels, starting at provided bit position, with black pixels set to 1.
+         */
+        private long readWord (long bitPos,
+                               int w)
+        {
+            final int b = (int) (bitPos >>> 3);
+            final int shift = (int) (bitPos & 7);
+            long word = 0;
+
+            for (int k = 0; k < 8; k++) {
+                word = (word << 8) | byteAt(b + k);
+            }
+
+            if (shift != 0) {
+                word = (word << shift) | (byteAt(b + 8) >>> (8 - shift));
+            }
+
+            if (darkZero) {
+                word = ~word;
+            }
+
+            return (w == (wordCount - 1)) ? (word & lastMask) : word;
+        }
+
+        private int byteAt (int index)
+        {
+            return (index < data.length) ? (data[index] & 0xFF) : 0;
+        }
+    }
+}
@@ -25,14 +25,16 @@ import ij.process.ByteProcessor;
 
 import org.audiveris.omr.image.PixelSource;
 import static org.audiveris.omr.image.PixelSource.BACKGROUND;
+import static org.audiveris.omr.image.PixelSource.FOREGROUND;
 import org.audiveris.omr.image.Table;
 import org.audiveris.omr.math.PointsCollector;
 import org.audiveris.omr.moments.ARTMoments;
-import org.audiveris.omr.moments.BasicARTExtractor;
 import org.audiveris.omr.moments.BasicARTMoments;
 import org.audiveris.omr.moments.GeometricMoments;
+import org.audiveris.omr.moments.RasterARTExtractor;
 import static org.audiveris.omr.run.Orientation.HORIZONTAL;
 import org.audiveris.omr.util.ByteUtil;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.Predicate;
 
 import org.slf4j.Logger;
@@ -53,8 +55,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -88,6 +90,12 @@ import javax.xml.bind.annotation.XmlValue;
  * [FBFBF] (perhaps 0BFBF)
  * etc...
  * </pre>
+ * <p>
+ * Each length is stored as a variable-length integer (7 bits per byte), so that a typical run
+ * takes one byte and there is no upper limit on lengths.
+ * A sequence is never modified in place: any edit creates a new sequence (copy on write), so
+ * that sequences can be shared between tables, see {@link #copy()}.
+ * The {@link #compact()} method gathers all sequences of a table into one contiguous buffer.
  *
  * @author Hervé Bitteur
  */
@@ -101,7 +109,8 @@ public class RunTable
     private static final Logger logger = LoggerFactory.getLogger(
             RunTable.class);
 
-    private static JAXBContext jaxbContext;
+    /** Minimum rle items count for a sequence to use a prefix index rather than a linear scan. */
+    private static final int MIN_INDEXED_LENGTH = 16;
 
     //~ Instance fields ----------------------------------------------------------------------------
     // Persistent data
@@ -130,6 +139,9 @@ public class RunTable
     /** Cached total weight. */
     private Integer weight;
 
+    /** Listeners on sequence modifications, if any. */
+    private volatile List<SequenceListener> sequenceListeners;
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new RunTable object.
@@ -208,98 +220,146 @@ public class RunTable
         // Look for background where foreground run is to take place
         // ...F(B)F... -> ...F(B1FB2)F...
         // .......^
-        RunSequence sequence = sequences[index];
-
-        if (sequence == null) {
-            sequences[index] = sequence = new RunSequence();
-        }
+        final RunSequence sequence = sequences[index];
+        final int[] rle = (sequence != null) ? sequence.items() : new int[0];
+        int loc = (rle.length > 0) ? rle[0] : 0; // End of current foreground
 
-        short[] rle = sequence.rle;
-        Itr it = new Itr(index);
+        for (int c = 2; c < rle.length; c += 2) {
+            final int back = rle[c - 1];
+            loc += back; // Start of foreground at c
 
-        while (it.hasNext()) {
-            Run r = it.next();
-
-            if (r.getStart() > start) {
-                int c = it.cursor - 2;
-                int back = rle[c - 1];
+            if (loc > start) {
+                int b1 = back - (loc - start);
+                int f = length;
+                int b2 = loc - start - length;
 
-                if (back < length) {
+                if ((b1 < 0) || (b2 < 0)) {
                     return false;
                 }
 
-                int b1 = back - (r.getStart() - start);
-                int f = length;
-                int b2 = r.getStart() - start - length;
+                final int[] newRle;
 
                 if ((b1 == 0) && (b2 == 0)) {
                     // ...F(B)F... -> ...F(0F0)F... -> ...F++...
                     // .......^
-                    short[] newRle = new short[rle.length - 2];
+                    newRle = new int[rle.length - 2];
                     System.arraycopy(rle, 0, newRle, 0, c - 2);
-                    newRle[c - 2] = (short) (rle[c - 2] + f + rle[c]);
+                    newRle[c - 2] = rle[c - 2] + f + rle[c];
                     System.arraycopy(rle, c + 1, newRle, c - 1, rle.length - c - 1);
-                    sequence.rle = newRle;
                 } else if (b1 == 0) {
                     // ...F(B)F... -> ...F(0FB2)F... -> ...F+(B2)F...
                     // .......^
-                    rle[c - 2] += (short) f;
-                    rle[c - 1] = (short) b2;
+                    newRle = rle;
+                    newRle[c - 2] += f;
+                    newRle[c - 1] = b2;
                 } else if (b2 == 0) {
                     // ...F(B)F... -> ...F(B1F0)F... -> ...F(B1)F+...
                     // .......^
-                    rle[c - 1] += (short) b1;
-                    rle[c] += (short) f;
+                    newRle = rle;
+                    newRle[c - 1] = b1;
+                    newRle[c] += f;
                 } else {
-                    short[] newRle = new short[rle.length + 2];
+                    newRle = new int[rle.length + 2];
                     System.arraycopy(rle, 0, newRle, 0, c - 1);
-                    newRle[c - 1] = (short) b1;
-                    newRle[c] = (short) f;
-                    newRle[c + 1] = (short) b2;
+                    newRle[c - 1] = b1;
+                    newRle[c] = f;
+                    newRle[c + 1] = b2;
                     System.arraycopy(rle, c, newRle, c + 2, rle.length - c);
-                    sequence.rle = newRle;
                 }
 
+                publish(index, new RunSequence(newRle, newRle.length));
+
                 return true;
             }
+
+            loc += rle[c];
         }
 
         // Append the run at end of sequence
-        int b = start - it.loc;
+        final int b = start - loc;
+        final int[] newRle;
 
         if (b < 0) {
             return false;
         } else if (b == 0) {
-            if (rle != null) {
+            if (rle.length > 0) {
                 // ...F -> ...F+
-                rle[rle.length - 1] += (short) length;
+                newRle = rle;
+                newRle[rle.length - 1] += length;
             } else {
                 // null -> F+
-                final short[] newRle = new short[1];
-                newRle[0] = (short) length;
-                sequence.rle = newRle;
+                newRle = new int[]{length};
             }
+        } else if (rle.length > 0) {
+            // ...F -> ...F(BF')
+            newRle = new int[rle.length + 2];
+            System.arraycopy(rle, 0, newRle, 0, rle.length);
+            newRle[rle.length] = b;
+            newRle[rle.length + 1] = length;
         } else {
-            final short[] newRle;
-
-            if (rle != null) {
-                // ...F -> ...F(BF')
-                newRle = new short[rle.length + 2];
-                System.arraycopy(rle, 0, newRle, 0, rle.length);
-                newRle[rle.length] = (short) b;
-                newRle[rle.length + 1] = (short) length;
-            } else {
-                // null -> 0(BF')
-                newRle = new short[3];
-                newRle[0] = 0;
-                newRle[1] = (short) b;
-                newRle[2] = (short) length;
+            // null -> 0(BF')
+            newRle = new int[]{0, b, length};
+        }
+
+        publish(index, new RunSequence(newRle, newRle.length));
+
+        return true;
+    }
+
+    //---------------------//
+    // addSequenceListener //
+    //---------------------//
+    /**
+     * Register a listener to be notified of any modification of table sequences.
+     *
+     * @param listener the listener to add
+     */
+    public void addSequenceListener (SequenceListener listener)
+    {
+        synchronized (this) {
+            if (sequenceListeners == null) {
+                sequenceListeners = new CopyOnWriteArrayList<SequenceListener>();
             }
+        }
+
+        sequenceListeners.add(listener);
+    }
 
-            sequence.rle = newRle;
+    //---------//
+    // compact //
+    //---------//
+    /**
+     * Gather the encoded content of all table sequences into one contiguous buffer.
+     * <p>
+     * This saves the per-sequence buffer overhead, and releases the space left by previous
+     * edits. Sequences are replaced by equivalent views on the shared buffer.
+     *
+     * @return this table, to allow easy chaining
+     */
+    public RunTable compact ()
+    {
+        int total = 0;
+
+        for (RunSequence seq : sequences) {
+            if (seq != null) {
+                total += seq.byteLength;
+            }
         }
 
-        return true;
+        final byte[] pool = new byte[total];
+        int offset = 0;
+
+        for (int i = 0; i < sequences.length; i++) {
+            final RunSequence seq = sequences[i];
+
+            if (seq != null) {
+                System.arraycopy(seq.data, seq.offset, pool, offset, seq.byteLength);
+                sequences[i] = new RunSequence(pool, offset, seq.byteLength, seq.count);
+                offset += seq.byteLength;
+            }
+        }
+
+        return this;
     }
 
     //-------------------//
@@ -315,16 +375,33 @@ public class RunTable
     public ARTMoments computeArtMoments (int left,
                                          int top)
     {
-        // Retrieve glyph foreground points
-        final PointsCollector collector = new PointsCollector(null, getWeight());
-        cumulate(collector, new Point(left, top));
+        // Retrieve glyph foreground runs, as (x, y, length) triplets
+        final int[] runs = new int[3 * getTotalRunCount()];
+        int count = 0;
+
+        for (int p = 0, iBreak = getSize(); p < iBreak; p++) {
+            for (Iterator<Run> it = iterator(p); it.hasNext();) {
+                final Run run = it.next();
+                final int i = 3 * count++;
+
+                if (orientation == HORIZONTAL) {
+                    runs[i] = run.getStart();
+                    runs[i + 1] = p;
+                } else {
+                    runs[i] = p;
+                    runs[i + 1] = run.getStart();
+                }
+
+                runs[i + 2] = run.getLength();
+            }
+        }
 
         ///ARTMoments artMoments = new QuantizedARTMoments();
         ARTMoments artMoments = new BasicARTMoments();
 
-        BasicARTExtractor extractor = new BasicARTExtractor();
+        RasterARTExtractor extractor = new RasterARTExtractor();
         extractor.setDescriptor(artMoments);
-        extractor.extract(collector.getXValues(), collector.getYValues(), collector.getSize());
+        extractor.extractRuns(runs, count, orientation == HORIZONTAL);
 
         return artMoments;
     }
@@ -403,23 +480,16 @@ public class RunTable
     // copy //
     //------//
     /**
-     * Make a deep copy of the table.
+     * Make a copy of the table.
+     * <p>
+     * Since sequences are never modified in place, the copy simply shares them with this table.
      *
      * @return another table with runs content identical to this one
      */
     public RunTable copy ()
     {
         RunTable clone = new RunTable(orientation, width, height);
-
-        for (int i = 0; i < sequences.length; i++) {
-            RunSequence seq = sequences[i];
-
-            if (seq != null) {
-                short[] rle = new short[seq.rle.length];
-                System.arraycopy(seq.rle, 0, rle, 0, seq.rle.length);
-                clone.sequences[i] = new RunSequence(rle);
-            }
-        }
+        System.arraycopy(sequences, 0, clone.sequences, 0, sequences.length);
 
         return clone;
     }
@@ -488,6 +558,72 @@ public class RunTable
         }
     }
 
+    //------------//
+    // decodeRect //
+    //------------//
+    /**
+     * Decode the pixels of a rectangular area into the provided byte buffer.
+     * <p>
+     * The buffer is filled row by row, whatever the table orientation, with FOREGROUND and
+     * BACKGROUND values. Pixels of the area located outside the table are set to BACKGROUND.
+     *
+     * @param rect the area to decode, relative to table top left corner
+     * @param dst  the target buffer, of length at least rect.width * rect.height
+     */
+    public void decodeRect (Rectangle rect,
+                            byte[] dst)
+    {
+        Arrays.fill(dst, 0, rect.width * rect.height, (byte) BACKGROUND);
+
+        final Rectangle inter = rect.intersection(new Rectangle(0, 0, width, height));
+
+        if (inter.isEmpty()) {
+            return;
+        }
+
+        if (orientation == HORIZONTAL) {
+            for (int y = inter.y, yBreak = inter.y + inter.height; y < yBreak; y++) {
+                decodeSpan(
+                        sequences[y],
+                        inter.x,
+                        inter.x + inter.width,
+                        dst,
+                        ((y - rect.y) * rect.width) - rect.x,
+                        1);
+            }
+        } else {
+            for (int x = inter.x, xBreak = inter.x + inter.width; x < xBreak; x++) {
+                decodeSpan(
+                        sequences[x],
+                        inter.y,
+                        inter.y + inter.height,
+                        dst,
+                        (x - rect.x) - (rect.y * rect.width),
+                        rect.width);
+            }
+        }
+    }
+
+    //-----------//
+    // decodeRow //
+    //-----------//
+    /**
+     * Decode a whole sequence of runs into the provided byte buffer.
+     * <p>
+     * Buffer cells are set to FOREGROUND or BACKGROUND, according to sequence content.
+     *
+     * @param index the sequence index (a row for a HORIZONTAL table, a column for a VERTICAL one)
+     * @param dst   the target buffer, of length at least the sequence length (table width for
+     *              HORIZONTAL, table height for VERTICAL)
+     */
+    public void decodeRow (int index,
+                           byte[] dst)
+    {
+        final int length = (orientation == HORIZONTAL) ? width : height;
+        Arrays.fill(dst, 0, length, (byte) BACKGROUND);
+        decodeSpan(sequences[index], 0, length, dst, 0, 1);
+    }
+
     //--------//
     // dumpOf //
     //--------//
@@ -732,10 +868,10 @@ public class RunTable
     /**
      * {@inheritDoc}
      * <p>
-     * <b>Beware</b>, this implementation is not efficient enough for bulk operations.
-     * For such needs, a much more efficient way is to first retrieve a full buffer, via {@link
-     * #getBuffer()} method, then use this temporary buffer as the {@link PixelSource} instead of
-     * this table.
+     * This implementation allocates nothing, and uses a binary search in the sequence prefix
+     * index for long sequences.
+     * For reading whole rows or areas, see {@link #decodeRow(int, byte[])} and
+     * {@link #decodeRect(Rectangle, byte[])}.
      *
      * @param x absolute abscissa
      * @param y absolute ordinate
@@ -745,9 +881,21 @@ public class RunTable
     public final int get (int x,
                           int y)
     {
-        Run run = getRunAt(x, y);
+        final int iSeq = (orientation == HORIZONTAL) ? y : x;
+
+        if ((iSeq < 0) || (iSeq >= sequences.length)) {
+            return BACKGROUND;
+        }
+
+        final RunSequence seq = sequences[iSeq];
+
+        if (seq == null) {
+            return BACKGROUND;
+        }
+
+        final int i = seq.indexOf((orientation == HORIZONTAL) ? x : y);
 
-        return (run != null) ? 0 : BACKGROUND;
+        return ((i >= 0) && ((i & 1) == 0)) ? FOREGROUND : BACKGROUND;
     }
 
     //-----------//
@@ -863,21 +1011,21 @@ public class RunTable
             return null;
         }
 
-        final int coord = (orientation == HORIZONTAL) ? x : y;
+        final RunSequence seq = sequences[iSeq];
 
-        for (Itr it = new Itr(iSeq); it.hasNext();) {
-            Run run = it.next();
+        if (seq == null) {
+            return null;
+        }
 
-            if (run.getStart() > coord) {
-                return null;
-            }
+        final int i = seq.indexOf((orientation == HORIZONTAL) ? x : y);
 
-            if (run.getStop() >= coord) {
-                return run;
-            }
+        if ((i < 0) || ((i & 1) != 0)) {
+            return null; // Beyond sequence end or within background
         }
 
-        return null;
+        final int start = seq.startOf(i);
+
+        return new Run(start, seq.startOf(i + 1) - start);
     }
 
     //---------------//
@@ -960,12 +1108,7 @@ public class RunTable
 
         try {
             InputStream is = Files.newInputStream(path, StandardOpenOption.READ);
-
-            if (jaxbContext == null) {
-                jaxbContext = JAXBContext.newInstance(RunTable.class);
-            }
-
-            Unmarshaller um = jaxbContext.createUnmarshaller();
+            Unmarshaller um = JaxbContexts.getUnmarshaller(RunTable.class);
             RunTable runTable = (RunTable) um.unmarshal(is);
             is.close();
             logger.debug("Unmarshalled {}", runTable);
@@ -1210,15 +1353,42 @@ public class RunTable
             }
         }
 
+        // Each modified sequence is rebuilt at once, rather than edited run after run
+        final SequenceBuilder kept = new SequenceBuilder();
+        final SequenceBuilder gone = new SequenceBuilder();
+
         for (int i = 0, size = getSize(); i < size; i++) {
+            if (sequences[i] == null) {
+                continue;
+            }
+
+            kept.reset();
+            gone.reset();
+
             for (Itr it = new Itr(i); it.hasNext();) {
                 Run run = it.next();
 
                 if (predicate.check(run)) {
-                    it.remove();
+                    gone.add(run.getStart(), run.getLength());
+                } else {
+                    kept.add(run.getStart(), run.getLength());
+                }
+            }
+
+            if (gone.isEmpty()) {
+                continue;
+            }
+
+            weight = null;
+            publish(i, kept.build());
 
-                    if (removed != null) {
-                        removed.addRun(i, run);
+            if (removed != null) {
+                if (removed.sequences[i] == null) {
+                    removed.setSequence(i, gone.build());
+                    removed.weight = null;
+                } else {
+                    for (Itr it = new Itr(-1, gone.build()); it.hasNext();) {
+                        removed.addRun(i, it.next());
                     }
                 }
             }
@@ -1227,6 +1397,23 @@ public class RunTable
         return this;
     }
 
+    //------------------------//
+    // removeSequenceListener //
+    //------------------------//
+    /**
+     * Unregister a listener on sequence modifications.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeSequenceListener (SequenceListener listener)
+    {
+        final List<SequenceListener> listeners = sequenceListeners;
+
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
     //-----------//
     // removeRun //
     //-----------//
@@ -1281,6 +1468,8 @@ public class RunTable
             return;
         }
 
+        final Cursor cursor = new Cursor();
+
         if (orientation == HORIZONTAL) {
             final int minSeq = (clip != null) ? Math.max(clip.y - offset.y, 0) : 0;
             final int maxSeq = (clip != null)
@@ -1288,9 +1477,16 @@ public class RunTable
                     : (height - 1);
 
             for (int iSeq = minSeq; iSeq <= maxSeq; iSeq++) {
-                for (Itr it = new Itr(iSeq); it.hasNext();) {
-                    final Run run = it.next();
-                    g.fillRect(offset.x + run.getStart(), offset.y + iSeq, run.getLength(), 1);
+                cursor.reset(sequences[iSeq]);
+
+                for (int i = 0, loc = 0; cursor.hasNext(); i++) {
+                    final int lg = cursor.next();
+
+                    if (((i & 1) == 0) && (lg > 0)) {
+                        g.fillRect(offset.x + loc, offset.y + iSeq, lg, 1);
+                    }
+
+                    loc += lg;
                 }
             }
         } else {
@@ -1300,9 +1496,16 @@ public class RunTable
                                                                                  - 1);
 
             for (int iSeq = minSeq; iSeq <= maxSeq; iSeq++) {
-                for (Itr it = new Itr(iSeq); it.hasNext();) {
-                    final Run run = it.next();
-                    g.fillRect(offset.x + iSeq, offset.y + run.getStart(), 1, run.getLength());
+                cursor.reset(sequences[iSeq]);
+
+                for (int i = 0, loc = 0; cursor.hasNext(); i++) {
+                    final int lg = cursor.next();
+
+                    if (((i & 1) == 0) && (lg > 0)) {
+                        g.fillRect(offset.x + iSeq, offset.y + loc, 1, lg);
+                    }
+
+                    loc += lg;
                 }
             }
         }
@@ -1379,7 +1582,7 @@ public class RunTable
     public void setSequence (int index,
                              List<? extends Run> list)
     {
-        sequences[index] = encode(list);
+        publish(index, encode(list));
     }
 
     //----------//
@@ -1464,37 +1667,31 @@ public class RunTable
             RunSequence seq = getSequence(iSeq);
             i++;
 
-            if ((seq != null) && (seq.rle != null)) {
-                final short[] seqRle = seq.rle;
-                final short[] rle;
-
+            if (seq != null) {
                 if (coordMin == 0) {
-                    // Simply copy the rle
-                    rle = new short[seqRle.length];
-                    System.arraycopy(seqRle, 0, rle, 0, seqRle.length);
+                    // Simply share the sequence
+                    newTable.sequences[i] = seq;
                 } else {
-                    int backLg = seqRle[1] & 0xFFFF; // backLg >= coordMin by definition of coordMin
+                    final int[] rle = seq.items();
+                    int backLg = rle[1]; // backLg >= coordMin by definition of coordMin
 
                     if (backLg > coordMin) {
                         // Shorten the background length
-                        rle = new short[seqRle.length];
-                        System.arraycopy(seqRle, 0, rle, 0, seqRle.length);
-                        rle[1] = (short) (backLg - coordMin);
+                        rle[1] = backLg - coordMin;
+                        newTable.sequences[i] = new RunSequence(rle, rle.length);
                     } else {
                         // backLg == coordMin, hence skip the initial 0B pair of cells
-                        rle = new short[seqRle.length - 2];
-                        System.arraycopy(seqRle, 2, rle, 0, seqRle.length - 2);
+                        System.arraycopy(rle, 2, rle, 0, rle.length - 2);
+                        newTable.sequences[i] = new RunSequence(rle, rle.length - 2);
                     }
                 }
-
-                newTable.sequences[i] = new RunSequence(rle);
             }
         }
 
         offset.x = isVertical ? iSeqMin : coordMin;
         offset.y = isVertical ? coordMin : iSeqMin;
 
-        return newTable;
+        return newTable.compact();
     }
 
     //-------//
@@ -1543,39 +1740,13 @@ public class RunTable
             return null;
         }
 
-        short[] rle;
-        int size = (2 * list.size()) - 1;
-        int start = list.get(0).getStart();
-        int cursor = 0;
-        int length = 0;
-        boolean injectBackground = false;
-
-        if (start != 0) {
-            // Insert an empty foreground length
-            size += 2;
-            rle = new short[size];
-            rle[0] = 0;
-            cursor = 1;
-            injectBackground = true;
-        } else {
-            rle = new short[size];
-        }
+        final SequenceBuilder builder = new SequenceBuilder();
 
         for (Run run : list) {
-            if (injectBackground) {
-                // Inject background
-                rle[cursor++] = (short) (run.getStart() - length);
-                length = run.getStart();
-            }
-
-            // Inject foreground
-            rle[cursor++] = (short) run.getLength();
-            length += run.getLength();
-
-            injectBackground = true;
+            builder.add(run.getStart(), run.getLength());
         }
 
-        return new RunSequence(rle);
+        return builder.build();
     }
 
     //-------------//
@@ -1585,7 +1756,7 @@ public class RunTable
      * (package private) Report the sequence of runs at a given index
      *
      * @param index the desired index
-     * @return the MODIFIABLE sequence of runs
+     * @return the sequence of runs, which must not be modified
      */
     final RunSequence getSequence (int index)
     {
@@ -1604,7 +1775,7 @@ public class RunTable
     final void setSequence (int index,
                             RunSequence seq)
     {
-        sequences[index] = seq;
+        publish(index, seq);
     }
 
     //--------------//
@@ -1620,7 +1791,7 @@ public class RunTable
         for (int i = 0, iBreak = sequences.length; i < iBreak; i++) {
             RunSequence seq = sequences[i];
 
-            if ((seq != null) && ((seq.rle == null) || (seq.rle.length == 0))) {
+            if ((seq != null) && (seq.count == 0)) {
                 sequences[i] = null;
             }
         }
@@ -1631,13 +1802,14 @@ public class RunTable
     //----------------//
     /**
      * Called immediately after unmarshalling of this object.
-     * We reset any empty RunSequence to null.
+     * We reset any empty RunSequence to null, and gather all sequences in a single buffer.
      */
     @SuppressWarnings("unused")
     private void afterUnmarshal (Unmarshaller m,
                                  Object parent)
     {
         afterMarshal(null);
+        compact();
     }
 
     //---------------//
@@ -1659,30 +1831,235 @@ public class RunTable
         }
     }
 
+    //------------//
+    // decodeSpan //
+    //------------//
+    /**
+     * Write the foreground cells of a sequence, within [min..max[ range, into a buffer.
+     *
+     * @param seq    the sequence to decode, perhaps null
+     * @param min    minimum coordinate (included)
+     * @param max    maximum coordinate (excluded)
+     * @param dst    target buffer
+     * @param base   buffer position for coordinate 0
+     * @param stride buffer step from one coordinate to the next
+     */
+    private static void decodeSpan (RunSequence seq,
+                                    int min,
+                                    int max,
+                                    byte[] dst,
+                                    int base,
+                                    int stride)
+    {
+        if (seq == null) {
+            return;
+        }
+
+        final Cursor cursor = new Cursor();
+        cursor.reset(seq);
+
+        int loc = 0;
+
+        for (int i = 0; cursor.hasNext() && (loc < max); i++) {
+            final int lg = cursor.next();
+
+            if ((i & 1) == 0) {
+                final int start = Math.max(loc, min);
+                final int stop = Math.min(loc + lg, max);
+
+                if (stride == 1) {
+                    if (start < stop) {
+                        Arrays.fill(dst, base + start, base + stop, (byte) FOREGROUND);
+                    }
+                } else {
+                    for (int c = start; c < stop; c++) {
+                        dst[base + (c * stride)] = (byte) FOREGROUND;
+                    }
+                }
+            }
+
+            loc += lg;
+        }
+    }
+
+    //---------------------//
+    // fireSequenceChanged //
+    //---------------------//
+    /**
+     * Notify the registered listeners, if any, that a sequence has been modified.
+     *
+     * @param index the sequence index
+     */
+    private void fireSequenceChanged (int index)
+    {
+        final List<SequenceListener> listeners = sequenceListeners;
+
+        if (listeners != null) {
+            for (SequenceListener listener : listeners) {
+                listener.sequenceChanged(this, index);
+            }
+        }
+    }
+
+    //---------//
+    // publish //
+    //---------//
+    /**
+     * Install a new sequence at provided index, then notify the listeners.
+     * <p>
+     * The assignment is made while holding the table lock, so that a concurrent reader holding
+     * the same lock (such as a {@link RunTableTiles} builder) sees either the old or the new
+     * sequence. Listeners are notified only once the new sequence is in place, hence any data
+     * they rebuild is not stale.
+     *
+     * @param index the sequence index
+     * @param seq   the new sequence, perhaps null
+     */
+    private void publish (int index,
+                          RunSequence seq)
+    {
+        synchronized (this) {
+            sequences[index] = seq;
+        }
+
+        fireSequenceChanged(index);
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
+    //--------//
+    // Cursor //
+    //--------//
+    /**
+     * Reusable reader of the rle items of a sequence.
+     */
+    private static class Cursor
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private byte[] data;
+
+        /** Position in data of the next item. */
+        private int pos;
+
+        /** Position in data past the last item. */
+        private int end;
+
+        //~ Methods --------------------------------------------------------------------------------
+        public boolean hasNext ()
+        {
+            return pos < end;
+        }
+
+        public int next ()
+        {
+            int value = 0;
+
+            for (int shift = 0;; shift += 7) {
+                final byte b = data[pos++];
+                value |= ((b & 0x7F) << shift);
+
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        public void reset (RunSequence seq)
+        {
+            if (seq != null) {
+                data = seq.data;
+                pos = seq.offset;
+                end = seq.offset + seq.byteLength;
+            } else {
+                data = null;
+                pos = end = 0;
+            }
+        }
+    }
+
     //-------------//
     // RunSequence //
     //-------------//
     /**
      * (package private) Sequence of runs, using run-length encoding.
+     * <p>
+     * The rle items are stored as variable-length integers, 7 bits per byte with the high bit set
+     * on all bytes but the last one, in a buffer perhaps shared with other sequences.
+     * A sequence is never modified once built (except by JAXB unmarshalling).
      */
-    @XmlAccessorType(XmlAccessType.FIELD)
+    @XmlAccessorType(XmlAccessType.NONE)
     @XmlRootElement(name = "runs")
     static class RunSequence
     {
         //~ Instance fields ------------------------------------------------------------------------
 
-        @XmlValue
-        private short[] rle;
+        /** Buffer of encoded items, perhaps shared with other sequences. */
+        private byte[] data;
+
+        /** Position of first encoded item in data. */
+        private int offset;
+
+        /** Number of bytes of encoded items. */
+        private int byteLength;
+
+        /** Number of rle items. */
+        private int count;
+
+        /**
+         * Lazily built prefix index, not persisted.
+         * locations[i] is the location where item i starts, locations[count] is the end.
+         */
+        private transient volatile int[] locations;
 
         //~ Constructors ---------------------------------------------------------------------------
+        /**
+         * Create a sequence from rle items.
+         *
+         * @param rle   the items
+         * @param count the number of items to use in rle
+         */
+        public RunSequence (int[] rle,
+                            int count)
+        {
+            encode(rle, count);
+        }
+
+        /**
+         * Create a sequence from 16-bit rle items, read as unsigned values.
+         *
+         * @param rle the items
+         */
         public RunSequence (short[] rle)
         {
-            this.rle = rle;
+            final int[] items = new int[rle.length];
+
+            for (int i = 0; i < rle.length; i++) {
+                items[i] = rle[i] & 0xFFFF;
+            }
+
+            encode(items, items.length);
         }
 
-        public RunSequence ()
+        /**
+         * Create a view on items already encoded.
+         */
+        RunSequence (byte[] data,
+                     int offset,
+                     int byteLength,
+                     int count)
         {
+            this.data = data;
+            this.offset = offset;
+            this.byteLength = byteLength;
+            this.count = count;
+        }
+
+        /**
+         * No-arg constructor, needed for JAXB.
+         */
+        private RunSequence ()
+        {
+            data = new byte[0];
         }
 
         //~ Methods --------------------------------------------------------------------------------
@@ -1699,18 +2076,112 @@ public class RunTable
 
             final RunSequence that = (RunSequence) obj;
 
-            return Arrays.equals(rle, that.rle);
+            // Encoding is canonical, hence bytes can be compared directly
+            if ((count != that.count) || (byteLength != that.byteLength)) {
+                return false;
+            }
+
+            for (int i = 0; i < byteLength; i++) {
+                if (data[offset + i] != that.data[that.offset + i]) {
+                    return false;
+                }
+            }
+
+            return true;
         }
 
         @Override
         public int hashCode ()
         {
             int hash = 5;
-            hash = (67 * hash) + Arrays.hashCode(this.rle);
+
+            for (int i = 0; i < byteLength; i++) {
+                hash = (67 * hash) + data[offset + i];
+            }
 
             return hash;
         }
 
+        /**
+         * Report the position in rle of the item (foreground or background) that contains the
+         * provided location.
+         * <p>
+         * Short sequences are scanned linearly, longer ones use a binary search in the prefix
+         * index. No object is allocated, except the index when first needed.
+         *
+         * @param coord the location to look up
+         * @return position in rle (even for foreground, odd for background), or -1 if location is
+         *         before or after sequence
+         */
+        public int indexOf (int coord)
+        {
+            if ((coord < 0) || (count == 0)) {
+                return -1;
+            }
+
+            if (count < MIN_INDEXED_LENGTH) {
+                int loc = 0;
+                int pos = offset;
+
+                for (int i = 0; i < count; i++) {
+                    for (int shift = 0;; shift += 7) {
+                        final byte b = data[pos++];
+                        loc += ((b & 0x7F) << shift);
+
+                        if (b >= 0) {
+                            break;
+                        }
+                    }
+
+                    if (coord < loc) {
+                        return i;
+                    }
+                }
+
+                return -1;
+            }
+
+            final int[] locs = getLocations();
+
+            if (coord >= locs[count]) {
+                return -1;
+            }
+
+            // Look for last item starting at or before coord
+            int lo = 0;
+            int hi = count - 1;
+
+            while (lo < hi) {
+                final int mid = (lo + hi + 1) >>> 1;
+
+                if (locs[mid] <= coord) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+
+            return lo;
+        }
+
+        /**
+         * Report a decoded copy of the rle items.
+         *
+         * @return a new array of rle items
+         */
+        public int[] items ()
+        {
+            final int[] items = new int[count];
+            final Cursor cursor = new Cursor();
+            cursor.reset(this);
+
+            for (int i = 0; i < count; i++) {
+                items[i] = cursor.next();
+            }
+
+            return items;
+        }
+
         /**
          * Report the number of foreground runs in this sequence
          *
@@ -1718,21 +2189,229 @@ public class RunTable
          */
         public int size ()
         {
-            if ((rle == null) || (rle.length == 0)) {
+            if (count == 0) {
                 return 0;
             }
 
-            if (rle[0] == 0) {
-                return (rle.length - 1) / 2; // Case of an initial background run
+            if (data[offset] == 0) {
+                return (count - 1) / 2; // Case of an initial background run
             } else {
-                return (rle.length + 1) / 2; // Standard case of an initial foreground run
+                return (count + 1) / 2; // Standard case of an initial foreground run
+            }
+        }
+
+        /**
+         * Report the location where the rle item at provided position starts.
+         *
+         * @param i position in rle (count for the sequence end)
+         * @return item start location
+         */
+        public int startOf (int i)
+        {
+            if (count >= MIN_INDEXED_LENGTH) {
+                return getLocations()[i];
+            }
+
+            int loc = 0;
+            int pos = offset;
+
+            for (int j = 0; j < i; j++) {
+                for (int shift = 0;; shift += 7) {
+                    final byte b = data[pos++];
+                    loc += ((b & 0x7F) << shift);
+
+                    if (b >= 0) {
+                        break;
+                    }
+                }
             }
+
+            return loc;
         }
 
         @Override
         public String toString ()
         {
-            return Arrays.toString(rle);
+            return Arrays.toString(items());
+        }
+
+        /**
+         * Report the number of bytes needed to encode the provided value.
+         */
+        static int sizeOf (int value)
+        {
+            int size = 1;
+
+            while ((value >>>= 7) != 0) {
+                size++;
+            }
+
+            return size;
+        }
+
+        /**
+         * Encode a value into the provided buffer.
+         *
+         * @return the position in buffer past the encoded value
+         */
+        static int write (byte[] buffer,
+                          int pos,
+                          int value)
+        {
+            while ((value & ~0x7F) != 0) {
+                buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            buffer[pos++] = (byte) value;
+
+            return pos;
+        }
+
+        private void encode (int[] rle,
+                             int count)
+        {
+            int size = 0;
+
+            for (int i = 0; i < count; i++) {
+                size += sizeOf(rle[i]);
+            }
+
+            data = new byte[size];
+            offset = 0;
+            byteLength = size;
+            this.count = count;
+            locations = null;
+
+            for (int i = 0, pos = 0; i < count; i++) {
+                pos = write(data, pos, rle[i]);
+            }
+        }
+
+        private int[] getLocations ()
+        {
+            int[] locs = locations;
+
+            if (locs == null) {
+                final Cursor cursor = new Cursor();
+                cursor.reset(this);
+                locs = new int[count + 1];
+
+                for (int i = 0; i < count; i++) {
+                    locs[i + 1] = locs[i] + cursor.next();
+                }
+
+                locations = locs;
+            }
+
+            return locs;
+        }
+
+        /**
+         * Items as marshalled, a list of integers.
+         */
+        @XmlValue
+        private int[] getRle ()
+        {
+            return items();
+        }
+
+        /**
+         * Items as unmarshalled.
+         * Negative values, found in files written with 16-bit items, are read as unsigned.
+         */
+        private void setRle (int[] rle)
+        {
+            for (int i = 0; i < rle.length; i++) {
+                if (rle[i] < 0) {
+                    rle[i] &= 0xFFFF;
+                }
+            }
+
+            encode(rle, rle.length);
+        }
+    }
+
+    //-----------------//
+    // SequenceBuilder //
+    //-----------------//
+    /**
+     * (package private) Builder of a sequence, from runs provided in increasing order.
+     * <p>
+     * Adjacent runs are merged. A builder can be reused for several sequences.
+     */
+    static class SequenceBuilder
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** Items so far. */
+        private int[] items = new int[16];
+
+        /** Number of items so far. */
+        private int count;
+
+        /** Location past the last run. */
+        private int loc;
+
+        //~ Methods --------------------------------------------------------------------------------
+        /**
+         * Append a run, located after the previous ones.
+         *
+         * @param start  start of run
+         * @param length length of run
+         */
+        public void add (int start,
+                         int length)
+        {
+            if ((start < loc) || (length <= 0)) {
+                throw new IllegalArgumentException("Illegal run " + start + "/" + length);
+            }
+
+            if (count == 0) {
+                if (start > 0) {
+                    push(0);
+                    push(start);
+                }
+
+                push(length);
+            } else if (start == loc) {
+                items[count - 1] += length;
+            } else {
+                push(start - loc);
+                push(length);
+            }
+
+            loc = start + length;
+        }
+
+        /**
+         * Build the sequence of the runs added so far.
+         *
+         * @return the sequence, or null if no run was added
+         */
+        public RunSequence build ()
+        {
+            return (count == 0) ? null : new RunSequence(items, count);
+        }
+
+        public boolean isEmpty ()
+        {
+            return count == 0;
+        }
+
+        public void reset ()
+        {
+            count = 0;
+            loc = 0;
+        }
+
+        private void push (int value)
+        {
+            if (count == items.length) {
+                items = Arrays.copyOf(items, 2 * count);
+            }
+
+            items[count++] = value;
         }
     }
 
@@ -1749,17 +2428,36 @@ public class RunTable
     {
         //~ Instance fields ------------------------------------------------------------------------
 
-        /** The index of sequence being iterated upon. */
+        /** The index of sequence being iterated upon, or -1 for a sequence out of table. */
         private final int index;
 
-        /** Current position in sequence array.
-         * Always on an even position, pointing to the length of Foreground to be returned by
-         * next() */
-        private int cursor = 0;
+        /** The sequence being iterated upon. */
+        private RunSequence seq;
+
+        /** Reader, positioned on the foreground length to be returned by next(). */
+        private final Cursor cursor = new Cursor();
 
         /** Start location of foreground run to be returned by next(). */
         private int loc = 0;
 
+        /** Position in data of background length before next foreground, or -1. */
+        private int backPos = -1;
+
+        /** Background length before next foreground. */
+        private int back;
+
+        /** Position in data of background length before last returned foreground, or -1. */
+        private int lastBackPos = -1;
+
+        /** Background length before last returned foreground. */
+        private int lastBack;
+
+        /** Last returned foreground length. */
+        private int lastFore;
+
+        /** Is there a returned run to remove?. */
+        private boolean removable;
+
         /** <b>Reusable</b> Run structure. This is just a buffer meant to optimize browsing.
          * Beware, don't keep a pointer to this Run object, make a copy.
          */
@@ -1767,23 +2465,24 @@ public class RunTable
 
         //~ Constructors ---------------------------------------------------------------------------
         public Itr (int index)
+        {
+            this(index, sequences[index]);
+        }
+
+        public Itr (int index,
+                    RunSequence seq)
         {
             this.index = index;
+            this.seq = seq;
+            cursor.reset(seq);
 
             // Check the case of an initial background run
-            final RunSequence seq = sequences[index];
-
-            if (seq != null) {
-                final short[] rle = seq.rle;
+            if (cursor.hasNext() && (seq.data[seq.offset] == 0)) {
+                cursor.next();
 
-                if ((rle != null) && (rle.length > 0)) {
-                    if (rle[cursor] == 0) {
-                        if (rle.length > 1) {
-                            loc = rle[1];
-                        }
-
-                        cursor += 2;
-                    }
+                if (cursor.hasNext()) {
+                    backPos = cursor.pos;
+                    back = loc = cursor.next();
                 }
             }
         }
@@ -1797,19 +2496,7 @@ public class RunTable
         @Override
         public final boolean hasNext ()
         {
-            final RunSequence seq = sequences[index];
-
-            if (seq == null) {
-                return false;
-            }
-
-            final short[] rle = seq.rle;
-
-            if (rle == null) {
-                return false;
-            }
-
-            return cursor < rle.length;
+            return cursor.hasNext();
         }
 
         /**
@@ -1825,66 +2512,108 @@ public class RunTable
                 throw new NoSuchElementException();
             }
 
-            final short[] rle = sequences[index].rle;
-
             // ...v.. cursor before next()
             // ...FBF
             // .....^ cursor after next()
-            int foreLoc = loc;
-            int foreLg = rle[cursor++] & 0xFFFF;
+            lastBackPos = backPos;
+            lastBack = back;
+            lastFore = cursor.next();
+            removable = true;
 
             // Update the (modifiable) run structure
-            run.setStart(foreLoc);
-            run.setLength(foreLg);
+            run.setStart(loc);
+            run.setLength(lastFore);
 
-            loc += foreLg;
+            loc += lastFore;
 
-            if (cursor < rle.length) {
-                int backLg = rle[cursor] & 0xFFFF;
-                loc += backLg;
+            if (cursor.hasNext()) {
+                backPos = cursor.pos;
+                back = cursor.next();
+                loc += back;
+            } else {
+                backPos = -1;
             }
 
-            cursor++;
-
             return run;
         }
 
+        /**
+         * Remove the last returned run, by building a new sequence.
+         */
         @Override
         public void remove ()
         {
-            final short[] rle = sequences[index].rle;
-            int c = cursor - 2;
+            if (!removable || (index < 0)) {
+                throw new IllegalStateException();
+            }
 
-            if (c == 0) {
-                if (c == (rle.length - 1)) {
-                    // F -> null
-                    sequences[index] = null;
-                } else {
-                    // (FB)F... -> 0(B')F...
-                    rle[1] = (short) (rle[0] + rle[1]);
-                    rle[0] = 0;
-                }
-            } else {
-                final short[] newRle = new short[rle.length - 2];
+            removable = false;
+            weight = null;
 
-                if (c == (rle.length - 1)) {
-                    // ...F(BF) -> ...F
-                    System.arraycopy(rle, 0, newRle, 0, newRle.length);
+            final int start = seq.offset;
+            final int end = start + seq.byteLength;
+
+            if (backPos < 0) {
+                // Last run
+                if ((lastBackPos < 0) || ((seq.count == 3) && (seq.data[start] == 0))) {
+                    // F -> null or 0BF -> null
+                    seq = null;
                 } else {
-                    // ...F(BFB)F... -> ...F(B')F...
-                    System.arraycopy(rle, 0, newRle, 0, c - 1);
-                    newRle[c - 1] = (short) (rle[c - 1] + rle[c] + rle[c + 1]);
-                    System.arraycopy(rle, c + 2, newRle, c, rle.length - c - 2);
+                    // ...F(BF) -> ...F
+                    final byte[] bytes = Arrays.copyOfRange(seq.data, start, lastBackPos);
+                    seq = new RunSequence(bytes, 0, bytes.length, seq.count - 2);
                 }
 
-                if ((newRle.length == 1) && (newRle[0] == 0)) {
-                    sequences[index] = null;
-                } else {
-                    sequences[index] = new RunSequence(newRle);
+                // Nothing left to iterate upon
+                cursor.reset(seq);
+                cursor.pos = cursor.end;
+            } else {
+                // (FB)F... -> 0(B')F... or ...F(BFB)F... -> ...F(B')F...
+                final int prefixLg = (lastBackPos < 0) ? 1 : (lastBackPos - start);
+                final int merged = ((lastBackPos < 0) ? 0 : lastBack) + lastFore + back;
+                final int mergedLg = RunSequence.sizeOf(merged);
+                final int suffixLg = end - cursor.pos;
+                final byte[] bytes = new byte[prefixLg + mergedLg + suffixLg];
+
+                if (lastBackPos >= 0) {
+                    System.arraycopy(seq.data, start, bytes, 0, prefixLg);
                 }
 
-                cursor = c;
+                RunSequence.write(bytes, prefixLg, merged);
+                System.arraycopy(seq.data, cursor.pos, bytes, prefixLg + mergedLg, suffixLg);
+
+                final int newCount = (lastBackPos < 0) ? seq.count : (seq.count - 2);
+                seq = new RunSequence(bytes, 0, bytes.length, newCount);
+
+                // Resume just after the merged background
+                cursor.reset(seq);
+                cursor.pos = prefixLg + mergedLg;
+                backPos = prefixLg;
+                back = merged;
             }
+
+            publish(index, seq);
         }
     }
+
+    //------------------//
+    // SequenceListener //
+    //------------------//
+    /**
+     * Interface for entities interested in modifications of table sequences,
+     * such as a rendering cache.
+     */
+    public static interface SequenceListener
+    {
+        //~ Methods --------------------------------------------------------------------------------
+
+        /**
+         * Notify that the sequence at provided index is being modified.
+         *
+         * @param table the modified table
+         * @param index the sequence index
+         */
+        void sequenceChanged (RunTable table,
+                              int index);
+    }
 }
@@ -120,7 +120,7 @@ public class RunTableFactory
                         : new HorizontalAdapter(source, table, roi.getLocation()));
         retriever.retrieveRuns(roi);
 
-        return table;
+        return table.compact();
     }
 
     //~ Inner Interfaces ---------------------------------------------------------------------------
@@ -0,0 +1,531 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   R u n T a b l e T i l e s                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import static org.audiveris.omr.image.PixelSource.FOREGROUND;
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class {@code RunTableTiles} is a rendering cache for a (large) {@link RunTable}.
+ * <p>
+ * The table is rendered through square image tiles, organized as a pyramid of resolution levels:
+ * level 0 is the table at full resolution, each following level halves the resolution of the
+ * previous one (with foreground coverage rendered as transparency).
+ * The level used for a given repaint is the coarsest one still at least as fine as the display
+ * zoom ratio, so that a display of the whole sheet at low zoom needs just a few small tiles.
+ * <p>
+ * Missing tiles are built in the background, one at a time, the most recently requested first.
+ * Meanwhile, a coarser tile already available is used as a substitute, and the related component
+ * is repainted when the tile gets ready.
+ * <p>
+ * Tiles are kept through soft references, and any modification of a table sequence discards just
+ * the tiles that cover this sequence.
+ *
+ * @author Hervé Bitteur
+ */
+public class RunTableTiles
+        implements RunTable.SequenceListener
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(RunTableTiles.class);
+
+    /** Maximum resolution level (1/16). */
+    private static final int MAX_LEVEL = 4;
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** The underlying table. */
+    private final RunTable table;
+
+    /** The component to repaint when a tile gets ready. */
+    private final Component component;
+
+    /** Tile side, in pixels of any level. */
+    private final int tileSize;
+
+    /** Cached tiles, per key. */
+    private final ConcurrentMap<Long, SoftReference<BufferedImage>> tiles;
+
+    /** Keys of tiles waiting to be built. */
+    private final BlockingDeque<Long> queue = new LinkedBlockingDeque<Long>();
+
+    /** Keys of tiles queued or being built. */
+    private final Set<Long> pending = Collections.newSetFromMap(
+            new ConcurrentHashMap<Long, Boolean>());
+
+    /** Is a builder task active?. */
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    /** Incremented at each invalidation, to discard tiles built on obsolete data. */
+    private final AtomicInteger stamp = new AtomicInteger();
+
+    /** Color model for tiles, based on foreground color. */
+    private volatile IndexColorModel colorModel;
+
+    /** Foreground color used in tiles. */
+    private volatile Color color;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code RunTableTiles} object.
+     * <p>
+     * This cache registers itself as a listener on table modifications, hence the need to call
+     * {@link #dispose()} when it is no longer used.
+     *
+     * @param table     the table to render
+     * @param component the component to repaint when new tiles are available
+     */
+    public RunTableTiles (RunTable table,
+                          Component component)
+    {
+        this.table = table;
+        this.component = component;
+        tileSize = constants.tileSize.getValue();
+        tiles = new ConcurrentHashMap<Long, SoftReference<BufferedImage>>();
+
+        table.addSequenceListener(this);
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // dispose //
+    //---------//
+    /**
+     * Release this cache, which stops listening to the table.
+     */
+    public void dispose ()
+    {
+        table.removeSequenceListener(this);
+        queue.clear();
+        tiles.clear();
+    }
+
+    //----------//
+    // getTable //
+    //----------//
+    /**
+     * Report the underlying table.
+     *
+     * @return the table
+     */
+    public RunTable getTable ()
+    {
+        return table;
+    }
+
+    //--------//
+    // render //
+    //--------//
+    /**
+     * Render the table onto the clip area of the provided graphics, whose transform is assumed
+     * to be a plain scaling and whose origin is the table top left corner.
+     * <p>
+     * The current color of graphics is used as foreground color.
+     *
+     * @param g target environment
+     */
+    public void render (Graphics2D g)
+    {
+        checkColor(g.getColor());
+
+        final Rectangle bounds = new Rectangle(0, 0, table.getWidth(), table.getHeight());
+        final Rectangle clip = g.getClipBounds();
+        final Rectangle area = (clip != null) ? clip.intersection(bounds) : bounds;
+
+        if (area.isEmpty()) {
+            return;
+        }
+
+        final int level = getLevel(g.getTransform().getScaleX());
+        final int span = tileSize << level;
+
+        for (int ty = area.y / span, tyMax = (area.y + area.height - 1) / span; ty <= tyMax;
+                ty++) {
+            for (int tx = area.x / span, txMax = (area.x + area.width - 1) / span; tx <= txMax;
+                    tx++) {
+                if (!drawTile(g, level, tx, ty, null)) {
+                    request(key(level, tx, ty));
+                    drawSubstitute(g, level, tx, ty);
+                }
+            }
+        }
+    }
+
+    //-----------------//
+    // sequenceChanged //
+    //-----------------//
+    @Override
+    public void sequenceChanged (RunTable changed,
+                                 int index)
+    {
+        final boolean hori = changed.getOrientation() == HORIZONTAL;
+        final int txMaxFull = (table.getWidth() - 1) / tileSize;
+        final int tyMaxFull = (table.getHeight() - 1) / tileSize;
+        boolean removed = false;
+
+        stamp.incrementAndGet();
+
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            final int t = index / (tileSize << level);
+
+            if (hori) {
+                for (int tx = 0, txMax = txMaxFull >> level; tx <= txMax; tx++) {
+                    removed |= (tiles.remove(key(level, tx, t)) != null);
+                }
+            } else {
+                for (int ty = 0, tyMax = tyMaxFull >> level; ty <= tyMax; ty++) {
+                    removed |= (tiles.remove(key(level, t, ty)) != null);
+                }
+            }
+        }
+
+        if (removed) {
+            component.repaint();
+        }
+    }
+
+    //----------//
+    // useTiles //
+    //----------//
+    /**
+     * Report whether tiled rendering is enabled.
+     *
+     * @return true if so
+     */
+    public static boolean useTiles ()
+    {
+        return constants.useTiles.isSet();
+    }
+
+    //-----------//
+    // buildTile //
+    //-----------//
+    /**
+     * Build the image of a tile.
+     * Each tile pixel represents a square of (1 &lt;&lt; level) table pixels, whose foreground
+     * coverage is rendered as the alpha value of foreground color.
+     *
+     * @param level tile level
+     * @param tx    tile abscissa index
+     * @param ty    tile ordinate index
+     * @return the tile image
+     */
+    private BufferedImage buildTile (int level,
+                                     int tx,
+                                     int ty)
+    {
+        final int f = 1 << level;
+        final int span = tileSize << level;
+        final Rectangle rect = new Rectangle(tx * span, ty * span, span, span).intersection(
+                new Rectangle(0, 0, table.getWidth(), table.getHeight()));
+        final int w = ((rect.width + f) - 1) / f;
+        final int h = ((rect.height + f) - 1) / f;
+        final BufferedImage img = new BufferedImage(
+                w,
+                h,
+                BufferedImage.TYPE_BYTE_INDEXED,
+                colorModel);
+        final byte[] data = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+        final byte[] buf = new byte[rect.width * f];
+        final int[] counts = new int[w];
+        final Rectangle band = new Rectangle(rect.x, 0, rect.width, 0);
+
+        for (int y = 0; y < h; y++) {
+            band.y = rect.y + (y * f);
+            band.height = Math.min(f, (rect.y + rect.height) - band.y);
+
+            synchronized (table) {
+                // Same lock as table writers
+                table.decodeRect(band, buf);
+            }
+
+            for (int i = 0, iBreak = band.width * band.height; i < iBreak; i++) {
+                if (buf[i] == (byte) FOREGROUND) {
+                    counts[(i % band.width) / f]++;
+                }
+            }
+
+            for (int x = 0; x < w; x++) {
+                final int cellWidth = Math.min(f, rect.width - (x * f));
+                final int area = cellWidth * band.height;
+                data[(y * w) + x] = (byte) ((counts[x] * 255) / area);
+                counts[x] = 0;
+            }
+        }
+
+        return img;
+    }
+
+    //------------//
+    // checkColor //
+    //------------//
+    /**
+     * Make sure tiles use the current foreground color, otherwise they are all discarded.
+     *
+     * @param current current foreground color
+     */
+    private void checkColor (Color current)
+    {
+        if ((colorModel != null) && current.equals(color)) {
+            return;
+        }
+
+        final byte[] r = new byte[256];
+        final byte[] gr = new byte[256];
+        final byte[] b = new byte[256];
+        final byte[] a = new byte[256];
+
+        for (int i = 0; i < 256; i++) {
+            r[i] = (byte) current.getRed();
+            gr[i] = (byte) current.getGreen();
+            b[i] = (byte) current.getBlue();
+            a[i] = (byte) ((i * current.getAlpha()) / 255);
+        }
+
+        stamp.incrementAndGet();
+        colorModel = new IndexColorModel(8, 256, r, gr, b, a);
+        color = current;
+        tiles.clear();
+    }
+
+    //----------------//
+    // drawSubstitute //
+    //----------------//
+    /**
+     * Draw the area of a missing tile, using the first coarser tile available if any.
+     */
+    private void drawSubstitute (Graphics2D g,
+                                 int level,
+                                 int tx,
+                                 int ty)
+    {
+        final int span = tileSize << level;
+        final Rectangle area = new Rectangle(tx * span, ty * span, span, span);
+
+        for (int lv = level + 1; lv <= MAX_LEVEL; lv++) {
+            final int shift = lv - level;
+
+            if (drawTile(g, lv, tx >> shift, ty >> shift, area)) {
+                return;
+            }
+        }
+    }
+
+    //----------//
+    // drawTile //
+    //----------//
+    /**
+     * Draw a cached tile, if available.
+     *
+     * @param g     target environment
+     * @param level tile level
+     * @param tx    tile abscissa index
+     * @param ty    tile ordinate index
+     * @param area  if not null, the table area to restrict drawing to
+     * @return true if tile was available
+     */
+    private boolean drawTile (Graphics2D g,
+                              int level,
+                              int tx,
+                              int ty,
+                              Rectangle area)
+    {
+        final SoftReference<BufferedImage> ref = tiles.get(key(level, tx, ty));
+        final BufferedImage img = (ref != null) ? ref.get() : null;
+
+        if (img == null) {
+            return false;
+        }
+
+        final int f = 1 << level;
+        final int span = tileSize << level;
+        final int x = tx * span;
+        final int y = ty * span;
+
+        if (area == null) {
+            g.drawImage(img, x, y, img.getWidth() * f, img.getHeight() * f, null);
+        } else {
+            final Rectangle r = area.intersection(
+                    new Rectangle(x, y, img.getWidth() * f, img.getHeight() * f));
+
+            if (!r.isEmpty()) {
+                final int sx = (r.x - x) / f;
+                final int sy = (r.y - y) / f;
+                g.drawImage(
+                        img,
+                        r.x,
+                        r.y,
+                        r.x + r.width,
+                        r.y + r.height,
+                        sx,
+                        sy,
+                        sx + ((r.width + f) - 1) / f,
+                        sy + ((r.height + f) - 1) / f,
+                        null);
+            }
+        }
+
+        return true;
+    }
+
+    //----------//
+    // getLevel //
+    //----------//
+    /**
+     * Report the coarsest level whose resolution is not lower than the display ratio.
+     *
+     * @param ratio display zoom ratio
+     * @return the level to use
+     */
+    private int getLevel (double ratio)
+    {
+        int level = 0;
+
+        while ((level < MAX_LEVEL) && ((ratio * (2 << level)) <= 1.0)) {
+            level++;
+        }
+
+        return level;
+    }
+
+    //-----//
+    // key //
+    //-----//
+    private static long key (int level,
+                             int tx,
+                             int ty)
+    {
+        return ((long) level << 56) | ((long) ty << 28) | tx;
+    }
+
+    //---------//
+    // request //
+    //---------//
+    /**
+     * Queue the building of a tile, and make sure a builder is active.
+     *
+     * @param key tile key
+     */
+    private void request (long key)
+    {
+        if (pending.add(key)) {
+            queue.addFirst(key);
+        }
+
+        if (building.compareAndSet(false, true)) {
+            OmrExecutors.getCachedLowExecutor().execute(new Builder());
+        }
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //---------//
+    // Builder //
+    //---------//
+    /**
+     * Task that builds queued tiles, until queue is empty.
+     */
+    private class Builder
+            implements Runnable
+    {
+        //~ Methods --------------------------------------------------------------------------------
+
+        @Override
+        public void run ()
+        {
+            try {
+                Long key;
+
+                while ((key = queue.pollFirst()) != null) {
+                    final int level = (int) (key >>> 56);
+                    final int ty = (int) ((key >>> 28) & 0xFFFFFFF);
+                    final int tx = (int) (key & 0xFFFFFFF);
+                    final int start = stamp.get();
+
+                    try {
+                        final BufferedImage img = buildTile(level, tx, ty);
+
+                        // Discard tile if table or color changed meanwhile
+                        if (stamp.get() == start) {
+                            tiles.put(key, new SoftReference<BufferedImage>(img));
+                        }
+                    } catch (Exception ex) {
+                        logger.warn("Error building tile {} {}", key, ex.toString(), ex);
+                    } finally {
+                        pending.remove(key);
+                    }
+
+                    component.repaint();
+                }
+            } finally {
+                building.set(false);
+            }
+
+            // Catch any request posted while we were leaving
+            if (!queue.isEmpty() && building.compareAndSet(false, true)) {
+                OmrExecutors.getCachedLowExecutor().execute(new Builder());
+            }
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean useTiles = new Constant.Boolean(
+                true,
+                "Should large run tables be displayed through cached image tiles?");
+
+        private final Constant.Integer tileSize = new Constant.Integer(
+                "pixels",
+                256,
+                "Side of a display tile");
+    }
+}
@@ -53,6 +53,9 @@ public class RunTableView
     /** The underlying table of runs. */
     private final RunTable table;
 
+    /** Tiled rendering of the table, if any. */
+    private RunTableTiles tiles;
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new {@code RunTableView} object.
@@ -76,6 +79,18 @@ public class RunTableView
     }
 
     //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // dispose //
+    //---------//
+    @Override
+    public void dispose ()
+    {
+        if (tiles != null) {
+            tiles.dispose();
+            tiles = null;
+        }
+    }
+
     //---------//
     // onEvent //
     //---------//
@@ -114,7 +129,15 @@ public class RunTableView
     public void render (Graphics2D g)
     {
         // Render all table runs
-        table.render(g, new Point(0, 0));
+        if (RunTableTiles.useTiles()) {
+            if (tiles == null) {
+                tiles = new RunTableTiles(table, this);
+            }
+
+            tiles.render(g);
+        } else {
+            table.render(g, new Point(0, 0));
+        }
     }
 
     //-------------//
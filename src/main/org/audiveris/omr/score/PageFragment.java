@@ -0,0 +1,299 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    P a g e F r a g m e n t                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.score;
+
+import org.audiveris.omr.util.JaxbContexts;
+
+import org.audiveris.proxymusic.Attributes;
+import org.audiveris.proxymusic.Credit;
+import org.audiveris.proxymusic.Identification;
+import org.audiveris.proxymusic.MiscellaneousField;
+import org.audiveris.proxymusic.ScorePart;
+import org.audiveris.proxymusic.ScorePartwise;
+import org.audiveris.proxymusic.TypedText;
+import org.audiveris.proxymusic.util.Marshalling;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * Class {@code PageFragment} is the MusicXML contribution of one page to the export of its
+ * score, cached by the page sheet stub so that a later export can skip the pages that have not
+ * changed.
+ * <p>
+ * A fragment is built for a given export context, which gathers the page position and measure
+ * numbering within score, the logical parts, and the attributes (keys, clefs, ...) exported by the
+ * preceding pages. It can be replayed only in the very same context.
+ * <p>
+ * The fragment is discarded as soon as the stub gets modified or invalidated, or as soon as the
+ * sig of any page system gets edited.
+ *
+ * @author Hervé Bitteur
+ */
+public class PageFragment
+{
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    /** Export context this fragment was built in. */
+    private final String context;
+
+    /** Marshalled measures, per part id. */
+    private final Map<String, List<String>> measures = new HashMap<String, List<String>>();
+
+    /** Credits added by the page. */
+    private final List<Credit> credits = new ArrayList<Credit>();
+
+    /** Rights added by the page. */
+    private final List<TypedText> rights = new ArrayList<TypedText>();
+
+    /** Creators added by the page. */
+    private final List<TypedText> creators = new ArrayList<TypedText>();
+
+    /** Miscellaneous fields added by the page. */
+    private final List<MiscellaneousField> fields = new ArrayList<MiscellaneousField>();
+
+    /** Marshalled attributes of the page measures. */
+    private final StringBuilder attributes = new StringBuilder();
+
+    // Transient data
+    //---------------
+    //
+    /** Per part id, count of part measures before page processing. */
+    private Map<String, Integer> measureMarks = new HashMap<String, Integer>();
+
+    /** Count of credits, rights, creators and fields before page processing. */
+    private int[] headerMarks;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code PageFragment} object, to be called just before the page is
+     * processed.
+     *
+     * @param context       the export context
+     * @param scorePartwise the score being built
+     * @param pmParts       the score parts being built
+     */
+    public PageFragment (String context,
+                         ScorePartwise scorePartwise,
+                         Collection<ScorePartwise.Part> pmParts)
+    {
+        this.context = context;
+
+        for (ScorePartwise.Part pmPart : pmParts) {
+            measureMarks.put(idOf(pmPart), pmPart.getMeasure().size());
+        }
+
+        final Identification identification = scorePartwise.getIdentification();
+        headerMarks = new int[]{
+            scorePartwise.getCredit().size(), identification.getRights().size(),
+            identification.getCreator().size(),
+            identification.getMiscellaneous().getMiscellaneousField().size()
+        };
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------//
+    // chain //
+    //-------//
+    /**
+     * Report the digest of attributes exported so far, after the provided fragment.
+     *
+     * @param digest   the digest of attributes exported by the preceding pages
+     * @param fragment the fragment of current page
+     * @return the digest of attributes exported up to current page included
+     */
+    public static String chain (String digest,
+                                PageFragment fragment)
+    {
+        if (fragment.attributes.length() == 0) {
+            return digest;
+        }
+
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update(digest.getBytes(StandardCharsets.UTF_8));
+            md.update(fragment.attributes.toString().getBytes(StandardCharsets.UTF_8));
+
+            final StringBuilder sb = new StringBuilder();
+
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b & 0xFF));
+            }
+
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    //------------//
+    // getContext //
+    //------------//
+    /**
+     * Report the export context this fragment was built in.
+     *
+     * @return the fragment context
+     */
+    public String getContext ()
+    {
+        return context;
+    }
+
+    //--------//
+    // record //
+    //--------//
+    /**
+     * Record what the page processing has added to the score, to be called just after the
+     * page has been processed.
+     *
+     * @param scorePartwise the score being built
+     * @param pmParts       the score parts being built
+     * @throws JAXBException if measures could not be marshalled
+     */
+    public void record (ScorePartwise scorePartwise,
+                        Collection<ScorePartwise.Part> pmParts)
+            throws JAXBException
+    {
+        final Marshaller marshaller = JaxbContexts.getMarshaller(
+                Marshalling.getContext(ScorePartwise.class));
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+
+        for (ScorePartwise.Part pmPart : pmParts) {
+            final String id = idOf(pmPart);
+            final List<ScorePartwise.Part.Measure> all = pmPart.getMeasure();
+            final List<String> strings = new ArrayList<String>();
+
+            final List<ScorePartwise.Part.Measure> fresh = all.subList(
+                    measureMarks.get(id),
+                    all.size());
+
+            for (ScorePartwise.Part.Measure pmMeasure : fresh) {
+                strings.add(
+                        marshal(
+                                marshaller,
+                                "measure",
+                                ScorePartwise.Part.Measure.class,
+                                pmMeasure));
+
+                for (Object obj : pmMeasure.getNoteOrBackupOrForward()) {
+                    if (obj instanceof Attributes) {
+                        final Attributes pmAttributes = (Attributes) obj;
+                        attributes.append(id).append(':').append(
+                                marshal(marshaller, "attributes", Attributes.class, pmAttributes));
+                    }
+                }
+            }
+
+            measures.put(id, strings);
+        }
+
+        final Identification identification = scorePartwise.getIdentification();
+        addTail(credits, scorePartwise.getCredit(), headerMarks[0]);
+        addTail(rights, identification.getRights(), headerMarks[1]);
+        addTail(creators, identification.getCreator(), headerMarks[2]);
+        addTail(fields, identification.getMiscellaneous().getMiscellaneousField(), headerMarks[3]);
+
+        measureMarks = null;
+        headerMarks = null;
+    }
+
+    //--------//
+    // replay //
+    //--------//
+    /**
+     * Add this fragment content to the score being built, in lieu of the page processing.
+     *
+     * @param scorePartwise the score being built
+     * @param pmParts       the score parts being built
+     * @throws JAXBException if measures could not be unmarshalled
+     */
+    public void replay (ScorePartwise scorePartwise,
+                        Collection<ScorePartwise.Part> pmParts)
+            throws JAXBException
+    {
+        final Unmarshaller unmarshaller = JaxbContexts.getUnmarshaller(
+                Marshalling.getContext(ScorePartwise.class));
+
+        for (ScorePartwise.Part pmPart : pmParts) {
+            for (String string : measures.get(idOf(pmPart))) {
+                pmPart.getMeasure().add(
+                        unmarshaller.unmarshal(
+                                new StreamSource(new StringReader(string)),
+                                ScorePartwise.Part.Measure.class).getValue());
+            }
+        }
+
+        final Identification identification = scorePartwise.getIdentification();
+        scorePartwise.getCredit().addAll(credits);
+        identification.getRights().addAll(rights);
+        identification.getCreator().addAll(creators);
+        identification.getMiscellaneous().getMiscellaneousField().addAll(fields);
+    }
+
+    //---------//
+    // addTail //
+    //---------//
+    private static <T> void addTail (List<T> target,
+                                     List<T> source,
+                                     int mark)
+    {
+        target.addAll(source.subList(mark, source.size()));
+    }
+
+    //------//
+    // idOf //
+    //------//
+    private static String idOf (ScorePartwise.Part pmPart)
+    {
+        return ((ScorePart) pmPart.getId()).getId();
+    }
+
+    //---------//
+    // marshal //
+    //---------//
+    private static <T> String marshal (Marshaller marshaller,
+                                       String name,
+                                       Class<T> classe,
+                                       T value)
+            throws JAXBException
+    {
+        final StringWriter writer = new StringWriter();
+        marshaller.marshal(new JAXBElement<T>(new QName(name), classe, value), writer);
+
+        return writer.toString();
+    }
+}
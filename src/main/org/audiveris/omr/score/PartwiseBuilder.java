@@ -183,6 +183,7 @@ import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -265,21 +266,30 @@ public class PartwiseBuilder
     /** Factory for ProxyMusic entities. */
     private final ObjectFactory factory = new ObjectFactory();
 
+    /** Optional consumer of completed measures, null unless export is streamed. */
+    private final MeasureSink sink;
+
+    /** Per part, number of leading (already flushed) measures kept as attributes holders. */
+    private final Map<ScorePartwise.Part, Integer> flushedCounts = new HashMap<ScorePartwise.Part, Integer>();
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Create a new PartwiseBuilder object, on a related score instance.
      *
      * @param score the underlying score
+     * @param sink  consumer of completed measures, if any
      * @throws InterruptedException
      * @throws ExecutionException
      */
-    private PartwiseBuilder (Score score)
+    private PartwiseBuilder (Score score,
+                             MeasureSink sink)
             throws InterruptedException, ExecutionException
     {
         // Make sure the JAXB context is ready
         loading.get();
 
         this.score = score;
+        this.sink = sink;
     }
 
     //~ Methods ------------------------------------------------------------------------------------
@@ -296,10 +306,35 @@ public class PartwiseBuilder
      */
     public static ScorePartwise build (Score score)
             throws InterruptedException, ExecutionException
+    {
+        return build(score, null);
+    }
+
+    //-------//
+    // build //
+    //-------//
+    /**
+     * Visit the whole score tree and build the corresponding ScorePartwise, while handing
+     * over the measures of each part to the provided sink, page after page.
+     * <p>
+     * Once handed over, the measures are removed from the ScorePartwise parts, only their
+     * attributes being kept (as measures with no number) for the needs of the building.
+     * Hence, when a sink is provided, the returned ScorePartwise is only meaningful for its
+     * header data (identification, defaults, credits, part-list).
+     *
+     * @param score the score to export (cannot be null)
+     * @param sink  the consumer of completed measures, or null
+     * @return the populated ScorePartwise
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    public static ScorePartwise build (Score score,
+                                       MeasureSink sink)
+            throws InterruptedException, ExecutionException
     {
         Objects.requireNonNull(score, "Trying to export a null score");
 
-        final PartwiseBuilder builder = new PartwiseBuilder(score);
+        final PartwiseBuilder builder = new PartwiseBuilder(score, sink);
 
         builder.processScore();
 
@@ -554,6 +589,97 @@ public class PartwiseBuilder
         return pmPart;
     }
 
+    //---------------//
+    // flushMeasures //
+    //---------------//
+    /**
+     * Hand over the measures built since previous flush to the sink, and replace them by
+     * holders of their attributes only, since getCurrentKey() and isNewClef() still need
+     * to browse the previous attributes of each part.
+     *
+     * @param pmParts the parts to flush
+     */
+    private void flushMeasures (Collection<ScorePartwise.Part> pmParts)
+    {
+        for (ScorePartwise.Part pmPart : pmParts) {
+            final List<ScorePartwise.Part.Measure> measures = pmPart.getMeasure();
+            final Integer count = flushedCounts.get(pmPart);
+            final List<ScorePartwise.Part.Measure> fresh = measures.subList(
+                    (count != null) ? count : 0,
+                    measures.size());
+            sink.write(pmPart, fresh);
+
+            final List<ScorePartwise.Part.Measure> holders = new ArrayList<ScorePartwise.Part.Measure>();
+
+            for (ScorePartwise.Part.Measure pmMeasure : fresh) {
+                ScorePartwise.Part.Measure holder = null;
+
+                for (Object obj : pmMeasure.getNoteOrBackupOrForward()) {
+                    if (obj instanceof Attributes) {
+                        if (holder == null) {
+                            holders.add(holder = factory.createScorePartwisePartMeasure());
+                        }
+
+                        holder.getNoteOrBackupOrForward().add(obj);
+                    }
+                }
+            }
+
+            fresh.clear();
+            measures.addAll(holders);
+            flushedCounts.put(pmPart, measures.size());
+        }
+    }
+
+    //--------------------//
+    // getFragmentContext //
+    //--------------------//
+    /**
+     * Report the context in which the page of provided stub is to be exported.
+     * <p>
+     * Besides page own data, the MusicXML exported for a page depends on its position in score,
+     * on the score logical parts and on the attributes (keys, clefs) exported so far, which are
+     * browsed back by getCurrentKey() and isNewClef().
+     * The context is used to check whether a cached {@link PageFragment} can be reused.
+     *
+     * @param stub             the stub at hand
+     * @param partMap          the logical parts and their exported parts
+     * @param attributesDigest digest of attributes exported by preceding pages
+     * @return the context string
+     */
+    private String getFragmentContext (SheetStub stub,
+                                       Map<LogicalPart, ScorePartwise.Part> partMap,
+                                       String attributesDigest)
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("page:").append(score.getSheetPageId(stub.getNumber()));
+
+        // Position and measure offset within score
+        int offset = 0;
+
+        for (PageRef ref : score.getPageRefs()) {
+            if (ref.getSheetNumber() == stub.getNumber()) {
+                break;
+            }
+
+            offset += ref.getDeltaMeasureId();
+        }
+
+        sb.append(" first:").append(score.getFirstPageRef().getSheetNumber() == stub.getNumber());
+        sb.append(" offset:").append(offset);
+        sb.append(" tempo:").append(score.getTempoParam().getTarget());
+
+        for (LogicalPart logicalPart : partMap.keySet()) {
+            sb.append(" part:").append(logicalPart.getId()).append('/').append(
+                    logicalPart.getPid()).append('/').append(logicalPart.getStaffCount()).append(
+                    '/').append(logicalPart.isMultiStaff());
+        }
+
+        sb.append(" attributes:").append(attributesDigest);
+
+        return sb.toString();
+    }
+
     //------------------//
     // getArticulations //
     //------------------//
@@ -1982,6 +2108,7 @@ public class PartwiseBuilder
     // processPartList //
     //-----------------//
     private void processPartList ()
+            throws JAXBException
     {
         logger.debug("Processing PartList for {}", score);
 
@@ -1998,12 +2125,42 @@ public class PartwiseBuilder
         }
 
         // Then, stub by stub, populate all ScorePartwise.Part instances in parallel
+        // Fragments pay off only for interactive re-exports, in batch they would just pile up
+        final boolean useFragments = (OMR.gui != null) && constants.useFragments.isSet();
+        String attributesDigest = "";
+
         for (SheetStub stub : score.getStubs()) {
-            processStub(stub, partMap);
+            // Hold stub lock, so that stub sheet cannot be swapped out while being exported
+            stub.getLock().lock();
 
-            // Lean management of sheet instances ...
-            if ((OMR.gui == null) || (StubsController.getCurrentStub() != stub)) {
-                stub.swapSheet();
+            try {
+                if (useFragments) {
+                    // Reuse the page fragment cached by the stub, if still valid
+                    final String context = getFragmentContext(stub, partMap, attributesDigest);
+                    PageFragment fragment = stub.getPageFragment();
+
+                    if ((fragment != null) && fragment.getContext().equals(context)) {
+                        logger.debug("Reusing export fragment of {}", stub);
+                        fragment.replay(scorePartwise, partMap.values());
+                    } else {
+                        fragment = new PageFragment(context, scorePartwise, partMap.values());
+                        processStub(stub, partMap);
+                        fragment.record(scorePartwise, partMap.values());
+                        stub.setPageFragment(fragment);
+                        releaseSheet(stub);
+                    }
+
+                    attributesDigest = PageFragment.chain(attributesDigest, fragment);
+                } else {
+                    processStub(stub, partMap);
+                    releaseSheet(stub);
+                }
+            } finally {
+                stub.getLock().unlock();
+            }
+
+            if (sink != null) {
+                flushMeasures(partMap.values());
             }
         }
     }
@@ -2747,6 +2904,21 @@ public class PartwiseBuilder
 
     //- Utilities ----------------------------------------------------------------------------------
     //
+    //--------------//
+    // releaseSheet //
+    //--------------//
+    /**
+     * Lean management of sheet instances: swap the stub sheet, unless it is displayed.
+     *
+     * @param stub the stub just processed
+     */
+    private void releaseSheet (SheetStub stub)
+    {
+        if ((OMR.gui == null) || (StubsController.getCurrentStub() != stub)) {
+            stub.swapSheet();
+        }
+    }
+
     //-------------//
     // setFontInfo //
     //-------------//
@@ -2832,6 +3004,31 @@ public class PartwiseBuilder
         private final Constant.Boolean avoidTupletBrackets = new Constant.Boolean(
                 false,
                 "Should we avoid brackets for all tuplets");
+
+        private final Constant.Boolean useFragments = new Constant.Boolean(
+                true,
+                "Should we reuse the export fragments of unmodified pages? (interactive mode only)");
+    }
+
+    //-------------//
+    // MeasureSink //
+    //-------------//
+    /**
+     * Consumer of completed measures, meant for a streamed export.
+     */
+    public static interface MeasureSink
+    {
+        //~ Methods --------------------------------------------------------------------------------
+
+        /**
+         * Consume the provided measures, which follow the measures previously consumed for
+         * the same part.
+         *
+         * @param pmPart   the containing part
+         * @param measures the measures, in order, to be consumed immediately
+         */
+        void write (ScorePartwise.Part pmPart,
+                    List<ScorePartwise.Part.Measure> measures);
     }
 
     //---------------//
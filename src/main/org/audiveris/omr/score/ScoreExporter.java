@@ -22,6 +22,9 @@
 package org.audiveris.omr.score;
 
 import org.audiveris.omr.OMR;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.proxymusic.ScorePart;
 import org.audiveris.proxymusic.ScorePartwise;
 import org.audiveris.proxymusic.mxl.Mxl;
 import org.audiveris.proxymusic.mxl.RootFile;
@@ -32,14 +35,33 @@ import org.slf4j.LoggerFactory;
 
 import org.w3c.dom.Node;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
 /**
  * Class {@code ScoreExporter} exports the provided score to a MusicXML file, stream or
  * DOM.
+ * <p>
+ * When {@code useStreaming} constant is set, the measures of each part are marshalled by StAX
+ * page after page to temporary part files, rather than being kept in memory until the whole
+ * ScorePartwise tree is built. The final output is then assembled from the marshalled header
+ * and the part files.
  *
  * @author Hervé Bitteur
  */
@@ -47,8 +69,13 @@ public class ScoreExporter
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(ScoreExporter.class);
 
+    /** Closing tag of the whole document. */
+    private static final String SCORE_END = "</score-partwise>";
+
     //~ Instance fields ----------------------------------------------------------------------------
     /** The related score. */
     private final Score score;
@@ -113,10 +140,8 @@ public class ScoreExporter
     {
         Objects.requireNonNull(os, "Trying to export a score to a null output stream");
 
-        // Build the ScorePartwise proxy
-        ScorePartwise scorePartwise = PartwiseBuilder.build(score);
+        final boolean streamed = constants.useStreaming.isSet();
 
-        // Marshal the proxy
         if (compressed) {
             Mxl.Output mof = new Mxl.Output(os);
             OutputStream zos = mof.getOutputStream();
@@ -127,10 +152,10 @@ public class ScoreExporter
 
             mof.addEntry(
                     new RootFile(scoreName + OMR.SCORE_EXTENSION, RootFile.MUSICXML_MEDIA_TYPE));
-            Marshalling.marshal(scorePartwise, zos, signed, 2);
+            write(zos, signed, streamed);
             mof.close();
         } else {
-            Marshalling.marshal(scorePartwise, os, signed, 2);
+            write(os, signed, streamed);
             os.close();
         }
     }
@@ -160,4 +185,250 @@ public class ScoreExporter
         // Marshal the proxy
         Marshalling.marshal(scorePartwise, node, signed);
     }
+
+    //-------//
+    // write //
+    //-------//
+    /**
+     * Write the score MusicXML content to the provided stream, which is not closed.
+     *
+     * @param os       the output stream
+     * @param signed   should we inject ProxyMusic signature?
+     * @param streamed true for part measures to be streamed page by page
+     * @throws Exception
+     */
+    void write (OutputStream os,
+                boolean signed,
+                boolean streamed)
+            throws Exception
+    {
+        if (!streamed) {
+            // Build the whole ScorePartwise proxy, then marshal it
+            ScorePartwise scorePartwise = PartwiseBuilder.build(score);
+            Marshalling.marshal(scorePartwise, os, signed, 2);
+
+            return;
+        }
+
+        final PartStreams streams = new PartStreams();
+
+        try {
+            // Measures get streamed while the proxy is being built
+            final ScorePartwise scorePartwise = PartwiseBuilder.build(score, streams);
+            assemble(scorePartwise, streams, os, signed);
+        } finally {
+            streams.delete();
+        }
+    }
+
+    //----------//
+    // assemble //
+    //----------//
+    /**
+     * Write the MusicXML content of a ScorePartwise whose measures have been streamed.
+     *
+     * @param scorePartwise the score header, with its parts
+     * @param streams       the sink which received all part measures
+     * @param os            the output stream, not closed
+     * @param signed        should we inject ProxyMusic signature?
+     * @throws Exception
+     */
+    static void assemble (ScorePartwise scorePartwise,
+                          PartStreams streams,
+                          OutputStream os,
+                          boolean signed)
+            throws Exception
+    {
+        final List<ScorePartwise.Part> pmParts = scorePartwise.getPart();
+
+        // Make sure every part has its stream, even if empty
+        for (ScorePartwise.Part pmPart : pmParts) {
+            streams.write(pmPart, Collections.<ScorePartwise.Part.Measure>emptyList());
+        }
+
+        streams.close();
+
+        // Marshal the header, with no part
+        final List<ScorePartwise.Part> parts = new ArrayList<ScorePartwise.Part>(pmParts);
+        pmParts.clear();
+
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        Marshalling.marshal(scorePartwise, header, signed, 2);
+
+        final String headerString = header.toString(StandardCharsets.UTF_8.name());
+        final int end = headerString.lastIndexOf(SCORE_END);
+
+        if (end == -1) {
+            throw new IllegalStateException("No " + SCORE_END + " found in score header");
+        }
+
+        // Assemble header start, parts, header end
+        os.write(headerString.substring(0, end).getBytes(StandardCharsets.UTF_8));
+
+        for (ScorePartwise.Part pmPart : parts) {
+            Files.copy(streams.getPath(pmPart), os);
+        }
+
+        os.write(headerString.substring(end).getBytes(StandardCharsets.UTF_8));
+        os.flush();
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean useStreaming = new Constant.Boolean(
+                false,
+                "Should we stream part measures page by page when exporting a score?");
+    }
+
+    //-------------//
+    // PartStreams //
+    //-------------//
+    /**
+     * Sink which marshals the measures of each part to a dedicated temporary file.
+     */
+    static class PartStreams
+            implements PartwiseBuilder.MeasureSink
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** One stream per part, in order of creation. */
+        private final Map<ScorePartwise.Part, PartStream> map = new LinkedHashMap<ScorePartwise.Part, PartStream>();
+
+        /** Marshaller for measure fragments. */
+        private Marshaller marshaller;
+
+        /** First error met, if any. */
+        private Exception failure;
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public void write (ScorePartwise.Part pmPart,
+                           List<ScorePartwise.Part.Measure> measures)
+        {
+            if (failure != null) {
+                return;
+            }
+
+            try {
+                PartStream stream = map.get(pmPart);
+
+                if (stream == null) {
+                    map.put(pmPart, stream = new PartStream((ScorePart) pmPart.getId()));
+                }
+
+                if (marshaller == null) {
+                    marshaller = Marshalling.getContext(ScorePartwise.class).createMarshaller();
+                    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+                }
+
+                for (ScorePartwise.Part.Measure pmMeasure : measures) {
+                    marshaller.marshal(
+                            new JAXBElement<ScorePartwise.Part.Measure>(
+                                    new QName("measure"),
+                                    ScorePartwise.Part.Measure.class,
+                                    pmMeasure),
+                            stream.writer);
+                }
+            } catch (Exception ex) {
+                logger.warn("Error streaming measures of part {}", pmPart.getId(), ex);
+                failure = ex;
+            }
+        }
+
+        /**
+         * Terminate all part streams.
+         *
+         * @throws Exception if any error occurred
+         */
+        void close ()
+                throws Exception
+        {
+            if (failure != null) {
+                throw failure;
+            }
+
+            for (PartStream stream : map.values()) {
+                stream.close();
+            }
+        }
+
+        /**
+         * Delete all temporary part files.
+         */
+        void delete ()
+        {
+            for (PartStream stream : map.values()) {
+                try {
+                    stream.close();
+                    Files.deleteIfExists(stream.path);
+                } catch (Exception ex) {
+                    logger.warn("Could not delete {}", stream.path, ex);
+                }
+            }
+        }
+
+        /**
+         * Report the file where the provided part has been marshalled.
+         *
+         * @param pmPart the part
+         * @return the part file
+         */
+        Path getPath (ScorePartwise.Part pmPart)
+        {
+            return map.get(pmPart).path;
+        }
+    }
+
+    //------------//
+    // PartStream //
+    //------------//
+    /**
+     * StAX writer of one part element, into a temporary file.
+     */
+    private static class PartStream
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        final Path path;
+
+        final OutputStream os;
+
+        final XMLStreamWriter writer;
+
+        boolean closed;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public PartStream (ScorePart scorePart)
+                throws Exception
+        {
+            path = Files.createTempFile("part-" + scorePart.getId() + "-", ".xml");
+            os = Files.newOutputStream(path);
+            writer = XMLOutputFactory.newInstance().createXMLStreamWriter(
+                    os,
+                    StandardCharsets.UTF_8.name());
+            writer.writeCharacters("\n  ");
+            writer.writeStartElement("part");
+            writer.writeAttribute("id", scorePart.getId());
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        public void close ()
+                throws Exception
+        {
+            if (!closed) {
+                closed = true;
+                writer.writeEndElement();
+                writer.writeCharacters("\n");
+                writer.close();
+                os.close();
+            }
+        }
+    }
 }
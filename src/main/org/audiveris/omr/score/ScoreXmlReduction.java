@@ -165,6 +165,10 @@ public class ScoreXmlReduction
         this.fragments = fragments;
 
         statuses = new TreeMap<Integer, Status>();
+
+        if (watch == null) {
+            watch = new StopWatch("Reduction");
+        }
     }
 
     //~ Methods ------------------------------------------------------------------------------------
@@ -95,42 +95,50 @@ public class BookPdfOutput
             fos = new FileOutputStream(file);
 
             for (SheetStub stub : stubs) {
-                final int width = stub.getSheet().getWidth();
-                final int height = stub.getSheet().getHeight();
-
-                if (document == null) {
-                    document = new Document(new Rectangle(width, height));
-                    writer = PdfWriter.getInstance(document, fos);
-                    document.open();
-                } else {
-                    document.setPageSize(new Rectangle(width, height));
-                    document.newPage();
-                }
-
-                PdfContentByte cb = writer.getDirectContent();
-                Graphics2D g2 = cb.createGraphics(width, height);
-
-                // Scale: 1
-                g2.scale(1, 1);
-
-                // Anti-aliasing ON
-                g2.setRenderingHint(
-                        RenderingHints.KEY_ANTIALIASING,
-                        RenderingHints.VALUE_ANTIALIAS_ON);
+                // Hold stub lock, so that stub sheet cannot be swapped out while being printed
+                stub.getLock().lock();
 
-                // Painting
-                SheetResultPainter painter = new SheetResultPainter(
-                        stub.getSheet(),
-                        g2,
-                        false, // No voice painting
-                        true, // Paint staff lines
-                        false); // No annotations
-                g2.setColor(Color.BLACK);
-
-                painter.process();
-
-                // This is the end...
-                g2.dispose();
+                try {
+                    final Sheet stubSheet = stub.getSheet();
+                    final int width = stubSheet.getWidth();
+                    final int height = stubSheet.getHeight();
+
+                    if (document == null) {
+                        document = new Document(new Rectangle(width, height));
+                        writer = PdfWriter.getInstance(document, fos);
+                        document.open();
+                    } else {
+                        document.setPageSize(new Rectangle(width, height));
+                        document.newPage();
+                    }
+
+                    PdfContentByte cb = writer.getDirectContent();
+                    Graphics2D g2 = cb.createGraphics(width, height);
+
+                    // Scale: 1
+                    g2.scale(1, 1);
+
+                    // Anti-aliasing ON
+                    g2.setRenderingHint(
+                            RenderingHints.KEY_ANTIALIASING,
+                            RenderingHints.VALUE_ANTIALIAS_ON);
+
+                    // Painting
+                    SheetResultPainter painter = new SheetResultPainter(
+                            stubSheet,
+                            g2,
+                            false, // No voice painting
+                            true, // Paint staff lines
+                            false); // No annotations
+                    g2.setColor(Color.BLACK);
+
+                    painter.process();
+
+                    // This is the end...
+                    g2.dispose();
+                } finally {
+                    stub.getLock().unlock();
+                }
             }
 
             logger.info("Book printed to {}", file);
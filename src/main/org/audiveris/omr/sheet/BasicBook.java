@@ -28,6 +28,7 @@ import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.image.FilterDescriptor;
 import org.audiveris.omr.image.ImageLoading;
+import org.audiveris.omr.image.PrefetchLoader;
 import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.score.OpusExporter;
@@ -50,7 +51,7 @@ import org.audiveris.omr.step.StepException;
 import org.audiveris.omr.step.ui.StepMonitoring;
 import org.audiveris.omr.text.Language;
 import org.audiveris.omr.util.FileUtil;
-import org.audiveris.omr.util.Memory;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.Param;
 import org.audiveris.omr.util.StopWatch;
@@ -60,15 +61,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -78,7 +82,12 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.ZipOutputStream;
@@ -113,8 +122,8 @@ public class BasicBook
     private static final Logger logger = LoggerFactory.getLogger(
             Book.class);
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
+    /** Suffix appended to book file name, for the book working folder. */
+    private static final String WORK_SUFFIX = ".work";
 
     //~ Instance fields ----------------------------------------------------------------------------
     //
@@ -129,6 +138,10 @@ public class BasicBook
     @XmlAttribute(name = "software-build")
     private String build;
 
+    /** Format of sheet structure files. */
+    @XmlAttribute(name = "sheet-format")
+    private BasicSheet.Format sheetFormat;
+
     /** Sub books, if any. */
     @XmlElement(name = "sub-books")
     private final List<Book> subBooks;
@@ -196,6 +209,9 @@ public class BasicBook
     /** Book-level sample repository. */
     private SampleRepository repository;
 
+    /** Loader on book input images, which decodes images ahead of need. */
+    private PrefetchLoader imageLoader;
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Create a Book with a path to an input images file.
@@ -244,15 +260,21 @@ public class BasicBook
     //-----------------//
     /**
      * Close the provided (book) file system.
+     * <p>
+     * Nothing is done for the default file system, used by the book working folder.
      *
      * @param fileSystem the book file system
      */
     public static void closeFileSystem (FileSystem fileSystem)
     {
+        if (fileSystem == FileSystems.getDefault()) {
+            return;
+        }
+
         try {
             fileSystem.close();
 
-            logger.info("Book file system closed.");
+            logger.debug("Book file system closed.");
         } catch (Exception ex) {
             logger.warn("Could not close book file system " + ex, ex);
         }
@@ -333,11 +355,19 @@ public class BasicBook
             bookBrowser.close();
         }
 
+        // Pack sheets stored one by one, if any
+        packWorkFolder();
+
         // Remove from OMR instances
         OMR.engine.removeBook(this);
 
-        // Time for some cleanup...
-        Memory.gc();
+        // Release input images
+        disposeImageLoader();
+
+        // Stop memory handling of book sheets
+        for (SheetStub stub : stubs) {
+            MemoryGovernor.forget(stub);
+        }
 
         logger.debug("Book closed.");
     }
@@ -703,6 +733,15 @@ public class BasicBook
         return scriptPath;
     }
 
+    //----------------//
+    // getSheetFormat //
+    //----------------//
+    @Override
+    public BasicSheet.Format getSheetFormat ()
+    {
+        return sheetFormat;
+    }
+
     //-----------------------------//
     // getSpecificSampleRepository //
     //-----------------------------//
@@ -892,6 +931,9 @@ public class BasicBook
             logger.info("Loading book {} ...", bookPath);
             watch.start("book");
 
+            // Recover sheets stored one by one but not packed (if previous run was interrupted)
+            packWorkFolder(bookPath, getWorkFolder(bookPath));
+
             // Open book file
             Path rootPath = ZipFileSystem.open(bookPath);
 
@@ -899,7 +941,7 @@ public class BasicBook
             Path internalsPath = rootPath.resolve(Book.BOOK_INTERNALS);
             InputStream is = Files.newInputStream(internalsPath, StandardOpenOption.READ);
 
-            Unmarshaller um = getJaxbContext().createUnmarshaller();
+            Unmarshaller um = JaxbContexts.getUnmarshaller(getJaxbContext());
             book = (BasicBook) um.unmarshal(is);
             book.getLock().lock();
             LogUtil.start(book);
@@ -968,17 +1010,9 @@ public class BasicBook
     public BufferedImage loadSheetImage (int id)
     {
         try {
-            final ImageLoading.Loader loader = ImageLoading.getLoader(path);
-
-            if (loader == null) {
-                return null;
-            }
-
-            BufferedImage img = loader.getImage(id);
+            final BufferedImage img = getImageLoader().getImage(id);
             logger.info("Loaded image size: {}x{}", img.getWidth(), img.getHeight());
 
-            loader.dispose();
-
             return img;
         } catch (IOException ex) {
             logger.warn("Error in book.loadSheetImage", ex);
@@ -1013,6 +1047,13 @@ public class BasicBook
     public Path openSheetFolder (int number)
             throws IOException
     {
+        // Sheet stored one by one and not yet packed?
+        final Path workSheetFolder = getWorkFolder().resolve(INTERNALS_RADIX + number);
+
+        if (Files.isDirectory(workSheetFolder)) {
+            return workSheetFolder;
+        }
+
         Path root = openBookFile();
 
         return root.resolve(INTERNALS_RADIX + number);
@@ -1121,28 +1162,44 @@ public class BasicBook
                     }
                 } else {
                     // Process one stub after the other
-                    for (SheetStub stub : concernedStubs) {
-                        LogUtil.start(stub);
-
-                        try {
-                            if (stub.reachStep(target, force)) {
-                                // At end of each sheet processing:
-                                // Save sheet to disk (including global book info)
-                                if (OMR.gui == null) {
-                                    stub.swapSheet();
-                                }
+                    // In batch, finished sheets can be saved while next sheet is being processed
+                    final SheetSaver saver = ((OMR.gui == null)
+                                              && constants.saveInBackground.isSet()
+                                              && (concernedStubs.size() > 1)) ? new SheetSaver()
+                            : null;
 
-                                ///stub.storeSheet();
-                            } else {
+                    try {
+                        for (SheetStub stub : concernedStubs) {
+                            LogUtil.start(stub);
+
+                            try {
+                                if (stub.reachStep(target, force)) {
+                                    // At end of each sheet processing:
+                                    // Save sheet to disk (including global book info)
+                                    if (OMR.gui == null) {
+                                        if (saver != null) {
+                                            saver.submit(stub);
+                                        } else {
+                                            stub.swapSheet();
+                                        }
+                                    }
+
+                                    ///stub.storeSheet();
+                                } else {
+                                    someFailure = true;
+                                }
+                            } catch (Exception ex) {
+                                // Exception (such as timeout) raised on stub
+                                // Let processing continue for the other stubs
+                                logger.warn("Error processing stub");
                                 someFailure = true;
+                            } finally {
+                                LogUtil.stopStub();
                             }
-                        } catch (Exception ex) {
-                            // Exception (such as timeout) raised on stub
-                            // Let processing continue for the other stubs
-                            logger.warn("Error processing stub");
-                            someFailure = true;
-                        } finally {
-                            LogUtil.stopStub();
+                        }
+                    } finally {
+                        if (saver != null) {
+                            saver.finish();
                         }
                     }
                 }
@@ -1273,8 +1330,6 @@ public class BasicBook
     public void store (Path bookPath,
                        boolean withBackup)
     {
-        Memory.gc(); // Launch garbage collection, to save on weak glyph references ...
-
         boolean diskWritten = false; // Has disk actually been written?
 
         // Backup existing book file?
@@ -1289,6 +1344,8 @@ public class BasicBook
         try {
             final Path root;
             getLock().lock();
+
+            final Path workFolder = getWorkFolder();
             checkRadixChange(bookPath);
             logger.debug("Storing book...");
 
@@ -1301,6 +1358,11 @@ public class BasicBook
                     root = ZipFileSystem.open(bookPath);
                 }
 
+                // Sheets stored one by one
+                if (copyWorkFolder(workFolder, root)) {
+                    diskWritten = true;
+                }
+
                 if (modified) {
                     storeBookInfo(root); // Book info (book.xml)
                     diskWritten = true;
@@ -1332,8 +1394,11 @@ public class BasicBook
                 final Path oldRoot = openBookFile(this.bookPath);
 
                 for (SheetStub stub : stubs) {
-                    final Path oldSheetPath = oldRoot.resolve(INTERNALS_RADIX + stub.getNumber());
-                    final Path sheetPath = root.resolve(INTERNALS_RADIX + stub.getNumber());
+                    final String sheetName = INTERNALS_RADIX + stub.getNumber();
+                    final Path workSheetPath = workFolder.resolve(sheetName);
+                    final Path oldSheetPath = Files.isDirectory(workSheetPath) ? workSheetPath
+                            : oldRoot.resolve(sheetName);
+                    final Path sheetPath = root.resolve(sheetName);
 
                     if (stub.isModified()) {
                         stub.getSheet().store(sheetPath, oldSheetPath);
@@ -1348,6 +1413,11 @@ public class BasicBook
             root.getFileSystem().close();
             this.bookPath = bookPath;
 
+            // Sheets stored one by one are now safe in book file
+            if (Files.isDirectory(workFolder)) {
+                FileUtil.deleteDirectory(workFolder);
+            }
+
             BookManager.getInstance().getBookHistory().add(bookPath); // Insert in history
 
             if (diskWritten) {
@@ -1380,17 +1450,102 @@ public class BasicBook
     public void storeBookInfo (Path root)
             throws Exception
     {
-        Path bookInternals = root.resolve(Book.BOOK_INTERNALS);
-        Files.deleteIfExists(bookInternals);
+        writeBookInfo(root, marshalBookInfo());
+        setModified(false);
+    }
 
-        OutputStream os = Files.newOutputStream(bookInternals, StandardOpenOption.CREATE);
-        Marshaller m = getJaxbContext().createMarshaller();
-        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-        m.marshal(this, os);
-        os.close();
+    //------------//
+    // storeSheet //
+    //------------//
+    @Override
+    public void storeSheet (SheetStub stub)
+            throws Exception
+    {
+        storeSheet(stub, null);
+    }
 
-        setModified(false);
-        logger.info("Stored {}", bookInternals);
+    //------------//
+    // storeSheet //
+    //------------//
+    /**
+     * Store the sheet of provided stub, together with book information.
+     *
+     * @param stub     the stub of sheet to store
+     * @param bookInfo book information to store, or null to use current book information
+     * @throws Exception if anything goes wrong
+     */
+    private void storeSheet (SheetStub stub,
+                             byte[] bookInfo)
+            throws Exception
+    {
+        getLock().lock();
+
+        try {
+            final String sheetName = INTERNALS_RADIX + stub.getNumber();
+
+            if (!constants.useWorkFolder.isSet()) {
+                // Update book file in place (this rewrites the whole book file)
+                final Path root = ZipFileSystem.open(BookManager.getDefaultBookPath(this));
+                storeBookInfo(root, bookInfo); // Book info (book.xml)
+                stub.getSheet().store(root.resolve(sheetName), null);
+                root.getFileSystem().close();
+
+                return;
+            }
+
+            final Path workFolder = getWorkFolder();
+            final Path sheetFolder = workFolder.resolve(sheetName);
+
+            if (!Files.isDirectory(sheetFolder)) {
+                // Start from sheet internals already in book file, if any
+                Files.createDirectories(workFolder);
+
+                final Path path = (bookPath != null) ? bookPath : BookManager.getDefaultBookPath(
+                        this);
+
+                if (Files.exists(path)) {
+                    final Path root = ZipFileSystem.open(path);
+
+                    try {
+                        final Path oldSheetFolder = root.resolve(sheetName);
+
+                        if (Files.isDirectory(oldSheetFolder)) {
+                            FileUtil.copyTree(oldSheetFolder, sheetFolder);
+                        }
+                    } finally {
+                        root.getFileSystem().close();
+                    }
+                }
+            }
+
+            // Sheet internals first, then book info (book.xml) which refers to them
+            stub.getSheet().store(sheetFolder, null);
+            storeBookInfo(workFolder, bookInfo);
+        } finally {
+            getLock().unlock();
+        }
+    }
+
+    //---------------//
+    // storeBookInfo //
+    //---------------//
+    /**
+     * Store the provided book information, or the current one if null.
+     *
+     * @param root     root path of book file system
+     * @param bookInfo marshalled book information, or null
+     * @throws Exception if anything goes wrong
+     */
+    private void storeBookInfo (Path root,
+                                byte[] bookInfo)
+            throws Exception
+    {
+        if (bookInfo == null) {
+            storeBookInfo(root);
+        } else {
+            // A snapshot taken earlier, the book may have been modified since
+            writeBookInfo(root, bookInfo);
+        }
     }
 
     //---------------//
@@ -1563,6 +1718,50 @@ public class BasicBook
         return null;
     }
 
+    //----------------//
+    // copyWorkFolder //
+    //----------------//
+    /**
+     * Copy the content of book working folder (book info and sheet folders), if any, into
+     * the provided book file system.
+     *
+     * @param workFolder the book working folder
+     * @param root       root of target book file system
+     * @return true if something was copied
+     * @throws IOException if copy failed
+     */
+    private static boolean copyWorkFolder (Path workFolder,
+                                           Path root)
+            throws IOException
+    {
+        if (!Files.isDirectory(workFolder)) {
+            return false;
+        }
+
+        final DirectoryStream<Path> stream = Files.newDirectoryStream(workFolder);
+
+        try {
+            for (Path entry : stream) {
+                final Path target = root.resolve(entry.getFileName().toString());
+
+                if (Files.isDirectory(entry)) {
+                    // Sheet internals replace the whole former sheet folder
+                    if (Files.exists(target)) {
+                        FileUtil.deleteDirectory(target);
+                    }
+
+                    FileUtil.copyTree(entry, target);
+                } else {
+                    Files.copy(entry, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } finally {
+            stream.close();
+        }
+
+        return true;
+    }
+
     //----------------//
     // createBookFile //
     //----------------//
@@ -1606,12 +1805,7 @@ public class BasicBook
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(BasicBook.class, RunTable.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.getContext(BasicBook.class, RunTable.class);
     }
 
     //------------------//
@@ -1699,6 +1893,17 @@ public class BasicBook
         logger.debug("Created scores:{}", scores);
     }
 
+    //--------------------//
+    // disposeImageLoader //
+    //--------------------//
+    private synchronized void disposeImageLoader ()
+    {
+        if (imageLoader != null) {
+            imageLoader.dispose();
+            imageLoader = null;
+        }
+    }
+
     //-------------------//
     // getConcernedStubs //
     //-------------------//
@@ -1715,6 +1920,68 @@ public class BasicBook
         return list;
     }
 
+    //---------------//
+    // getWorkFolder //
+    //---------------//
+    /**
+     * Report the working folder for this book.
+     *
+     * @return the path to book working folder (which may not exist)
+     */
+    private Path getWorkFolder ()
+    {
+        return getWorkFolder((bookPath != null) ? bookPath : BookManager.getDefaultBookPath(this));
+    }
+
+    //---------------//
+    // getWorkFolder //
+    //---------------//
+    /**
+     * Report the working folder for the provided book file.
+     * <p>
+     * When a single sheet is stored, its internals are written into a working folder, next to the
+     * book file and with the same layout, rather than into the book file.
+     * Saving one entry into a zip file system means rewriting the whole zip file, whereas the
+     * working folder is packed into book file only once, when the whole book gets stored.
+     *
+     * @param bookPath path to book file
+     * @return the path to book working folder (which may not exist)
+     */
+    private static Path getWorkFolder (Path bookPath)
+    {
+        return bookPath.resolveSibling(bookPath.getFileName() + WORK_SUFFIX);
+    }
+
+    //----------------//
+    // getImageLoader //
+    //----------------//
+    /**
+     * Report the loader on book input images, created on first need.
+     * <p>
+     * Images are expected to be loaded in the order of the valid book stubs, so that the
+     * following images can be decoded ahead of need.
+     * Once all these images have been loaded, the loader disposes of its underlying decoders,
+     * so that input file resources are not held by a book merely kept open.
+     *
+     * @return the book image loader
+     * @throws IOException if input file could not be opened
+     */
+    private synchronized PrefetchLoader getImageLoader ()
+            throws IOException
+    {
+        if (imageLoader == null) {
+            final List<Integer> ids = new ArrayList<Integer>();
+
+            for (SheetStub stub : getValidStubs()) {
+                ids.add(stub.getNumber());
+            }
+
+            imageLoader = new PrefetchLoader(path, ids);
+        }
+
+        return imageLoader;
+    }
+
     //--------------//
     // getLeastStep //
     //--------------//
@@ -1778,6 +2045,12 @@ public class BasicBook
             build = ProgramId.PROGRAM_BUILD;
         }
 
+        if (sheetFormat == null) {
+            // New book, or book whose sheets were all written in XML
+            sheetFormat = constants.binarySheets.isSet() ? BasicSheet.Format.BINARY
+                    : BasicSheet.Format.XML;
+        }
+
         if (alias == null) {
             alias = checkAlias(getInputPath());
 
@@ -1859,6 +2132,72 @@ public class BasicBook
         }
     }
 
+    //----------------//
+    // packWorkFolder //
+    //----------------//
+    /**
+     * Pack the book working folder, if any, into book file.
+     */
+    private void packWorkFolder ()
+    {
+        final Path path = (bookPath != null) ? bookPath : BookManager.getDefaultBookPath(this);
+
+        try {
+            getLock().lock();
+            packWorkFolder(path, getWorkFolder(path));
+        } catch (Exception ex) {
+            logger.warn("Error packing working folder of " + this + " " + ex, ex);
+        } finally {
+            getLock().unlock();
+        }
+    }
+
+    //----------------//
+    // packWorkFolder //
+    //----------------//
+    /**
+     * Pack the provided working folder, if any, into book file, then delete the folder.
+     *
+     * @param bookPath   path to book file
+     * @param workFolder path to book working folder
+     * @throws IOException if anything goes wrong
+     */
+    private static void packWorkFolder (Path bookPath,
+                                        Path workFolder)
+            throws IOException
+    {
+        if (!Files.isDirectory(workFolder)) {
+            return;
+        }
+
+        final Path root = Files.exists(bookPath) ? ZipFileSystem.open(bookPath)
+                : ZipFileSystem.create(bookPath);
+        copyWorkFolder(workFolder, root);
+        root.getFileSystem().close();
+        FileUtil.deleteDirectory(workFolder);
+        logger.info("Packed {} into {}", workFolder, bookPath);
+    }
+
+    //-----------------//
+    // marshalBookInfo //
+    //-----------------//
+    /**
+     * Marshal the current book information (global info + stub steps).
+     *
+     * @return the book information, ready to be written as book.xml
+     * @throws Exception if marshalling failed
+     */
+    private byte[] marshalBookInfo ()
+            throws Exception
+    {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final Marshaller m = JaxbContexts.getMarshaller(getJaxbContext());
+        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        m.marshal(this, os);
+
+        return os.toByteArray();
+    }
+
     //----------//
     // scoresOf //
     //----------//
@@ -1897,6 +2236,34 @@ public class BasicBook
         return impacted;
     }
 
+    //---------------//
+    // writeBookInfo //
+    //---------------//
+    /**
+     * Write the provided book information as book.xml in book file system.
+     *
+     * @param root     root path of book file system
+     * @param bookInfo marshalled book information
+     * @throws IOException if writing failed
+     */
+    private void writeBookInfo (Path root,
+                                byte[] bookInfo)
+            throws IOException
+    {
+        Path bookInternals = root.resolve(Book.BOOK_INTERNALS);
+        Files.deleteIfExists(bookInternals);
+
+        OutputStream os = Files.newOutputStream(bookInternals, StandardOpenOption.CREATE);
+
+        try {
+            os.write(bookInfo);
+        } finally {
+            os.close();
+        }
+
+        logger.info("Stored {}", bookInternals);
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //---------//
     // Adapter //
@@ -1937,5 +2304,125 @@ public class BasicBook
         private final Constant.Boolean processAllStubsInParallel = new Constant.Boolean(
                 false,
                 "Should we process all stubs of a book in parallel? (beware of many stubs)");
+
+        private final Constant.Boolean binarySheets = new Constant.Boolean(
+                true,
+                "Should sheet structures be stored in binary rather than XML format?");
+
+        private final Constant.Boolean useWorkFolder = new Constant.Boolean(
+                true,
+                "Should single sheets be stored in a working folder, packed later into book file?");
+
+        private final Constant.Boolean saveInBackground = new Constant.Boolean(
+                true,
+                "Should sheets be stored in background while next sheets are processed (batch)?");
+
+        private final Constant.Integer maxPendingSheets = new Constant.Integer(
+                "sheets",
+                2,
+                "Maximum number of processed sheets waiting to be stored in background");
+    }
+
+    //------------//
+    // SheetSaver //
+    //------------//
+    /**
+     * Stores and disposes, on a dedicated thread, the sheets processed one after the other
+     * in batch, so that processing of next sheet can start immediately.
+     * <p>
+     * Sheets are stored in submission order.
+     * The book information stored with a sheet is a snapshot taken when the sheet was submitted,
+     * so that book.xml never refers to a sheet state not yet stored.
+     * The number of pending sheets is bounded, since each of them is kept in memory until stored.
+     */
+    private class SheetSaver
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** Single writer thread. */
+        private final ExecutorService executor = Executors.newSingleThreadExecutor(
+                new ThreadFactory()
+        {
+            @Override
+            public Thread newThread (Runnable r)
+            {
+                Thread thread = new Thread(r, "SheetSaver-" + radix);
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        /** Room for pending sheets. */
+        private final Semaphore slots = new Semaphore(
+                Math.max(1, constants.maxPendingSheets.getValue()));
+
+        //~ Methods --------------------------------------------------------------------------------
+        /**
+         * Wait for all submitted sheets to be stored.
+         */
+        public void finish ()
+        {
+            executor.shutdown();
+
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                logger.warn("SheetSaver got interrupted");
+                throw new ProcessingCancellationException(ex);
+            }
+        }
+
+        /**
+         * Submit a processed sheet, waiting for room if too many sheets are pending.
+         *
+         * @param stub the stub of processed sheet
+         * @throws Exception if book information could not be marshalled
+         */
+        public void submit (final SheetStub stub)
+                throws Exception
+        {
+            // Snapshot of book information, consistent with this sheet being processed
+            final byte[] bookInfo = stub.isModified() ? marshalBookInfo() : null;
+
+            // Sheet is now handled here, rather than by memory governor
+            MemoryGovernor.forget(stub);
+
+            try {
+                slots.acquire();
+            } catch (InterruptedException ex) {
+                logger.warn("SheetSaver got interrupted");
+                throw new ProcessingCancellationException(ex);
+            }
+
+            executor.execute(
+                    new Runnable()
+            {
+                @Override
+                public void run ()
+                {
+                    LogUtil.start(stub);
+                    stub.getLock().lock();
+
+                    try {
+                        if (bookInfo != null) {
+                            logger.info("{} storing", stub);
+                            storeSheet(stub, bookInfo);
+                        }
+
+                        // Dispose sheet, unless it could not be stored
+                        if (!stub.isModified()) {
+                            stub.swapSheet();
+                        }
+                    } catch (Exception ex) {
+                        logger.warn("Error storing " + stub + " " + ex, ex);
+                    } finally {
+                        stub.getLock().unlock();
+                        LogUtil.stopStub();
+                        slots.release();
+                    }
+                }
+            });
+        }
     }
 }
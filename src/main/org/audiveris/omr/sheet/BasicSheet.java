@@ -55,9 +55,11 @@ import org.audiveris.omr.ui.selection.PixelEvent;
 import org.audiveris.omr.ui.selection.SelectionService;
 import org.audiveris.omr.ui.util.ItemRenderer;
 import org.audiveris.omr.ui.util.WeakItemRenderer;
+import org.audiveris.omr.util.BinaryXml;
 import org.audiveris.omr.util.Dumping;
 import org.audiveris.omr.util.FileUtil;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.Navigable;
 
 import org.slf4j.Logger;
@@ -65,6 +67,8 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -92,6 +96,7 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.adapters.XmlAdapter;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import javax.xml.stream.XMLStreamWriter;
 
 /**
  * Class {@code BasicSheet} is our implementation of {@link Sheet} interface.
@@ -126,8 +131,29 @@ public class BasicSheet
         LocationEvent.class, PixelEvent.class
     };
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
+    //~ Enumerations -------------------------------------------------------------------------------
+    /**
+     * Format of sheet structure file (sheet#n.xml or sheet#n.bin) within book file.
+     */
+    public static enum Format
+    {
+        //~ Enumeration constant initializers ------------------------------------------------------
+
+        /** Plain XML, meant for human reading or external processing. */
+        XML(".xml"),
+        /** Compact binary XML, see {@link BinaryXml}. */
+        BINARY(".bin");
+
+        //~ Instance fields ------------------------------------------------------------------------
+        /** Extension of structure file name. */
+        private final String extension;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        Format (String extension)
+        {
+            this.extension = extension;
+        }
+    }
 
     //~ Instance fields ----------------------------------------------------------------------------
     //
@@ -269,12 +295,37 @@ public class BasicSheet
     }
 
     //~ Methods ------------------------------------------------------------------------------------
+    //--------------//
+    // getSheetFile //
+    //--------------//
+    /**
+     * Report the structure file of a sheet, whatever its format.
+     *
+     * @param sheetFolder the sheet folder within book file
+     * @param number      sheet number within book
+     * @return the existing structure file, or the XML file name if none exists
+     */
+    public static Path getSheetFile (Path sheetFolder,
+                                     int number)
+    {
+        for (Format format : Format.values()) {
+            final Path path = sheetFolder.resolve(getSheetFileName(number, format));
+
+            if (Files.exists(path)) {
+                return path;
+            }
+        }
+
+        return sheetFolder.resolve(getSheetFileName(number, Format.XML));
+    }
+
     //------------------//
     // getSheetFileName //
     //------------------//
-    public static String getSheetFileName (int number)
+    public static String getSheetFileName (int number,
+                                           Format format)
     {
-        return Sheet.INTERNALS_RADIX + number + ".xml";
+        return Sheet.INTERNALS_RADIX + number + format.extension;
     }
 
     //-----------------//
@@ -892,17 +943,35 @@ public class BasicSheet
             }
         }
 
-        // Sheet structure (sheet#n.xml)
+        // Sheet structure (sheet#n.xml or sheet#n.bin)
         try {
-            Path structurePath = sheetFolder.resolve(getSheetFileName(stub.getNumber()));
-            Files.deleteIfExists(structurePath);
+            final int number = stub.getNumber();
+            final Format format = stub.getBook().getSheetFormat();
             Files.createDirectories(sheetFolder);
 
-            OutputStream os = Files.newOutputStream(structurePath, StandardOpenOption.CREATE);
-            Marshaller m = getJaxbContext().createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            m.marshal(this, os);
-            os.close();
+            for (Format f : Format.values()) {
+                Files.deleteIfExists(sheetFolder.resolve(getSheetFileName(number, f)));
+            }
+
+            Path structurePath = sheetFolder.resolve(getSheetFileName(number, format));
+            OutputStream os = new BufferedOutputStream(
+                    Files.newOutputStream(structurePath, StandardOpenOption.CREATE));
+
+            try {
+                Marshaller m = JaxbContexts.getMarshaller(getJaxbContext());
+
+                if (format == Format.BINARY) {
+                    XMLStreamWriter writer = BinaryXml.createWriter(os);
+                    m.marshal(this, writer);
+                    writer.close();
+                } else {
+                    m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+                    m.marshal(this, os);
+                }
+            } finally {
+                os.close();
+            }
+
             stub.setModified(false);
             logger.info("Stored {}", structurePath);
         } catch (Exception ex) {
@@ -923,21 +992,29 @@ public class BasicSheet
     // unmarshal //
     //-----------//
     /**
-     * Unmarshal the provided XML stream to allocate the corresponding sheet.
+     * Unmarshal the provided stream to allocate the corresponding sheet.
      *
-     * @param in the input stream that contains the sheet in XML format.
+     * @param in the input stream that contains the sheet in XML or binary format.
      *           The stream is not closed by this method
      *
      * @return the allocated sheet.
      * @exception JAXBException raised when unmarshalling goes wrong
+     * @exception IOException   raised when stream could not be read
      */
     public static BasicSheet unmarshal (InputStream in)
-            throws JAXBException
+            throws JAXBException, IOException
     {
-        Unmarshaller um = getJaxbContext().createUnmarshaller();
+        final InputStream bin = in.markSupported() ? in : new BufferedInputStream(in);
+        final Unmarshaller um = JaxbContexts.getUnmarshaller(getJaxbContext());
+        final BasicSheet sheet;
 
         ///um.setListener(new Jaxb.UnmarshalLogger());
-        BasicSheet sheet = (BasicSheet) um.unmarshal(in);
+        if (BinaryXml.isBinary(bin)) {
+            sheet = (BasicSheet) um.unmarshal(BinaryXml.createReader(bin));
+        } else {
+            sheet = (BasicSheet) um.unmarshal(bin);
+        }
+
         logger.debug("Sheet unmarshalled");
 
         return sheet;
@@ -955,6 +1032,11 @@ public class BasicSheet
     {
         switch (step) {
         case LOAD:
+
+            if (picture != null) {
+                picture.getSourceCache().clear(); // Release spill files if any
+            }
+
             picture = null;
 
         // Fall-through!
@@ -1032,12 +1114,7 @@ public class BasicSheet
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(BasicSheet.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.getContext(BasicSheet.class);
     }
 
     //-------------------------//
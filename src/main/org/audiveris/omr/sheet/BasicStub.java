@@ -29,9 +29,9 @@ import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.image.FilterDescriptor;
 import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.score.PageFragment;
 import org.audiveris.omr.score.PageRef;
 import org.audiveris.omr.sheet.Picture.TableKey;
-import static org.audiveris.omr.sheet.Sheet.INTERNALS_RADIX;
 import org.audiveris.omr.sheet.ui.SheetAssembly;
 import org.audiveris.omr.sheet.ui.StubsController;
 import org.audiveris.omr.step.ProcessingCancellationException;
@@ -40,20 +40,17 @@ import org.audiveris.omr.step.StepException;
 import org.audiveris.omr.step.ui.StepMonitoring;
 import org.audiveris.omr.ui.Colors;
 import org.audiveris.omr.util.LiveParam;
-import org.audiveris.omr.util.Memory;
 import org.audiveris.omr.util.Navigable;
 import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.StopWatch;
-import org.audiveris.omr.util.ZipFileSystem;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.image.BufferedImage;
-import java.io.InputStream;
+import java.io.ByteArrayInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
@@ -136,6 +133,9 @@ public class BasicStub
     /** Related assembly instance, if any. */
     private SheetAssembly assembly;
 
+    /** Cached export fragment of stub page, if any. */
+    private volatile PageFragment pageFragment;
+
     /** Param for pixel filter. */
     private LiveParam<FilterDescriptor> filterContext;
 
@@ -238,11 +238,7 @@ public class BasicStub
     //------//
     // done //
     //------//
-    /**
-     * Remember that the provided step has been completed on the sheet.
-     *
-     * @param step the provided step
-     */
+    @Override
     public final void done (Step step)
     {
         doneSteps.add(step);
@@ -380,6 +376,15 @@ public class BasicStub
         return number;
     }
 
+    //-----------------//
+    // getPageFragment //
+    //-----------------//
+    @Override
+    public PageFragment getPageFragment ()
+    {
+        return pageFragment;
+    }
+
     //-------------//
     // getPageRefs //
     //-------------//
@@ -420,26 +425,25 @@ public class BasicStub
 
                         try {
                             Path sheetFile = null;
-                            watch.start("unmarshal");
+                            final byte[] bytes;
+                            watch.start("read");
 
-                            // Open the book file system
+                            // Read sheet structure from the book file system
                             try {
                                 book.getLock().lock();
-                                sheetFile = book.openSheetFolder(number).resolve(
-                                        BasicSheet.getSheetFileName(number));
-
-                                InputStream is = Files.newInputStream(
-                                        sheetFile,
-                                        StandardOpenOption.READ);
-                                sheet = BasicSheet.unmarshal(is);
-
-                                // Close the stream as well as the book file system
-                                is.close();
-                                sheetFile.getFileSystem().close();
+                                sheetFile = BasicSheet.getSheetFile(
+                                        book.openSheetFolder(number),
+                                        number);
+                                bytes = Files.readAllBytes(sheetFile);
+                                BasicBook.closeFileSystem(sheetFile.getFileSystem());
                             } finally {
                                 book.getLock().unlock();
                             }
 
+                            // Unmarshal outside of book lock
+                            watch.start("unmarshal");
+                            sheet = BasicSheet.unmarshal(new ByteArrayInputStream(bytes));
+
                             // Complete sheet reload
                             watch.start("afterReload");
                             sheet.afterReload(this);
@@ -455,6 +459,10 @@ public class BasicStub
                             }
                         }
                     }
+
+                    if (sheet != null) {
+                        MemoryGovernor.touch(this);
+                    }
                 }
             }
         }
@@ -559,6 +567,10 @@ public class BasicStub
             }
 
             ok = true;
+
+            if (sheet != null) {
+                MemoryGovernor.touch(this); // Sheet just used
+            }
         } catch (ProcessingCancellationException pce) {
             throw pce;
         } catch (StepException ignored) {
@@ -672,10 +684,20 @@ public class BasicStub
         this.modified = modified;
 
         if (modified) {
+            pageFragment = null;
             book.setModified(true);
         }
     }
 
+    //-----------------//
+    // setPageFragment //
+    //-----------------//
+    @Override
+    public void setPageFragment (PageFragment fragment)
+    {
+        pageFragment = fragment;
+    }
+
     //------------//
     // storeSheet //
     //------------//
@@ -684,20 +706,7 @@ public class BasicStub
             throws Exception
     {
         if (modified) {
-            book.getLock().lock();
-
-            Path bookPath = BookManager.getDefaultBookPath(book);
-
-            try {
-                Path root = ZipFileSystem.open(bookPath);
-                book.storeBookInfo(root); // Book info (book.xml)
-
-                Path sheetFolder = root.resolve(INTERNALS_RADIX + getNumber());
-                sheet.store(sheetFolder, null);
-                root.getFileSystem().close();
-            } finally {
-                book.getLock().unlock();
-            }
+            book.storeSheet(this);
         }
     }
 
@@ -716,7 +725,7 @@ public class BasicStub
             if (sheet != null) {
                 logger.info("{} disposed", sheet);
                 sheet = null;
-                Memory.gc(); // Trigger a garbage collection...
+                MemoryGovernor.forget(this);
             }
 
             if (OMR.gui != null) {
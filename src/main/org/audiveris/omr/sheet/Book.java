@@ -282,6 +282,13 @@ public interface Book
      */
     Path getScriptPath ();
 
+    /**
+     * Report the format to be used when storing the structure of any sheet of this book.
+     *
+     * @return the sheet structure format
+     */
+    BasicSheet.Format getSheetFormat ();
+
     /**
      * Report (after allocation if needed) the book <b>specific</b> sample repository
      *
@@ -367,7 +374,8 @@ public interface Book
     BufferedImage loadSheetImage (int id);
 
     /**
-     * Open (in the book zipped file) the folder for provided sheet number
+     * Open the folder for provided sheet number, either in the book working folder if the
+     * sheet has been stored there and not yet packed, or in the book zipped file.
      *
      * @param number sheet number (1-based) within the book
      * @return the path to sheet folder
@@ -477,6 +485,18 @@ public interface Book
     void storeBookInfo (Path root)
             throws Exception;
 
+    /**
+     * Store the sheet of provided stub, together with book information.
+     * <p>
+     * Unless book file is updated directly, sheet goes to the book working folder, which is packed
+     * into book file only when the whole book is stored or closed.
+     *
+     * @param stub the stub of the (modified) sheet to store
+     * @throws Exception
+     */
+    void storeSheet (SheetStub stub)
+            throws Exception;
+
     /**
      * Swap all sheets, except the current one if any.
      */
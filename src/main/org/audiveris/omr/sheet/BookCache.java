@@ -0,0 +1,327 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                       B o o k C a c h e                                        //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet;
+
+import org.audiveris.omr.OMR;
+import org.audiveris.omr.ProgramId;
+import org.audiveris.omr.WellKnowns;
+import org.audiveris.omr.classifier.BasicClassifier;
+import org.audiveris.omr.classifier.DeepClassifier;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantManager;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.step.Step;
+import org.audiveris.omr.util.UriUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map.Entry;
+import java.util.SortedSet;
+
+/**
+ * Class {@code BookCache} is a content-addressed cache of book files, meant to avoid
+ * the transcription from scratch of an input file already processed.
+ * <p>
+ * The cache key is a digest computed on:
+ * <ul>
+ * <li>The bytes of the input image(s) file,</li>
+ * <li>The selection of sheets and the target step,</li>
+ * <li>The program version and build,</li>
+ * <li>All the constant values that override their source value (user, CLI or run-time),</li>
+ * <li>The bytes of the classifiers data files actually used.</li>
+ * </ul>
+ * Any change in these items results in a different key, hence no stale book can be restored.
+ * <p>
+ * The cached entry is simply a copy of the book file (.omr) as stored at the end of a successful
+ * batch processing.
+ * When the same input is met again, this book file is copied to the target book path and loaded,
+ * so that already reached steps are not recomputed.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class BookCache
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(BookCache.class);
+
+    /** Digest algorithm. */
+    private static final String ALGORITHM = "SHA-256";
+
+    /** Size of buffer used to read files. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /** Not meant to be instantiated. */
+    private BookCache ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //--------//
+    // getKey //
+    //--------//
+    /**
+     * Compute the cache key for the provided input file, using current configuration.
+     *
+     * @param inputPath path to input image(s) file
+     * @param sheetIds  the selected sheet IDs, null for all sheets
+     * @param step      the target step, perhaps null
+     * @return the key, as an hexadecimal string, or null if key could not be computed
+     */
+    public static String getKey (Path inputPath,
+                                 SortedSet<Integer> sheetIds,
+                                 Step step)
+    {
+        try {
+            final MessageDigest md = MessageDigest.getInstance(ALGORITHM);
+
+            // Input image bytes
+            digestFile(md, inputPath);
+
+            // Processing scope
+            digestString(md, "sheets=" + ((sheetIds != null) ? sheetIds : "all"));
+            digestString(md, "step=" + step);
+
+            // Program
+            digestString(md, ProgramId.PROGRAM_VERSION);
+            digestString(md, ProgramId.PROGRAM_BUILD);
+
+            // Configuration
+            for (Entry<String, String> entry : ConstantManager.getInstance()
+                    .getOverriddenValues().entrySet()) {
+                digestString(md, entry.getKey() + "=" + entry.getValue());
+            }
+
+            // Classifiers models
+            for (String fileName : new String[]{DeepClassifier.FILE_NAME,
+                                                BasicClassifier.FILE_NAME}) {
+                final Path modelPath = getModelPath(fileName);
+
+                if (modelPath != null) {
+                    digestFile(md, modelPath);
+                }
+            }
+
+            return toHex(md.digest());
+        } catch (IOException | NoSuchAlgorithmException ex) {
+            logger.warn("Could not compute cache key for {} {}", inputPath, ex.toString(), ex);
+
+            return null;
+        }
+    }
+
+    //---------//
+    // restore //
+    //---------//
+    /**
+     * Restore the cached book file, if any, for the provided key.
+     *
+     * @param key      the cache key
+     * @param bookPath target path for book file
+     * @return true if book file was restored, false otherwise
+     */
+    public static boolean restore (String key,
+                                   Path bookPath)
+    {
+        final Path entry = getEntryPath(key);
+
+        if (!Files.exists(entry)) {
+            logger.debug("No cache entry for {}", key);
+
+            return false;
+        }
+
+        try {
+            Files.createDirectories(bookPath.toAbsolutePath().getParent());
+            Files.copy(entry, bookPath, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Book restored from cache {}", entry);
+
+            return true;
+        } catch (IOException ex) {
+            logger.warn("Could not restore cache entry {} {}", entry, ex.toString(), ex);
+
+            return false;
+        }
+    }
+
+    //-------//
+    // store //
+    //-------//
+    /**
+     * Store a copy of the provided book file, as the cached entry for the provided key.
+     *
+     * @param key      the cache key
+     * @param bookPath path to book file
+     */
+    public static void store (String key,
+                              Path bookPath)
+    {
+        if (!Files.exists(bookPath)) {
+            return;
+        }
+
+        final Path entry = getEntryPath(key);
+
+        try {
+            Files.createDirectories(entry.getParent());
+
+            // Write to a temporary file, then move, so that no partial entry can ever be read
+            final Path tmp = Files.createTempFile(entry.getParent(), key, ".tmp");
+            Files.copy(bookPath, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING);
+            logger.debug("Book {} cached as {}", bookPath, entry);
+        } catch (IOException ex) {
+            logger.warn("Could not store cache entry {} {}", entry, ex.toString(), ex);
+        }
+    }
+
+    //----------//
+    // useCache //
+    //----------//
+    /**
+     * Report whether the book cache is enabled.
+     *
+     * @return true if enabled
+     */
+    public static boolean useCache ()
+    {
+        return constants.useCache.isSet();
+    }
+
+    //------------//
+    // digestFile //
+    //------------//
+    private static void digestFile (MessageDigest md,
+                                    Path path)
+            throws IOException
+    {
+        final InputStream is = Files.newInputStream(path);
+
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+
+            while ((count = is.read(buffer)) != -1) {
+                md.update(buffer, 0, count);
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    //--------------//
+    // digestString //
+    //--------------//
+    private static void digestString (MessageDigest md,
+                                      String str)
+    {
+        if (str != null) {
+            md.update(str.getBytes(StandardCharsets.UTF_8));
+        }
+
+        md.update((byte) 0); // Separator
+    }
+
+    //--------------//
+    // getEntryPath //
+    //--------------//
+    private static Path getEntryPath (String key)
+    {
+        final String folder = constants.cacheFolder.getValue().trim();
+        final Path root = folder.isEmpty() ? WellKnowns.TEMP_FOLDER.resolve("book-cache")
+                : Paths.get(folder);
+
+        return root.resolve(key + OMR.BOOK_EXTENSION);
+    }
+
+    //--------------//
+    // getModelPath //
+    //--------------//
+    /**
+     * Report the path to the classifier data file actually used, user one or default one.
+     *
+     * @param fileName classifier data file name
+     * @return the path to data file, or null if not found
+     */
+    private static Path getModelPath (String fileName)
+    {
+        final Path userPath = WellKnowns.TRAIN_FOLDER.resolve(fileName);
+
+        if (Files.exists(userPath)) {
+            return userPath;
+        }
+
+        final Path defaultPath = new File(UriUtil.toURI(WellKnowns.RES_URI, fileName)).toPath();
+
+        if (Files.exists(defaultPath)) {
+            return defaultPath;
+        }
+
+        return null;
+    }
+
+    //-------//
+    // toHex //
+    //-------//
+    private static String toHex (byte[] bytes)
+    {
+        final StringBuilder sb = new StringBuilder(2 * bytes.length);
+
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+
+        return sb.toString();
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean useCache = new Constant.Boolean(
+                false,
+                "Should we restore from cache a book already transcribed from the same input?");
+
+        private final Constant.String cacheFolder = new Constant.String(
+                "",
+                "Folder for cached book files (empty for default temp folder)");
+    }
+}
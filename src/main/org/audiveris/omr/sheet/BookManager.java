@@ -21,7 +21,6 @@
 // </editor-fold>
 package org.audiveris.omr.sheet;
 
-import org.audiveris.omr.Main;
 import org.audiveris.omr.OMR;
 import org.audiveris.omr.OmrEngine;
 import org.audiveris.omr.WellKnowns;
@@ -559,24 +558,11 @@ public class BookManager
      */
     public static Path getDefaultExportPathSansExt (Book book)
     {
+        // Path assigned to book (via GUI, script, or CLI task for this book)
         if (book.getExportPathSansExt() != null) {
             return book.getExportPathSansExt();
         }
 
-        // File?
-        final Path file = Main.getCli().getExportAs();
-
-        if (file != null) {
-            return ExportPattern.getPathSansExt(file);
-        }
-
-        // Folder?
-        final Path exportFolder = Main.getCli().getExportFolder();
-
-        if (exportFolder != null) {
-            return exportFolder.resolve(book.getRadix());
-        }
-
         // If book already has a target, use it
         if (book.getBookPath() != null) {
             return book.getBookPath().getParent().resolve(book.getRadix());
@@ -615,25 +601,12 @@ public class BookManager
      */
     public static Path getDefaultPrintPath (Book book)
     {
+        // Path assigned to book (via GUI, script, or CLI task for this book)
         if (book.getPrintPath() != null) {
             return book.getPrintPath();
         }
 
-        // File?
-        final Path file = Main.getCli().getPrintAs();
-
-        if (file != null) {
-            return file;
-        }
-
-        // Folder?
-        Path folder = Main.getCli().getPrintFolder();
-
-        if (folder == null) {
-            folder = getTargetFolder(book); // Default
-        }
-
-        return folder.resolve(book.getRadix() + OMR.PDF_EXTENSION);
+        return getTargetFolder(book).resolve(book.getRadix() + OMR.PDF_EXTENSION);
     }
 
     //--------------------//
@@ -0,0 +1,520 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    B o o k S h a r d i n g                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet;
+
+import org.audiveris.omr.Main;
+import org.audiveris.omr.OMR;
+import org.audiveris.omr.score.PageRef;
+import org.audiveris.omr.score.ScoreXmlReduction;
+import org.audiveris.omr.step.Step;
+import org.audiveris.omr.util.FileUtil;
+import org.audiveris.omr.util.ZipFileSystem;
+import org.audiveris.proxymusic.mxl.Mxl;
+import org.audiveris.proxymusic.mxl.RootFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Class {@code BookSharding} transcribes a book by splitting its sheets across several
+ * local worker JVM processes.
+ * <p>
+ * Each worker is a batch Audiveris process launched on the same input file, restricted to a
+ * contiguous range of sheets, and writing its book and, if export is requested, its uncompressed
+ * MusicXML export into a dedicated shard folder.
+ * The target step, the force flag and the application options are forwarded to each worker.
+ * <p>
+ * Once all workers have completed, the coordinator:<ol>
+ * <li>assembles the final book file, by copying the sheet internals of each shard book and by
+ * transferring the shard stubs status (steps done, validity, page references), then rebuilding
+ * the book scores from these stubs,</li>
+ * <li>if export is requested, merges the shard MusicXML exports into one score, by means of
+ * {@link ScoreXmlReduction}.</li></ol>
+ * Each worker has its own heap, so memory and garbage collection of one shard do not impact the
+ * other ones.
+ *
+ * @author Hervé Bitteur
+ */
+public class BookSharding
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSharding.class);
+
+    /** Qualified name prefix for BookManager constants. */
+    private static final String MANAGER = BookManager.class.getName() + ".";
+
+    /** Pattern for movement exports: radix.mvtN.xml */
+    private static final Pattern MOVEMENT_PATTERN = Pattern.compile(".*\\.mvt([0-9]+)\\.xml");
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** The book being transcribed, with all its stubs. */
+    private final Book book;
+
+    /** Number of worker processes. */
+    private final int workerCount;
+
+    /** Target step for workers, if any. */
+    private final Step step;
+
+    /** Should workers force step reprocessing?. */
+    private final boolean force;
+
+    /** Is MusicXML export requested?. */
+    private final boolean export;
+
+    /** Application options to forward to workers, if any. */
+    private final Properties options;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code BookSharding} object.
+     *
+     * @param book        the book to transcribe, whose stubs have been created
+     * @param workerCount the number of worker processes to launch
+     * @param step        the target step if any
+     * @param force       true to force step reprocessing
+     * @param export      true if MusicXML export is requested (PAGE is then reached by export)
+     * @param options     the application options to forward to workers, perhaps null
+     */
+    public BookSharding (Book book,
+                         int workerCount,
+                         Step step,
+                         boolean force,
+                         boolean export,
+                         Properties options)
+    {
+        this.book = book;
+        this.workerCount = workerCount;
+        this.step = step;
+        this.force = force;
+        this.export = export;
+        this.options = options;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // process //
+    //---------//
+    /**
+     * Launch the workers, wait for their completion, then assemble book and score.
+     *
+     * @return true if all workers succeeded
+     * @throws Exception if anything goes wrong
+     */
+    public boolean process ()
+            throws Exception
+    {
+        final Path bookPath = BookManager.getDefaultBookPath(book);
+        final Path shardsFolder = bookPath.resolveSibling(book.getRadix() + "-shards");
+        final List<Integer> numbers = new ArrayList<Integer>();
+
+        for (SheetStub stub : book.getStubs()) {
+            numbers.add(stub.getNumber());
+        }
+
+        final List<SortedSet<Integer>> ranges = getRanges(numbers, workerCount);
+        final List<Path> folders = new ArrayList<Path>();
+        final List<Process> processes = new ArrayList<Process>();
+        boolean ok = true;
+        boolean completed = false;
+
+        try {
+            // Launch all workers
+            for (int i = 0; i < ranges.size(); i++) {
+                final Path folder = shardsFolder.resolve("shard-" + (i + 1));
+                Files.createDirectories(folder);
+                folders.add(folder);
+                processes.add(launch(ranges.get(i), folder));
+            }
+
+            // Wait for their completion
+            for (int i = 0; i < processes.size(); i++) {
+                final int status = processes.get(i).waitFor();
+
+                if (status != 0) {
+                    logger.warn("Shard worker #{} exited with status {}", i + 1, status);
+                    ok = false;
+                }
+            }
+
+            completed = true;
+        } finally {
+            if (!completed) {
+                // Launch failure or interruption: don't leave orphan workers behind
+                for (Process process : processes) {
+                    process.destroy();
+                }
+            }
+        }
+
+        if (!ok) {
+            logger.warn("Sharded transcription failed, see logs in {}", shardsFolder);
+
+            return false;
+        }
+
+        // Reduce
+        assembleBook(bookPath, folders);
+
+        if (export) {
+            mergeScores(folders);
+        }
+        FileUtil.deleteDirectory(shardsFolder);
+
+        return true;
+    }
+
+    //--------------//
+    // assembleBook //
+    //--------------//
+    /**
+     * Populate the final book file with sheet internals and stub status from shards.
+     *
+     * @param bookPath the final book file
+     * @param folders  the shard folders
+     */
+    private void assembleBook (Path bookPath,
+                               List<Path> folders)
+            throws IOException
+    {
+        book.store(bookPath, false);
+
+        for (Path folder : folders) {
+            final Path shardPath = folder.resolve(book.getRadix() + OMR.BOOK_EXTENSION);
+
+            if (!Files.exists(shardPath)) {
+                logger.warn("No shard book {}", shardPath);
+
+                continue;
+            }
+
+            // Sheet internals
+            final Path root = ZipFileSystem.open(bookPath);
+            final Path shardRoot = ZipFileSystem.open(shardPath);
+
+            try {
+                DirectoryStream<Path> stream = Files.newDirectoryStream(
+                        shardRoot,
+                        Sheet.INTERNALS_RADIX + "*");
+
+                try {
+                    for (Path sheetFolder : stream) {
+                        final Path target = root.resolve(sheetFolder.getFileName().toString());
+                        FileUtil.copyTree(sheetFolder, target);
+                    }
+                } finally {
+                    stream.close();
+                }
+            } finally {
+                shardRoot.getFileSystem().close();
+                root.getFileSystem().close();
+            }
+
+            // Stubs status
+            final Book shardBook = OMR.engine.loadBook(shardPath);
+
+            if (shardBook != null) {
+                for (SheetStub shardStub : shardBook.getStubs()) {
+                    transferStub(shardStub, getStub(shardStub.getNumber()));
+                }
+
+                shardBook.close();
+            }
+        }
+
+        // Scores, rebuilt from transferred stubs
+        for (SheetStub stub : book.getStubs()) {
+            book.updateScores(stub);
+        }
+
+        // Final book info
+        book.setModified(true);
+        book.store(bookPath, false);
+    }
+
+    //-----------//
+    // getRanges //
+    //-----------//
+    /**
+     * Split the sheet numbers into contiguous ranges of similar sizes.
+     *
+     * @param numbers     the sheet numbers (sorted by this method)
+     * @param workerCount the desired number of ranges
+     * @return the sequence of non-empty ranges, no more than sheets
+     */
+    static List<SortedSet<Integer>> getRanges (List<Integer> numbers,
+                                               int workerCount)
+    {
+        Collections.sort(numbers);
+
+        final List<SortedSet<Integer>> ranges = new ArrayList<SortedSet<Integer>>();
+        final int count = Math.min(workerCount, numbers.size());
+
+        for (int i = 0; i < count; i++) {
+            final int from = (i * numbers.size()) / count;
+            final int to = ((i + 1) * numbers.size()) / count;
+            ranges.add(new TreeSet<Integer>(numbers.subList(from, to)));
+        }
+
+        return ranges;
+    }
+
+    //---------//
+    // getStub //
+    //---------//
+    private SheetStub getStub (int number)
+    {
+        for (SheetStub stub : book.getStubs()) {
+            if (stub.getNumber() == number) {
+                return stub;
+            }
+        }
+
+        return null;
+    }
+
+    //--------//
+    // launch //
+    //--------//
+    /**
+     * Launch a worker JVM on the provided sheets range.
+     *
+     * @param range  the sheet numbers to process
+     * @param folder the shard folder for book, export and log
+     * @return the worker process
+     */
+    private Process launch (SortedSet<Integer> range,
+                            Path folder)
+            throws IOException
+    {
+        final List<String> cmd = new ArrayList<String>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+
+        // Same JVM arguments (heap size, properties, ...) except debugging agents
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!arg.startsWith("-agentlib") && !arg.startsWith("-Xrunjdwp")) {
+                cmd.add(arg);
+            }
+        }
+
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(Main.class.getName());
+        cmd.add("-batch");
+
+        // Forwarded options first, so that shard-specific options prevail
+        if (options != null) {
+            for (String key : options.stringPropertyNames()) {
+                cmd.add("-option");
+                cmd.add(key + "=" + options.getProperty(key));
+            }
+        }
+
+        cmd.add("-option");
+        cmd.add(MANAGER + "baseFolder=" + folder.toAbsolutePath());
+        cmd.add("-option");
+        cmd.add(MANAGER + "useSeparateBookFolders=false");
+        cmd.add("-option");
+        cmd.add(MANAGER + "useCompression=false");
+        cmd.add("-option");
+        cmd.add(MANAGER + "useOpus=false");
+
+        if (step != null) {
+            cmd.add("-step");
+            cmd.add(step.name());
+        }
+
+        if (force) {
+            cmd.add("-force");
+        }
+
+        if (export) {
+            cmd.add("-export");
+        }
+
+        cmd.add("-sheets");
+
+        for (int number : range) {
+            cmd.add(Integer.toString(number));
+        }
+
+        cmd.add("--");
+        cmd.add(book.getInputPath().toAbsolutePath().toString());
+
+        logger.info("Launching shard worker on sheets {}", range);
+        logger.debug("Shard command: {}", cmd);
+
+        final File log = folder.resolve("worker.log").toFile();
+
+        return new ProcessBuilder(cmd).redirectErrorStream(true).redirectOutput(log).start();
+    }
+
+    //-------------//
+    // mergeScores //
+    //-------------//
+    /**
+     * Merge the MusicXML exports of all shards into the book score.
+     *
+     * @param folders the shard folders
+     */
+    private void mergeScores (List<Path> folders)
+            throws Exception
+    {
+        final Map<Integer, String> fragments = new TreeMap<Integer, String>();
+
+        for (Path folder : folders) {
+            for (Path path : getExports(folder)) {
+                fragments.put(
+                        fragments.size() + 1,
+                        new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+            }
+        }
+
+        if (fragments.isEmpty()) {
+            logger.info("No MusicXML produced by shards of {}", book.getRadix());
+
+            return;
+        }
+
+        final ScoreXmlReduction reduction = new ScoreXmlReduction(fragments);
+        final String output = reduction.reduce();
+        logger.info("Shards reduction statuses: {}", reduction.getStatuses());
+
+        final Path pathSansExt = BookManager.getDefaultExportPathSansExt(book);
+        final boolean compressed = BookManager.useCompression();
+        final String ext = compressed ? OMR.COMPRESSED_SCORE_EXTENSION : OMR.SCORE_EXTENSION;
+        final Path path = pathSansExt.resolveSibling(pathSansExt.getFileName() + ext);
+        final byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        final OutputStream os = Files.newOutputStream(path);
+
+        try {
+            if (compressed) {
+                final Mxl.Output mof = new Mxl.Output(os);
+                mof.addEntry(
+                        new RootFile(
+                                pathSansExt.getFileName() + OMR.SCORE_EXTENSION,
+                                RootFile.MUSICXML_MEDIA_TYPE));
+                mof.getOutputStream().write(bytes);
+                mof.close();
+            } else {
+                os.write(bytes);
+            }
+        } finally {
+            os.close();
+        }
+
+        logger.info("Merged score exported to {}", path);
+    }
+
+    //------------//
+    // getExports //
+    //------------//
+    /**
+     * Report the MusicXML exports found in a shard folder, in movement order.
+     *
+     * @param folder the shard folder
+     * @return the sorted export files
+     */
+    private List<Path> getExports (Path folder)
+            throws IOException
+    {
+        final SortedMap<Integer, Path> exports = new TreeMap<Integer, Path>();
+        final String single = book.getRadix() + OMR.SCORE_EXTENSION;
+        final DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.xml");
+
+        try {
+            for (Path path : stream) {
+                final String name = path.getFileName().toString();
+                final Matcher matcher = MOVEMENT_PATTERN.matcher(name);
+
+                if (matcher.matches()) {
+                    exports.put(Integer.decode(matcher.group(1)), path);
+                } else if (name.equals(single)) {
+                    exports.put(0, path);
+                }
+            }
+        } finally {
+            stream.close();
+        }
+
+        return new ArrayList<Path>(exports.values());
+    }
+
+    //--------------//
+    // transferStub //
+    //--------------//
+    /**
+     * Copy the status of a shard stub to the related book stub.
+     *
+     * @param shardStub the stub processed by a worker
+     * @param stub      the corresponding stub in final book
+     */
+    private void transferStub (SheetStub shardStub,
+                               SheetStub stub)
+    {
+        if (stub == null) {
+            logger.warn("No book stub for shard {}", shardStub);
+
+            return;
+        }
+
+        for (Step s : Step.values()) {
+            if (shardStub.isDone(s)) {
+                stub.done(s);
+            }
+        }
+
+        stub.clearPageRefs();
+
+        for (PageRef pageRef : shardStub.getPageRefs()) {
+            stub.addPageRef(pageRef);
+        }
+
+        if (!shardStub.isValid()) {
+            stub.invalidate();
+        }
+
+        stub.setModified(false); // Sheet internals have been copied as such
+    }
+}
@@ -21,6 +21,8 @@
 // </editor-fold>
 package org.audiveris.omr.sheet;
 
+import org.audiveris.omr.util.JaxbContexts;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,7 +31,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -113,8 +114,7 @@ public class DataHolder<T>
                 book.getLock().lock();
 
                 if (data == null) {
-                    JAXBContext jaxbContext = JAXBContext.newInstance(classe);
-                    Unmarshaller um = jaxbContext.createUnmarshaller();
+                    Unmarshaller um = JaxbContexts.getUnmarshaller(classe);
 
                     // Open book file system
                     Path dataFile = book.openSheetFolder(sheet.getStub().getNumber())
@@ -125,7 +125,7 @@ public class DataHolder<T>
                     data = (T) um.unmarshal(is);
                     is.close();
                     logger.info("Loaded {}", dataFile);
-                    dataFile.getFileSystem().close(); // Close book file system
+                    BasicBook.closeFileSystem(dataFile.getFileSystem());
                 }
             } catch (Exception ex) {
                 logger.warn("Error unmarshalling from " + pathString, ex);
@@ -0,0 +1,312 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  M e m o r y G o v e r n o r                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet;
+
+import org.audiveris.omr.OMR;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.sheet.ui.StubsController;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+/**
+ * Class {@code MemoryGovernor} frees memory held by sheets, only when heap usage crosses
+ * a configured budget, rather than forcing garbage collections.
+ * <p>
+ * The governor sets a collection usage threshold on tenured heap pools, and listens to the
+ * notifications emitted when, after a garbage collection, the usage of a pool still exceeds this
+ * threshold.
+ * On such notification, among the sheets in memory that are not locked (that is neither being
+ * processed nor exported) and not displayed as current sheet:
+ * <ul>
+ * <li>The least recently used sheet is swapped (stored if modified, then disposed).
+ * In interactive mode, only an unmodified sheet can be swapped, so that user edits are never
+ * stored without the user consent.</li>
+ * <li>The cached picture sources of the other sheets are released, since they can be rebuilt on
+ * demand.</li>
+ * </ul>
+ *
+ * @author Hervé Bitteur
+ */
+public class MemoryGovernor
+        implements NotificationListener
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoryGovernor.class);
+
+    /** The single instance, if installed. */
+    private static volatile MemoryGovernor INSTANCE;
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Stubs with a sheet in memory, from least to most recently used. */
+    private final Set<SheetStub> stubs = new LinkedHashSet<SheetStub>();
+
+    /** Thread where eviction takes place, away from notification thread. */
+    private final ExecutorService evictor = Executors.newSingleThreadExecutor(
+            new ThreadFactory()
+    {
+        @Override
+        public Thread newThread (Runnable r)
+        {
+            Thread thread = new Thread(r, "MemoryGovernor");
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    });
+
+    /** True while an eviction is pending or running. */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    //~ Constructors -------------------------------------------------------------------------------
+    private MemoryGovernor ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //--------//
+    // forget //
+    //--------//
+    /**
+     * Notify that the sheet of provided stub is no longer to be handled by the governor,
+     * typically because it is being disposed.
+     *
+     * @param stub the sheet stub
+     */
+    public static void forget (SheetStub stub)
+    {
+        final MemoryGovernor governor = INSTANCE;
+
+        if (governor != null) {
+            synchronized (governor.stubs) {
+                governor.stubs.remove(stub);
+            }
+        }
+    }
+
+    //--------------------//
+    // handleNotification //
+    //--------------------//
+    @Override
+    public void handleNotification (Notification notification,
+                                    Object handback)
+    {
+        if (!MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(
+                notification.getType())) {
+            return;
+        }
+
+        // Evict only once at a time
+        if (evicting.compareAndSet(false, true)) {
+            evictor.execute(
+                    new Runnable()
+            {
+                @Override
+                public void run ()
+                {
+                    try {
+                        evict();
+                    } catch (Throwable ex) {
+                        logger.warn("Error evicting sheets " + ex, ex);
+                    } finally {
+                        evicting.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    //-------//
+    // touch //
+    //-------//
+    /**
+     * Notify that the sheet of provided stub is in memory and has just been used.
+     *
+     * @param stub the sheet stub
+     */
+    public static void touch (SheetStub stub)
+    {
+        final MemoryGovernor governor = getInstance();
+
+        if (governor != null) {
+            synchronized (governor.stubs) {
+                governor.stubs.remove(stub);
+                governor.stubs.add(stub); // Now the most recently used
+            }
+        }
+    }
+
+    //-------//
+    // evict //
+    //-------//
+    /**
+     * Swap the least recently used idle sheet and release picture sources of other idle sheets.
+     */
+    private void evict ()
+    {
+        final List<SheetStub> candidates;
+
+        synchronized (stubs) {
+            candidates = new ArrayList<SheetStub>(stubs);
+        }
+
+        final SheetStub current = (OMR.gui != null) ? StubsController.getCurrentStub() : null;
+        int swapped = 0;
+        int released = 0;
+
+        for (SheetStub stub : candidates) {
+            if ((stub == current) || !stub.hasSheet()) {
+                continue;
+            }
+
+            // Skip any sheet being processed
+            if (!stub.getLock().tryLock()) {
+                continue;
+            }
+
+            try {
+                if (!stub.hasSheet()) {
+                    continue; // Just disposed
+                }
+
+                // In interactive mode, a modified sheet is left for the user to save or discard
+                final boolean swappable = (OMR.gui == null) || !stub.isModified();
+
+                if (swappable && (swapped < constants.maxSwapsPerEviction.getValue())) {
+                    stub.swapSheet();
+                    swapped++;
+                } else {
+                    final Sheet sheet = stub.getSheet();
+
+                    if (sheet.hasPicture()) {
+                        sheet.getPicture().releaseSources();
+                        released++;
+                    }
+                }
+            } finally {
+                stub.getLock().unlock();
+            }
+        }
+
+        logger.info(
+                "Heap budget exceeded, sheets swapped: {}, sources released: {}",
+                swapped,
+                released);
+    }
+
+    //-------------//
+    // getInstance //
+    //-------------//
+    /**
+     * Report the governor, after installing it if needed.
+     *
+     * @return the governor, or null if not used
+     */
+    private static MemoryGovernor getInstance ()
+    {
+        if (INSTANCE == null) {
+            synchronized (MemoryGovernor.class) {
+                if ((INSTANCE == null) && constants.useGovernor.isSet()) {
+                    MemoryGovernor governor = new MemoryGovernor();
+                    governor.install();
+                    INSTANCE = governor;
+                }
+            }
+        }
+
+        return INSTANCE;
+    }
+
+    //---------//
+    // install //
+    //---------//
+    /**
+     * Set the collection usage threshold of heap pools and register for notifications.
+     */
+    private void install ()
+    {
+        final double ratio = constants.heapBudget.getValue();
+
+        // Only tenured pools support usage threshold, young pools are emptied by collections
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ((pool.getType() == MemoryType.HEAP)
+                && pool.isUsageThresholdSupported()
+                && pool.isCollectionUsageThresholdSupported()) {
+                final long max = pool.getUsage().getMax();
+
+                if (max > 0) {
+                    pool.setCollectionUsageThreshold((long) (max * ratio));
+                    logger.debug("Heap budget set on {} at {}", pool.getName(), ratio);
+                }
+            }
+        }
+
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(
+                this,
+                null,
+                null);
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean useGovernor = new Constant.Boolean(
+                true,
+                "Should sheets be evicted from memory when heap budget is exceeded?");
+
+        private final Constant.Ratio heapBudget = new Constant.Ratio(
+                0.7,
+                "Ratio of maximum heap pool size, used after a collection, that triggers eviction");
+
+        private final Constant.Integer maxSwapsPerEviction = new Constant.Integer(
+                "sheets",
+                1,
+                "Maximum number of sheets swapped per eviction");
+    }
+}
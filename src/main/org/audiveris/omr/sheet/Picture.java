@@ -22,18 +22,19 @@
 package org.audiveris.omr.sheet;
 
 import ij.process.ByteProcessor;
-import ij.process.ColorProcessor;
 
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.image.FilterDescriptor;
 import org.audiveris.omr.image.GaussianGrayFilter;
+import org.audiveris.omr.image.GrayConverter;
 import org.audiveris.omr.image.ImageFormatException;
 import org.audiveris.omr.image.ImageUtil;
 import org.audiveris.omr.image.MedianGrayFilter;
 import org.audiveris.omr.image.PixelFilter;
 import org.audiveris.omr.image.PixelSource;
+import org.audiveris.omr.run.BilevelRunTableFactory;
 import static org.audiveris.omr.run.Orientation.VERTICAL;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.run.RunTableFactory;
@@ -42,6 +43,7 @@ import org.audiveris.omr.ui.selection.LocationEvent;
 import org.audiveris.omr.ui.selection.MouseMovement;
 import org.audiveris.omr.ui.selection.PixelEvent;
 import org.audiveris.omr.ui.selection.SelectionService;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.Navigable;
 import org.audiveris.omr.util.StopWatch;
 
@@ -59,16 +61,13 @@ import java.awt.image.ColorModel;
 import java.awt.image.SampleModel;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.ref.WeakReference;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.EnumMap;
 import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentSkipListMap;
 
 import javax.media.jai.JAI;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -87,6 +86,7 @@ import javax.xml.bind.annotation.XmlRootElement;
  * Besides the INITIAL source, this class handles a collection of sources, all of the same
  * dimension, with the ability to retrieve them on demand or dispose them, via {@link #getSource}
  * and {@link #disposeSource} methods.
+ * These sources are kept in a {@link SourceCache}, bounded by a memory budget.
  * <p>
  * Any instance of this class is registered on the related Sheet location service, so that each time
  * a location event is received, the corresponding pixel gray value of the INITIAL sources is
@@ -166,8 +166,8 @@ public class Picture
     // Transient data
     //---------------
     //
-    /** Map of all handled sources. */
-    private final ConcurrentSkipListMap<SourceKey, WeakReference<ByteProcessor>> sources = new ConcurrentSkipListMap<SourceKey, WeakReference<ByteProcessor>>();
+    /** Cache of all handled sources. */
+    private final SourceCache sources = new SourceCache();
 
     /** Related sheet. */
     @Navigable(false)
@@ -207,6 +207,8 @@ public class Picture
 
     /**
      * Build a picture instance from a given original image.
+     * <p>
+     * A bi-level (1-bit) image directly provides the BINARY table, without any INITIAL source.
      *
      * @param sheet        the related sheet
      * @param image        the provided original image
@@ -221,6 +223,23 @@ public class Picture
         initTransients(sheet);
         this.levelService = levelService;
 
+        if (constants.directBilevel.isSet() && BilevelRunTableFactory.isBilevel(image)) {
+            StopWatch watch = new StopWatch("Bilevel");
+            watch.start("BilevelRunTableFactory");
+
+            width = image.getWidth();
+            height = image.getHeight();
+            setTable(TableKey.BINARY, BilevelRunTableFactory.createTable(image), true);
+            initialImage = null;
+            logger.debug("Bi-level image {}", image);
+
+            if (constants.printWatch.isSet()) {
+                watch.print();
+            }
+
+            return;
+        }
+
         // Make sure format, colors, etc are OK for us
         ///ImageUtil.printInfo(image, "Original image");
         image = checkImage(image);
@@ -290,9 +309,7 @@ public class Picture
     // For debug only
     public void checkSources ()
     {
-        for (SourceKey key : SourceKey.values()) {
-            logger.info(String.format("%15s ref:%s", key, getStrongRef(key)));
-        }
+        logger.info("{}", sources);
     }
 
     //---------------//
@@ -480,10 +497,9 @@ public class Picture
         if (img != null) {
             if (img.getType() != BufferedImage.TYPE_BYTE_GRAY) {
                 StopWatch watch = new StopWatch("ToGray");
-                watch.start("convertToByteProcessor");
+                watch.start("GrayConverter");
 
-                ColorProcessor cp = new ColorProcessor(img);
-                ByteProcessor bp = cp.convertToByteProcessor();
+                ByteProcessor bp = GrayConverter.toGray(img);
 
                 if (constants.printWatch.isSet()) {
                     watch.print();
@@ -516,16 +532,19 @@ public class Picture
     //-----------//
     /**
      * Report the desired source.
-     * If the source is not yet cached, build the source and store it in cache via weak reference.
+     * If the source is not yet cached, build the source and store it in cache, together with the
+     * time it took to build.
      *
      * @param key the key of desired source
      * @return the source ready to use
      */
     public ByteProcessor getSource (SourceKey key)
     {
-        ByteProcessor src = getStrongRef(key);
+        ByteProcessor src = sources.get(key);
 
         if (src == null) {
+            final long start = System.nanoTime();
+
             switch (key) {
             case INITIAL:
                 src = getInitialSource(initialImage);
@@ -571,7 +590,7 @@ public class Picture
 
             if (src != null) {
                 // Store in cache
-                sources.put(key, new WeakReference<ByteProcessor>(src));
+                sources.put(key, src, System.nanoTime() - start);
                 logger.debug("{} source built as {}", key, src);
             }
         }
@@ -579,6 +598,19 @@ public class Picture
         return src;
     }
 
+    //----------------//
+    // getSourceCache //
+    //----------------//
+    /**
+     * Report the cache of sources, notably for its statistics.
+     *
+     * @return the source cache
+     */
+    public SourceCache getSourceCache ()
+    {
+        return sources;
+    }
+
     //----------//
     // getTable //
     //----------//
@@ -718,6 +750,22 @@ public class Picture
         }
     }
 
+    //----------------//
+    // releaseSources //
+    //----------------//
+    /**
+     * Release all cached sources, except the INITIAL one, to save memory.
+     * They will be rebuilt on demand.
+     */
+    public void releaseSources ()
+    {
+        for (SourceKey key : SourceKey.values()) {
+            if (key != SourceKey.INITIAL) {
+                sources.remove(key);
+            }
+        }
+    }
+
     //-------------//
     // removeTable //
     //-------------//
@@ -783,7 +831,7 @@ public class Picture
                     Files.deleteIfExists(tablepath);
 
                     OutputStream os = Files.newOutputStream(tablepath, StandardOpenOption.CREATE);
-                    Marshaller m = JAXBContext.newInstance(RunTable.class).createMarshaller();
+                    Marshaller m = JaxbContexts.getMarshaller(RunTable.class);
                     m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
 
                     RunTable table = holder.getData(sheet.getStub());
@@ -943,28 +991,6 @@ public class Picture
         return img;
     }
 
-    //--------------//
-    // getStrongRef //
-    //--------------//
-    /**
-     * Report the actual (strong) reference, if any, of a weak source reference.
-     *
-     * @param key the source key
-     * @return the strong reference, if any
-     */
-    private ByteProcessor getStrongRef (SourceKey key)
-    {
-        // Check if key is referenced
-        WeakReference<ByteProcessor> ref = sources.get(key);
-
-        if (ref != null) {
-            // Actual reference may be null or not (depending on garbage collection)
-            return ref.get();
-        }
-
-        return null;
-    }
-
     //~ Inner Classes ------------------------------------------------------------------------------
     //-----------//
     // Constants //
@@ -987,5 +1013,9 @@ public class Picture
                 "pixels",
                 1,
                 "Radius of Median filtering kernel (1 for 3x3, 2 for 5x5)");
+
+        private final Constant.Boolean directBilevel = new Constant.Boolean(
+                true,
+                "Should we build BINARY table directly from a bi-level input image?");
     }
 }
@@ -23,6 +23,7 @@ package org.audiveris.omr.sheet;
 
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.sheet.Picture.TableKey;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,7 +33,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -97,8 +97,7 @@ public class RunTableHolder
                 stub.getBook().getLock().lock();
 
                 if (data == null) {
-                    JAXBContext jaxbContext = JAXBContext.newInstance(RunTable.class);
-                    Unmarshaller um = jaxbContext.createUnmarshaller();
+                    Unmarshaller um = JaxbContexts.getUnmarshaller(RunTable.class);
 
                     // Open book file system
                     Path dataFile = stub.getBook().openSheetFolder(stub.getNumber())
@@ -109,7 +108,7 @@ public class RunTableHolder
                     data = (RunTable) um.unmarshal(is);
                     is.close();
 
-                    dataFile.getFileSystem().close(); // Close book file system
+                    BasicBook.closeFileSystem(dataFile.getFileSystem());
                     modified = false;
                     logger.debug("Loaded {}", dataFile);
                 }
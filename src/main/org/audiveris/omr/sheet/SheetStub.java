@@ -22,6 +22,7 @@
 package org.audiveris.omr.sheet;
 
 import org.audiveris.omr.image.FilterDescriptor;
+import org.audiveris.omr.score.PageFragment;
 import org.audiveris.omr.score.PageRef;
 import org.audiveris.omr.sheet.ui.SheetAssembly;
 import org.audiveris.omr.step.Step;
@@ -62,6 +63,13 @@ public interface SheetStub
      */
     void close ();
 
+    /**
+     * Remember that the provided step has been completed on the sheet.
+     *
+     * @param step the provided step
+     */
+    void done (Step step);
+
     /**
      * An abnormal situation has been found, as detailed in provided message,
      * now how should we proceed?, depending on batch mode or user answer.
@@ -158,6 +166,13 @@ public interface SheetStub
      */
     int getNumber ();
 
+    /**
+     * Report the export fragment cached for this stub page, if any.
+     *
+     * @return the cached fragment, or null
+     */
+    PageFragment getPageFragment ();
+
     /**
      * Report the stub sequence of page references.
      *
@@ -228,11 +243,19 @@ public interface SheetStub
 
     /**
      * Set the modified flag.
+     * Setting it to true discards any cached export fragment.
      *
      * @param val the new flag value
      */
     void setModified (boolean val);
 
+    /**
+     * Cache the export fragment of this stub page.
+     *
+     * @param fragment the fragment to cache
+     */
+    void setPageFragment (PageFragment fragment);
+
     /**
      * Store sheet material into book.
      *
@@ -0,0 +1,535 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                     S o u r c e C a c h e                                      //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.WellKnowns;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.sheet.Picture.SourceKey;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Class {@code SourceCache} is an explicit cache for the pixel sources of a
+ * {@link Picture}, bounded by a byte budget.
+ * <p>
+ * The budget is global rather than per sheet: it applies to the sources held in memory by all
+ * live caches, whatever the number of sheets processed in parallel, since a per-sheet budget would
+ * let the total memory grow with the number of concurrent sheets.
+ * When the budget is exceeded, a cache evicts its own sources.
+ * <p>
+ * Each cached source records the time it took to build, and eviction follows a
+ * "GreedyDual-Size" policy: a source is given a priority equal to a running inflation value plus
+ * its build cost per byte, and the source with lowest priority is evicted first.
+ * Hence, a cheap and big source (such as BINARY, rebuilt from its run table) is evicted before an
+ * expensive one (such as MEDIAN or GAUSSIAN), while sources not accessed for a long time end up
+ * being evicted as well.
+ * <p>
+ * If spilling is enabled, an evicted source is written to a temporary memory-mapped file rather
+ * than being simply discarded, and is later read back from this file instead of being recomputed.
+ * The spill file is written again at each eviction, since a source may have been modified in
+ * memory since it was read back.
+ * <p>
+ * Counters of hits, misses, recomputations and spill reads are maintained.
+ *
+ * @author Hervé Bitteur
+ */
+public class SourceCache
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(SourceCache.class);
+
+    /** All live caches, to enforce the global budget. */
+    private static final Map<SourceCache, Boolean> liveCaches
+            = new WeakHashMap<SourceCache, Boolean>();
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Cached entries. */
+    private final Map<SourceKey, Entry> entries = new EnumMap<SourceKey, Entry>(SourceKey.class);
+
+    /** Keys of sources built so far. */
+    private final EnumSet<SourceKey> built = EnumSet.noneOf(SourceKey.class);
+
+    /** Budget in bytes for sources held in memory by all caches. */
+    private final long budget;
+
+    /** Should evicted sources be spilled to disk?. */
+    private final boolean spill;
+
+    /** Current inflation value, as defined by GreedyDual-Size policy. */
+    private double inflation;
+
+    /** Current number of bytes held in memory. (Written under lock, read by other caches) */
+    private volatile long memoryBytes;
+
+    /** Number of sources found in memory. */
+    private int hitCount;
+
+    /** Number of sources not found in memory. */
+    private int missCount;
+
+    /** Number of sources built again after eviction. */
+    private int recomputeCount;
+
+    /** Number of sources read back from spill file. */
+    private int spillReadCount;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code SourceCache} object, using default budget and spill policy.
+     */
+    public SourceCache ()
+    {
+        this(constants.budget.getValue() * 1024L * 1024L, constants.useSpill.isSet());
+    }
+
+    /**
+     * Creates a new {@code SourceCache} object.
+     *
+     * @param budget maximum number of bytes for sources held in memory by all caches
+     * @param spill  true for spilling evicted sources to disk
+     */
+    public SourceCache (long budget,
+                        boolean spill)
+    {
+        this.budget = budget;
+        this.spill = spill;
+
+        synchronized (liveCaches) {
+            liveCaches.put(this, Boolean.TRUE);
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------//
+    // clear //
+    //-------//
+    /**
+     * Remove all sources from cache, including their spill files if any.
+     */
+    public synchronized void clear ()
+    {
+        for (SourceKey key : SourceKey.values()) {
+            remove(key);
+        }
+    }
+
+    //-----//
+    // get //
+    //-----//
+    /**
+     * Report the cached source for the provided key, reading it back from its spill
+     * file if needed.
+     *
+     * @param key the source key
+     * @return the source found, or null if not available
+     */
+    public synchronized ByteProcessor get (SourceKey key)
+    {
+        final Entry entry = entries.get(key);
+
+        if ((entry != null) && (entry.source != null)) {
+            hitCount++;
+            entry.priority = inflation + entry.getCostPerByte();
+
+            return entry.source;
+        }
+
+        missCount++;
+
+        if ((entry != null) && (entry.spillFile != null)) {
+            try {
+                entry.source = entry.unspill();
+                spillReadCount++;
+                memoryBytes += entry.bytes;
+                entry.priority = inflation + entry.getCostPerByte();
+                makeRoom(key);
+
+                return entry.source;
+            } catch (IOException ex) {
+                logger.warn("Could not read spilled {} source {}", key, ex.toString(), ex);
+                remove(key);
+            }
+        }
+
+        return null;
+    }
+
+    //----------------------//
+    // getGlobalMemoryBytes //
+    //----------------------//
+    /**
+     * Report the number of bytes currently held in memory by all live caches.
+     *
+     * @return the global number of bytes
+     */
+    public static long getGlobalMemoryBytes ()
+    {
+        final List<SourceCache> caches;
+
+        synchronized (liveCaches) {
+            caches = new ArrayList<SourceCache>(liveCaches.keySet());
+        }
+
+        long total = 0;
+
+        for (SourceCache cache : caches) {
+            total += cache.memoryBytes;
+        }
+
+        return total;
+    }
+
+    //-------------//
+    // getHitCount //
+    //-------------//
+    /**
+     * @return the number of sources found in memory
+     */
+    public synchronized int getHitCount ()
+    {
+        return hitCount;
+    }
+
+    //----------------//
+    // getMemoryBytes //
+    //----------------//
+    /**
+     * @return the number of bytes currently held in memory by this cache
+     */
+    public synchronized long getMemoryBytes ()
+    {
+        return memoryBytes;
+    }
+
+    //--------------//
+    // getMissCount //
+    //--------------//
+    /**
+     * @return the number of sources not found in memory
+     */
+    public synchronized int getMissCount ()
+    {
+        return missCount;
+    }
+
+    //-------------------//
+    // getRecomputeCount //
+    //-------------------//
+    /**
+     * @return the number of sources built again after their eviction
+     */
+    public synchronized int getRecomputeCount ()
+    {
+        return recomputeCount;
+    }
+
+    //-------------------//
+    // getSpillReadCount //
+    //-------------------//
+    /**
+     * @return the number of sources read back from spill file
+     */
+    public synchronized int getSpillReadCount ()
+    {
+        return spillReadCount;
+    }
+
+    //-----//
+    // put //
+    //-----//
+    /**
+     * Insert a freshly built source, and evict other sources if budget is exceeded.
+     *
+     * @param key       the source key
+     * @param source    the built source
+     * @param buildTime the time, in nanoseconds, it took to build the source
+     */
+    public synchronized void put (SourceKey key,
+                                  ByteProcessor source,
+                                  long buildTime)
+    {
+        remove(key);
+
+        if (!built.add(key)) {
+            recomputeCount++;
+        }
+
+        final Entry entry = new Entry(key, source, buildTime);
+        entry.priority = inflation + entry.getCostPerByte();
+        entries.put(key, entry);
+        memoryBytes += entry.bytes;
+        makeRoom(key);
+    }
+
+    //--------//
+    // remove //
+    //--------//
+    /**
+     * Remove the source for provided key, including its spill file if any.
+     *
+     * @param key the source key
+     */
+    public synchronized void remove (SourceKey key)
+    {
+        final Entry entry = entries.remove(key);
+
+        if (entry != null) {
+            if (entry.source != null) {
+                memoryBytes -= entry.bytes;
+            }
+
+            entry.deleteSpill();
+        }
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public synchronized String toString ()
+    {
+        StringBuilder sb = new StringBuilder("SourceCache{");
+        sb.append("mem:").append(memoryBytes);
+        sb.append("/").append(budget);
+        sb.append(" hits:").append(hitCount);
+        sb.append(" misses:").append(missCount);
+        sb.append(" recomputes:").append(recomputeCount);
+        sb.append(" spillReads:").append(spillReadCount);
+
+        for (Entry entry : entries.values()) {
+            sb.append(" ").append(entry);
+        }
+
+        sb.append("}");
+
+        return sb.toString();
+    }
+
+    //----------//
+    // makeRoom //
+    //----------//
+    /**
+     * Evict sources, other than the protected one, until global memory fits within budget.
+     *
+     * @param protectedKey key of source to keep in memory
+     */
+    private void makeRoom (SourceKey protectedKey)
+    {
+        while (getGlobalMemoryBytes() > budget) {
+            // Pick the in-memory entry with lowest priority
+            Entry victim = null;
+
+            for (Entry entry : entries.values()) {
+                if ((entry.key != protectedKey) && (entry.source != null)) {
+                    if ((victim == null) || (entry.priority < victim.priority)) {
+                        victim = entry;
+                    }
+                }
+            }
+
+            if (victim == null) {
+                return; // Nothing more can be evicted
+            }
+
+            inflation = victim.priority;
+            memoryBytes -= victim.bytes;
+
+            if (spill && victim.spill()) {
+                logger.debug("Spilled {} source", victim.key);
+            } else {
+                entries.remove(victim.key);
+                logger.debug("Evicted {} source", victim.key);
+            }
+        }
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Integer budget = new Constant.Integer(
+                "MB",
+                512,
+                "Maximum memory for picture sources of all sheets together (not per sheet)");
+
+        private final Constant.Boolean useSpill = new Constant.Boolean(
+                false,
+                "Should we spill evicted picture sources to disk rather than recompute them?");
+    }
+
+    //-------//
+    // Entry //
+    //-------//
+    /**
+     * A cached source, either in memory or spilled to disk.
+     */
+    private static class Entry
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        final SourceKey key;
+
+        final int width;
+
+        final int height;
+
+        final long bytes;
+
+        final long buildTime;
+
+        /** Source in memory, or null if evicted. */
+        ByteProcessor source;
+
+        /** Spill file, if any. */
+        Path spillFile;
+
+        /** Mapped content of spill file, if any. */
+        MappedByteBuffer spillBuffer;
+
+        /** Current GreedyDual-Size priority. */
+        double priority;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        Entry (SourceKey key,
+               ByteProcessor source,
+               long buildTime)
+        {
+            this.key = key;
+            this.source = source;
+            this.buildTime = buildTime;
+            width = source.getWidth();
+            height = source.getHeight();
+            bytes = (long) width * height;
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public String toString ()
+        {
+            return key + ((source != null) ? ":mem" : ((spillFile != null) ? ":disk" : ":none"));
+        }
+
+        void deleteSpill ()
+        {
+            if (spillFile != null) {
+                spillBuffer = null;
+
+                try {
+                    Files.deleteIfExists(spillFile);
+                } catch (IOException ex) {
+                    logger.warn("Could not delete {}", spillFile, ex);
+                }
+
+                spillFile = null;
+            }
+        }
+
+        double getCostPerByte ()
+        {
+            return (double) buildTime / Math.max(1, bytes);
+        }
+
+        /**
+         * Write source pixels to a memory-mapped file, and release the source.
+         * The file, created on first spill, is always rewritten with current pixels.
+         *
+         * @return true if OK
+         */
+        boolean spill ()
+        {
+            try {
+                if (spillFile == null) {
+                    Files.createDirectories(WellKnowns.TEMP_FOLDER);
+                    spillFile = Files.createTempFile(WellKnowns.TEMP_FOLDER, key.name(), ".src");
+                    spillFile.toFile().deleteOnExit();
+
+                    final RandomAccessFile raf = new RandomAccessFile(spillFile.toFile(), "rw");
+
+                    try {
+                        spillBuffer = raf.getChannel()
+                                .map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                    } finally {
+                        raf.close(); // Mapping remains valid
+                    }
+                }
+
+                spillBuffer.rewind();
+                spillBuffer.put((byte[]) source.getPixels());
+
+                source = null;
+
+                return true;
+            } catch (IOException ex) {
+                logger.warn("Could not spill {} source {}", key, ex.toString(), ex);
+                deleteSpill();
+                source = null;
+
+                return false;
+            }
+        }
+
+        /**
+         * Read source pixels back from spill file.
+         * The spill file is kept, to be rewritten at next spill.
+         *
+         * @return the source read
+         */
+        ByteProcessor unspill ()
+                throws IOException
+        {
+            if (spillBuffer == null) {
+                throw new IOException("No mapped buffer for " + spillFile);
+            }
+
+            final byte[] pixels = new byte[(int) bytes];
+            spillBuffer.rewind();
+            spillBuffer.get(pixels);
+
+            return new ByteProcessor(width, height, pixels);
+        }
+    }
+}
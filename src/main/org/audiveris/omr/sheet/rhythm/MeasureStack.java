@@ -22,6 +22,7 @@
 package org.audiveris.omr.sheet.rhythm;
 
 import org.audiveris.omr.math.GeoUtil;
+import org.audiveris.omr.math.PackedRational;
 import org.audiveris.omr.math.Rational;
 import org.audiveris.omr.score.Page;
 import org.audiveris.omr.score.Score;
@@ -533,22 +534,26 @@ public class MeasureStack
      */
     public Rational getCurrentDuration ()
     {
-        Rational measureDur = Rational.ZERO;
+        long measureDur = PackedRational.ZERO;
 
         // Whole/multi rests are handled outside of slots
         for (Slot slot : slots) {
             if (slot.getTimeOffset() != null) {
+                final long timeOffset = PackedRational.of(slot.getTimeOffset());
+
                 for (AbstractChordInter chord : slot.getChords()) {
-                    Rational chordEnd = slot.getTimeOffset().plus(chord.getDuration());
+                    long chordEnd = PackedRational.plus(
+                            timeOffset,
+                            PackedRational.of(chord.getDuration()));
 
-                    if (chordEnd.compareTo(measureDur) > 0) {
+                    if (PackedRational.compare(chordEnd, measureDur) > 0) {
                         measureDur = chordEnd;
                     }
                 }
             }
         }
 
-        return measureDur;
+        return PackedRational.toRational(measureDur);
     }
 
     //-------------------------//
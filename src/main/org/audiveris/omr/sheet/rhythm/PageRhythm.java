@@ -21,6 +21,9 @@
 // </editor-fold>
 package org.audiveris.omr.sheet.rhythm;
 
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.math.Histogram;
 import org.audiveris.omr.math.Rational;
 import org.audiveris.omr.score.Page;
@@ -31,6 +34,8 @@ import org.audiveris.omr.sig.inter.FlagInter;
 import org.audiveris.omr.sig.inter.Inter;
 import org.audiveris.omr.sig.inter.RestChordInter;
 import org.audiveris.omr.sig.inter.TupletInter;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Class {@code PageRhythm} handles rhythm data on a sheet page.
@@ -60,8 +66,9 @@ import java.util.List;
  * These FRAT symbols provide the adjustment variables used when checking the precise rhythm content
  * of each measure.
  * To do so, processing is done system per system <b>sequentially</b> because of impact of potential
- * key-sig changes on the following systems. Hence, parallelism is NOT provided for this step.
- * Consistently, within a system, processing is done measure stack after measure stack.
+ * key-sig changes on the following systems. Hence, parallelism is NOT provided at system level.
+ * Within a system however, measure stacks are solved independently, perhaps in parallel, and the
+ * resulting sig updates are then committed measure stack after measure stack.
  * <p>
  * Time sig can be inferred from stacks actual content, but this is a chicken & egg problem.
  * We check whether the page starts with a time-sig indication. If not, we'll need two passes, the
@@ -76,6 +83,8 @@ public class PageRhythm
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(PageRhythm.class);
 
     /** Adjustable rhythm classes. (FRAT: Flag, RestChord, AugmentationDot, Tuplet) */
@@ -117,11 +126,11 @@ public class PageRhythm
         Range range = it.next(); // Current range
 
         for (SystemInfo system : page.getSystems()) {
-            // Select relevant rhythm inters at system level
-            List<Inter> systemGoodFrats = system.getSig().inters(FRAT_CLASSES);
+            // Determine expected duration, stack after stack
+            final List<MeasureStack> stacks = system.getMeasureStacks();
+            final List<Rational> durations = new ArrayList<Rational>(stacks.size());
 
-            // Process stack after stack
-            for (MeasureStack stack : system.getMeasureStacks()) {
+            for (MeasureStack stack : stacks) {
                 if (stack.getIdValue() == range.startId) {
                     logger.debug("Starting {}", range);
 
@@ -137,12 +146,7 @@ public class PageRhythm
                     }
                 }
 
-                try {
-                    logger.debug("\n--- Processing {} expDur: {} ---", stack, range.duration);
-                    new StackTuner(stack, false).process(systemGoodFrats, range.duration);
-                } catch (Exception ex) {
-                    logger.warn("Error on stack " + stack + " " + ex, ex);
-                }
+                durations.add(range.duration);
 
                 // End of range?
                 if (stack.getIdValue() == range.stopId) {
@@ -152,6 +156,8 @@ public class PageRhythm
                 }
             }
 
+            tuneStacks(system, durations, false);
+
             // Refine voices IDs (and thus colors) across all measures of the system
             Voices.refineSystem(system);
         }
@@ -221,18 +227,9 @@ public class PageRhythm
         Range range = it.next();
 
         for (SystemInfo system : page.getSystems()) {
-            // Select good FRAT inters at system level
-            List<Inter> systemGoodFrats = system.getSig().inters(FRAT_CLASSES);
+            tuneStacks(system, null, true);
 
-            // Process stack after stack
             for (MeasureStack stack : system.getMeasureStacks()) {
-                try {
-                    logger.debug("\n--- Raw processing {} ---", stack);
-                    new StackTuner(stack, true).process(systemGoodFrats, null);
-                } catch (Exception ex) {
-                    logger.warn("Error on stack " + stack + " " + ex, ex);
-                }
-
                 // End of range?
                 if (stack.getIdValue() == range.stopId) {
                     // Use CURRENT MATERIAL of voices to determine expected duration on this range
@@ -325,7 +322,105 @@ public class PageRhythm
         return avgGuess;
     }
 
+    //------------//
+    // tuneStacks //
+    //------------//
+    /**
+     * Tune the rhythm of all measure stacks in a system.
+     * <p>
+     * Stacks are first solved independently, then the resulting sig updates are committed
+     * sequentially in stack order.
+     * When stacks are solved in parallel, solving does not modify the sig and all updates are
+     * deferred until commit. Since chord durations are read from sig relations, configurations
+     * that differ only by flags or augmentation dots are then not told apart.
+     *
+     * @param system    the system to process
+     * @param durations expected duration for each stack, or null
+     * @param failFast  true for raw processing (meant only to guess expected measure duration)
+     */
+    private void tuneStacks (final SystemInfo system,
+                             List<Rational> durations,
+                             boolean failFast)
+    {
+        // Select good FRAT inters at system level
+        final List<Inter> systemGoodFrats = system.getSig().inters(FRAT_CLASSES);
+        final List<MeasureStack> stacks = system.getMeasureStacks();
+        final List<StackTuner> tuners = new ArrayList<StackTuner>(stacks.size());
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(stacks.size());
+        final boolean parallel = (stacks.size() > 1)
+                                 && constants.processStacksInParallel.isSet();
+
+        for (int i = 0; i < stacks.size(); i++) {
+            final MeasureStack stack = stacks.get(i);
+            final Rational duration = (durations != null) ? durations.get(i) : null;
+            final StackTuner tuner = new StackTuner(stack, failFast, parallel);
+            tuners.add(tuner);
+            tasks.add(
+                    new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    try {
+                        if (parallel) {
+                            LogUtil.start(system.getSheet().getStub());
+                        }
+
+                        logger.debug("\n--- Processing {} expDur: {} ---", stack, duration);
+                        tuner.solve(systemGoodFrats, duration);
+                    } catch (Exception ex) {
+                        logger.warn("Error on stack " + stack + " " + ex, ex);
+                    } finally {
+                        if (parallel) {
+                            LogUtil.stopStub();
+                        }
+                    }
+
+                    return null;
+                }
+            });
+        }
+
+        try {
+            if (parallel) {
+                OmrExecutors.getLowExecutor().invokeAll(tasks);
+            } else {
+                for (Callable<Void> task : tasks) {
+                    task.call();
+                }
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("tuneStacks got interrupted for {}", system);
+            throw new ProcessingCancellationException(ex);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+
+        // Commit sig updates, in stack order
+        for (int i = 0; i < stacks.size(); i++) {
+            try {
+                tuners.get(i).commit();
+            } catch (Exception ex) {
+                logger.warn("Error on stack " + stacks.get(i) + " " + ex, ex);
+            }
+        }
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean processStacksInParallel = new Constant.Boolean(
+                false,
+                "Should we solve the measure stacks of a system in parallel? (experimental)");
+    }
+
     //-------//
     // Range //
     //-------//
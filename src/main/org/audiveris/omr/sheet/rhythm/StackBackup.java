@@ -30,6 +30,7 @@ import org.audiveris.omr.sig.inter.TupletInter;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -41,6 +42,12 @@ import java.util.Set;
  * <li>It can install a specific configuration of rhythm data for testing.</li>
  * <li>It can freeze the stack when a final good configuration has been chosen.</li>
  * </ol>
+ * <p>
+ * By default, installing a configuration deletes from sig the inters left out of it and restores
+ * the configuration inters, since chord durations are read from sig relations (flags, dots).
+ * In deferred mode, meant for stacks solved concurrently, the sig is not modified: deletions and
+ * restorations are only recorded and then applied by {@link #commit()}.
+ * In both modes, the updates implied by tuplets are applied by {@link #commit()}.
  */
 public class StackBackup
         extends SigBackup
@@ -50,19 +57,68 @@ public class StackBackup
     /** The underlying stack. */
     private final MeasureStack stack;
 
+    /** True for sig updates to be deferred until commit. */
+    private final boolean deferred;
+
+    /** Tuplets builder used by last installation. */
+    private TupletsBuilder tupletsBuilder;
+
+    /** Tuplets found wrong, to be deleted. */
+    private final Set<TupletInter> wrongTuplets = new LinkedHashSet<TupletInter>();
+
+    /** Inters left out of installed configuration, to be deleted. */
+    private final Set<Inter> toDelete = new LinkedHashSet<Inter>();
+
+    /** Inters of installed configuration no longer in sig, to be restored. */
+    private final Set<Inter> toRestore = new LinkedHashSet<Inter>();
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
-     * Creates a new {@code StackBackup} object.
+     * Creates a new {@code StackBackup} object, with immediate sig updates.
      *
      * @param stack the underlying measure stack
      */
     public StackBackup (MeasureStack stack)
+    {
+        this(stack, false);
+    }
+
+    /**
+     * Creates a new {@code StackBackup} object.
+     *
+     * @param stack    the underlying measure stack
+     * @param deferred true to defer sig updates until commit
+     */
+    public StackBackup (MeasureStack stack,
+                        boolean deferred)
     {
         super(stack.getSystem().getSig());
         this.stack = stack;
+        this.deferred = deferred;
     }
 
     //~ Methods ------------------------------------------------------------------------------------
+    //--------//
+    // commit //
+    //--------//
+    /**
+     * Write into sig the updates of the installed configuration: restoration of its inters,
+     * deletion of inters left out, tuplet-chord relations and deletion of wrong tuplets.
+     */
+    public void commit ()
+    {
+        applyInters();
+
+        if (tupletsBuilder != null) {
+            tupletsBuilder.commit();
+        }
+
+        if (!wrongTuplets.isEmpty()) {
+            sig.deleteInters(wrongTuplets);
+            wrongTuplets.clear();
+        }
+    }
+
     //--------//
     // freeze //
     //--------//
@@ -98,6 +154,9 @@ public class StackBackup
     //---------//
     /**
      * Try to install the provided configuration.
+     * <p>
+     * In deferred mode, sig is not modified, deletions and restorations are recorded for
+     * {@link #commit()}.
      *
      * @param config   (input/output) the configuration to install
      * @param toRemove (output) rest chord inters to remove, if any
@@ -111,22 +170,39 @@ public class StackBackup
         // Clear the stack
         for (Inter inter : seeds) {
             stack.removeInter(inter);
-            inter.delete();
+        }
 
-            if (inter instanceof AbstractChordInter) {
-                for (Inter member : ((AbstractChordInter) inter).getNotes()) {
-                    member.delete();
+        // Forget any decision from a previous installation
+        toDelete.clear();
+        toRestore.clear();
+
+        // Seeds left out of configuration are to be deleted from sig
+        for (Inter inter : seeds) {
+            if (!inter.isDeleted() && !config.getInters().contains(inter)) {
+                toDelete.add(inter);
+
+                if (inter instanceof AbstractChordInter) {
+                    toDelete.addAll(((AbstractChordInter) inter).getNotes());
                 }
             }
         }
 
-        // Restore just the configuration content
-        attic.restore(sig, config.getInters());
-
+        // Configuration content no longer in sig is to be restored
         for (Inter inter : config.getInters()) {
+            toDelete.remove(inter);
+
+            if (inter.isDeleted()) {
+                toRestore.add(inter);
+            }
+
             stack.addInter(inter);
         }
 
+        if (!deferred) {
+            // Durations depend on sig relations, so configuration must be reflected in sig now
+            applyInters();
+        }
+
         // Reset all rhythm data within the stack
         stack.resetRhythm();
 
@@ -134,12 +210,14 @@ public class StackBackup
         // (this implies that chord notes are present with their potential relation to dot)
         countChordDots();
 
-        // Link tuplets
-        Set<TupletInter> toDelete = new TupletsBuilder(stack).linkTuplets();
+        // Link tuplets (sig is updated by commit)
+        tupletsBuilder = new TupletsBuilder(stack);
+
+        Set<TupletInter> toDelete = tupletsBuilder.linkTuplets();
 
         if (!toDelete.isEmpty()) {
             config.getInters().removeAll(toDelete);
-            sig.deleteInters(toDelete);
+            wrongTuplets.addAll(toDelete);
         }
 
         // Build slots & voices
@@ -160,14 +238,37 @@ public class StackBackup
         attic.restore(sig, seeds);
     }
 
+    //-------------//
+    // applyInters //
+    //-------------//
+    /**
+     * Write into sig the recorded restorations and deletions of inters.
+     */
+    private void applyInters ()
+    {
+        if (!toRestore.isEmpty()) {
+            attic.restore(sig, toRestore);
+            toRestore.clear();
+        }
+
+        for (Inter inter : toDelete) {
+            if (!inter.isDeleted()) {
+                inter.delete();
+            }
+        }
+
+        toDelete.clear();
+    }
+
     //----------------//
     // countChordDots //
     //----------------//
     private void countChordDots ()
     {
-        // Determine augmentation dots for each chord
+        // Determine augmentation dots for each chord (discarded dots are deleted at once,
+        // unless in deferred mode)
         for (AbstractChordInter chord : stack.getStandardChords()) {
-            chord.countDots();
+            chord.countDots(deferred ? toDelete : null);
         }
     }
 }
@@ -64,6 +64,12 @@ import java.util.Set;
  * and other symbol-based items (for example a tuplet sign may conflict with a dynamic sign).
  * We give priority (frozen inter) to rhythm data (detected as correct) over non-rhythm data (even
  * if some non-rhythm data may exhibit higher grades than correct rhythm data).
+ * <p>
+ * Processing is split in two phases: {@link #solve} finds the correct configuration and
+ * {@link #commit} applies the resulting sig updates.
+ * In deferred mode, {@link #solve} works on stack data only, without modifying the sig, so that
+ * the stacks of a system can be solved concurrently, and {@link #commit} must then be called
+ * sequentially.
  *
  * @author Hervé Bitteur
  */
@@ -88,6 +94,9 @@ public class StackTuner
     /** Current configuration in stack. */
     private StackConfig config;
 
+    /** Correct configuration found, if any. */
+    private StackConfig correctConfig;
+
     /** Too close RestChordInter's to remove from current config. */
     private final Set<RestChordInter> toRemove = new LinkedHashSet<RestChordInter>();
 
@@ -97,17 +106,35 @@ public class StackTuner
      *
      * @param stack    the measure stack to process
      * @param failFast true for raw processing (meant only to guess expected measure duration)
+     * @param deferred true to defer sig updates until commit (for concurrent solving)
      */
     public StackTuner (MeasureStack stack,
-                       boolean failFast)
+                       boolean failFast,
+                       boolean deferred)
     {
         this.stack = stack;
         this.failFast = failFast;
 
-        backup = new StackBackup(stack);
+        backup = new StackBackup(stack, deferred);
     }
 
     //~ Methods ------------------------------------------------------------------------------------
+    //--------//
+    // commit //
+    //--------//
+    /**
+     * Apply to sig the updates resulting from {@link #solve}: tuplet relations and,
+     * if a correct configuration was found, protection of its rhythm data against other symbols.
+     */
+    public void commit ()
+    {
+        backup.commit();
+
+        if (correctConfig != null) {
+            backup.freeze(correctConfig.getInters());
+        }
+    }
+
     //---------//
     // process //
     //---------//
@@ -119,6 +146,31 @@ public class StackTuner
      */
     public void process (List<Inter> systemGoodFrats,
                          Rational initialDuration)
+    {
+        solve(systemGoodFrats, initialDuration);
+        commit();
+    }
+
+    //----------------//
+    // resetFromSeeds //
+    //----------------//
+    public void resetFromSeeds ()
+    {
+        backup.resetFromSeeds();
+    }
+
+    //-------//
+    // solve //
+    //-------//
+    /**
+     * Find out a correct configuration of rhythm data, without modifying the sig if in
+     * deferred mode.
+     *
+     * @param systemGoodFrats The good FRAT inters at system level (non null)
+     * @param initialDuration The expected duration for this stack, or null
+     */
+    public void solve (List<Inter> systemGoodFrats,
+                       Rational initialDuration)
     {
         stack.setExpectedDuration(initialDuration);
         stack.clearFrats();
@@ -134,12 +186,9 @@ public class StackTuner
         backup.save(goods);
 
         try {
-            StackConfig correctConfig = checkConfig(orgConfig);
+            correctConfig = checkConfig(orgConfig);
 
-            if (correctConfig != null) {
-                // Protect correct rhythm data against other symbols
-                backup.freeze(correctConfig.getInters());
-            } else if (!failFast) {
+            if ((correctConfig == null) && !failFast) {
                 SystemInfo system = stack.getSystem();
                 logger.info("{}{} no correct rhythm", system.getLogPrefix(), stack);
             }
@@ -148,14 +197,6 @@ public class StackTuner
         }
     }
 
-    //----------------//
-    // resetFromSeeds //
-    //----------------//
-    public void resetFromSeeds ()
-    {
-        backup.resetFromSeeds();
-    }
-
     //-------------//
     // checkConfig //
     //-------------//
@@ -42,8 +42,11 @@ import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -51,6 +54,9 @@ import java.util.TreeSet;
 /**
  * Class {@code TupletsBuilder} tries to connect every tuplet symbol in a measure stack
  * to its embraced chords.
+ * <p>
+ * Links are first determined without modifying the sig (only the chords tuplet factors are set),
+ * and then written as sig relations by {@link #commit()}.
  *
  * @author Hervé Bitteur
  */
@@ -64,6 +70,9 @@ public class TupletsBuilder
     /** The dedicated measure stack. */
     private final MeasureStack stack;
 
+    /** Embraced chords, per linked tuplet. */
+    private final Map<TupletInter, SortedSet<AbstractChordInter>> links;
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new {@code TupletsBuilder} object.
@@ -73,9 +82,37 @@ public class TupletsBuilder
     public TupletsBuilder (MeasureStack stack)
     {
         this.stack = stack;
+
+        links = new LinkedHashMap<TupletInter, SortedSet<AbstractChordInter>>();
     }
 
     //~ Methods ------------------------------------------------------------------------------------
+    //--------//
+    // commit //
+    //--------//
+    /**
+     * Write into sig the tuplet-chord relations determined by {@link #linkTuplets()}.
+     */
+    public void commit ()
+    {
+        final SIGraph sig = stack.getSystem().getSig();
+
+        for (TupletInter tuplet : stack.getTuplets()) {
+            // Clear existing tuplet-chord relations, if any
+            if (!tuplet.isDeleted()) {
+                sig.removeAllEdges(sig.getRelations(tuplet, ChordTupletRelation.class));
+            }
+        }
+
+        for (Entry<TupletInter, SortedSet<AbstractChordInter>> entry : links.entrySet()) {
+            final TupletInter tuplet = entry.getKey();
+
+            for (AbstractChordInter chord : entry.getValue()) {
+                sig.addEdge(chord, tuplet, new ChordTupletRelation(tuplet.getShape()));
+            }
+        }
+    }
+
     //-------------//
     // linkTuplets //
     //-------------//
@@ -84,19 +121,18 @@ public class TupletsBuilder
      * <p>
      * Its neighborhood is limited in its part, vertically to staff above and staff below and
      * horizontally to its containing measure stack.
+     * <p>
+     * The sig is not modified, see {@link #commit()}.
      *
      * @return a set, perhaps empty, of wrong tuplet instances to delete
      */
     public Set<TupletInter> linkTuplets ()
     {
-        final SIGraph sig = stack.getSystem().getSig();
         final Set<TupletInter> toDelete = new LinkedHashSet<TupletInter>();
         final Set<TupletInter> tuplets = stack.getTuplets();
+        links.clear();
 
         for (TupletInter tuplet : tuplets) {
-            // Clear existing tuplet-chord relations, if any
-            sig.removeAllEdges(sig.getRelations(tuplet, ChordTupletRelation.class));
-
             // Try to link tuplet with proper chords found in measure stack
             // (just staff above and staff below)
             List<AbstractChordInter> candidates = getChordsAround(tuplet);
@@ -106,9 +142,9 @@ public class TupletsBuilder
 
             if (chords != null) {
                 logger.trace("{} connectable to {}", tuplet, chords);
+                links.put(tuplet, chords);
 
                 for (AbstractChordInter chord : chords) {
-                    sig.addEdge(chord, tuplet, new ChordTupletRelation(tuplet.getShape()));
                     chord.setTupletFactor(tuplet.getDurationFactor());
                 }
             } else {
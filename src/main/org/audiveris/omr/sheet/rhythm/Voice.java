@@ -22,6 +22,7 @@
 package org.audiveris.omr.sheet.rhythm;
 
 import org.audiveris.omr.math.GCD;
+import org.audiveris.omr.math.PackedRational;
 import org.audiveris.omr.math.Rational;
 import org.audiveris.omr.score.Mark;
 import org.audiveris.omr.score.TimeRational;
@@ -306,21 +307,23 @@ public class Voice
             return null;
         }
 
-        Rational voiceDur = Rational.ZERO;
+        long voiceDur = PackedRational.ZERO;
 
         for (Slot slot : measure.getStack().getSlots()) {
             SlotVoice info = getSlotInfo(slot);
 
             if ((info != null) && (info.status == Status.BEGIN)) {
-                Rational chordEnd = slot.getTimeOffset().plus(info.chord.getDuration());
+                long chordEnd = PackedRational.plus(
+                        PackedRational.of(slot.getTimeOffset()),
+                        PackedRational.of(info.chord.getDuration()));
 
-                if (chordEnd.compareTo(voiceDur) > 0) {
+                if (PackedRational.compare(chordEnd, voiceDur) > 0) {
                     voiceDur = chordEnd;
                 }
             }
         }
 
-        return voiceDur;
+        return PackedRational.toRational(voiceDur);
     }
 
     //---------------//
@@ -771,7 +774,7 @@ public class Voice
 
             sb.append("|W");
         } else {
-            Rational voiceDur = Rational.ZERO;
+            long voiceDur = PackedRational.ZERO;
 
             for (Slot slot : measure.getStack().getSlots()) {
                 SlotVoice info = getSlotInfo(slot);
@@ -781,9 +784,11 @@ public class Voice
                     if (info.status == Status.BEGIN) {
                         sb.append("|Ch#").append(String.format("%-4s", info.chord.getId()));
 
-                        Rational chordEnd = slot.getTimeOffset().plus(info.chord.getDuration());
+                        long chordEnd = PackedRational.plus(
+                                PackedRational.of(slot.getTimeOffset()),
+                                PackedRational.of(info.chord.getDuration()));
 
-                        if (chordEnd.compareTo(voiceDur) > 0) {
+                        if (PackedRational.compare(chordEnd, voiceDur) > 0) {
                             voiceDur = chordEnd;
                         }
                     } else { // CONTINUE
@@ -794,7 +799,7 @@ public class Voice
                 }
             }
 
-            sb.append("|").append(voiceDur);
+            sb.append("|").append(PackedRational.toString(voiceDur));
         }
 
         MeasureStack stack = getMeasure().getStack();
@@ -127,33 +127,37 @@ public class BinarizationBoard
                 Rectangle rect = sheetLocation.getData();
 
                 if (rect != null) {
-                    FilterDescriptor desc = sheet.getStub().getFilterParam().getTarget();
                     ByteProcessor source = sheet.getPicture().getSource(
                             Picture.SourceKey.INITIAL);
-                    PixelFilter filter = desc.getFilter(source);
 
-                    if (filter == null) {
-                        filter = new RandomFilter(
-                                source,
-                                AdaptiveFilter.getDefaultMeanCoeff(),
-                                AdaptiveFilter.getDefaultStdDevCoeff());
-                    }
-
-                    PixelFilter.Context context = filter.getContext(rect.x, rect.y);
+                    // No gray source for a bi-level input image
+                    if (source != null) {
+                        FilterDescriptor desc = sheet.getStub().getFilterParam().getTarget();
+                        PixelFilter filter = desc.getFilter(source);
 
-                    if (context != null) {
-                        if (context instanceof AdaptiveContext) {
-                            AdaptiveContext ctx = (AdaptiveContext) context;
-                            mean.setValue(ctx.mean);
-                            stdDev.setValue(ctx.standardDeviation);
-                        } else {
-                            mean.setText("");
-                            stdDev.setText("");
+                        if (filter == null) {
+                            filter = new RandomFilter(
+                                    source,
+                                    AdaptiveFilter.getDefaultMeanCoeff(),
+                                    AdaptiveFilter.getDefaultStdDevCoeff());
                         }
 
-                        threshold.setValue(context.threshold);
+                        PixelFilter.Context context = filter.getContext(rect.x, rect.y);
+
+                        if (context != null) {
+                            if (context instanceof AdaptiveContext) {
+                                AdaptiveContext ctx = (AdaptiveContext) context;
+                                mean.setValue(ctx.mean);
+                                stdDev.setValue(ctx.standardDeviation);
+                            } else {
+                                mean.setText("");
+                                stdDev.setText("");
+                            }
 
-                        return;
+                            threshold.setValue(context.threshold);
+
+                            return;
+                        }
                     }
                 }
 
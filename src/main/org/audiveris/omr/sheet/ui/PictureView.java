@@ -23,6 +23,7 @@ package org.audiveris.omr.sheet.ui;
 
 import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableTiles;
 import org.audiveris.omr.score.ui.PaintingParameters;
 import org.audiveris.omr.score.ui.SheetPopupMenu;
 import org.audiveris.omr.sheet.Picture;
@@ -115,6 +116,11 @@ public class PictureView
     private class MyView
             extends RubberPanel
     {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** Tiled rendering of binary table, if any. */
+        private RunTableTiles tiles;
+
         //~ Methods --------------------------------------------------------------------------------
 
         //-----------------//
@@ -132,6 +138,18 @@ public class PictureView
             }
         }
 
+        //---------//
+        // dispose //
+        //---------//
+        @Override
+        public void dispose ()
+        {
+            if (tiles != null) {
+                tiles.dispose();
+                tiles = null;
+            }
+        }
+
         //--------//
         // render //
         //--------//
@@ -202,7 +220,11 @@ public class PictureView
                 if (initial != null) {
                     g.drawRenderedImage(initial, null);
                 } else if (table != null) {
-                    table.render(g, new Point(0, 0));
+                    if (RunTableTiles.useTiles()) {
+                        getTiles(table).render(g);
+                    } else {
+                        table.render(g, new Point(0, 0));
+                    }
                 }
             }
 
@@ -216,5 +238,27 @@ public class PictureView
 
             g.setColor(oldColor);
         }
+
+        //----------//
+        // getTiles //
+        //----------//
+        /**
+         * Report the tiles cache for the provided table, created or re-created if needed.
+         *
+         * @param table the current binary table
+         * @return the related tiles cache
+         */
+        private RunTableTiles getTiles (RunTable table)
+        {
+            if ((tiles == null) || (tiles.getTable() != table)) {
+                if (tiles != null) {
+                    tiles.dispose();
+                }
+
+                tiles = new RunTableTiles(table, this);
+            }
+
+            return tiles;
+        }
     }
 }
@@ -293,6 +293,9 @@ public class SheetAssembly
         // Disconnect all keyboard bindings from PixelBoard's (workaround for a Swing memory leak)
         for (ViewTab tab : tabs.values()) {
             tab.disconnectKeyboard();
+
+            // Release view resources (such as run table listeners)
+            tab.scrollView.getView().dispose();
         }
 
         // Hide the error messages (for this sheet)
@@ -636,6 +639,7 @@ public class SheetAssembly
             RubberPanel rubberPanel = scrollView.getView();
             rubberPanel.unsetZoom(zoom);
             rubberPanel.unsetRubber(rubber);
+            rubberPanel.dispose();
 
             JScrollPane scrollPane = scrollView.getComponent();
             viewsPane.remove(scrollPane);
@@ -41,7 +41,6 @@ import org.audiveris.omr.sheet.rhythm.Slot;
 import org.audiveris.omr.sheet.rhythm.Voice;
 import org.audiveris.omr.sig.SIGraph;
 import org.audiveris.omr.sig.inter.AbstractChordInter;
-import org.audiveris.omr.sig.inter.AbstractNoteInter;
 import org.audiveris.omr.sig.inter.Inter;
 import org.audiveris.omr.sig.inter.StemInter;
 import org.audiveris.omr.sig.relation.AlterHeadRelation;
@@ -61,6 +60,7 @@ import org.audiveris.omr.ui.util.Panel;
 import org.audiveris.omr.ui.util.UIUtil;
 import org.audiveris.omr.util.HorizontalSide;
 import static org.audiveris.omr.util.HorizontalSide.LEFT;
+import static org.audiveris.omr.util.HorizontalSide.RIGHT;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +71,7 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.Stroke;
 import java.awt.font.FontRenderContext;
 import java.awt.font.TextLayout;
@@ -286,6 +287,9 @@ public class SheetResultPainter
     //---------------//
     /**
      * Highlight a slot with its related chords (stem / note-head)
+     * <p>
+     * Chords out of the clip are skipped, and the relations of each painted inter are walked only
+     * once, whatever the number of relation classes of interest.
      *
      * @param slot the slot to highlight
      */
@@ -294,47 +298,55 @@ public class SheetResultPainter
         sigPainter = getSigPainter();
 
         final SIGraph sig = slot.getMeasureStack().getSystem().getSig();
+        final int margin = sheet.getScale().toPixels(constants.stackMargin);
         final Color oldColor = g.getColor();
         g.setColor(Colors.SLOT_CURRENT);
 
         // Draw the slot components
         for (AbstractChordInter chord : slot.getChords()) {
-            // Paint chord stem & flags if any
+            if (clip != null) {
+                // Margin for accidentals on left side and dots on right side
+                final Rectangle box = chord.getBounds();
+
+                if (box != null) {
+                    box.grow(margin, 0);
+
+                    if (!box.intersects(clip)) {
+                        continue;
+                    }
+                }
+            }
+
+            // Paint chord stem & flags / beams if any
             StemInter stem = chord.getStem();
 
             if (stem != null) {
                 stem.accept(sigPainter);
 
-                // Flags?
-                for (Relation fRel : sig.getRelations(stem, FlagStemRelation.class)) {
-                    sig.getOppositeInter(stem, fRel).accept(sigPainter);
-                }
-
-                // Beams?
-                for (Relation bRel : sig.getRelations(stem, BeamStemRelation.class)) {
-                    sig.getOppositeInter(stem, bRel).accept(sigPainter);
+                for (Relation rel : sig.edgesOf(stem)) {
+                    if (rel instanceof FlagStemRelation || rel instanceof BeamStemRelation) {
+                        sig.getOppositeInter(stem, rel).accept(sigPainter);
+                    }
                 }
             }
 
             sigPainter.visit(chord);
 
-            for (Inter inter : chord.getNotes()) {
-                AbstractNoteInter note = (AbstractNoteInter) inter;
+            for (Inter note : chord.getNotes()) {
                 note.accept(sigPainter);
 
-                // Paint note related stuff: alteration if any
-                for (Relation accidRel : sig.getRelations(note, AlterHeadRelation.class)) {
-                    sig.getOppositeInter(note, accidRel).accept(sigPainter);
-                }
-
-                // Paint note related stuff: augmentation dot(s) if any
-                for (Relation augRel : sig.getRelations(note, AugmentationRelation.class)) {
-                    Inter dot = sig.getOppositeInter(note, augRel);
-                    dot.accept(sigPainter);
-
-                    // Any second dot?
-                    for (Relation ddRel : sig.getRelations(dot, DoubleDotRelation.class)) {
-                        sig.getOppositeInter(dot, ddRel).accept(sigPainter);
+                // Paint note related stuff: alteration and augmentation dot(s) if any
+                for (Relation rel : sig.edgesOf(note)) {
+                    if (rel instanceof AlterHeadRelation) {
+                        sig.getOppositeInter(note, rel).accept(sigPainter);
+                    } else if (rel instanceof AugmentationRelation) {
+                        Inter dot = sig.getOppositeInter(note, rel);
+                        dot.accept(sigPainter);
+
+                        // Any second dot?
+                        for (Relation ddRel : sig.getRelations(dot, DoubleDotRelation.class)) {
+                            sig.getOppositeInter(dot, ddRel).accept(sigPainter);
+                        }
                     }
                 }
             }
@@ -446,9 +458,11 @@ public class SheetResultPainter
 
         g.setColor(defaultColor);
 
-        // Additional stuff
+        // Additional stuff, for visible stacks only
         for (MeasureStack stack : system.getMeasureStacks()) {
-            processStack(stack);
+            if (isVisible(stack)) {
+                processStack(stack);
+            }
         }
     }
 
@@ -473,6 +487,35 @@ public class SheetResultPainter
         }
     }
 
+    //-----------//
+    // isVisible //
+    //-----------//
+    /**
+     * Check whether the provided stack (with its annotations) may intersect the clip.
+     *
+     * @param stack the stack to check
+     * @return false if stack is known to be out of clip
+     */
+    private boolean isVisible (MeasureStack stack)
+    {
+        if (clip == null) {
+            return true;
+        }
+
+        final Staff staff = stack.getSystem().getFirstStaff();
+        final Measure measure = stack.getMeasureAt(staff);
+
+        if (measure == null) {
+            return true;
+        }
+
+        final int margin = sheet.getScale().toPixels(constants.stackMargin);
+        final int left = measure.getAbscissa(LEFT, staff) - margin;
+        final int right = measure.getAbscissa(RIGHT, staff) + margin;
+
+        return (clip.x <= right) && ((clip.x + clip.width) >= left);
+    }
+
     //--------------//
     // processStack //
     //--------------//
@@ -539,6 +582,10 @@ public class SheetResultPainter
         private final Scale.Fraction keySigItemDx = new Scale.Fraction(
                 1.1,
                 "dx between items in a key signature");
+
+        private final Scale.Fraction stackMargin = new Scale.Fraction(
+                4.0,
+                "Horizontal margin around a stack for its annotations");
     }
 
     //------------------//
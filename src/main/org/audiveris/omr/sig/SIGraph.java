@@ -26,6 +26,7 @@ import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.math.GeoOrder;
 import static org.audiveris.omr.math.GeoOrder.*;
+import org.audiveris.omr.sheet.SheetStub;
 import org.audiveris.omr.sheet.Staff;
 import org.audiveris.omr.sheet.StaffManager;
 import org.audiveris.omr.sheet.SystemInfo;
@@ -63,6 +64,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
@@ -90,6 +92,9 @@ public class SIGraph
     /** Content for differed populating after unmarshalling. */
     private SigValue sigValue;
 
+    /** Listeners on sig modifications, if any. */
+    private final List<SigListener> sigListeners = new CopyOnWriteArrayList<SigListener>();
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new SIGraph object at system level.
@@ -125,6 +130,45 @@ public class SIGraph
     }
 
     //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // addEdge //
+    //---------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to notify sig listeners.
+     */
+    @Override
+    public boolean addEdge (Inter source,
+                            Inter target,
+                            Relation relation)
+    {
+        final boolean res = super.addEdge(source, target, relation);
+
+        if (res) {
+            discardFragment();
+
+            for (SigListener listener : sigListeners) {
+                listener.relationChanged(source, target);
+            }
+        }
+
+        return res;
+    }
+
+    //----------------//
+    // addSigListener //
+    //----------------//
+    /**
+     * Register a listener on sig modifications.
+     *
+     * @param listener the listener to add
+     */
+    public void addSigListener (SigListener listener)
+    {
+        sigListeners.add(listener);
+    }
+
     //-----------//
     // addVertex //
     //-----------//
@@ -152,6 +196,14 @@ public class SIGraph
             system.getSheet().getInterIndex().insert(inter);
         }
 
+        if (res) {
+            discardFragment();
+
+            for (SigListener listener : sigListeners) {
+                listener.interAdded(inter);
+            }
+        }
+
         return res;
     }
 
@@ -352,6 +404,21 @@ public class SIGraph
         return exclusions;
     }
 
+    //-------------------//
+    // fireInterModified //
+    //-------------------//
+    /**
+     * Notify the registered listeners that the geometry of an inter has been modified.
+     *
+     * @param inter the modified inter
+     */
+    public void fireInterModified (Inter inter)
+    {
+        for (SigListener listener : sigListeners) {
+            listener.interModified(inter);
+        }
+    }
+
     //--------------//
     // getExclusion //
     //--------------//
@@ -615,6 +682,19 @@ public class SIGraph
         return relations;
     }
 
+    //-----------------//
+    // getSigListeners //
+    //-----------------//
+    /**
+     * Report the listeners currently registered on this sig.
+     *
+     * @return an unmodifiable view on sig listeners
+     */
+    public List<SigListener> getSigListeners ()
+    {
+        return Collections.unmodifiableList(sigListeners);
+    }
+
     //-------------//
     // getSupports //
     //-------------//
@@ -1204,6 +1284,45 @@ public class SIGraph
         return reduceExclusions(exclusions());
     }
 
+    //------------//
+    // removeEdge //
+    //------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to notify sig listeners.
+     */
+    @Override
+    public boolean removeEdge (Relation relation)
+    {
+        final Inter source = containsEdge(relation) ? getEdgeSource(relation) : null;
+        final Inter target = (source != null) ? getEdgeTarget(relation) : null;
+        final boolean res = super.removeEdge(relation);
+
+        if (res && (source != null)) {
+            discardFragment();
+
+            for (SigListener listener : sigListeners) {
+                listener.relationChanged(source, target);
+            }
+        }
+
+        return res;
+    }
+
+    //-------------------//
+    // removeSigListener //
+    //-------------------//
+    /**
+     * Unregister a listener on sig modifications.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeSigListener (SigListener listener)
+    {
+        sigListeners.remove(listener);
+    }
+
     //--------------//
     // removeVertex //
     //--------------//
@@ -1217,6 +1336,11 @@ public class SIGraph
 
         // Remove from inter index
         system.getSheet().getInterIndex().remove(inter);
+        discardFragment();
+
+        for (SigListener listener : sigListeners) {
+            listener.interRemoved(inter);
+        }
 
         return super.removeVertex(inter);
     }
@@ -1329,6 +1453,24 @@ public class SIGraph
         return bestCg;
     }
 
+    //-----------------//
+    // discardFragment //
+    //-----------------//
+    /**
+     * Discard the export fragment cached for the containing page, since sig content is
+     * being modified.
+     */
+    private void discardFragment ()
+    {
+        if (system != null) {
+            final SheetStub stub = system.getSheet().getStub();
+
+            if (stub.getPageFragment() != null) {
+                stub.setPageFragment(null);
+            }
+        }
+    }
+
     //----------------//
     // involvedInters //
     //----------------//
@@ -1400,6 +1542,49 @@ public class SIGraph
                 "Upper limit on number of supports used for contextual grade");
     }
 
+    //-------------//
+    // SigListener //
+    //-------------//
+    /**
+     * Interface for entities interested in sig modifications, such as display caches.
+     * <p>
+     * Notifications are sent synchronously, by the thread which modifies the sig.
+     */
+    public static interface SigListener
+    {
+        //~ Methods --------------------------------------------------------------------------------
+
+        /**
+         * An inter has been added to the sig.
+         *
+         * @param inter the added inter
+         */
+        void interAdded (Inter inter);
+
+        /**
+         * The geometry of an inter has been modified.
+         *
+         * @param inter the modified inter
+         */
+        void interModified (Inter inter);
+
+        /**
+         * An inter is being removed from the sig.
+         *
+         * @param inter the removed inter
+         */
+        void interRemoved (Inter inter);
+
+        /**
+         * A relation has been added or removed between the provided inters.
+         *
+         * @param source relation source
+         * @param target relation target
+         */
+        void relationChanged (Inter source,
+                              Inter target);
+    }
+
     //----------------//
     // ClassPredicate //
     //----------------//
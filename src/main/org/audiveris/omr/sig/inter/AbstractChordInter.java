@@ -294,6 +294,21 @@ public abstract class AbstractChordInter
      * TODO: What if, within the chord heads, some have a different count of dots?
      */
     public void countDots ()
+    {
+        countDots(null);
+    }
+
+    //-----------//
+    // countDots //
+    //-----------//
+    /**
+     * Count the number of augmentation dots for this chord, collecting the discarded
+     * dots rather than deleting them.
+     *
+     * @param discardedDots (output) where discarded dots are to be collected, or null for their
+     *                      immediate deletion from sig
+     */
+    public void countDots (Collection<Inter> discardedDots)
     {
         if (notes.isEmpty()) {
             return;
@@ -323,7 +338,12 @@ public abstract class AbstractChordInter
                         if (count != 0) {
                             for (Relation dn : sig.getRelations(note, AugmentationRelation.class)) {
                                 Inter dot = sig.getOppositeInter(note, dn);
-                                dot.delete();
+
+                                if (discardedDots != null) {
+                                    discardedDots.add(dot);
+                                } else {
+                                    dot.delete();
+                                }
                             }
                         }
                     }
@@ -602,9 +622,9 @@ public abstract class AbstractChordInter
             if (!noteShape.isWholeRest()) {
                 // Apply dotaugmentation
                 if (dotsNumber == 1) {
-                    return sansDot.times(new Rational(3, 2));
+                    return sansDot.times(Rational.valueOf(3, 2));
                 } else if (dotsNumber == 2) {
-                    return sansDot.times(new Rational(7, 4));
+                    return sansDot.times(Rational.valueOf(7, 4));
                 }
             }
         }
@@ -1279,5 +1299,7 @@ public abstract class AbstractChordInter
             gr /= notes.size();
             setGrade(gr);
         }
+
+        geometryModified();
     }
 }
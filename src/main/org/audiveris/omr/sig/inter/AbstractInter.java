@@ -813,6 +813,7 @@ public abstract class AbstractInter
     public void setBounds (Rectangle bounds)
     {
         this.bounds = bounds;
+        geometryModified();
     }
 
     //--------------------//
@@ -840,6 +841,7 @@ public abstract class AbstractInter
     public void setGlyph (Glyph glyph)
     {
         this.glyph = glyph;
+        geometryModified();
     }
 
     //----------//
@@ -957,6 +959,20 @@ public abstract class AbstractInter
         }
     }
 
+    //------------------//
+    // geometryModified //
+    //------------------//
+    /**
+     * To be called when the geometry of this inter has been modified, so that sig
+     * listeners (such as display caches) can update.
+     */
+    protected void geometryModified ()
+    {
+        if (sig != null) {
+            sig.fireInterModified(this);
+        }
+    }
+
     //-----------//
     // internals //
     //-----------//
@@ -54,7 +54,7 @@ public abstract class AbstractNoteInter
             AbstractNoteInter.class);
 
     /** The quarter duration value. */
-    public static final Rational QUARTER_DURATION = new Rational(1, 4);
+    public static final Rational QUARTER_DURATION = Rational.valueOf(1, 4);
 
     /** All shape-based intrinsic durations. */
     private static final Map<Shape, Rational> shapeDurations = buildShapeDurations();
@@ -306,31 +306,31 @@ public abstract class AbstractNoteInter
     {
         EnumMap<Shape, Rational> map = new EnumMap<Shape, Rational>(Shape.class);
 
-        map.put(Shape.LONG_REST, new Rational(4, 1)); // 4 measures
+        map.put(Shape.LONG_REST, Rational.valueOf(4, 1)); // 4 measures
 
-        map.put(Shape.BREVE_REST, new Rational(2, 1)); // 2 measures
-        map.put(Shape.BREVE, new Rational(2, 1));
+        map.put(Shape.BREVE_REST, Rational.valueOf(2, 1)); // 2 measures
+        map.put(Shape.BREVE, Rational.valueOf(2, 1));
 
         map.put(Shape.WHOLE_REST, Rational.ONE); // 1 measure
         map.put(Shape.WHOLE_NOTE, Rational.ONE);
 
-        map.put(Shape.HALF_REST, new Rational(1, 2));
-        map.put(Shape.NOTEHEAD_VOID, new Rational(1, 2));
-        map.put(Shape.NOTEHEAD_VOID_SMALL, new Rational(1, 2));
+        map.put(Shape.HALF_REST, Rational.valueOf(1, 2));
+        map.put(Shape.NOTEHEAD_VOID, Rational.valueOf(1, 2));
+        map.put(Shape.NOTEHEAD_VOID_SMALL, Rational.valueOf(1, 2));
 
         map.put(Shape.QUARTER_REST, QUARTER_DURATION);
         map.put(Shape.NOTEHEAD_BLACK, QUARTER_DURATION);
         map.put(Shape.NOTEHEAD_BLACK_SMALL, QUARTER_DURATION);
 
-        map.put(Shape.EIGHTH_REST, new Rational(1, 8));
+        map.put(Shape.EIGHTH_REST, Rational.valueOf(1, 8));
 
-        map.put(Shape.ONE_16TH_REST, new Rational(1, 16));
+        map.put(Shape.ONE_16TH_REST, Rational.valueOf(1, 16));
 
-        map.put(Shape.ONE_32ND_REST, new Rational(1, 32));
+        map.put(Shape.ONE_32ND_REST, Rational.valueOf(1, 32));
 
-        map.put(Shape.ONE_64TH_REST, new Rational(1, 64));
+        map.put(Shape.ONE_64TH_REST, Rational.valueOf(1, 64));
 
-        map.put(Shape.ONE_128TH_REST, new Rational(1, 128));
+        map.put(Shape.ONE_128TH_REST, Rational.valueOf(1, 128));
 
         return map;
     }
@@ -165,6 +165,7 @@ public class KeyInter
         alters.add(i, alter);
         alter.setEnsemble(this);
         bounds = null;
+        geometryModified();
     }
 
     //-------------//
@@ -471,6 +472,7 @@ public class KeyInter
         // Reset cached data
         bounds = null;
         ctxGrade = null;
+        geometryModified();
     }
 
     //-----------//
@@ -0,0 +1,298 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                I n t e r D i s p l a y L i s t                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sig.ui;
+
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.sig.SIGraph;
+import org.audiveris.omr.sig.inter.Inter;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Class {@code InterDisplayList} is the display list of a system SIG, that is the ordered
+ * sequence of its inters with their painting bounds.
+ * <p>
+ * It is built once, when the SIG is painted for the first time, and then kept up to date
+ * incrementally through SIG notifications: only the inters added, removed, modified in geometry
+ * or involved in a relation modification get their bounds recomputed.
+ * <p>
+ * Each modification also extends a "damage" rectangle, which the display can use to repaint just
+ * the modified region rather than the whole sheet.
+ *
+ * @author Hervé Bitteur
+ */
+public class InterDisplayList
+        implements SIGraph.SigListener
+{
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    /** Margin for bracket serifs, which are not included in bracket bounds. */
+    private final int bracketGrowth;
+
+    /** Painting bounds per inter, in sig order. A null value means bounds are to be computed. */
+    private final Map<Inter, Rectangle> boxes = new LinkedHashMap<Inter, Rectangle>();
+
+    /** Snapshot of inters, or null if stale. */
+    private Inter[] inters;
+
+    /** Snapshot of bounds, parallel to inters. */
+    private Rectangle[] rects;
+
+    /** Region modified since last damage retrieval, if any. */
+    private Rectangle damage;
+
+    /** Modified inters, whose new bounds are still to be added to damage. */
+    private final Set<Inter> modified = new HashSet<Inter>();
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code InterDisplayList} object.
+     *
+     * @param sig the sig to display
+     */
+    private InterDisplayList (SIGraph sig)
+    {
+        bracketGrowth = 2 * sig.getSystem().getSheet().getInterline();
+
+        for (Inter inter : new ArrayList<Inter>(sig.vertexSet())) {
+            boxes.put(inter, null);
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------------//
+    // getInstance //
+    //-------------//
+    /**
+     * Report the display list of the provided sig, created and registered if needed.
+     *
+     * @param sig the provided sig
+     * @return the sig display list
+     */
+    public static InterDisplayList getInstance (SIGraph sig)
+    {
+        synchronized (sig) {
+            for (SIGraph.SigListener listener : sig.getSigListeners()) {
+                if (listener instanceof InterDisplayList) {
+                    return (InterDisplayList) listener;
+                }
+            }
+
+            final InterDisplayList list = new InterDisplayList(sig);
+            sig.addSigListener(list);
+
+            return list;
+        }
+    }
+
+    //-----------//
+    // getInters //
+    //-----------//
+    /**
+     * Report the non-deleted inters, in sig order, whose bounds intersect the provided clip.
+     *
+     * @param clip the clip rectangle, or null for no restriction
+     * @return the inters to paint
+     */
+    public synchronized List<Inter> getInters (Rectangle clip)
+    {
+        if (inters == null) {
+            inters = boxes.keySet().toArray(new Inter[boxes.size()]);
+            rects = boxes.values().toArray(new Rectangle[boxes.size()]);
+        }
+
+        final List<Inter> found = new ArrayList<Inter>();
+
+        for (int i = 0; i < inters.length; i++) {
+            final Inter inter = inters[i];
+
+            if (inter.isDeleted()) {
+                continue;
+            }
+
+            Rectangle rect = rects[i];
+
+            if (rect == null) {
+                rect = rects[i] = boundsOf(inter);
+
+                if (rect != null) {
+                    boxes.put(inter, rect);
+                }
+            }
+
+            if ((rect != null) && ((clip == null) || clip.intersects(rect))) {
+                found.add(inter);
+            }
+        }
+
+        return found;
+    }
+
+    //------------//
+    // interAdded //
+    //------------//
+    @Override
+    public synchronized void interAdded (Inter inter)
+    {
+        boxes.put(inter, null);
+        inters = null;
+        addDamage(boundsOf(inter));
+    }
+
+    //---------------//
+    // interModified //
+    //---------------//
+    @Override
+    public synchronized void interModified (Inter inter)
+    {
+        refresh(inter);
+    }
+
+    //--------------//
+    // interRemoved //
+    //--------------//
+    @Override
+    public synchronized void interRemoved (Inter inter)
+    {
+        modified.remove(inter);
+
+        final Rectangle old = boxes.remove(inter);
+        inters = null;
+        addDamage((old != null) ? old : boundsOf(inter));
+    }
+
+    //------------//
+    // invalidate //
+    //------------//
+    /**
+     * Force the recomputing of all inter bounds, and declare the whole list as damaged.
+     * This is meant for massive modifications, such as the completion of a processing step.
+     */
+    public synchronized void invalidate ()
+    {
+        for (Entry<Inter, Rectangle> entry : boxes.entrySet()) {
+            addDamage(entry.getValue());
+            entry.setValue(null);
+        }
+
+        inters = null;
+    }
+
+    //-----------------//
+    // relationChanged //
+    //-----------------//
+    @Override
+    public synchronized void relationChanged (Inter source,
+                                              Inter target)
+    {
+        refresh(source);
+        refresh(target);
+    }
+
+    //------------//
+    // takeDamage //
+    //------------//
+    /**
+     * Report the region modified since the previous call, and reset it.
+     *
+     * @return the damaged region, or null if none
+     */
+    public synchronized Rectangle takeDamage ()
+    {
+        // New bounds of modified inters, now that modifications are over
+        for (Inter inter : modified) {
+            if (boxes.containsKey(inter) && !inter.isDeleted()) {
+                addDamage(boundsOf(inter));
+            }
+        }
+
+        modified.clear();
+
+        final Rectangle region = damage;
+        damage = null;
+
+        return region;
+    }
+
+    //-----------//
+    // addDamage //
+    //-----------//
+    private void addDamage (Rectangle rect)
+    {
+        if (rect != null) {
+            if (damage == null) {
+                damage = new Rectangle(rect);
+            } else {
+                damage.add(rect);
+            }
+        }
+    }
+
+    //----------//
+    // boundsOf //
+    //----------//
+    /**
+     * Compute the painting bounds of an inter.
+     *
+     * @param inter the inter to paint
+     * @return its painting bounds, perhaps null
+     */
+    private Rectangle boundsOf (Inter inter)
+    {
+        final Rectangle bounds = inter.getBounds();
+
+        // Make sure bracket serifs are fully painted
+        // (despite the fact that bracket serif is not included in their bounds)
+        if ((bounds != null) && (inter.getShape() == Shape.BRACKET)) {
+            bounds.grow(bracketGrowth, bracketGrowth);
+        }
+
+        return bounds;
+    }
+
+    //---------//
+    // refresh //
+    //---------//
+    /**
+     * Force bounds recomputing for an inter whose painting may have changed.
+     * <p>
+     * Old bounds are damaged immediately, new bounds are damaged only when damage is retrieved,
+     * since the inter may still be under modification.
+     *
+     * @param inter the modified inter
+     */
+    private void refresh (Inter inter)
+    {
+        if (boxes.containsKey(inter)) {
+            addDamage(boxes.put(inter, null));
+            modified.add(inter);
+            inters = null;
+        }
+    }
+}
@@ -80,7 +80,6 @@ import java.awt.Stroke;
 import java.awt.font.FontRenderContext;
 import java.awt.font.TextLayout;
 import java.awt.geom.CubicCurve2D;
-import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -156,27 +155,9 @@ public class SigPainter
     //---------//
     public void process (SIGraph sig)
     {
-        final int bracketGrowth = 2 * sig.getSystem().getSheet().getInterline();
-
-        // Use a COPY of vertices, to reduce risks of concurrent modifications (but not all...)
-        Set<Inter> copy = new LinkedHashSet<Inter>(sig.vertexSet());
-
-        for (Inter inter : copy) {
-            if (!inter.isDeleted()) {
-                Rectangle bounds = inter.getBounds();
-
-                if (bounds != null) {
-                    // Dirty hack to make sure bracket serifs are fully painted
-                    // (despite the fact that bracket serif is not included in their bounds)
-                    if (inter.getShape() == Shape.BRACKET) {
-                        bounds.grow(bracketGrowth, bracketGrowth);
-                    }
-
-                    if ((clip == null) || clip.intersects(bounds)) {
-                        inter.accept(this);
-                    }
-                }
-            }
+        // Use the sig display list, which already knows the painting bounds of every inter
+        for (Inter inter : InterDisplayList.getInstance(sig).getInters(clip)) {
+            inter.accept(this);
         }
     }
 
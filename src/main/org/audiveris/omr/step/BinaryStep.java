@@ -83,10 +83,17 @@ public class BinaryStep
     public void doit (Sheet sheet)
             throws StepException
     {
+        Picture picture = sheet.getPicture();
+
+        if ((picture.getInitialImage() == null) && picture.hasTable(Picture.TableKey.BINARY)) {
+            logger.debug("BINARY table already built from bi-level image");
+
+            return;
+        }
+
         StopWatch watch = new StopWatch("Binary step for " + sheet.getId());
         watch.start("Getting initial source");
 
-        Picture picture = sheet.getPicture();
         ByteProcessor initial = picture.getSource(SourceKey.INITIAL);
 
         //
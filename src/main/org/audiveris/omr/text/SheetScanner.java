@@ -31,6 +31,7 @@ import org.audiveris.omr.glyph.GlyphFactory;
 import org.audiveris.omr.image.ImageUtil;
 import org.audiveris.omr.image.ShapeDescriptor;
 import org.audiveris.omr.image.Template;
+import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.run.Orientation;
 import static org.audiveris.omr.run.Orientation.VERTICAL;
 import org.audiveris.omr.run.RunTable;
@@ -49,8 +50,10 @@ import org.audiveris.omr.sig.SIGraph;
 import org.audiveris.omr.sig.inter.HeadInter;
 import org.audiveris.omr.sig.inter.Inter;
 import org.audiveris.omr.sig.inter.LedgerInter;
+import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.ui.BoardsPane;
 import org.audiveris.omr.util.LiveParam;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.StopWatch;
 
 import org.slf4j.Logger;
@@ -64,13 +67,25 @@ import java.awt.Stroke;
 import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class {@code SheetScanner} runs OCR on the whole sheet, where good inters and
  * staves core areas have been blanked.
  * <p>
  * The raw OCR output will later be processed at system level by dedicated TextBuilder instances.
+ * <p>
+ * By default, a single OCR is run in MULTI_BLOCK mode on the whole sheet image.
+ * If 'useTiles' constant is set, the sheet image is rather cut into horizontal tiles, one per
+ * system and one per vertical gap between systems, and these tiles are OCR'ed in parallel.
+ * Each tile is enlarged vertically by some overlap, so that a text line located across a tile
+ * border can be fully seen by at least one tile.
+ * A text line is then kept only by the tile whose core band contains the line center,
+ * thus avoiding duplications.
  *
  * @author Hervé Bitteur
  */
@@ -136,6 +151,13 @@ public class SheetScanner
             logger.debug("scanSheet lan:{} on {}", language, sheet);
             textParam.setActual(language);
 
+            if (constants.useTiles.isSet() && (sheet.getSystems().size() > 1)) {
+                // Perform OCR on sheet tiles
+                watch.start("OCR recognize tiles");
+
+                return scanTiles(image, language);
+            }
+
             // Perform OCR on whole image
             watch.start("OCR recognize");
 
@@ -192,6 +214,150 @@ public class SheetScanner
         return img;
     }
 
+    //--------------//
+    // getTileBands //
+    //--------------//
+    /**
+     * Compute the sequence of tile core bands, one per system and one per vertical gap
+     * between (or around) systems.
+     * <p>
+     * Bands are contiguous and cover the whole sheet height.
+     *
+     * @param height sheet image height
+     * @return the sequence of bands, each one being an array [yMin, yMax[
+     */
+    private List<int[]> getTileBands (int height)
+    {
+        final List<int[]> bands = new ArrayList<int[]>();
+        int y = 0;
+
+        for (SystemInfo system : sheet.getSystems()) {
+            final Rectangle box = system.getBounds();
+
+            if (box == null) {
+                continue;
+            }
+
+            // Gap before system?
+            final int top = Math.min(Math.max(y, box.y), height);
+
+            if (top > y) {
+                bands.add(new int[]{y, top});
+                y = top;
+            }
+
+            // System itself
+            final int bottom = Math.min(Math.max(y, box.y + box.height), height);
+
+            if (bottom > y) {
+                bands.add(new int[]{y, bottom});
+                y = bottom;
+            }
+        }
+
+        // Gap after last system?
+        if (height > y) {
+            bands.add(new int[]{y, height});
+        }
+
+        return bands;
+    }
+
+    //-----------//
+    // scanTiles //
+    //-----------//
+    /**
+     * Run OCR in parallel on each sheet tile, and gather the resulting lines.
+     * <p>
+     * Each tile is processed by its own OCR order (and thus its own engine instance).
+     * Lines coordinates are translated back to sheet space, and a line is kept only if its
+     * center lies within the core band of the tile that recognized it.
+     *
+     * @param image    the whole clean sheet image
+     * @param language the language specification
+     * @return the list of OCR'ed lines found
+     */
+    private List<TextLine> scanTiles (final BufferedImage image,
+                                      final String language)
+    {
+        final int interline = sheet.getScale().getInterline();
+        final int overlap = sheet.getScale().toPixels(constants.tileOverlap);
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final List<int[]> bands = getTileBands(height);
+        final List<Callable<List<TextLine>>> tasks = new ArrayList<Callable<List<TextLine>>>();
+
+        for (int i = 0; i < bands.size(); i++) {
+            final int[] band = bands.get(i);
+            final int yMin = Math.max(0, band[0] - overlap);
+            final int yMax = Math.min(height, band[1] + overlap);
+            final String label = sheet.getId() + "-tile" + (i + 1);
+
+            tasks.add(
+                    new Callable<List<TextLine>>()
+            {
+                @Override
+                public List<TextLine> call ()
+                        throws Exception
+                {
+                    try {
+                        LogUtil.start(sheet.getStub());
+
+                        final BufferedImage tile = image.getSubimage(0, yMin, width, yMax - yMin);
+                        final List<TextLine> lines = TextBuilder.getOcr().recognize(
+                                interline,
+                                tile,
+                                new Point(0, yMin),
+                                language,
+                                OCR.LayoutMode.MULTI_BLOCK,
+                                label);
+
+                        if (lines == null) {
+                            return Collections.emptyList();
+                        }
+
+                        // Keep only the lines centered within tile core band
+                        final List<TextLine> kept = new ArrayList<TextLine>();
+
+                        for (TextLine line : lines) {
+                            final Rectangle box = line.getBounds();
+                            final int yCenter = box.y + (box.height / 2);
+
+                            if ((yCenter >= band[0]) && (yCenter < band[1])) {
+                                kept.add(line);
+                            }
+                        }
+
+                        logger.debug("{} lines:{} kept:{}", label, lines.size(), kept.size());
+
+                        return kept;
+                    } finally {
+                        LogUtil.stopStub();
+                    }
+                }
+            });
+        }
+
+        try {
+            final List<TextLine> allLines = new ArrayList<TextLine>();
+
+            for (Future<List<TextLine>> future : OmrExecutors.getLowExecutor().invokeAll(tasks)) {
+                allLines.addAll(future.get());
+            }
+
+            return allLines;
+        } catch (InterruptedException ex) {
+            logger.warn("scanTiles got interrupted for {}", sheet);
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof OCR.UnavailableOcrException) {
+                throw (OCR.UnavailableOcrException) ex.getCause();
+            }
+
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //-----------//
     // Constants //
@@ -213,6 +379,14 @@ public class SheetScanner
                 false,
                 "Should we store texts buffer on disk?");
 
+        private final Constant.Boolean useTiles = new Constant.Boolean(
+                false,
+                "Should we OCR sheet tiles (systems and gaps) in parallel?");
+
+        private final Scale.Fraction tileOverlap = new Scale.Fraction(
+                3.0,
+                "Vertical overlap between adjacent OCR tiles");
+
         private final Scale.Fraction staffHorizontalMargin = new Scale.Fraction(
                 0.25,
                 "Horizontal margin around staff core area");
@@ -33,7 +33,7 @@ import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -86,8 +86,24 @@ public class MusicFont
      */
     public static final int CODE_OFFSET = 0xf000;
 
-    /** Cache of font according to desired interline value */
-    private static final Map<Integer, MusicFont> sizeMap = new HashMap<Integer, MusicFont>();
+    /** Maximum number of fonts kept in cache. */
+    private static final int MAX_CACHED_FONTS = 64;
+
+    /**
+     * Cache of font according to desired interline value.
+     * Access is synchronized on the map itself, and least recently used fonts are evicted.
+     */
+    private static final Map<Integer, MusicFont> sizeMap = new LinkedHashMap<Integer, MusicFont>(
+            16,
+            0.75f,
+            true)
+    {
+        @Override
+        protected boolean removeEldestEntry (Map.Entry<Integer, MusicFont> eldest)
+        {
+            return size() > MAX_CACHED_FONTS;
+        }
+    };
 
     /** The music font used for default interline and no zoom */
     public static final MusicFont baseMusicFont = getFont(DEFAULT_INTERLINE);
@@ -195,14 +211,16 @@ public class MusicFont
     {
         interline += GLOBAL_INTERLINE_EXTENT;
 
-        MusicFont font = sizeMap.get(interline);
+        synchronized (sizeMap) {
+            MusicFont font = sizeMap.get(interline);
 
-        if (font == null) {
-            font = new MusicFont(4 * interline, interline);
-            sizeMap.put(interline, font);
-        }
+            if (font == null) {
+                font = new MusicFont(4 * interline, interline);
+                sizeMap.put(interline, font);
+            }
 
-        return font;
+            return font;
+        }
     }
 
     //--------//
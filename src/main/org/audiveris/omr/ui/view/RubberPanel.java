@@ -178,6 +178,17 @@ public class RubberPanel
         // Void by default
     }
 
+    //---------//
+    // dispose //
+    //---------//
+    /**
+     * Release the resources held by this view, since the view is being closed.
+     */
+    public void dispose ()
+    {
+        // Void by default
+    }
+
     //--------------//
     // getModelSize //
     //--------------//
@@ -0,0 +1,1410 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                       B i n a r y X m l                                        //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Class {@code BinaryXml} provides a compact binary encoding of XML content, to be used
+ * through StAX {@link XMLStreamWriter} and {@link XMLStreamReader} interfaces, for example by a
+ * JAXB marshaller or unmarshaller.
+ * <p>
+ * Data is a sequence of tokens (start element, end element, characters, end of document), after a
+ * 4-byte header. Each string is written as a varint header followed by its UTF-8 bytes if any:
+ * <ul>
+ * <li>Element and attribute names, as well as short values (like shape names), are interned in
+ * a string table, so only their first occurrence is spelled out, the following ones being
+ * referred to by their index in the table.</li>
+ * <li>Values that are plain non-negative integers (like inter ids, or the source and target ids of
+ * a relation) are written as varints.</li>
+ * <li>Other values are written as is.</li>
+ * </ul>
+ * Comments and processing instructions are not kept.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class BinaryXml
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Header at the beginning of any binary XML data. */
+    private static final byte[] MAGIC = new byte[]{'O', 'M', 'R', 1};
+
+    // Tokens
+    private static final int DOCUMENT_END_TOKEN = 0;
+
+    private static final int ELEMENT_START_TOKEN = 1;
+
+    private static final int ELEMENT_END_TOKEN = 2;
+
+    private static final int TEXT_TOKEN = 3;
+
+    // String kinds, in the 2 lowest bits of string header
+    private static final int REFERENCE = 0;
+
+    private static final int NEW_ENTRY = 1;
+
+    private static final int INTEGER = 2;
+
+    private static final int LITERAL = 3;
+
+    /** Maximum length of a value to be interned. */
+    private static final int MAX_INTERNED_LENGTH = 32;
+
+    /** Maximum number of digits for a value to be encoded as an integer. */
+    private static final int MAX_INTEGER_DIGITS = 9;
+
+    /** Size of stream buffers. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //--------------//
+    // createReader //
+    //--------------//
+    /**
+     * Create a reader on the provided binary XML input.
+     * The input stream is not closed when the reader gets closed.
+     *
+     * @param in the input stream, positioned at the beginning of binary XML data
+     * @return the reader, positioned at START_DOCUMENT
+     * @throws IOException if input is not a binary XML data
+     */
+    public static XMLStreamReader createReader (InputStream in)
+            throws IOException
+    {
+        return new Reader(in);
+    }
+
+    //--------------//
+    // createWriter //
+    //--------------//
+    /**
+     * Create a writer to the provided output.
+     * The output stream is flushed at end of document, but it is not closed when the writer gets
+     * closed.
+     *
+     * @param out the output stream
+     * @return the writer
+     * @throws IOException if header could not be written
+     */
+    public static XMLStreamWriter createWriter (OutputStream out)
+            throws IOException
+    {
+        return new Writer(out);
+    }
+
+    //----------//
+    // isBinary //
+    //----------//
+    /**
+     * Check whether the provided input begins with binary XML data.
+     * The input position is left unchanged.
+     *
+     * @param in the input stream, which must support mark and reset
+     * @return true if binary XML header was found
+     * @throws IOException if stream could not be read
+     */
+    public static boolean isBinary (InputStream in)
+            throws IOException
+    {
+        if (!in.markSupported()) {
+            throw new IllegalArgumentException("Mark not supported by input");
+        }
+
+        in.mark(MAGIC.length);
+
+        try {
+            for (byte b : MAGIC) {
+                if (in.read() != (b & 0xFF)) {
+                    return false;
+                }
+            }
+
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    //-----------//
+    // isInteger //
+    //-----------//
+    /**
+     * Check whether the provided value is the canonical representation of a (small)
+     * non-negative integer.
+     */
+    private static boolean isInteger (String value)
+    {
+        final int length = value.length();
+
+        if ((length == 0) || (length > MAX_INTEGER_DIGITS)) {
+            return false;
+        }
+
+        if ((length > 1) && (value.charAt(0) == '0')) {
+            return false; // Leading zero would be lost
+        }
+
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+
+            if ((c < '0') || (c > '9')) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //--------//
+    // Reader //
+    //--------//
+    /**
+     * Reads binary XML data as a sequence of StAX events.
+     */
+    private static class Reader
+            implements XMLStreamReader, NamespaceContext, Location
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final InputStream in;
+
+        /** Interned strings, in order of first appearance. */
+        private final List<String> table = new ArrayList<String>();
+
+        /** Buffer for string bytes. */
+        private byte[] bytes = new byte[256];
+
+        /** Current event. */
+        private int eventType = START_DOCUMENT;
+
+        /** Open elements, current element being the last one. */
+        private final List<Element> elements = new ArrayList<Element>();
+
+        /** Current element, for START_ELEMENT and END_ELEMENT events. */
+        private Element element;
+
+        /** Current text, for CHARACTERS event. */
+        private String text;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public Reader (InputStream in)
+                throws IOException
+        {
+            this.in = (in instanceof BufferedInputStream) ? in
+                    : new BufferedInputStream(in, BUFFER_SIZE);
+
+            for (byte b : MAGIC) {
+                if (this.in.read() != (b & 0xFF)) {
+                    throw new IOException("No binary XML header");
+                }
+            }
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public void close ()
+        {
+            // Input stream is left open
+        }
+
+        @Override
+        public int getAttributeCount ()
+        {
+            checkStart();
+
+            return element.attributes.size() / 4;
+        }
+
+        @Override
+        public String getAttributeLocalName (int index)
+        {
+            return getAttributeItem(index, 2);
+        }
+
+        @Override
+        public QName getAttributeName (int index)
+        {
+            return new QName(
+                    getAttributeNamespace(index),
+                    getAttributeLocalName(index),
+                    getAttributePrefix(index));
+        }
+
+        @Override
+        public String getAttributeNamespace (int index)
+        {
+            return getAttributeItem(index, 0);
+        }
+
+        @Override
+        public String getAttributePrefix (int index)
+        {
+            return getAttributeItem(index, 1);
+        }
+
+        @Override
+        public String getAttributeType (int index)
+        {
+            return "CDATA";
+        }
+
+        @Override
+        public String getAttributeValue (int index)
+        {
+            return getAttributeItem(index, 3);
+        }
+
+        @Override
+        public String getAttributeValue (String namespaceURI,
+                                         String localName)
+        {
+            checkStart();
+
+            final List<String> attributes = element.attributes;
+
+            for (int i = 0; i < attributes.size(); i += 4) {
+                if (attributes.get(i + 2).equals(localName)
+                    && ((namespaceURI == null) || namespaceURI.equals(attributes.get(i)))) {
+                    return attributes.get(i + 3);
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public String getCharacterEncodingScheme ()
+        {
+            return null;
+        }
+
+        @Override
+        public int getCharacterOffset ()
+        {
+            return -1;
+        }
+
+        @Override
+        public int getColumnNumber ()
+        {
+            return -1;
+        }
+
+        @Override
+        public String getElementText ()
+                throws XMLStreamException
+        {
+            require(START_ELEMENT, null, null);
+
+            final StringBuilder sb = new StringBuilder();
+
+            while (next() == CHARACTERS) {
+                sb.append(text);
+            }
+
+            if (eventType != END_ELEMENT) {
+                throw new XMLStreamException("Element text mixed with elements");
+            }
+
+            return sb.toString();
+        }
+
+        @Override
+        public String getEncoding ()
+        {
+            return null;
+        }
+
+        @Override
+        public int getEventType ()
+        {
+            return eventType;
+        }
+
+        @Override
+        public int getLineNumber ()
+        {
+            return -1;
+        }
+
+        @Override
+        public String getLocalName ()
+        {
+            checkElement();
+
+            return element.localName;
+        }
+
+        @Override
+        public Location getLocation ()
+        {
+            return this;
+        }
+
+        @Override
+        public QName getName ()
+        {
+            checkElement();
+
+            return new QName(element.namespaceURI, element.localName, element.prefix);
+        }
+
+        @Override
+        public NamespaceContext getNamespaceContext ()
+        {
+            return this;
+        }
+
+        @Override
+        public int getNamespaceCount ()
+        {
+            checkElement();
+
+            return element.namespaces.size() / 2;
+        }
+
+        @Override
+        public String getNamespacePrefix (int index)
+        {
+            checkElement();
+
+            return element.namespaces.get(2 * index);
+        }
+
+        @Override
+        public String getNamespaceURI ()
+        {
+            checkElement();
+
+            return element.namespaceURI;
+        }
+
+        @Override
+        public String getNamespaceURI (int index)
+        {
+            checkElement();
+
+            return element.namespaces.get((2 * index) + 1);
+        }
+
+        @Override
+        public String getNamespaceURI (String prefix)
+        {
+            if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+                return XMLConstants.XML_NS_URI;
+            }
+
+            if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+                return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+            }
+
+            for (int i = elements.size() - 1; i >= 0; i--) {
+                final List<String> namespaces = elements.get(i).namespaces;
+
+                for (int j = 0; j < namespaces.size(); j += 2) {
+                    if (namespaces.get(j).equals(prefix)) {
+                        return namespaces.get(j + 1);
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public String getPIData ()
+        {
+            return null;
+        }
+
+        @Override
+        public String getPITarget ()
+        {
+            return null;
+        }
+
+        @Override
+        public String getPrefix ()
+        {
+            checkElement();
+
+            return element.prefix;
+        }
+
+        @Override
+        public String getPrefix (String namespaceURI)
+        {
+            final Iterator<String> it = getPrefixes(namespaceURI);
+
+            return it.hasNext() ? it.next() : null;
+        }
+
+        @Override
+        public Iterator<String> getPrefixes (String namespaceURI)
+        {
+            final List<String> prefixes = new ArrayList<String>();
+
+            for (int i = elements.size() - 1; i >= 0; i--) {
+                final List<String> namespaces = elements.get(i).namespaces;
+
+                for (int j = 0; j < namespaces.size(); j += 2) {
+                    final String prefix = namespaces.get(j);
+
+                    if (namespaces.get(j + 1).equals(namespaceURI)
+                        && !prefixes.contains(prefix)
+                        && namespaceURI.equals(getNamespaceURI(prefix))) {
+                        prefixes.add(prefix);
+                    }
+                }
+            }
+
+            return Collections.unmodifiableList(prefixes).iterator();
+        }
+
+        @Override
+        public Object getProperty (String name)
+        {
+            return null;
+        }
+
+        @Override
+        public String getPublicId ()
+        {
+            return null;
+        }
+
+        @Override
+        public String getSystemId ()
+        {
+            return null;
+        }
+
+        @Override
+        public String getText ()
+        {
+            checkText();
+
+            return text;
+        }
+
+        @Override
+        public char[] getTextCharacters ()
+        {
+            checkText();
+
+            return text.toCharArray();
+        }
+
+        @Override
+        public int getTextCharacters (int sourceStart,
+                                      char[] target,
+                                      int targetStart,
+                                      int length)
+        {
+            checkText();
+
+            final int count = Math.max(0, Math.min(length, text.length() - sourceStart));
+            text.getChars(sourceStart, sourceStart + count, target, targetStart);
+
+            return count;
+        }
+
+        @Override
+        public int getTextLength ()
+        {
+            checkText();
+
+            return text.length();
+        }
+
+        @Override
+        public int getTextStart ()
+        {
+            return 0;
+        }
+
+        @Override
+        public String getVersion ()
+        {
+            return null;
+        }
+
+        @Override
+        public boolean hasName ()
+        {
+            return (eventType == START_ELEMENT) || (eventType == END_ELEMENT);
+        }
+
+        @Override
+        public boolean hasNext ()
+        {
+            return eventType != END_DOCUMENT;
+        }
+
+        @Override
+        public boolean hasText ()
+        {
+            return eventType == CHARACTERS;
+        }
+
+        @Override
+        public boolean isAttributeSpecified (int index)
+        {
+            return true;
+        }
+
+        @Override
+        public boolean isCharacters ()
+        {
+            return eventType == CHARACTERS;
+        }
+
+        @Override
+        public boolean isEndElement ()
+        {
+            return eventType == END_ELEMENT;
+        }
+
+        @Override
+        public boolean isStandalone ()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isStartElement ()
+        {
+            return eventType == START_ELEMENT;
+        }
+
+        @Override
+        public boolean isWhiteSpace ()
+        {
+            return (eventType == CHARACTERS) && text.trim().isEmpty();
+        }
+
+        @Override
+        public int next ()
+                throws XMLStreamException
+        {
+            if (eventType == END_DOCUMENT) {
+                throw new XMLStreamException("No more events");
+            }
+
+            if (eventType == END_ELEMENT) {
+                elements.remove(elements.size() - 1);
+            }
+
+            element = null;
+            text = null;
+
+            try {
+                final int token = in.read();
+
+                switch (token) {
+                case ELEMENT_START_TOKEN:
+                    element = readElement();
+                    elements.add(element);
+
+                    return eventType = START_ELEMENT;
+
+                case ELEMENT_END_TOKEN:
+
+                    if (elements.isEmpty()) {
+                        throw new XMLStreamException("Unbalanced end element");
+                    }
+
+                    element = elements.get(elements.size() - 1);
+
+                    return eventType = END_ELEMENT;
+
+                case TEXT_TOKEN:
+                    text = readString();
+
+                    return eventType = CHARACTERS;
+
+                case DOCUMENT_END_TOKEN:
+                    return eventType = END_DOCUMENT;
+
+                case -1:
+                    throw new EOFException("Truncated binary XML");
+
+                default:
+                    throw new XMLStreamException("Illegal binary XML token " + token);
+                }
+            } catch (IOException ex) {
+                throw new XMLStreamException(ex);
+            }
+        }
+
+        @Override
+        public int nextTag ()
+                throws XMLStreamException
+        {
+            while (true) {
+                final int event = next();
+
+                if ((event == START_ELEMENT) || (event == END_ELEMENT)) {
+                    return event;
+                }
+
+                if (!isWhiteSpace()) {
+                    throw new XMLStreamException("Non white space text found");
+                }
+            }
+        }
+
+        @Override
+        public void require (int type,
+                             String namespaceURI,
+                             String localName)
+                throws XMLStreamException
+        {
+            if ((type != eventType)
+                || ((namespaceURI != null) && !namespaceURI.equals(getNamespaceURI()))
+                || ((localName != null) && !localName.equals(getLocalName()))) {
+                throw new XMLStreamException("Requirement not met");
+            }
+        }
+
+        @Override
+        public boolean standaloneSet ()
+        {
+            return false;
+        }
+
+        private void checkElement ()
+        {
+            if (element == null) {
+                throw new IllegalStateException("Not on an element");
+            }
+        }
+
+        private void checkStart ()
+        {
+            if (eventType != START_ELEMENT) {
+                throw new IllegalStateException("Not on a start element");
+            }
+        }
+
+        private void checkText ()
+        {
+            if (eventType != CHARACTERS) {
+                throw new IllegalStateException("Not on characters");
+            }
+        }
+
+        private String getAttributeItem (int index,
+                                         int item)
+        {
+            checkStart();
+
+            return element.attributes.get((4 * index) + item);
+        }
+
+        private Element readElement ()
+                throws IOException
+        {
+            final Element elem = new Element(readString(), readString(), readString());
+
+            for (int i = (int) readVarint(); i > 0; i--) {
+                elem.namespaces.add(readString()); // Prefix
+                elem.namespaces.add(readString()); // URI
+            }
+
+            for (int i = (int) readVarint(); i > 0; i--) {
+                elem.attributes.add(readString()); // Namespace
+                elem.attributes.add(readString()); // Prefix
+                elem.attributes.add(readString()); // Local name
+                elem.attributes.add(readString()); // Value
+            }
+
+            return elem;
+        }
+
+        private String readString ()
+                throws IOException
+        {
+            final long header = readVarint();
+            final int kind = (int) (header & 3);
+            final long arg = header >>> 2;
+
+            switch (kind) {
+            case REFERENCE:
+                return table.get((int) arg);
+
+            case INTEGER:
+                return Long.toString(arg);
+
+            default:
+
+                final int length = (int) arg;
+
+                if (bytes.length < length) {
+                    bytes = new byte[Math.max(length, 2 * bytes.length)];
+                }
+
+                int count = 0;
+
+                while (count < length) {
+                    final int n = in.read(bytes, count, length - count);
+
+                    if (n < 0) {
+                        throw new EOFException("Truncated binary XML");
+                    }
+
+                    count += n;
+                }
+
+                final String str = new String(bytes, 0, length, StandardCharsets.UTF_8);
+
+                if (kind == NEW_ENTRY) {
+                    table.add(str);
+                }
+
+                return str;
+            }
+        }
+
+        private long readVarint ()
+                throws IOException
+        {
+            long value = 0;
+
+            for (int shift = 0;; shift += 7) {
+                final int b = in.read();
+
+                if (b < 0) {
+                    throw new EOFException("Truncated binary XML");
+                }
+
+                value |= ((long) (b & 0x7F)) << shift;
+
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    //--------//
+    // Writer //
+    //--------//
+    /**
+     * Writes StAX events as binary XML data.
+     */
+    private static class Writer
+            implements XMLStreamWriter, NamespaceContext
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final OutputStream out;
+
+        /** Index of each interned string. */
+        private final Map<String, Integer> table = new HashMap<String, Integer>();
+
+        /** Open elements, last one being the current element. */
+        private final List<Element> elements = new ArrayList<Element>();
+
+        /** Element whose start is not yet written, pending for namespaces and attributes. */
+        private Element pending;
+
+        /** Is pending element an empty element?. */
+        private boolean pendingEmpty;
+
+        /** Text not yet written, consecutive characters being merged. */
+        private final StringBuilder pendingText = new StringBuilder();
+
+        /** Bindings set before the start of an element, for its namespace context. */
+        private final List<String> nextNamespaces = new ArrayList<String>();
+
+        /** External namespace context, if any. */
+        private NamespaceContext context;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public Writer (OutputStream out)
+                throws IOException
+        {
+            this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+            this.out.write(MAGIC);
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public void close ()
+                throws XMLStreamException
+        {
+            flush(); // Output stream is left open
+        }
+
+        @Override
+        public void flush ()
+                throws XMLStreamException
+        {
+            try {
+                out.flush();
+            } catch (IOException ex) {
+                throw new XMLStreamException(ex);
+            }
+        }
+
+        @Override
+        public NamespaceContext getNamespaceContext ()
+        {
+            return this;
+        }
+
+        @Override
+        public String getNamespaceURI (String prefix)
+        {
+            if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+                return XMLConstants.XML_NS_URI;
+            }
+
+            final String uri = lookup(prefix, 0);
+
+            if (uri != null) {
+                return uri;
+            }
+
+            return (context != null) ? context.getNamespaceURI(prefix) : null;
+        }
+
+        @Override
+        public String getPrefix (String namespaceURI)
+        {
+            final String prefix = lookup(namespaceURI, 1);
+
+            if (prefix != null) {
+                return prefix;
+            }
+
+            return (context != null) ? context.getPrefix(namespaceURI) : null;
+        }
+
+        @Override
+        public Iterator<String> getPrefixes (String namespaceURI)
+        {
+            final String prefix = getPrefix(namespaceURI);
+
+            return (prefix != null) ? Collections.singletonList(prefix).iterator()
+                    : Collections.<String>emptyList().iterator();
+        }
+
+        @Override
+        public Object getProperty (String name)
+        {
+            throw new IllegalArgumentException("Unsupported property " + name);
+        }
+
+        @Override
+        public void setDefaultNamespace (String uri)
+        {
+            setPrefix(XMLConstants.DEFAULT_NS_PREFIX, uri);
+        }
+
+        @Override
+        public void setNamespaceContext (NamespaceContext context)
+        {
+            this.context = context;
+        }
+
+        @Override
+        public void setPrefix (String prefix,
+                               String uri)
+        {
+            final List<String> bindings = (pending != null) ? pending.bindings
+                    : (elements.isEmpty() ? nextNamespaces : last().bindings);
+            bindings.add(prefix);
+            bindings.add(uri);
+        }
+
+        @Override
+        public void writeAttribute (String localName,
+                                    String value)
+                throws XMLStreamException
+        {
+            writeAttribute("", "", localName, value);
+        }
+
+        @Override
+        public void writeAttribute (String namespaceURI,
+                                    String localName,
+                                    String value)
+                throws XMLStreamException
+        {
+            final String prefix = getPrefix(namespaceURI);
+
+            if (prefix == null) {
+                throw new XMLStreamException("No prefix bound to " + namespaceURI);
+            }
+
+            writeAttribute(prefix, namespaceURI, localName, value);
+        }
+
+        @Override
+        public void writeAttribute (String prefix,
+                                    String namespaceURI,
+                                    String localName,
+                                    String value)
+                throws XMLStreamException
+        {
+            if (pending == null) {
+                throw new XMLStreamException("Attribute outside of a start element");
+            }
+
+            pending.attributes.addAll(
+                    Arrays.asList(
+                            nonNull(namespaceURI),
+                            nonNull(prefix),
+                            localName,
+                            value));
+        }
+
+        @Override
+        public void writeCData (String data)
+                throws XMLStreamException
+        {
+            writeCharacters(data);
+        }
+
+        @Override
+        public void writeCharacters (String text)
+                throws XMLStreamException
+        {
+            flushPending();
+            pendingText.append(text);
+        }
+
+        @Override
+        public void writeCharacters (char[] text,
+                                     int start,
+                                     int len)
+                throws XMLStreamException
+        {
+            flushPending();
+            pendingText.append(text, start, len);
+        }
+
+        @Override
+        public void writeComment (String data)
+        {
+            // Comments are not kept
+        }
+
+        @Override
+        public void writeDTD (String dtd)
+        {
+            // DTD is not kept
+        }
+
+        @Override
+        public void writeDefaultNamespace (String namespaceURI)
+                throws XMLStreamException
+        {
+            writeNamespace(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+        }
+
+        @Override
+        public void writeEmptyElement (String localName)
+                throws XMLStreamException
+        {
+            writeEmptyElement("", localName, "");
+        }
+
+        @Override
+        public void writeEmptyElement (String namespaceURI,
+                                       String localName)
+                throws XMLStreamException
+        {
+            writeEmptyElement(prefixOf(namespaceURI), localName, namespaceURI);
+        }
+
+        @Override
+        public void writeEmptyElement (String prefix,
+                                       String localName,
+                                       String namespaceURI)
+                throws XMLStreamException
+        {
+            writeStartElement(prefix, localName, namespaceURI);
+            pendingEmpty = true;
+        }
+
+        @Override
+        public void writeEndDocument ()
+                throws XMLStreamException
+        {
+            while (!elements.isEmpty() || (pending != null)) {
+                writeEndElement();
+            }
+
+            try {
+                out.write(DOCUMENT_END_TOKEN);
+                out.flush();
+            } catch (IOException ex) {
+                throw new XMLStreamException(ex);
+            }
+        }
+
+        @Override
+        public void writeEndElement ()
+                throws XMLStreamException
+        {
+            flushPending();
+
+            if (elements.isEmpty()) {
+                throw new XMLStreamException("No element to end");
+            }
+
+            try {
+                flushText();
+                out.write(ELEMENT_END_TOKEN);
+                elements.remove(elements.size() - 1);
+            } catch (IOException ex) {
+                throw new XMLStreamException(ex);
+            }
+        }
+
+        @Override
+        public void writeEntityRef (String name)
+                throws XMLStreamException
+        {
+            throw new XMLStreamException("Entity references are not supported");
+        }
+
+        @Override
+        public void writeNamespace (String prefix,
+                                    String namespaceURI)
+                throws XMLStreamException
+        {
+            if (pending == null) {
+                throw new XMLStreamException("Namespace outside of a start element");
+            }
+
+            if ((prefix == null) || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+                prefix = XMLConstants.DEFAULT_NS_PREFIX;
+            }
+
+            pending.namespaces.add(prefix);
+            pending.namespaces.add(nonNull(namespaceURI));
+            pending.bindings.add(prefix);
+            pending.bindings.add(nonNull(namespaceURI));
+        }
+
+        @Override
+        public void writeProcessingInstruction (String target)
+        {
+            // Processing instructions are not kept
+        }
+
+        @Override
+        public void writeProcessingInstruction (String target,
+                                                String data)
+        {
+            // Processing instructions are not kept
+        }
+
+        @Override
+        public void writeStartDocument ()
+        {
+            // Header has already been written
+        }
+
+        @Override
+        public void writeStartDocument (String version)
+        {
+            // Header has already been written
+        }
+
+        @Override
+        public void writeStartDocument (String encoding,
+                                        String version)
+        {
+            // Header has already been written
+        }
+
+        @Override
+        public void writeStartElement (String localName)
+                throws XMLStreamException
+        {
+            writeStartElement("", localName, "");
+        }
+
+        @Override
+        public void writeStartElement (String namespaceURI,
+                                       String localName)
+                throws XMLStreamException
+        {
+            writeStartElement(prefixOf(namespaceURI), localName, namespaceURI);
+        }
+
+        @Override
+        public void writeStartElement (String prefix,
+                                       String localName,
+                                       String namespaceURI)
+                throws XMLStreamException
+        {
+            flushPending();
+
+            try {
+                flushText();
+            } catch (IOException ex) {
+                throw new XMLStreamException(ex);
+            }
+
+            pending = new Element(nonNull(namespaceURI), nonNull(prefix), localName);
+            pending.bindings.addAll(nextNamespaces);
+            nextNamespaces.clear();
+        }
+
+        private void flushPending ()
+                throws XMLStreamException
+        {
+            if (pending == null) {
+                return;
+            }
+
+            final Element elem = pending;
+            pending = null;
+            elements.add(elem);
+
+            try {
+                out.write(ELEMENT_START_TOKEN);
+                writeString(elem.namespaceURI, true);
+                writeString(elem.prefix, true);
+                writeString(elem.localName, true);
+
+                writeVarint(elem.namespaces.size() / 2);
+
+                for (String str : elem.namespaces) {
+                    writeString(str, true);
+                }
+
+                final List<String> attributes = elem.attributes;
+                writeVarint(attributes.size() / 4);
+
+                for (int i = 0; i < attributes.size(); i += 4) {
+                    writeString(attributes.get(i), true);
+                    writeString(attributes.get(i + 1), true);
+                    writeString(attributes.get(i + 2), true);
+                    writeValue(attributes.get(i + 3));
+                }
+            } catch (IOException ex) {
+                throw new XMLStreamException(ex);
+            }
+
+            if (pendingEmpty) {
+                pendingEmpty = false;
+                writeEndElement();
+            }
+        }
+
+        private void flushText ()
+                throws IOException
+        {
+            if (pendingText.length() > 0) {
+                out.write(TEXT_TOKEN);
+                writeValue(pendingText.toString());
+                pendingText.setLength(0);
+            }
+        }
+
+        private Element last ()
+        {
+            return elements.get(elements.size() - 1);
+        }
+
+        /**
+         * Look up the namespace bindings, from the innermost element.
+         *
+         * @param key  the prefix or the URI
+         * @param side 0 for a prefix key, 1 for a URI key
+         * @return the bound URI or prefix, or null
+         */
+        private String lookup (String key,
+                               int side)
+        {
+            final List<Element> scopes = new ArrayList<Element>(elements);
+
+            if (pending != null) {
+                scopes.add(pending);
+            }
+
+            for (int i = scopes.size() - 1; i >= 0; i--) {
+                final List<String> bindings = scopes.get(i).bindings;
+
+                for (int j = bindings.size() - 2; j >= 0; j -= 2) {
+                    if (bindings.get(j + side).equals(key)) {
+                        return bindings.get(j + 1 - side);
+                    }
+                }
+            }
+
+            for (int j = nextNamespaces.size() - 2; j >= 0; j -= 2) {
+                if (nextNamespaces.get(j + side).equals(key)) {
+                    return nextNamespaces.get(j + 1 - side);
+                }
+            }
+
+            return null;
+        }
+
+        private String prefixOf (String namespaceURI)
+                throws XMLStreamException
+        {
+            if ((namespaceURI == null) || namespaceURI.isEmpty()) {
+                return "";
+            }
+
+            final String prefix = getPrefix(namespaceURI);
+
+            if (prefix == null) {
+                throw new XMLStreamException("No prefix bound to " + namespaceURI);
+            }
+
+            return prefix;
+        }
+
+        private void writeBytes (int kind,
+                                 String str)
+                throws IOException
+        {
+            final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            writeVarint(((long) bytes.length << 2) | kind);
+            out.write(bytes);
+        }
+
+        /**
+         * Write a string, using string table if so desired.
+         *
+         * @param str    the string to write
+         * @param intern true to intern the string
+         */
+        private void writeString (String str,
+                                  boolean intern)
+                throws IOException
+        {
+            if (!intern) {
+                writeBytes(LITERAL, str);
+
+                return;
+            }
+
+            final Integer index = table.get(str);
+
+            if (index != null) {
+                writeVarint(((long) index << 2) | REFERENCE);
+            } else {
+                table.put(str, table.size());
+                writeBytes(NEW_ENTRY, str);
+            }
+        }
+
+        /**
+         * Write a value, as an integer if possible, or as a string interned if short.
+         */
+        private void writeValue (String value)
+                throws IOException
+        {
+            if (isInteger(value)) {
+                writeVarint((Long.parseLong(value) << 2) | INTEGER);
+            } else {
+                writeString(value, value.length() <= MAX_INTERNED_LENGTH);
+            }
+        }
+
+        private void writeVarint (long value)
+                throws IOException
+        {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+
+            out.write((int) value);
+        }
+
+        private static String nonNull (String str)
+        {
+            return (str != null) ? str : "";
+        }
+    }
+
+    //---------//
+    // Element //
+    //---------//
+    /**
+     * Name, namespace declarations and attributes of an element.
+     */
+    private static class Element
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        final String namespaceURI;
+
+        final String prefix;
+
+        final String localName;
+
+        /** Declared namespaces, as (prefix, URI) pairs. */
+        final List<String> namespaces = new ArrayList<String>();
+
+        /** Attributes, as (namespace, prefix, local name, value) quadruplets. */
+        final List<String> attributes = new ArrayList<String>();
+
+        /** Namespace bindings in scope of this element, as (prefix, URI) pairs. */
+        final List<String> bindings = new ArrayList<String>();
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public Element (String namespaceURI,
+                        String prefix,
+                        String localName)
+        {
+            this.namespaceURI = namespaceURI;
+            this.prefix = prefix;
+            this.localName = localName;
+        }
+    }
+}
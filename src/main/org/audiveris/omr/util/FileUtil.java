@@ -163,6 +163,14 @@ public abstract class FileUtil
     //----------//
     // copyTree //
     //----------//
+    /**
+     * Recursively copy a directory, perhaps from one file system to another (such as
+     * between a zip file system and the default one).
+     *
+     * @param sourceDir the directory to copy
+     * @param targetDir the target directory
+     * @throws IOException if copy failed
+     */
     public static void copyTree (final Path sourceDir,
                                  final Path targetDir)
             throws IOException
@@ -176,7 +184,7 @@ public abstract class FileUtil
                                                       BasicFileAttributes attrs)
                     throws IOException
             {
-                Path target = targetDir.resolve(sourceDir.relativize(dir));
+                Path target = resolve(targetDir, sourceDir.relativize(dir));
 
                 try {
                     Files.copy(dir, target);
@@ -194,7 +202,7 @@ public abstract class FileUtil
                                               BasicFileAttributes attrs)
                     throws IOException
             {
-                Files.copy(file, targetDir.resolve(sourceDir.relativize(file)));
+                Files.copy(file, resolve(targetDir, sourceDir.relativize(file)));
 
                 return FileVisitResult.CONTINUE;
             }
@@ -485,4 +493,27 @@ public abstract class FileUtil
 
         return pathsFound;
     }
+
+    //---------//
+    // resolve //
+    //---------//
+    /**
+     * Resolve a relative path against a directory, name by name, so that both paths may
+     * belong to different file systems.
+     *
+     * @param dir      the directory
+     * @param relative the relative path
+     * @return the resolved path, in directory file system
+     */
+    private static Path resolve (Path dir,
+                                 Path relative)
+    {
+        Path path = dir;
+
+        for (Path name : relative) {
+            path = path.resolve(name.toString());
+        }
+
+        return path;
+    }
 }
@@ -75,7 +75,7 @@ public abstract class Jaxb
         OutputStream os = null;
 
         try {
-            Marshaller m = jaxbContext.createMarshaller();
+            Marshaller m = JaxbContexts.getMarshaller(jaxbContext);
             m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
             os = Files.newOutputStream(path, CREATE);
             m.marshal(object, os);
@@ -96,7 +96,7 @@ public abstract class Jaxb
         InputStream is = null;
 
         try {
-            Unmarshaller um = jaxbContext.createUnmarshaller();
+            Unmarshaller um = JaxbContexts.getUnmarshaller(jaxbContext);
             is = Files.newInputStream(path, StandardOpenOption.READ);
 
             return um.unmarshal(is);
@@ -0,0 +1,273 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    J a x b C o n t e x t s                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Class {@code JaxbContexts} is the registry of JAXB contexts, with per-thread marshallers
+ * and unmarshallers.
+ * <p>
+ * Creating a JAXB context is costly (heavy use of reflection), hence a context is created only
+ * once per set of bound classes, perhaps in the background via {@link #preload}, and then shared
+ * since JAXBContext is thread-safe.
+ * <p>
+ * Marshallers and unmarshallers are not thread-safe but can be reused, hence each thread keeps
+ * one of each per context.
+ * They are reset to default settings when handed out, and must not be used re-entrantly (for
+ * example from within an adapter called by the same marshaller).
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class JaxbContexts
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Logger logger = LoggerFactory.getLogger(JaxbContexts.class);
+
+    /** Context creations, per list of bound classes. */
+    private static final ConcurrentMap<List<Class<?>>, FutureTask<JAXBContext>> contexts
+            = new ConcurrentHashMap<List<Class<?>>, FutureTask<JAXBContext>>();
+
+    /** Per-thread marshallers. */
+    private static final ThreadLocal<Map<JAXBContext, Marshaller>> marshallers
+            = new ThreadLocal<Map<JAXBContext, Marshaller>>()
+    {
+        @Override
+        protected Map<JAXBContext, Marshaller> initialValue ()
+        {
+            return new HashMap<JAXBContext, Marshaller>();
+        }
+    };
+
+    /** Per-thread unmarshallers. */
+    private static final ThreadLocal<Map<JAXBContext, Unmarshaller>> unmarshallers
+            = new ThreadLocal<Map<JAXBContext, Unmarshaller>>()
+    {
+        @Override
+        protected Map<JAXBContext, Unmarshaller> initialValue ()
+        {
+            return new HashMap<JAXBContext, Unmarshaller>();
+        }
+    };
+
+    //~ Constructors -------------------------------------------------------------------------------
+    private JaxbContexts ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //------------//
+    // getContext //
+    //------------//
+    /**
+     * Report the JAXB context for the provided classes, creating it if needed.
+     *
+     * @param classes the classes to be bound
+     * @return the shared context
+     * @throws JAXBException if context could not be created
+     */
+    public static JAXBContext getContext (Class<?>... classes)
+            throws JAXBException
+    {
+        final List<Class<?>> key = Arrays.<Class<?>>asList(classes.clone());
+        final FutureTask<JAXBContext> task = getTask(key);
+        task.run(); // No-op if already done or running in another thread
+
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            throw new JAXBException("Interrupted while creating JAXB context for " + key, ex);
+        } catch (ExecutionException ex) {
+            contexts.remove(key, task); // To allow a new attempt
+
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof JAXBException) {
+                throw (JAXBException) cause;
+            }
+
+            throw new JAXBException("Cannot create JAXB context for " + key, cause);
+        }
+    }
+
+    //---------------//
+    // getMarshaller //
+    //---------------//
+    /**
+     * Report the marshaller of the calling thread for the provided context.
+     *
+     * @param context the JAXB context
+     * @return the marshaller, with default settings
+     * @throws JAXBException if marshaller could not be created
+     */
+    public static Marshaller getMarshaller (JAXBContext context)
+            throws JAXBException
+    {
+        final Map<JAXBContext, Marshaller> map = marshallers.get();
+        Marshaller m = map.get(context);
+
+        if (m == null) {
+            m = context.createMarshaller();
+            map.put(context, m);
+        } else {
+            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+            m.setProperty(Marshaller.JAXB_FRAGMENT, false);
+            m.setListener(null);
+            m.setEventHandler(null);
+        }
+
+        return m;
+    }
+
+    //---------------//
+    // getMarshaller //
+    //---------------//
+    /**
+     * Report the marshaller of the calling thread for the provided classes.
+     *
+     * @param classes the bound classes
+     * @return the marshaller, with default settings
+     * @throws JAXBException if context or marshaller could not be created
+     */
+    public static Marshaller getMarshaller (Class<?>... classes)
+            throws JAXBException
+    {
+        return getMarshaller(getContext(classes));
+    }
+
+    //-----------------//
+    // getUnmarshaller //
+    //-----------------//
+    /**
+     * Report the unmarshaller of the calling thread for the provided context.
+     *
+     * @param context the JAXB context
+     * @return the unmarshaller, with default settings
+     * @throws JAXBException if unmarshaller could not be created
+     */
+    public static Unmarshaller getUnmarshaller (JAXBContext context)
+            throws JAXBException
+    {
+        final Map<JAXBContext, Unmarshaller> map = unmarshallers.get();
+        Unmarshaller um = map.get(context);
+
+        if (um == null) {
+            um = context.createUnmarshaller();
+            map.put(context, um);
+        } else {
+            um.setListener(null);
+            um.setEventHandler(null);
+        }
+
+        return um;
+    }
+
+    //-----------------//
+    // getUnmarshaller //
+    //-----------------//
+    /**
+     * Report the unmarshaller of the calling thread for the provided classes.
+     *
+     * @param classes the bound classes
+     * @return the unmarshaller, with default settings
+     * @throws JAXBException if context or unmarshaller could not be created
+     */
+    public static Unmarshaller getUnmarshaller (Class<?>... classes)
+            throws JAXBException
+    {
+        return getUnmarshaller(getContext(classes));
+    }
+
+    //---------//
+    // preload //
+    //---------//
+    /**
+     * Start, in the background, the creation of the JAXB context for the provided classes.
+     *
+     * @param classes the classes to be bound
+     */
+    public static void preload (Class<?>... classes)
+    {
+        final List<Class<?>> key = Arrays.<Class<?>>asList(classes.clone());
+        OmrExecutors.getCachedLowExecutor().execute(getTask(key));
+    }
+
+    //---------//
+    // getTask //
+    //---------//
+    /**
+     * Report the (single) task that creates the context for the provided classes.
+     *
+     * @param key the list of classes to be bound
+     * @return the creation task, perhaps already completed
+     */
+    private static FutureTask<JAXBContext> getTask (final List<Class<?>> key)
+    {
+        FutureTask<JAXBContext> task = contexts.get(key);
+
+        if (task == null) {
+            final FutureTask<JAXBContext> newTask = new FutureTask<JAXBContext>(
+                    new Callable<JAXBContext>()
+            {
+                @Override
+                public JAXBContext call ()
+                        throws Exception
+                {
+                    final long start = System.currentTimeMillis();
+                    final JAXBContext context = JAXBContext.newInstance(
+                            key.toArray(new Class<?>[key.size()]));
+                    logger.debug(
+                            "JAXB context for {} created in {} ms",
+                            key,
+                            System.currentTimeMillis() - start);
+
+                    return context;
+                }
+            });
+
+            task = contexts.putIfAbsent(key, newTask);
+
+            if (task == null) {
+                task = newTask;
+            }
+        }
+
+        return task;
+    }
+}
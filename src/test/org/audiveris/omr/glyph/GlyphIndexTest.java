@@ -0,0 +1,124 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   G l y p h I n d e x T e s t                                  //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.glyph;
+
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Check that concurrent registrations on a GlyphIndex keep originals and IDs unique.
+ *
+ * @author Hervé Bitteur
+ */
+public class GlyphIndexTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final int THREAD_COUNT = 8;
+
+    private static final int GLYPH_COUNT = 500;
+
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testConcurrentRegisterOriginal ()
+            throws Exception
+    {
+        System.out.println("\n+++ testConcurrentRegisterOriginal");
+
+        final GlyphIndex index = new GlyphIndex();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+        try {
+            // Each task registers its own copies of the same glyph population
+            List<Future<List<Glyph>>> futures = new ArrayList<Future<List<Glyph>>>();
+
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                futures.add(
+                        executor.submit(
+                                new Callable<List<Glyph>>()
+                        {
+                            @Override
+                            public List<Glyph> call ()
+                                    throws Exception
+                            {
+                                List<Glyph> originals = new ArrayList<Glyph>();
+
+                                for (int i = 0; i < GLYPH_COUNT; i++) {
+                                    originals.add(index.registerOriginal(createGlyph(i)));
+                                }
+
+                                return originals;
+                            }
+                        }));
+            }
+
+            List<Glyph> reference = futures.get(0).get();
+            Set<Integer> ids = new HashSet<Integer>();
+
+            for (Glyph glyph : reference) {
+                ids.add(glyph.getId());
+            }
+
+            assertEquals(GLYPH_COUNT, ids.size());
+
+            // All tasks must have ended with the very same original instances
+            for (Future<List<Glyph>> future : futures) {
+                List<Glyph> originals = future.get();
+
+                for (int i = 0; i < GLYPH_COUNT; i++) {
+                    assertSame(reference.get(i), originals.get(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    //-------------//
+    // createGlyph //
+    //-------------//
+    /**
+     * Create a small glyph whose location depends on provided rank.
+     */
+    private static Glyph createGlyph (int rank)
+    {
+        RunTable table = new RunTable(HORIZONTAL, 3, 2);
+        table.addRun(0, new Run(0, 3));
+        table.addRun(1, new Run(1, 1));
+
+        return new BasicGlyph(rank % 50, rank / 50, table);
+    }
+}
@@ -0,0 +1,158 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               G r a y C o n v e r t e r T e s t                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Class {@code GrayConverterTest} checks that each conversion path gives the same result
+ * as a pixel-by-pixel conversion.
+ *
+ * @author Hervé Bitteur
+ */
+public class GrayConverterTest
+{
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    final int width = 37;
+
+    final int height = 11;
+
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testBinary ()
+    {
+        check(createImage(BufferedImage.TYPE_BYTE_BINARY));
+    }
+
+    @Test
+    public void testByteBgr ()
+    {
+        check(createImage(BufferedImage.TYPE_3BYTE_BGR));
+    }
+
+    @Test
+    public void testByteBgrSubimage ()
+    {
+        check(createImage(BufferedImage.TYPE_3BYTE_BGR).getSubimage(3, 2, 21, 7));
+    }
+
+    @Test
+    public void testIntArgb ()
+    {
+        check(createImage(BufferedImage.TYPE_INT_ARGB));
+    }
+
+    @Test
+    public void testIntRgb ()
+    {
+        check(createImage(BufferedImage.TYPE_INT_RGB));
+    }
+
+    @Test
+    public void testIntRgbSubimage ()
+    {
+        check(createImage(BufferedImage.TYPE_INT_RGB).getSubimage(5, 1, 17, 9));
+    }
+
+    @Test
+    public void testParallel ()
+    {
+        check(createImage(BufferedImage.TYPE_3BYTE_BGR), 3);
+        check(createImage(BufferedImage.TYPE_INT_ARGB), 4);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParallelFailure ()
+    {
+        // Conversion of rows 4..7 fails in the second band
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB)
+        {
+            @Override
+            public int[] getRGB (int startX,
+                                 int startY,
+                                 int w,
+                                 int h,
+                                 int[] rgbArray,
+                                 int offset,
+                                 int scansize)
+            {
+                if (startY == 5) {
+                    throw new IllegalStateException("Failing row");
+                }
+
+                return super.getRGB(startX, startY, w, h, rgbArray, offset, scansize);
+            }
+        };
+
+        GrayConverter.toGray(img, 3);
+    }
+
+    private void check (BufferedImage img)
+    {
+        check(img, GrayConverter.toGray(img));
+    }
+
+    private void check (BufferedImage img,
+                        int bandCount)
+    {
+        check(img, GrayConverter.toGray(img, bandCount));
+    }
+
+    private void check (BufferedImage img,
+                        ByteProcessor bp)
+    {
+        assertEquals(img.getWidth(), bp.getWidth());
+        assertEquals(img.getHeight(), bp.getHeight());
+
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                int rgb = img.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                int expected = (int) ((r / 3.0) + (g / 3.0) + (b / 3.0) + 0.5);
+                assertEquals("x:" + x + " y:" + y, expected, bp.get(x, y));
+            }
+        }
+    }
+
+    private BufferedImage createImage (int type)
+    {
+        BufferedImage img = new BufferedImage(width, height, type);
+        Random random = new Random(123);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, random.nextInt());
+            }
+        }
+
+        return img;
+    }
+}
@@ -0,0 +1,118 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              P a c k e d R a t i o n a l T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.math;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Class {@code PackedRationalTest} checks {@link PackedRational} arithmetic against
+ * {@link Rational} and the sharing of common Rational instances.
+ *
+ * @author Hervé Bitteur
+ */
+public class PackedRationalTest
+{
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testArithmetic ()
+    {
+        final Random random = new Random(456);
+
+        for (int i = 0; i < 10000; i++) {
+            final Rational a = random(random);
+            final Rational b = random(random);
+            final long pa = PackedRational.of(a);
+            final long pb = PackedRational.of(b);
+
+            final Rational sum = PackedRational.toRational(PackedRational.plus(pa, pb));
+            assertEquals(reference(a, b, 1), sum);
+
+            final Rational difference = PackedRational.toRational(PackedRational.minus(pa, pb));
+            assertEquals(reference(a, b, -1), difference);
+
+            assertEquals(
+                    new Rational(a.num * b.num, a.den * b.den),
+                    PackedRational.toRational(PackedRational.times(pa, pb)));
+            assertEquals(
+                    Integer.signum(compareReference(a, b)),
+                    PackedRational.compare(pa, pb));
+        }
+    }
+
+    @Test
+    public void testOf ()
+    {
+        assertEquals(PackedRational.ZERO, PackedRational.of(0, -5));
+        assertEquals(PackedRational.ONE, PackedRational.of(-7, -7));
+        assertEquals(PackedRational.of(3, 8), PackedRational.of(-12, -32));
+        assertEquals(-2, PackedRational.num(PackedRational.of(6, -9)));
+        assertEquals(3, PackedRational.den(PackedRational.of(6, -9)));
+        assertEquals("3/8", PackedRational.toString(PackedRational.of(6, 16)));
+        assertEquals("-2", PackedRational.toString(PackedRational.of(-4, 2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfZeroDenominator ()
+    {
+        PackedRational.of(1, 0);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testOverflow ()
+    {
+        final long big = PackedRational.of(Integer.MAX_VALUE, 1);
+        PackedRational.plus(big, big);
+    }
+
+    @Test
+    public void testShared ()
+    {
+        assertSame(Rational.valueOf(3, 16), Rational.valueOf(6, 32));
+        assertSame(Rational.valueOf(3, 16), new Rational(1, 16).plus(new Rational(1, 8)));
+        assertSame(Rational.ZERO, Rational.valueOf(0, 3));
+        assertSame(Rational.HALF, Rational.valueOf(-4, -8));
+        assertEquals(new Rational(1000, 3), Rational.valueOf(1000, 3));
+    }
+
+    private int compareReference (Rational a,
+                                  Rational b)
+    {
+        return Long.signum(((long) a.num * b.den) - ((long) b.num * a.den));
+    }
+
+    private Rational random (Random random)
+    {
+        final int den = random.nextBoolean() ? (1 << random.nextInt(8)) : (1 + random.nextInt(12));
+
+        return new Rational(random.nextInt(200) - 100, den);
+    }
+
+    private Rational reference (Rational a,
+                                Rational b,
+                                int sign)
+    {
+        return new Rational((a.num * b.den) + (sign * b.num * a.den), a.den * b.den);
+    }
+}
@@ -0,0 +1,193 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                          R a s t e r A R T E x t r a c t o r T e s t                           //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.moment;
+
+import org.audiveris.omr.moments.ARTMoments;
+import static org.audiveris.omr.moments.ARTMoments.*;
+import org.audiveris.omr.moments.BasicARTExtractor;
+import org.audiveris.omr.moments.BasicARTMoments;
+import org.audiveris.omr.moments.RasterARTExtractor;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Class {@code RasterARTExtractorTest} checks that {@link RasterARTExtractor} provides the
+ * same moments as {@link BasicARTExtractor}.
+ *
+ * @author Hervé Bitteur
+ */
+public class RasterARTExtractorTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final double EPSILON = 1E-5;
+
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testRandomShapes ()
+    {
+        final Random random = new Random(123);
+
+        for (int n = 0; n < 50; n++) {
+            final int width = 1 + random.nextInt(120);
+            final int height = 1 + random.nextInt(120);
+            final boolean[][] pixels = createShape(random, width, height);
+
+            // Reference, from points
+            final int[] xx = new int[width * height];
+            final int[] yy = new int[width * height];
+            int mass = 0;
+
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    if (pixels[x][y]) {
+                        xx[mass] = x;
+                        yy[mass] = y;
+                        mass++;
+                    }
+                }
+            }
+
+            final ARTMoments expected = new BasicARTMoments();
+            final BasicARTExtractor basic = new BasicARTExtractor();
+            basic.setDescriptor(expected);
+            basic.extract(xx, yy, mass);
+
+            // From points
+            final ARTMoments fromPoints = new BasicARTMoments();
+            final RasterARTExtractor raster = new RasterARTExtractor();
+            raster.setDescriptor(fromPoints);
+            raster.extract(xx, yy, mass);
+            assertSameMoments(expected, fromPoints);
+
+            // From horizontal and vertical runs
+            for (boolean horizontal : new boolean[]{true, false}) {
+                final ARTMoments fromRuns = new BasicARTMoments();
+                final int[] runs = new int[3 * mass];
+                final int count = getRuns(pixels, horizontal, runs);
+                raster.setDescriptor(fromRuns);
+                raster.extractRuns(runs, count, horizontal);
+                assertSameMoments(expected, fromRuns);
+            }
+        }
+    }
+
+    @Test
+    public void testSinglePixel ()
+    {
+        final ARTMoments expected = new BasicARTMoments();
+        final BasicARTExtractor basic = new BasicARTExtractor();
+        basic.setDescriptor(expected);
+        basic.extract(new int[]{7}, new int[]{3}, 1);
+
+        final ARTMoments actual = new BasicARTMoments();
+        final RasterARTExtractor raster = new RasterARTExtractor();
+        raster.setDescriptor(actual);
+        raster.extractRuns(new int[]{7, 3, 1}, 1, true);
+        assertSameMoments(expected, actual);
+    }
+
+    private void assertSameMoments (ARTMoments expected,
+                                    ARTMoments actual)
+    {
+        for (int p = 0; p < ANGULAR; p++) {
+            for (int r = 0; r < RADIAL; r++) {
+                assertEquals(
+                        "p:" + p + " r:" + r,
+                        expected.getMoment(p, r),
+                        actual.getMoment(p, r),
+                        EPSILON);
+            }
+        }
+    }
+
+    /**
+     * Build a shape made of a few filled ellipses and rectangles.
+     */
+    private boolean[][] createShape (Random random,
+                                     int width,
+                                     int height)
+    {
+        final boolean[][] pixels = new boolean[width][height];
+        pixels[random.nextInt(width)][random.nextInt(height)] = true;
+
+        for (int k = random.nextInt(4); k >= 0; k--) {
+            final int x0 = random.nextInt(width);
+            final int y0 = random.nextInt(height);
+            final int rx = 1 + random.nextInt(width);
+            final int ry = 1 + random.nextInt(height);
+            final boolean ellipse = random.nextBoolean();
+
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    final double dx = (x - x0) / (double) rx;
+                    final double dy = (y - y0) / (double) ry;
+
+                    if (ellipse ? (((dx * dx) + (dy * dy)) <= 1)
+                            : ((Math.abs(dx) <= 0.5) && (Math.abs(dy) <= 0.5))) {
+                        pixels[x][y] = true;
+                    }
+                }
+            }
+        }
+
+        return pixels;
+    }
+
+    /**
+     * Encode shape pixels as (x, y, length) run triplets.
+     */
+    private int getRuns (boolean[][] pixels,
+                         boolean horizontal,
+                         int[] runs)
+    {
+        final int width = pixels.length;
+        final int height = pixels[0].length;
+        final int seqCount = horizontal ? height : width;
+        final int seqLength = horizontal ? width : height;
+        int count = 0;
+
+        for (int s = 0; s < seqCount; s++) {
+            int start = -1;
+
+            for (int c = 0; c <= seqLength; c++) {
+                final boolean on = (c < seqLength)
+                                   && (horizontal ? pixels[c][s] : pixels[s][c]);
+
+                if (on && (start == -1)) {
+                    start = c;
+                } else if (!on && (start != -1)) {
+                    final int i = 3 * count++;
+                    runs[i] = horizontal ? start : s;
+                    runs[i + 1] = horizontal ? s : start;
+                    runs[i + 2] = c - start;
+                    start = -1;
+                }
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,109 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                      B i l e v e l R u n T a b l e F a c t o r y T e s t                       //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import org.audiveris.omr.image.PixelSource;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Random;
+
+/**
+ * Class {@code BilevelRunTableFactoryTest} checks the run table built from 1-bit images.
+ *
+ * @author Hervé Bitteur
+ */
+public class BilevelRunTableFactoryTest
+{
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testIsBilevel ()
+    {
+        assertTrue(
+                BilevelRunTableFactory.isBilevel(
+                        new BufferedImage(10, 5, BufferedImage.TYPE_BYTE_BINARY)));
+        assertFalse(
+                BilevelRunTableFactory.isBilevel(
+                        new BufferedImage(10, 5, BufferedImage.TYPE_BYTE_GRAY)));
+    }
+
+    @Test
+    public void testInvertedPalette ()
+    {
+        byte[] levels = new byte[]{(byte) 255, 0};
+        IndexColorModel cm = new IndexColorModel(1, 2, levels, levels, levels);
+        check(createImage(new BufferedImage(70, 20, BufferedImage.TYPE_BYTE_BINARY, cm)));
+    }
+
+    @Test
+    public void testLargeImage ()
+    {
+        check(createImage(new BufferedImage(1500, 90, BufferedImage.TYPE_BYTE_BINARY)));
+    }
+
+    @Test
+    public void testSmallImage ()
+    {
+        check(createImage(new BufferedImage(13, 7, BufferedImage.TYPE_BYTE_BINARY)));
+    }
+
+    @Test
+    public void testSubimage ()
+    {
+        BufferedImage img = createImage(
+                new BufferedImage(150, 40, BufferedImage.TYPE_BYTE_BINARY));
+        check(img.getSubimage(3, 5, 131, 30));
+    }
+
+    private void check (BufferedImage img)
+    {
+        RunTable table = BilevelRunTableFactory.createTable(img);
+        assertEquals(Orientation.VERTICAL, table.getOrientation());
+        assertEquals(img.getWidth(), table.getWidth());
+        assertEquals(img.getHeight(), table.getHeight());
+
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                int expected = ((img.getRGB(x, y) & 0xFF) < 128) ? PixelSource.FOREGROUND
+                        : PixelSource.BACKGROUND;
+                assertEquals("x:" + x + " y:" + y, expected, table.get(x, y));
+            }
+        }
+    }
+
+    private BufferedImage createImage (BufferedImage img)
+    {
+        Random random = new Random(456);
+
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                // Favor vertical runs
+                boolean black = (x % 7) == 0 || (random.nextInt(4) == 0);
+                img.setRGB(x, y, black ? 0xFF000000 : 0xFFFFFFFF);
+            }
+        }
+
+        return img;
+    }
+}
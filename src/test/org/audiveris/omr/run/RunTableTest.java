@@ -24,6 +24,8 @@ package org.audiveris.omr.run;
 import ij.process.ByteProcessor;
 
 import org.audiveris.omr.image.GlobalFilter;
+import static org.audiveris.omr.image.PixelSource.BACKGROUND;
+import static org.audiveris.omr.image.PixelSource.FOREGROUND;
 import org.audiveris.omr.run.Orientation;
 import static org.audiveris.omr.run.Orientation.*;
 import org.audiveris.omr.run.Run;
@@ -34,8 +36,16 @@ import org.audiveris.omr.util.Predicate;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  *
@@ -90,6 +100,45 @@ public class RunTableTest
         }
     }
 
+    /**
+     * Test that a copy is not impacted by modifications of the original table.
+     */
+    @Test
+    public void testCopy_isolation ()
+    {
+        System.out.println("\n+++ copy_isolation");
+
+        RunTable instance = createHorizontalInstance();
+        RunTable result = instance.copy();
+        instance.addRun(2, new Run(3, 4));
+        instance.removeRun(0, new Run(1, 2));
+
+        assertEquals(createHorizontalInstance(), result);
+        assertEquals(19, result.getWeight());
+        assertEquals(21, instance.getWeight());
+    }
+
+    /**
+     * Test of compact method, of class RunTable.
+     */
+    @Test
+    public void testCompact ()
+    {
+        System.out.println("\n+++ compact");
+
+        RunTable instance = createHorizontalInstance();
+        instance.compact();
+        assertEquals(createHorizontalInstance(), instance);
+        checkGet(instance);
+
+        // Edits after compaction
+        instance.addRun(2, new Run(3, 4));
+        instance.removeRun(3, new Run(4, 1));
+        assertEquals(new RunSequence(new short[]{0, 3, 4}), instance.getSequence(2));
+        assertEquals(new RunSequence(new short[]{2, 6, 2}), instance.getSequence(3));
+        checkGet(instance);
+    }
+
     /**
      * Test of dumpOf method, of class RunTable.
      */
@@ -408,6 +457,235 @@ public class RunTableTest
 
         System.out.println("purge after2:" + removed.dumpOf());
         removed.dumpSequences();
+
+        assertEquals(2, instance.getTotalRunCount());
+        assertEquals(7, removed.getTotalRunCount());
+
+        removed.include(instance);
+        assertEquals(createHorizontalInstance(), removed);
+    }
+
+    /**
+     * Test of decodeRect method, of class RunTable.
+     */
+    @Test
+    public void testDecodeRect ()
+    {
+        System.out.println("\n+++ decodeRect");
+
+        Rectangle rect = new Rectangle(-1, 1, 6, 6); // Partly outside table
+
+        for (RunTable instance : new RunTable[]{
+            createHorizontalInstance(), createVerticalInstance()
+        }) {
+            byte[] dst = new byte[rect.width * rect.height];
+            instance.decodeRect(rect, dst);
+
+            for (int y = 0; y < rect.height; y++) {
+                for (int x = 0; x < rect.width; x++) {
+                    int expected = instance.get(rect.x + x, rect.y + y);
+                    assertEquals(expected, dst[(y * rect.width) + x] & 0xFF);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of decodeRow method, of class RunTable.
+     */
+    @Test
+    public void testDecodeRow ()
+    {
+        System.out.println("\n+++ decodeRow");
+
+        RunTable instance = createHorizontalInstance();
+        ByteProcessor buffer = instance.getBuffer();
+        byte[] dst = new byte[dim.width];
+
+        for (int y = 0; y < dim.height; y++) {
+            instance.decodeRow(y, dst);
+
+            for (int x = 0; x < dim.width; x++) {
+                assertEquals(buffer.get(x, y), dst[x] & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Test of render method, of class RunTable.
+     */
+    @Test
+    public void testRender ()
+    {
+        System.out.println("\n+++ render");
+
+        for (RunTable instance : new RunTable[]{
+            createHorizontalInstance(), createVerticalInstance()
+        }) {
+            BufferedImage img = new BufferedImage(
+                    dim.width,
+                    dim.height,
+                    BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = img.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, dim.width, dim.height);
+            g.setColor(Color.BLACK);
+            instance.render(g, new Point(0, 0));
+            g.dispose();
+
+            for (int y = 0; y < dim.height; y++) {
+                for (int x = 0; x < dim.width; x++) {
+                    assertEquals(instance.get(x, y), img.getRaster().getSample(x, y, 0));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of sequence listeners, of class RunTable.
+     */
+    @Test
+    public void testSequenceListener ()
+    {
+        System.out.println("\n+++ sequenceListener");
+
+        final List<Integer> changes = new ArrayList<Integer>();
+        final List<Integer> pixels = new ArrayList<Integer>();
+        RunTable.SequenceListener listener = new RunTable.SequenceListener()
+        {
+            @Override
+            public void sequenceChanged (RunTable table,
+                                         int index)
+            {
+                changes.add(index);
+                pixels.add(table.get(8, 2)); // Modification must already be visible
+            }
+        };
+
+        RunTable instance = createHorizontalInstance();
+        instance.addSequenceListener(listener);
+        instance.addRun(2, 8, 1);
+        instance.removeRun(1, new Run(4, 2));
+        assertEquals(Arrays.asList(2, 1), changes);
+        assertEquals(FOREGROUND, (int) pixels.get(0));
+
+        instance.removeSequenceListener(listener);
+        instance.addRun(0, 9, 1);
+        assertEquals(2, changes.size());
+    }
+
+    /**
+     * Test of get method, of class RunTable, on both short and indexed sequences.
+     */
+    @Test
+    public void testGetIndexed ()
+    {
+        RunTable instance = new RunTable(HORIZONTAL, 100, 2);
+
+        for (int x = 1; x < 100; x += 4) {
+            instance.addRun(0, new Run(x, 2));
+        }
+
+        instance.addRun(1, new Run(3, 5));
+        checkGet(instance);
+
+        // Modifications must invalidate the sequence index
+        instance.removeRun(0, new Run(1, 2));
+        instance.removeRun(0, new Run(41, 2));
+        instance.addRun(0, new Run(43, 2));
+        checkGet(instance);
+
+        checkGet(createHorizontalInstance());
+        checkGet(createVerticalInstance());
+    }
+
+    /**
+     * Test of iterator remove, of class RunTable.
+     */
+    @Test
+    public void testIteratorRemove ()
+    {
+        System.out.println("\n+++ iteratorRemove");
+
+        RunTable instance = createHorizontalInstance();
+
+        // Remove first and last runs, keep the middle one
+        int count = 0;
+
+        for (Iterator<Run> it = instance.iterator(3); it.hasNext();) {
+            count++;
+
+            if (it.next().getLength() == 2) {
+                it.remove();
+            }
+        }
+
+        assertEquals("Each run must be visited exactly once", 3, count);
+        assertEquals(new RunSequence(new short[]{0, 4, 1}), instance.getSequence(3));
+
+        // Remove all runs
+        count = 0;
+
+        for (Iterator<Run> it = instance.iterator(4); it.hasNext();) {
+            count++;
+            it.next();
+            it.remove();
+        }
+
+        assertEquals("Each run must be visited exactly once", 2, count);
+        assertTrue(instance.isSequenceEmpty(4));
+
+        // Remove just the last run of a sequence
+        count = 0;
+
+        for (Iterator<Run> it = instance.iterator(0); it.hasNext();) {
+            count++;
+
+            if (it.next().getStart() == 5) {
+                it.remove();
+            }
+        }
+
+        assertEquals("Each run must be visited exactly once", 2, count);
+        assertEquals(1, instance.getSequence(0).size());
+        assertEquals(6, instance.getWeight());
+        checkGet(instance);
+    }
+
+    /**
+     * Test of runs longer than 16-bit lengths.
+     */
+    @Test
+    public void testLongRuns ()
+    {
+        System.out.println("\n+++ longRuns");
+
+        final int width = 200000;
+        RunTable instance = new RunTable(HORIZONTAL, width, 2);
+        instance.addRun(0, new Run(70000, 100000));
+        instance.addRun(0, new Run(5, 3));
+        instance.addRun(0, new Run(199999, 1));
+        instance.addRun(1, new Run(0, width));
+
+        assertEquals(FOREGROUND, instance.get(70000, 0));
+        assertEquals(FOREGROUND, instance.get(169999, 0));
+        assertEquals(BACKGROUND, instance.get(170000, 0));
+        assertEquals(FOREGROUND, instance.get(199999, 0));
+        Run run = instance.getRunAt(123456, 0);
+        assertEquals(70000, run.getStart());
+        assertEquals(100000, run.getLength());
+        assertEquals(width, instance.getRunAt(width - 1, 1).getLength());
+        assertEquals(100004 + width, instance.getWeight());
+
+        Point offset = new Point();
+        RunTable trimmed = instance.compact().trim(offset);
+        assertEquals(new Point(0, 0), offset);
+        assertEquals(instance, trimmed);
+
+        byte[] row = new byte[width];
+        instance.decodeRow(0, row);
+        assertEquals((byte) FOREGROUND, row[169999]);
+        assertEquals((byte) BACKGROUND, row[170000]);
     }
 
     /**
@@ -482,6 +760,21 @@ public class RunTableTest
         assertEquals(5, trimmed.getHeight());
     }
 
+    //----------//
+    // checkGet //
+    //----------//
+    private void checkGet (RunTable instance)
+    {
+        ByteProcessor buffer = instance.getBuffer();
+
+        for (int y = 0; y < instance.getHeight(); y++) {
+            for (int x = 0; x < instance.getWidth(); x++) {
+                assertEquals(buffer.get(x, y), instance.get(x, y));
+                assertEquals(buffer.get(x, y) == 0, instance.getRunAt(x, y) != null);
+            }
+        }
+    }
+
     //--------------------------//
     // createHorizontalInstance //
     //--------------------------//
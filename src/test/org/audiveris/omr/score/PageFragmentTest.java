@@ -0,0 +1,172 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                P a g e F r a g m e n t T e s t                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.score;
+
+import org.audiveris.proxymusic.Attributes;
+import org.audiveris.proxymusic.Credit;
+import org.audiveris.proxymusic.Identification;
+import org.audiveris.proxymusic.Miscellaneous;
+import org.audiveris.proxymusic.PartList;
+import org.audiveris.proxymusic.PartName;
+import org.audiveris.proxymusic.ScorePart;
+import org.audiveris.proxymusic.ScorePartwise;
+import org.audiveris.proxymusic.util.Marshalling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class {@code PageFragmentTest} checks that a recorded page fragment, once replayed,
+ * gives the same MusicXML content as the page processing it replaces.
+ *
+ * @author Hervé Bitteur
+ */
+public class PageFragmentTest
+{
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testChain ()
+            throws Exception
+    {
+        System.out.println("\n+++ testChain");
+
+        final ScorePartwise empty = createScore();
+        final PageFragment none = new PageFragment("ctx", empty, empty.getPart());
+        none.record(empty, empty.getPart());
+        assertEquals("start", PageFragment.chain("start", none));
+
+        final ScorePartwise score = createScore();
+        final PageFragment fragment = new PageFragment("ctx", score, score.getPart());
+        addPage(score, 1, 2);
+        fragment.record(score, score.getPart());
+        assertNotEquals("start", PageFragment.chain("start", fragment));
+    }
+
+    @Test
+    public void testRecordReplay ()
+            throws Exception
+    {
+        System.out.println("\n+++ testRecordReplay");
+
+        // Reference: first page, then second page processed
+        final ScorePartwise processed = createScore();
+        addPage(processed, 1, 2);
+
+        final PageFragment fragment = new PageFragment(
+                "ctx",
+                processed,
+                processed.getPart());
+        addPage(processed, 3, 3);
+        fragment.record(processed, processed.getPart());
+        assertEquals("ctx", fragment.getContext());
+
+        // Same first page, then second page replayed from fragment
+        final ScorePartwise replayed = createScore();
+        addPage(replayed, 1, 2);
+        fragment.replay(replayed, replayed.getPart());
+
+        assertEquals(marshal(processed), marshal(replayed));
+    }
+
+    //---------//
+    // addPage //
+    //---------//
+    /**
+     * Simulate the processing of a page, which adds measures and a credit.
+     */
+    private static void addPage (ScorePartwise score,
+                                 int firstMeasure,
+                                 int measureCount)
+    {
+        final Credit credit = new Credit();
+        credit.setPage(BigInteger.valueOf(firstMeasure));
+        score.getCredit().add(credit);
+
+        for (ScorePartwise.Part part : score.getPart()) {
+            for (int i = 0; i < measureCount; i++) {
+                final ScorePartwise.Part.Measure measure = new ScorePartwise.Part.Measure();
+                measure.setNumber(Integer.toString(firstMeasure + i));
+
+                if (i == 0) {
+                    final Attributes attributes = new Attributes();
+                    attributes.setDivisions(new BigDecimal(firstMeasure * 4));
+                    measure.getNoteOrBackupOrForward().add(attributes);
+                }
+
+                part.getMeasure().add(measure);
+            }
+        }
+    }
+
+    //-------------//
+    // createScore //
+    //-------------//
+    /**
+     * Create a score with two empty parts.
+     */
+    private static ScorePartwise createScore ()
+    {
+        final ScorePartwise score = new ScorePartwise();
+        final Identification identification = new Identification();
+        identification.setMiscellaneous(new Miscellaneous());
+        score.setIdentification(identification);
+
+        final PartList partList = new PartList();
+        score.setPartList(partList);
+
+        for (String id : new String[]{"P1", "P2"}) {
+            final ScorePart scorePart = new ScorePart();
+            scorePart.setId(id);
+
+            final PartName partName = new PartName();
+            partName.setValue("Part " + id);
+            scorePart.setPartName(partName);
+            partList.getPartGroupOrScorePart().add(scorePart);
+
+            final ScorePartwise.Part part = new ScorePartwise.Part();
+            part.setId(scorePart);
+            score.getPart().add(part);
+        }
+
+        return score;
+    }
+
+    //---------//
+    // marshal //
+    //---------//
+    private static String marshal (ScorePartwise score)
+            throws Exception
+    {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Marshalling.marshal(score, os, false, 2);
+
+        return os.toString(StandardCharsets.UTF_8.name()).replaceAll(
+                "<encoding-date>.*</encoding-date>",
+                "");
+    }
+}
@@ -0,0 +1,173 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                S c o r e E x p o r t e r T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+package org.audiveris.omr.score;
+
+import org.audiveris.proxymusic.Attributes;
+import org.audiveris.proxymusic.Identification;
+import org.audiveris.proxymusic.Miscellaneous;
+import org.audiveris.proxymusic.PartList;
+import org.audiveris.proxymusic.PartName;
+import org.audiveris.proxymusic.ScorePart;
+import org.audiveris.proxymusic.ScorePartwise;
+import org.audiveris.proxymusic.util.Marshalling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Check that a streamed export is equivalent to the plain in-memory export.
+ *
+ * @author Hervé Bitteur
+ */
+public class ScoreExporterTest
+{
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testStreamedExport ()
+            throws Exception
+    {
+        // Plain: all measures kept in memory, then marshalled
+        final ScorePartwise plain = createScore();
+        addPage(plain, 1, 2, null);
+        addPage(plain, 3, 3, null);
+
+        final ByteArrayOutputStream plainOs = new ByteArrayOutputStream();
+        Marshalling.marshal(plain, plainOs, false, 2);
+
+        // Streamed: measures handed over to the sink page after page
+        final ScorePartwise streamed = createScore();
+        final ScoreExporter.PartStreams streams = new ScoreExporter.PartStreams();
+        final ByteArrayOutputStream streamedOs = new ByteArrayOutputStream();
+
+        try {
+            addPage(streamed, 1, 2, streams);
+            addPage(streamed, 3, 3, streams);
+
+            for (ScorePartwise.Part part : streamed.getPart()) {
+                assertTrue("Measures left in memory", part.getMeasure().isEmpty());
+            }
+
+            ScoreExporter.assemble(streamed, streams, streamedOs, false);
+        } finally {
+            streams.delete();
+        }
+
+        assertEquals(
+                "Streamed export differs from plain export",
+                normalize(plainOs.toByteArray()),
+                normalize(streamedOs.toByteArray()));
+    }
+
+    //---------//
+    // addPage //
+    //---------//
+    /**
+     * Simulate the processing of a page, which adds measures to each part.
+     * If a sink is provided, the page measures are then handed over to it.
+     */
+    private static void addPage (ScorePartwise score,
+                                 int firstMeasure,
+                                 int measureCount,
+                                 PartwiseBuilder.MeasureSink sink)
+    {
+        for (ScorePartwise.Part part : score.getPart()) {
+            final List<ScorePartwise.Part.Measure> measures = new ArrayList<ScorePartwise.Part.Measure>();
+
+            for (int i = 0; i < measureCount; i++) {
+                final ScorePartwise.Part.Measure measure = new ScorePartwise.Part.Measure();
+                measure.setNumber(Integer.toString(firstMeasure + i));
+
+                if (i == 0) {
+                    final Attributes attributes = new Attributes();
+                    attributes.setDivisions(new BigDecimal(firstMeasure * 4));
+                    measure.getNoteOrBackupOrForward().add(attributes);
+                }
+
+                measures.add(measure);
+            }
+
+            if (sink != null) {
+                sink.write(part, measures);
+            } else {
+                part.getMeasure().addAll(measures);
+            }
+        }
+    }
+
+    //-------------//
+    // createScore //
+    //-------------//
+    /**
+     * Create a score with two empty parts.
+     */
+    private static ScorePartwise createScore ()
+    {
+        final ScorePartwise score = new ScorePartwise();
+        final Identification identification = new Identification();
+        identification.setMiscellaneous(new Miscellaneous());
+        score.setIdentification(identification);
+
+        final PartList partList = new PartList();
+        score.setPartList(partList);
+
+        for (String id : new String[]{"P1", "P2"}) {
+            final ScorePart scorePart = new ScorePart();
+            scorePart.setId(id);
+
+            final PartName partName = new PartName();
+            partName.setValue("Part " + id);
+            scorePart.setPartName(partName);
+            partList.getPartGroupOrScorePart().add(scorePart);
+
+            final ScorePartwise.Part part = new ScorePartwise.Part();
+            part.setId(scorePart);
+            score.getPart().add(part);
+        }
+
+        return score;
+    }
+
+    //-----------//
+    // normalize //
+    //-----------//
+    /**
+     * Unmarshal the provided MusicXML content, and marshal it again in a canonical way.
+     */
+    private static String normalize (byte[] bytes)
+            throws Exception
+    {
+        ScorePartwise partwise = (ScorePartwise) Marshalling.unmarshal(
+                new ByteArrayInputStream(bytes));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Marshalling.marshal(partwise, os, false, 2);
+
+        return os.toString(StandardCharsets.UTF_8.name()).replaceAll(
+                "<encoding-date>.*</encoding-date>",
+                "");
+    }
+}
@@ -0,0 +1,93 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                B o o k S h a r d i n g T e s t                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * Class {@code BookShardingTest} checks the split of book sheets among workers.
+ *
+ * @author Hervé Bitteur
+ */
+public class BookShardingTest
+{
+    //~ Methods ------------------------------------------------------------------------------------
+
+    @Test
+    public void testFiveSheetsThreeWorkers ()
+    {
+        List<SortedSet<Integer>> ranges = BookSharding.getRanges(sheets(5), 3);
+        assertEquals("ranges", 3, ranges.size());
+        assertEquals(Arrays.asList(1), new ArrayList<Integer>(ranges.get(0)));
+        assertEquals(Arrays.asList(2, 3), new ArrayList<Integer>(ranges.get(1)));
+        assertEquals(Arrays.asList(4, 5), new ArrayList<Integer>(ranges.get(2)));
+    }
+
+    @Test
+    public void testFiveSheetsTwoWorkers ()
+    {
+        List<SortedSet<Integer>> ranges = BookSharding.getRanges(sheets(5), 2);
+        assertEquals("ranges", 2, ranges.size());
+        assertEquals(Arrays.asList(1, 2), new ArrayList<Integer>(ranges.get(0)));
+        assertEquals(Arrays.asList(3, 4, 5), new ArrayList<Integer>(ranges.get(1)));
+    }
+
+    @Test
+    public void testMoreWorkersThanSheets ()
+    {
+        List<SortedSet<Integer>> ranges = BookSharding.getRanges(sheets(3), 8);
+        assertEquals("one range per sheet", 3, ranges.size());
+
+        for (int i = 0; i < ranges.size(); i++) {
+            assertEquals(Arrays.asList(i + 1), new ArrayList<Integer>(ranges.get(i)));
+        }
+    }
+
+    @Test
+    public void testUnsortedSheets ()
+    {
+        List<Integer> numbers = new ArrayList<Integer>(Arrays.asList(4, 1, 3, 2));
+        List<SortedSet<Integer>> ranges = BookSharding.getRanges(numbers, 2);
+        assertEquals(Arrays.asList(1, 2), new ArrayList<Integer>(ranges.get(0)));
+        assertEquals(Arrays.asList(3, 4), new ArrayList<Integer>(ranges.get(1)));
+    }
+
+    //--------//
+    // sheets //
+    //--------//
+    private static List<Integer> sheets (int count)
+    {
+        final List<Integer> numbers = new ArrayList<Integer>();
+
+        for (int i = 1; i <= count; i++) {
+            numbers.add(i);
+        }
+
+        return numbers;
+    }
+}
@@ -0,0 +1,191 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              P a r a l l e l S y s t e m s T e s t                             //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet;
+
+import org.audiveris.omr.Main;
+import org.audiveris.omr.OMR;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantManager;
+import org.audiveris.omr.sig.inter.Inter;
+import org.audiveris.omr.step.Step;
+import org.audiveris.omr.util.OmrExecutors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Stress test checking that systems processed in parallel through BEAMS, HEADS and STEMS
+ * steps give the same interpretations as a sequential processing.
+ * <p>
+ * This is an integration test, to be run manually: it transcribes all images of data/examples and
+ * thus needs Tesseract and the trained glyph classifier.
+ *
+ * @author Hervé Bitteur
+ */
+@Ignore("Integration test: needs Tesseract, the trained classifier and data/examples")
+public class ParallelSystemsTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final String PARALLEL_KEY = Main.class.getName() + ".processSystemsInParallel";
+
+    private static final Path EXAMPLES = Paths.get("data", "examples");
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Initial value of default parallelism, to be restored. */
+    private boolean initialParallelism;
+
+    /** Initial value of systems parallelism, to be restored. */
+    private boolean initialSystemsParallelism;
+
+    /** Constant driving systems parallelism. */
+    private Constant.Boolean parallel;
+
+    //~ Methods ------------------------------------------------------------------------------------
+    @Before
+    public void setUp ()
+    {
+        OMR.engine = BookManager.getInstance();
+        initialParallelism = OmrExecutors.defaultParallelism.getSpecific();
+        OmrExecutors.defaultParallelism.setSpecific(true);
+
+        // Make sure Main constants are registered
+        initialSystemsParallelism = Main.processSystemsInParallel();
+        parallel = (Constant.Boolean) ConstantManager.getInstance().getConstant(PARALLEL_KEY);
+    }
+
+    @After
+    public void tearDown ()
+    {
+        parallel.setValue(initialSystemsParallelism);
+        OmrExecutors.defaultParallelism.setSpecific(initialParallelism);
+    }
+
+    @Test
+    public void testSequentialEqualsParallel ()
+            throws Exception
+    {
+        final List<Path> examples = getExamples();
+        assertFalse("No example image in " + EXAMPLES, examples.isEmpty());
+
+        for (Path path : examples) {
+            parallel.setValue(false);
+
+            List<String> sequential = process(path);
+            parallel.setValue(true);
+
+            List<String> concurrent = process(path);
+            assertFalse("No interpretation for " + path, sequential.isEmpty());
+            assertEquals("Parallel/sequential discrepancy on " + path, sequential, concurrent);
+        }
+    }
+
+    //----------//
+    // describe //
+    //----------//
+    /**
+     * Describe an inter with no reference to its ID, which depends on processing order.
+     */
+    private static String describe (Inter inter)
+    {
+        Rectangle b = inter.getBounds();
+
+        return String.format(
+                Locale.US,
+                "%s %d,%d,%d,%d %.5f",
+                inter.getShape(),
+                b.x,
+                b.y,
+                b.width,
+                b.height,
+                inter.getGrade());
+    }
+
+    //-------------//
+    // getExamples //
+    //-------------//
+    private static List<Path> getExamples ()
+            throws IOException
+    {
+        List<Path> paths = new ArrayList<Path>();
+        DirectoryStream<Path> stream = Files.newDirectoryStream(EXAMPLES, "*.png");
+
+        try {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        } finally {
+            stream.close();
+        }
+
+        Collections.sort(paths);
+
+        return paths;
+    }
+
+    //---------//
+    // process //
+    //---------//
+    /**
+     * Process the provided image up to STEMS step, and report the sorted descriptions of
+     * all resulting interpretations.
+     */
+    private static List<String> process (Path path)
+    {
+        final Book book = new BasicBook(path);
+        final List<String> descriptions = new ArrayList<String>();
+
+        try {
+            book.createStubs(null);
+            book.reachBookStep(Step.STEMS, false, null);
+
+            for (SheetStub stub : book.getStubs()) {
+                for (SystemInfo system : stub.getSheet().getSystems()) {
+                    for (Inter inter : system.getSig().vertexSet()) {
+                        descriptions.add(describe(inter));
+                    }
+                }
+            }
+        } finally {
+            book.close();
+        }
+
+        Collections.sort(descriptions);
+
+        return descriptions;
+    }
+}
@@ -0,0 +1,194 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                          A b s t r a c t C h o r d I n t e r T e s t                           //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sig.inter;
+
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.math.Rational;
+import org.audiveris.omr.sheet.Sheet;
+import org.audiveris.omr.sheet.SheetStub;
+import org.audiveris.omr.sheet.Staff;
+import org.audiveris.omr.sheet.SystemInfo;
+import org.audiveris.omr.sig.InterIndex;
+import org.audiveris.omr.sig.SIGraph;
+import org.audiveris.omr.sig.relation.AugmentationRelation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class {@code AbstractChordInterTest} checks that chord durations follow the augmentation
+ * dots present in sig.
+ * <p>
+ * This is why StackBackup, when stacks are solved sequentially, deletes at once the inters left
+ * out of a configuration: a dot merely recorded for later deletion still counts.
+ *
+ * @author Hervé Bitteur
+ */
+public class AbstractChordInterTest
+{
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    private SIGraph sig;
+
+    //~ Methods ------------------------------------------------------------------------------------
+    @Before
+    public void setUp ()
+    {
+        final InterIndex index = new InterIndex();
+        final SheetStub stub = (SheetStub) Proxy.newProxyInstance(
+                SheetStub.class.getClassLoader(),
+                new Class<?>[]{SheetStub.class},
+                new InvocationHandler()
+        {
+            @Override
+            public Object invoke (Object proxy,
+                                  Method method,
+                                  Object[] args)
+            {
+                return null; // No page fragment, in particular
+            }
+        });
+        final AtomicInteger idGenerator = new AtomicInteger();
+        final Sheet sheet = (Sheet) Proxy.newProxyInstance(
+                Sheet.class.getClassLoader(),
+                new Class<?>[]{Sheet.class},
+                new InvocationHandler()
+        {
+            @Override
+            public Object invoke (Object proxy,
+                                  Method method,
+                                  Object[] args)
+            {
+                switch (method.getName()) {
+                case "getInterIndex":
+                    return index;
+
+                case "getPersistentIdGenerator":
+                    return idGenerator;
+
+                case "getStub":
+                    return stub;
+
+                case "getSystems":
+                    return Collections.emptyList();
+
+                default:
+                    return null;
+                }
+            }
+        });
+        index.initTransients(sheet);
+        sig = new SystemInfo(1, sheet, new ArrayList<Staff>()).getSig();
+    }
+
+    @Test
+    public void testDiscardedDotDeleted ()
+    {
+        // Chord with two heads, only one of them dotted: dot is discarded
+        final HeadChordInter chord = new HeadChordInter(0.8);
+        final AugmentationDotInter dot = addDot(addHead(chord, 20));
+        addHead(chord, 40);
+
+        chord.countDots(null);
+        assertTrue("Discarded dot still in sig", dot.isDeleted());
+        assertEquals(Rational.valueOf(1, 4), chord.getDurationSansTuplet());
+    }
+
+    @Test
+    public void testExcludedDot ()
+    {
+        final HeadChordInter chord = new HeadChordInter(0.8);
+        final AugmentationDotInter dot = addDot(addHead(chord, 20));
+
+        chord.countDots();
+        assertEquals(Rational.valueOf(3, 8), chord.getDurationSansTuplet());
+
+        // Configuration without the dot, applied to sig (sequential solving)
+        dot.delete();
+        chord.countDots();
+        assertEquals(
+                "Dot left out of sig must not count",
+                Rational.valueOf(1, 4),
+                chord.getDurationSansTuplet());
+    }
+
+    @Test
+    public void testRecordedDot ()
+    {
+        final HeadChordInter chord = new HeadChordInter(0.8);
+        final AugmentationDotInter dot = addDot(addHead(chord, 20));
+
+        // Configuration without the dot, just recorded (deferred solving)
+        final Set<Inter> toDelete = new LinkedHashSet<Inter>();
+        toDelete.add(dot);
+        chord.countDots(toDelete);
+        assertEquals(
+                "Dot still in sig counts",
+                Rational.valueOf(3, 8),
+                chord.getDurationSansTuplet());
+    }
+
+    //--------//
+    // addDot //
+    //--------//
+    private AugmentationDotInter addDot (HeadInter head)
+    {
+        final AugmentationDotInter dot = new AugmentationDotInter(null, 0.8);
+        sig.addVertex(dot);
+        sig.addEdge(dot, head, new AugmentationRelation());
+
+        return dot;
+    }
+
+    //---------//
+    // addHead //
+    //---------//
+    private HeadInter addHead (HeadChordInter chord,
+                               int y)
+    {
+        final HeadInter head = new HeadInter(
+                new Point(10, y),
+                null,
+                new Rectangle(5, y - 5, 10, 10),
+                Shape.NOTEHEAD_BLACK,
+                null,
+                null,
+                0);
+        sig.addVertex(head);
+        chord.addMember(head);
+
+        return head;
+    }
+}
@@ -0,0 +1,199 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   B i n a r y X m l T e s t                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlID;
+import javax.xml.bind.annotation.XmlIDREF;
+import javax.xml.bind.annotation.XmlList;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSeeAlso;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Class {@code BinaryXmlTest} checks that JAXB data written in binary XML is read back
+ * identically.
+ *
+ * @author Hervé Bitteur
+ */
+public class BinaryXmlTest
+{
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testIsBinary ()
+            throws Exception
+    {
+        byte[] xml = "<?xml version=\"1.0\"?><root/>".getBytes("UTF-8");
+        assertFalse(BinaryXml.isBinary(new ByteArrayInputStream(xml)));
+        assertTrue(BinaryXml.isBinary(new ByteArrayInputStream(toBinary(createRoot()))));
+    }
+
+    @Test
+    public void testRoundTrip ()
+            throws Exception
+    {
+        Root root = createRoot();
+        byte[] binary = toBinary(root);
+        String xml = toXml(root);
+
+        assertEquals(xml, toXml(fromBinary(binary)));
+        assertTrue(binary.length < (xml.length() / 2));
+    }
+
+    private Root createRoot ()
+    {
+        Root root = new Root();
+        root.name = "Sonata é♯";
+        root.items = new ArrayList<Item>();
+
+        for (int i = 0; i < 50; i++) {
+            Item item = (i % 3 == 0) ? new SubItem() : new Item();
+            item.id = Integer.toString(i);
+            item.shape = (i % 2 == 0) ? "NOTEHEAD_BLACK" : "STEM";
+            item.grade = i / 7.0;
+            item.value = (i % 5 == 0) ? "" : ("0" + i + " -" + i);
+            item.partner = (i > 0) ? root.items.get(i - 1) : null;
+            item.ids = new int[]{i, 2 * i, 1234567890};
+            root.items.add(item);
+        }
+
+        return root;
+    }
+
+    private Root fromBinary (byte[] binary)
+            throws Exception
+    {
+        BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(binary));
+        assertTrue(BinaryXml.isBinary(in));
+
+        XMLStreamReader reader = BinaryXml.createReader(in);
+        Root root = (Root) getContext().createUnmarshaller().unmarshal(reader);
+        reader.close();
+
+        return root;
+    }
+
+    private JAXBContext getContext ()
+            throws Exception
+    {
+        return JAXBContext.newInstance(Root.class);
+    }
+
+    private byte[] toBinary (Root root)
+            throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLStreamWriter writer = BinaryXml.createWriter(out);
+        getContext().createMarshaller().marshal(root, writer);
+        writer.close();
+
+        return out.toByteArray();
+    }
+
+    private String toXml (Root root)
+            throws Exception
+    {
+        StringWriter sw = new StringWriter();
+        Marshaller m = getContext().createMarshaller();
+        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        m.marshal(root, sw);
+
+        return sw.toString();
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    @XmlAccessorType(XmlAccessType.NONE)
+    @XmlSeeAlso(SubItem.class)
+    public static class Item
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        @XmlID
+        @XmlAttribute
+        String id;
+
+        @XmlAttribute
+        String shape;
+
+        @XmlAttribute
+        double grade;
+
+        @XmlIDREF
+        @XmlAttribute
+        Item partner;
+
+        @XmlList
+        @XmlElement
+        int[] ids;
+
+        @XmlElement
+        String value;
+    }
+
+    @XmlAccessorType(XmlAccessType.NONE)
+    @XmlRootElement(name = "root")
+    public static class Root
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        @XmlAttribute
+        String name;
+
+        @XmlElementWrapper(name = "items")
+        @XmlElement(name = "item")
+        List<Item> items;
+    }
+
+    @XmlAccessorType(XmlAccessType.NONE)
+    public static class SubItem
+            extends Item
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        @XmlList
+        @XmlElement
+        List<String> words = new ArrayList<String>();
+
+        public SubItem ()
+        {
+            words.add("allegro");
+            words.add("42");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                J a x b C o n t e x t s T e s t                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Hervé Bitteur and others 2000-2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Class {@code JaxbContextsTest} checks the sharing of JAXB contexts and the per-thread reuse
+ * of marshallers and unmarshallers.
+ *
+ * @author Hervé Bitteur
+ */
+public class JaxbContextsTest
+{
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testContextShared ()
+            throws Exception
+    {
+        final JAXBContext context = JaxbContexts.getContext(Item.class);
+        assertSame(context, JaxbContexts.getContext(Item.class));
+        assertNotSame(context, JaxbContexts.getContext(Item.class, Other.class));
+    }
+
+    @Test
+    public void testMarshallerPerThread ()
+            throws Exception
+    {
+        final Marshaller m = JaxbContexts.getMarshaller(Item.class);
+        assertSame(m, JaxbContexts.getMarshaller(Item.class));
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            final Marshaller other = executor.submit(new Callable<Marshaller>()
+            {
+                @Override
+                public Marshaller call ()
+                        throws Exception
+                {
+                    return JaxbContexts.getMarshaller(Item.class);
+                }
+            }).get();
+            assertNotSame(m, other);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMarshallerReset ()
+            throws Exception
+    {
+        final Marshaller m = JaxbContexts.getMarshaller(Item.class);
+        m.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+
+        final Marshaller m2 = JaxbContexts.getMarshaller(Item.class);
+        assertEquals(Boolean.FALSE, m2.getProperty(Marshaller.JAXB_FRAGMENT));
+        assertEquals(Boolean.FALSE, m2.getProperty(Marshaller.JAXB_FORMATTED_OUTPUT));
+    }
+
+    @Test
+    public void testRoundTrip ()
+            throws Exception
+    {
+        for (int i = 0; i < 3; i++) {
+            final Item item = new Item();
+            item.value = i;
+
+            final StringWriter writer = new StringWriter();
+            JaxbContexts.getMarshaller(Item.class).marshal(item, writer);
+
+            final Unmarshaller um = JaxbContexts.getUnmarshaller(Item.class);
+            final Item copy = (Item) um.unmarshal(new StringReader(writer.toString()));
+            assertEquals(i, copy.value);
+        }
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    @XmlRootElement(name = "item")
+    public static class Item
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        @XmlAttribute
+        public int value;
+    }
+
+    @XmlRootElement(name = "other")
+    public static class Other
+    {
+    }
+}